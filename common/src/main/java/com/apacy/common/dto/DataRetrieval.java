@@ -12,5 +12,18 @@ public record DataRetrieval(
     String tableName,
     List<String> columns,
     WhereConditionNode filterCondition, // Sebaiknya merujuk ke class/record internal SM
-    boolean useIndex // perlu ubah jadi Map<String,IndexType>? 
-) {}
\ No newline at end of file
+    boolean useIndex, // perlu ubah jadi Map<String,IndexType>? 
+    boolean indexOnly, // Boleh dijawab dari kolom kunci + INCLUDE indeks tanpa membaca heap
+    String orderBy, // Baris harus dikembalikan terurut menurut kolom ini (null = urutan bebas)
+    boolean descending
+) {
+    public DataRetrieval(String tableName, List<String> columns, WhereConditionNode filterCondition,
+            boolean useIndex) {
+        this(tableName, columns, filterCondition, useIndex, false);
+    }
+
+    public DataRetrieval(String tableName, List<String> columns, WhereConditionNode filterCondition,
+            boolean useIndex, boolean indexOnly) {
+        this(tableName, columns, filterCondition, useIndex, indexOnly, null, false);
+    }
+}
\ No newline at end of file
@@ -1,4 +1,7 @@
 package com.apacy.common.dto;
+import java.util.Collection;
+import java.util.List;
+
 import com.apacy.common.enums.*;
 
 /**
@@ -6,7 +9,71 @@ import com.apacy.common.enums.*;
  */
 public record IndexSchema(
     String indexName,  // misal: "idx_students_id"
-    String columnName, // misalin: "StudentID"
-    IndexType indexType,     // misal: 1=HASH, 2=BTREE
-    String indexFile   // misal: "students_id.idx"
-) {}
\ No newline at end of file
+    String columnName, // misalin: "StudentID"; indeks komposit: "prodi_id,angkatan"
+    IndexType indexType,     // misal: 1=HASH, 2=BTREE, 3=BITMAP
+    String indexFile,  // misal: "students_id.idx"
+    String tablespace, // null = ikut tablespace tabelnya
+    List<String> includeColumns, // Kolom non-kunci yang disimpan di leaf (INCLUDE), kosong = tidak ada
+    boolean unique     // true = satu kunci paling banyak satu baris (PRIMARY KEY), ditegakkan oleh indeks
+) {
+
+    /** Pemisah nama kolom pada columnName indeks komposit. */
+    public static final String COLUMN_SEPARATOR = ",";
+
+    public IndexSchema {
+        includeColumns = includeColumns == null ? List.of() : List.copyOf(includeColumns);
+    }
+
+    // Constructor overload untuk backward compatibility
+    public IndexSchema(String indexName, String columnName, IndexType indexType, String indexFile) {
+        this(indexName, columnName, indexType, indexFile, null);
+    }
+
+    public IndexSchema(String indexName, String columnName, IndexType indexType, String indexFile,
+            String tablespace) {
+        this(indexName, columnName, indexType, indexFile, tablespace, List.of());
+    }
+
+    public IndexSchema(String indexName, String columnName, IndexType indexType, String indexFile,
+            String tablespace, List<String> includeColumns) {
+        this(indexName, columnName, indexType, indexFile, tablespace, includeColumns, false);
+    }
+
+    public IndexSchema withTablespace(String newTablespace) {
+        return new IndexSchema(indexName, columnName, indexType, indexFile, newTablespace, includeColumns, unique);
+    }
+
+    public IndexSchema withUnique(boolean newUnique) {
+        return new IndexSchema(indexName, columnName, indexType, indexFile, tablespace, includeColumns, newUnique);
+    }
+
+    /**
+     * Gabungkan daftar kolom kunci menjadi columnName indeks (urutan dipertahankan).
+     */
+    public static String joinColumns(List<String> columns) {
+        return String.join(COLUMN_SEPARATOR, columns);
+    }
+
+    /**
+     * Kolom kunci sesuai urutan definisi indeks; satu elemen untuk indeks biasa.
+     */
+    public List<String> keyColumns() {
+        return List.of(columnName.split(COLUMN_SEPARATOR));
+    }
+
+    public boolean isComposite() {
+        return columnName.contains(COLUMN_SEPARATOR);
+    }
+
+    /**
+     * true jika semua kolom bisa dijawab dari entri indeks saja (kolom kunci + INCLUDE).
+     */
+    public boolean covers(Collection<String> columns) {
+        for (String column : columns) {
+            if (!keyColumns().contains(column) && !includeColumns.contains(column)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.apacy.common.dto;
+
+import java.util.List;
+
+import com.apacy.common.enums.PartitionType;
+
+/**
+ * Record (DTO) untuk metadata partisi horizontal sebuah tabel.
+ *
+ * HASH  : baris dipetakan ke partisi hash(kolom) mod partitionCount.
+ * RANGE : rangeBounds berisi batas atas (eksklusif) tiap partisi, terurut naik.
+ *         Partisi terakhir menampung sisa nilai, sehingga
+ *         partitionCount = rangeBounds.size() + 1.
+ */
+public record PartitionSchema(
+    PartitionType type,       // HASH atau RANGE
+    String columnName,        // Kolom kunci partisi
+    int partitionCount,       // Jumlah partisi (file data terpisah)
+    List<Object> rangeBounds  // Hanya untuk RANGE, kosong untuk HASH
+) {
+
+    public static PartitionSchema hash(String columnName, int partitionCount) {
+        return new PartitionSchema(PartitionType.HASH, columnName, partitionCount, List.of());
+    }
+
+    public static PartitionSchema range(String columnName, List<Object> rangeBounds) {
+        return new PartitionSchema(PartitionType.RANGE, columnName, rangeBounds.size() + 1, List.copyOf(rangeBounds));
+    }
+
+    /**
+     * Nama file fisik untuk satu partisi, diturunkan dari nama file dasar
+     * (misal "orders.dat" -> "orders_p2.dat", "orders_id.idx" -> "orders_id_p2.idx").
+     */
+    public static String segmentFile(String baseFile, int partition) {
+        int dot = baseFile.lastIndexOf('.');
+        if (dot <= 0) {
+            return baseFile + "_p" + partition;
+        }
+        return baseFile.substring(0, dot) + "_p" + partition + baseFile.substring(dot);
+    }
+}
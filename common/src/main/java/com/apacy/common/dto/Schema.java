@@ -3,6 +3,9 @@ package com.apacy.common.dto;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.apacy.common.enums.CompressionType;
+import com.apacy.common.enums.StorageEngine;
+
 /**
  * Representasi skema DAN metadata tabel (kumpulan kolom,
  * nama file, dan indeks).
@@ -12,7 +15,12 @@ public record Schema(
     String dataFile,           // Lokasi file data (e.g., "students.dat")
     List<Column> columns,      // Daftar kolom
     List<IndexSchema> indexes, // Daftar indeks
-    List<ForeignKeySchema> foreignKeys // Daftar Foreign Keys
+    List<ForeignKeySchema> foreignKeys, // Daftar Foreign Keys
+    PartitionSchema partition, // Skema partisi (null = tidak terpartisi)
+    String tablespace,         // Tablespace penyimpanan (null = tablespace default)
+    CompressionType compression, // Kompresi halaman data (null = NONE)
+    StorageEngine engine,      // Engine penyimpanan baris (null = DISK)
+    String clusterKey          // Kolom PK penentu urutan fisik baris (null = heap)
 ) {
 
     // Constructor overload untuk backward compatibility
@@ -20,6 +28,86 @@ public record Schema(
         this(tableName, dataFile, columns, indexes, new ArrayList<>());
     }
 
+    public Schema(String tableName, String dataFile, List<Column> columns, List<IndexSchema> indexes,
+            List<ForeignKeySchema> foreignKeys) {
+        this(tableName, dataFile, columns, indexes, foreignKeys, null);
+    }
+
+    public Schema(String tableName, String dataFile, List<Column> columns, List<IndexSchema> indexes,
+            List<ForeignKeySchema> foreignKeys, PartitionSchema partition) {
+        this(tableName, dataFile, columns, indexes, foreignKeys, partition, null);
+    }
+
+    public Schema(String tableName, String dataFile, List<Column> columns, List<IndexSchema> indexes,
+            List<ForeignKeySchema> foreignKeys, PartitionSchema partition, String tablespace) {
+        this(tableName, dataFile, columns, indexes, foreignKeys, partition, tablespace, CompressionType.NONE);
+    }
+
+    public Schema(String tableName, String dataFile, List<Column> columns, List<IndexSchema> indexes,
+            List<ForeignKeySchema> foreignKeys, PartitionSchema partition, String tablespace,
+            CompressionType compression) {
+        this(tableName, dataFile, columns, indexes, foreignKeys, partition, tablespace, compression,
+                StorageEngine.DISK);
+    }
+
+    public Schema(String tableName, String dataFile, List<Column> columns, List<IndexSchema> indexes,
+            List<ForeignKeySchema> foreignKeys, PartitionSchema partition, String tablespace,
+            CompressionType compression, StorageEngine engine) {
+        this(tableName, dataFile, columns, indexes, foreignKeys, partition, tablespace, compression, engine, null);
+    }
+
+    /**
+     * Salinan skema dengan daftar indeks baru (metadata lain dipertahankan).
+     */
+    public Schema withIndexes(List<IndexSchema> newIndexes) {
+        return new Schema(tableName, dataFile, columns, newIndexes, foreignKeys, partition, tablespace, compression,
+                engine, clusterKey);
+    }
+
+    /**
+     * Salinan skema dengan daftar foreign key baru (metadata lain dipertahankan).
+     */
+    public Schema withForeignKeys(List<ForeignKeySchema> newForeignKeys) {
+        return new Schema(tableName, dataFile, columns, indexes, newForeignKeys, partition, tablespace, compression,
+                engine, clusterKey);
+    }
+
+    public boolean isCompressed() {
+        return compression != null && compression != CompressionType.NONE;
+    }
+
+    /**
+     * Tabel volatil: baris hanya ada di memori, tidak ada I/O blok maupun WAL.
+     */
+    public boolean isInMemory() {
+        return engine == StorageEngine.MEMORY;
+    }
+
+    /**
+     * Tabel clustered (index-organized): baris disimpan terurut menurut clusterKey.
+     */
+    public boolean isClustered() {
+        return clusterKey != null;
+    }
+
+    public boolean isPartitioned() {
+        return partition != null;
+    }
+
+    /**
+     * Semua file data fisik milik tabel ini (satu per partisi).
+     */
+    public List<String> dataFiles() {
+        if (partition == null) {
+            return List.of(dataFile);
+        }
+        List<String> files = new ArrayList<>();
+        for (int p = 0; p < partition.partitionCount(); p++) {
+            files.add(PartitionSchema.segmentFile(dataFile, p));
+        }
+        return files;
+    }
+
     /**
      * Helper untuk mengambil kolom berdasarkan indeks.
      */
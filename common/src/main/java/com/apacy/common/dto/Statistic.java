@@ -1,5 +1,6 @@
 package com.apacy.common.dto;
 
+import java.util.List;
 import java.util.Map;
 import com.apacy.common.enums.IndexType;
 
@@ -15,10 +16,16 @@ public record Statistic(
     Map<String, Integer> V, // V(A,r): jumlah nilai distinct untuk atribut A
     Map<String, IndexType> indexedColumn, // Misal: {"user_id": Hash, "gpa": BPlusTree}
     Map<String, Object> minVal, 
-    Map<String, Object> maxVal
+    Map<String, Object> maxVal,
+    Map<String, List<String>> indexIncludes // Kolom kunci indeks BPlusTree -> kolom INCLUDE di leaf-nya
 ) {
     public Statistic(int nr, int br, int lr, int fr, Map<String, Integer> V, Map<String, IndexType> indexedColumn) {
         this(nr, br, lr, fr, V, indexedColumn, Map.of(), Map.of());
     }
+
+    public Statistic(int nr, int br, int lr, int fr, Map<String, Integer> V, Map<String, IndexType> indexedColumn,
+            Map<String, Object> minVal, Map<String, Object> maxVal) {
+        this(nr, br, lr, fr, V, indexedColumn, minVal, maxVal, Map.of());
+    }
 }
 
@@ -0,0 +1,26 @@
+package com.apacy.common.dto;
+
+import java.util.List;
+
+/**
+ * Record (DTO) untuk metadata sebuah tablespace: nama logis untuk satu atau
+ * lebih direktori data (misal satu direktori per drive NVMe).
+ *
+ * striped = false : setiap file ditempatkan utuh di salah satu lokasi
+ *                   (dipilih stabil berdasarkan nama file).
+ * striped = true  : blok-blok sebuah file disebar round-robin ke semua
+ *                   lokasi (blok n -> lokasi n mod jumlahLokasi).
+ */
+public record TablespaceSchema(
+    String name,             // Nama tablespace (e.g., "fast_nvme")
+    List<String> locations,  // Direktori data, absolut atau relatif terhadap direktori data utama
+    boolean striped          // Sebar blok round-robin ke semua lokasi
+) {
+
+    /** Nama tablespace bawaan: direktori data utama Storage Manager. */
+    public static final String DEFAULT = "default";
+
+    public TablespaceSchema {
+        locations = List.copyOf(locations);
+    }
+}
@@ -4,17 +4,56 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.apacy.common.dto.ForeignKeySchema;
+import com.apacy.common.dto.PartitionSchema;
+import com.apacy.common.enums.CompressionType;
 import com.apacy.common.enums.DDLType;
+import com.apacy.common.enums.StorageEngine;
 
 public class ParsedQueryCreate extends ParsedQueryDDL {
 
     private final List<ColumnDefinition> columns;
     private final List<ForeignKeySchema> foreignKeys;
+    private final PartitionSchema partition;
+    private final String tablespace;
+    private final CompressionType compression;
+    private final StorageEngine engine;
+    private final boolean clustered;
 
     public ParsedQueryCreate(String tableName, List<ColumnDefinition> columns, List<ForeignKeySchema> foreignKeys) {
+        this(tableName, columns, foreignKeys, null);
+    }
+
+    public ParsedQueryCreate(String tableName, List<ColumnDefinition> columns, List<ForeignKeySchema> foreignKeys,
+            PartitionSchema partition) {
+        this(tableName, columns, foreignKeys, partition, null);
+    }
+
+    public ParsedQueryCreate(String tableName, List<ColumnDefinition> columns, List<ForeignKeySchema> foreignKeys,
+            PartitionSchema partition, String tablespace) {
+        this(tableName, columns, foreignKeys, partition, tablespace, CompressionType.NONE);
+    }
+
+    public ParsedQueryCreate(String tableName, List<ColumnDefinition> columns, List<ForeignKeySchema> foreignKeys,
+            PartitionSchema partition, String tablespace, CompressionType compression) {
+        this(tableName, columns, foreignKeys, partition, tablespace, compression, StorageEngine.DISK);
+    }
+
+    public ParsedQueryCreate(String tableName, List<ColumnDefinition> columns, List<ForeignKeySchema> foreignKeys,
+            PartitionSchema partition, String tablespace, CompressionType compression, StorageEngine engine) {
+        this(tableName, columns, foreignKeys, partition, tablespace, compression, engine, false);
+    }
+
+    public ParsedQueryCreate(String tableName, List<ColumnDefinition> columns, List<ForeignKeySchema> foreignKeys,
+            PartitionSchema partition, String tablespace, CompressionType compression, StorageEngine engine,
+            boolean clustered) {
         super(tableName, DDLType.CREATE_TABLE);
         this.columns = columns != null ? columns : new ArrayList<>();
         this.foreignKeys = foreignKeys != null ? foreignKeys : new ArrayList<>();
+        this.partition = partition;
+        this.tablespace = tablespace;
+        this.compression = compression != null ? compression : CompressionType.NONE;
+        this.engine = engine != null ? engine : StorageEngine.DISK;
+        this.clustered = clustered;
     }
 
     public List<ColumnDefinition> getColumns() {
@@ -24,4 +63,27 @@ public class ParsedQueryCreate extends ParsedQueryDDL {
     public List<ForeignKeySchema> getForeignKeys() {
         return foreignKeys;
     }
+
+    // null jika tabel tidak dipartisi
+    public PartitionSchema getPartition() {
+        return partition;
+    }
+
+    // null jika tabel disimpan di tablespace default
+    public String getTablespace() {
+        return tablespace;
+    }
+
+    public CompressionType getCompression() {
+        return compression;
+    }
+
+    public StorageEngine getEngine() {
+        return engine;
+    }
+
+    // true jika baris disimpan terurut menurut PRIMARY KEY (index-organized)
+    public boolean isClustered() {
+        return clustered;
+    }
 }
\ No newline at end of file
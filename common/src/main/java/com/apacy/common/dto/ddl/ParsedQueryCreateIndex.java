@@ -1,20 +1,46 @@
 package com.apacy.common.dto.ddl;
 
+import java.util.List;
+
+import com.apacy.common.dto.IndexSchema;
 import com.apacy.common.enums.DDLType;
 
 public class ParsedQueryCreateIndex extends ParsedQueryDDL {
     private final String indexName;
-    private final String columnName;
+    private final List<String> columnNames;
     private final String indexType;
+    private final String tablespace;
+    private final List<String> includeColumns;
 
     public ParsedQueryCreateIndex(String tableName, String indexName, String columnName, String indexType) {
+        this(tableName, indexName, columnName, indexType, null);
+    }
+
+    public ParsedQueryCreateIndex(String tableName, String indexName, String columnName, String indexType,
+            String tablespace) {
+        this(tableName, indexName, columnName, indexType, tablespace, List.of());
+    }
+
+    public ParsedQueryCreateIndex(String tableName, String indexName, String columnName, String indexType,
+            String tablespace, List<String> includeColumns) {
+        this(tableName, indexName, List.of(columnName), indexType, tablespace, includeColumns);
+    }
+
+    // columnNames: kolom kunci berurutan; lebih dari satu = indeks komposit
+    public ParsedQueryCreateIndex(String tableName, String indexName, List<String> columnNames, String indexType,
+            String tablespace, List<String> includeColumns) {
         super(tableName, DDLType.CREATE_INDEX);
         this.indexName = indexName;
-        this.columnName = columnName;
+        this.columnNames = List.copyOf(columnNames);
         this.indexType = indexType;
+        this.tablespace = tablespace;
+        this.includeColumns = includeColumns != null ? includeColumns : List.of();
     }
 
     public String getIndexName() { return indexName; }
-    public String getColumnName() { return columnName; }
+    public String getColumnName() { return IndexSchema.joinColumns(columnNames); } // komposit: "a,b"
+    public List<String> getColumnNames() { return columnNames; }
     public String getIndexType() { return indexType; }
+    public String getTablespace() { return tablespace; } // null = ikut tablespace tabel
+    public List<String> getIncludeColumns() { return includeColumns; } // kolom INCLUDE (covering index)
 }
\ No newline at end of file
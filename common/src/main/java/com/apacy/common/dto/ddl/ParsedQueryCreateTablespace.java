@@ -0,0 +1,23 @@
+package com.apacy.common.dto.ddl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.apacy.common.enums.DDLType;
+
+public class ParsedQueryCreateTablespace extends ParsedQueryDDL {
+    private final String tablespaceName;
+    private final List<String> locations;
+    private final boolean striped;
+
+    public ParsedQueryCreateTablespace(String tablespaceName, List<String> locations, boolean striped) {
+        super(DDLType.CREATE_TABLESPACE);
+        this.tablespaceName = tablespaceName;
+        this.locations = locations != null ? locations : new ArrayList<>();
+        this.striped = striped;
+    }
+
+    public String getTablespaceName() { return tablespaceName; }
+    public List<String> getLocations() { return locations; }
+    public boolean isStriped() { return striped; }
+}
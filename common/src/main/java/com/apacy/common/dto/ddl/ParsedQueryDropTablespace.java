@@ -0,0 +1,14 @@
+package com.apacy.common.dto.ddl;
+
+import com.apacy.common.enums.DDLType;
+
+public class ParsedQueryDropTablespace extends ParsedQueryDDL {
+    private final String tablespaceName;
+
+    public ParsedQueryDropTablespace(String tablespaceName) {
+        super(DDLType.DROP_TABLESPACE);
+        this.tablespaceName = tablespaceName;
+    }
+
+    public String getTablespaceName() { return tablespaceName; }
+}
@@ -6,7 +6,11 @@ public record ScanNode(
     String tableName,
     String alias,
     String indexName,
-    Object condition
+    Object condition,
+    List<String> columns, // Kolom yang dibaca (tanpa prefix); null = seluruh baris
+    boolean indexOnly,    // true = dijawab dari entri indeks saja, heap tidak dibaca
+    String orderBy,       // Kolom (tanpa prefix) yang urutannya diberikan indeks B+ tree; null = tanpa urutan
+    boolean descending    // Urutan orderBy menurun
 ) implements PlanNode {
     private static final long serialVersionUID = 1L;
 
@@ -14,6 +18,15 @@ public record ScanNode(
     public ScanNode(String tableName, String alias) {
         this(tableName, alias, null, null);
     }
+
+    public ScanNode(String tableName, String alias, String indexName, Object condition) {
+        this(tableName, alias, indexName, condition, null, false);
+    }
+
+    public ScanNode(String tableName, String alias, String indexName, Object condition, List<String> columns,
+            boolean indexOnly) {
+        this(tableName, alias, indexName, condition, columns, indexOnly, null, false);
+    }
     
     @Override public List<PlanNode> getChildren() { return List.of(); }
 }
\ No newline at end of file
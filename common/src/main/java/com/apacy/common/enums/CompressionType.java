@@ -0,0 +1,31 @@
+package com.apacy.common.enums;
+
+public enum CompressionType {
+    NONE(0),
+    DEFLATE(1);
+
+    private final int value;
+
+    CompressionType(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Mengembalikan representasi integer untuk ditulis ke disk.
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Helper statis untuk mengonversi int dari disk kembali ke enum.
+     */
+    public static CompressionType fromValue(int value) {
+        for (CompressionType type : CompressionType.values()) {
+            if (type.value == value) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Nilai tipe kompresi tidak valid: " + value);
+    }
+}
@@ -5,5 +5,7 @@ public enum DDLType {
     DROP_TABLE,
     ALTER_TABLE,
     CREATE_INDEX,
-    DROP_INDEX
+    DROP_INDEX,
+    CREATE_TABLESPACE,
+    DROP_TABLESPACE
 }
\ No newline at end of file
@@ -4,7 +4,8 @@ public enum DataType {
     INTEGER(1),
     FLOAT(2),
     CHAR(3),
-    VARCHAR(4);
+    VARCHAR(4),
+    BIGINT(5);
 
     private final int value;
 
@@ -2,7 +2,8 @@ package com.apacy.common.enums;
 
 public enum IndexType {
     Hash(1),
-    BPlusTree(2);
+    BPlusTree(2),
+    Bitmap(3); // bitmap RID terkompresi per nilai, untuk kolom berkardinalitas rendah
 
     private final int value;
 
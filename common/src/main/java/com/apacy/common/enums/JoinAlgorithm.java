@@ -2,6 +2,7 @@ package com.apacy.common.enums;
 
 public enum JoinAlgorithm {
     NESTED_LOOP,
+    INDEX_NESTED_LOOP, // Tiap baris outer mem-probe indeks kolom join di tabel inner
     HASH,
     SORT_MERGE,
     CARTESIAN
@@ -0,0 +1,31 @@
+package com.apacy.common.enums;
+
+public enum PartitionType {
+    HASH(1),
+    RANGE(2);
+
+    private final int value;
+
+    PartitionType(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Mengembalikan representasi integer untuk ditulis ke disk.
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Helper statis untuk mengonversi int dari disk kembali ke enum.
+     */
+    public static PartitionType fromValue(int value) {
+        for (PartitionType type : PartitionType.values()) {
+            if (type.value == value) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Nilai tipe partisi tidak valid: " + value);
+    }
+}
@@ -0,0 +1,31 @@
+package com.apacy.common.enums;
+
+public enum StorageEngine {
+    DISK(0),
+    MEMORY(1);
+
+    private final int value;
+
+    StorageEngine(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Mengembalikan representasi integer untuk ditulis ke disk.
+     */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Helper statis untuk mengonversi int dari disk kembali ke enum.
+     */
+    public static StorageEngine fromValue(int value) {
+        for (StorageEngine type : StorageEngine.values()) {
+            if (type.value == value) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Nilai storage engine tidak valid: " + value);
+    }
+}
@@ -1,6 +1,7 @@
 package com.apacy.common.interfaces;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -10,6 +11,7 @@ import com.apacy.common.dto.DataWrite;
 import com.apacy.common.dto.Row;
 import com.apacy.common.dto.Schema;
 import com.apacy.common.dto.Statistic;
+import com.apacy.common.dto.TablespaceSchema;
 import com.apacy.common.dto.DataUpdate;
 
 /**
@@ -18,14 +20,58 @@ import com.apacy.common.dto.DataUpdate;
  */
 public interface IStorageManager {
 
+  // Jika dataRetrieval.orderBy() terisi, baris dikembalikan terurut menurut kolom
+  // tersebut (NULL paling akhir untuk urutan naik, paling awal untuk urutan turun)
   List<Row> readBlock(DataRetrieval dataRetrieval);
 
+  // Iterator baris yang dibaca lazy: halaman indeks/heap berikutnya baru dibaca
+  // saat diminta, sehingga LIMIT atau join yang berhenti lebih awal tidak membaca sisanya
+  default Iterator<Row> scanBlock(DataRetrieval dataRetrieval) {
+    return readBlock(dataRetrieval).iterator();
+  }
+
+  // Jumlah baris yang memenuhi dataRetrieval.filterCondition() (COUNT(*)); implementasi
+  // boleh menjawab dari indeks tanpa membaca baris
+  default long countRows(DataRetrieval dataRetrieval) {
+    long count = 0;
+    for (Iterator<Row> it = scanBlock(dataRetrieval); it.hasNext(); it.next()) {
+      count++;
+    }
+    return count;
+  }
+
   int writeBlock(DataWrite dataWrite); // returns affected rows
 
   int deleteBlock(DataDeletion dataDeletion); // returns affected rows
 
   void setIndex(String table, String column, String indexType);
 
+  // tablespace == null -> indeks ikut tablespace tabelnya
+  default void setIndex(String table, String column, String indexType, String tablespace) {
+    if (tablespace != null) {
+      throw new UnsupportedOperationException("Tablespace tidak didukung oleh storage manager ini");
+    }
+    setIndex(table, column, indexType);
+  }
+
+  // includeColumns: kolom non-kunci yang ikut disimpan di leaf indeks (covering index)
+  default void setIndex(String table, String column, String indexType, String tablespace,
+      List<String> includeColumns) {
+    if (includeColumns != null && !includeColumns.isEmpty()) {
+      throw new UnsupportedOperationException("INCLUDE tidak didukung oleh storage manager ini");
+    }
+    setIndex(table, column, indexType, tablespace);
+  }
+
+  // columns: kolom kunci berurutan; lebih dari satu = indeks komposit
+  default void setIndex(String table, List<String> columns, String indexType, String tablespace,
+      List<String> includeColumns) {
+    if (columns.size() > 1) {
+      throw new UnsupportedOperationException("Indeks komposit tidak didukung oleh storage manager ini");
+    }
+    setIndex(table, columns.get(0), indexType, tablespace, includeColumns);
+  }
+
   void dropIndex(String tableName, String indexName);
 
   int updateBlock(DataUpdate dataUpdate); // inplace-update
@@ -39,4 +85,12 @@ public interface IStorageManager {
   int dropTable(String tableName, String option);
 
   List<String> getDependentTables(String tablename);
+
+  default void createTablespace(TablespaceSchema tablespace) throws IOException {
+    throw new UnsupportedOperationException("Tablespace tidak didukung oleh storage manager ini");
+  }
+
+  default void dropTablespace(String name) throws IOException {
+    throw new UnsupportedOperationException("Tablespace tidak didukung oleh storage manager ini");
+  }
 }
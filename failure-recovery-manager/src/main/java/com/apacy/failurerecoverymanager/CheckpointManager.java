@@ -11,6 +11,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -67,10 +68,10 @@ public class CheckpointManager {
 
         int appliedEntries = flushWalToStorage();
 
+        // Halaman dirty di buffer pool baru dijamin ada di disk setelah ini,
+        // sehingga WAL sebelum checkpoint aman untuk dirotasi
         if (storageManager instanceof StorageManager sm) {
-            if (sm.getBlockManager() != null) {
-                sm.getBlockManager().flush();
-            }
+            sm.flushDirtyPages();
         }
 
         CheckpointInfo info = new CheckpointInfo(
@@ -165,10 +166,18 @@ public class CheckpointManager {
         int applied = 0;
 
         try (BufferedReader reader = Files.newBufferedReader(path)) {
+            List<LogEntry> entries = new ArrayList<>();
             String line;
             while ((line = reader.readLine()) != null) {
                 LogEntry entry = LogEntry.fromLogLine(line);
-                if (entry == null || !isDataOperation(entry.getOperation())) {
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+
+            Set<LogEntry> rejected = LogReplayer.rejectedEntries(entries);
+            for (LogEntry entry : entries) {
+                if (!isDataOperation(entry.getOperation()) || rejected.contains(entry)) {
                     continue;
                 }
 
@@ -121,6 +121,9 @@ public class FailureRecoveryManager extends DBMSComponent implements IFailureRec
         try {
             LogEntry entry = new LogEntry(String.valueOf(transactionId), lifecycleEvent, "-", null, null);
             logWriter.writeLog(entry);
+            if ("COMMIT".equalsIgnoreCase(lifecycleEvent)) {
+                logWriter.sync(); // titik durabilitas transaksi
+            }
         } catch (IOException e) {
             System.err.println("Error writing transaction log: " + e.getMessage());
         }
@@ -7,6 +7,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -46,10 +47,12 @@ public class LogReplayer {
         }
 
         List<LogEntry> logs = readLogBackwards();
+        Set<LogEntry> rejected = rejectedEntries(forward(logs));
 
         for (LogEntry entry : logs) {
             if (entry.getTransactionId() == null) continue;
             if (!entry.getTransactionId().equals(transactionId)) continue;
+            if (rejected.contains(entry)) continue;
 
             if ("BEGIN".equalsIgnoreCase(entry.getOperation())) {
                 System.out.println("[LogReplayer] Transaksi " + transactionId + " berhasil di-rollback (undo selesai).");
@@ -71,9 +74,11 @@ public class LogReplayer {
 
         long cutoffMillis = criteria.targetTime().toInstant(ZoneOffset.UTC).toEpochMilli();
         List<LogEntry> logs = readLogBackwards();
+        Set<LogEntry> rejected = rejectedEntries(forward(logs));
 
         for (LogEntry entry : logs) {
             if (!isDataOperation(entry.getOperation())) continue;
+            if (rejected.contains(entry)) continue;
             if (entry.getTimestamp() >= cutoffMillis) {
                 try {
                     reverseOperation(entry);
@@ -91,6 +96,7 @@ public class LogReplayer {
         if (storageManager == null) return;
 
         List<LogEntry> logs = readLogForward();
+        Set<LogEntry> rejected = rejectedEntries(logs);
         Set<String> committedTx = new HashSet<>();
         for (LogEntry e : logs) {
             if ("COMMIT".equalsIgnoreCase(e.getOperation()) && e.getTransactionId() != null) {
@@ -109,6 +115,7 @@ public class LogReplayer {
             String op = entry.getOperation();
             if (!isDataOperation(op)) continue;
             if (tx == null || !committedTx.contains(tx)) continue;
+            if (rejected.contains(entry)) continue;
             if (cutoffMillis != null && entry.getTimestamp() > cutoffMillis) continue;
 
             try {
@@ -282,11 +289,42 @@ public class LogReplayer {
         return clean;
     }
 
-    private boolean isDataOperation(String operation) {
+    private static List<LogEntry> forward(List<LogEntry> backwards) {
+        List<LogEntry> forward = new ArrayList<>(backwards);
+        Collections.reverse(forward);
+        return forward;
+    }
+
+    static boolean isDataOperation(String operation) {
         return operation != null && (operation.equalsIgnoreCase("INSERT") || 
                operation.equalsIgnoreCase("UPDATE") || operation.equalsIgnoreCase("DELETE"));
     }
 
+    /**
+     * Operasi data dicatat sebelum dijalankan. Kalau SM menolaknya (mis.
+     * duplikat kunci UNIQUE) atau tidak mengubah apa pun, transaksi yang sama
+     * menulis record kompensasi REJECT tepat sesudahnya; operasi data
+     * terakhir transaksi itu tidak pernah diterapkan, jadi dilewati saat undo
+     * maupun redo.
+     *
+     * @param forward entri log urut maju
+     */
+    static Set<LogEntry> rejectedEntries(List<LogEntry> forward) {
+        Map<String, LogEntry> lastData = new HashMap<>();
+        Set<LogEntry> rejected = new HashSet<>();
+        for (LogEntry entry : forward) {
+            String tx = entry.getTransactionId();
+            if (tx == null) continue;
+            if (isDataOperation(entry.getOperation())) {
+                lastData.put(tx, entry);
+            } else if ("REJECT".equalsIgnoreCase(entry.getOperation())) {
+                LogEntry target = lastData.remove(tx);
+                if (target != null) rejected.add(target);
+            }
+        }
+        return rejected;
+    }
+
     private List<LogEntry> readLogBackwards() throws IOException {
         List<LogEntry> entries = new ArrayList<>();
         if (!Files.exists(Paths.get(logFilePath))) return entries;
@@ -1,12 +1,15 @@
 package com.apacy.failurerecoverymanager;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 public class LogWriter {
     private final String logFilePath;
-    private FileWriter writer;
+    private FileOutputStream output;
+    private Writer writer;
 
     public LogWriter() {
         this("failure-recovery/log/mDBMS.log");
@@ -27,7 +30,8 @@ public class LogWriter {
         if (parentDir != null && !parentDir.exists()) {
             parentDir.mkdirs();
         }
-        writer = new FileWriter(logFile, true);
+        output = new FileOutputStream(logFile, true);
+        writer = new OutputStreamWriter(output);
     }
 
     public synchronized void writeLog(LogEntry entry) throws IOException {
@@ -47,11 +51,20 @@ public class LogWriter {
         if (writer != null) writer.flush();
     }
 
+    // flush + fsync: dipanggil saat COMMIT karena halaman data tidak lagi di-fsync per statement
+    public synchronized void sync() throws IOException {
+        if (writer != null) {
+            writer.flush();
+            output.getFD().sync();
+        }
+    }
+
     public synchronized void close() throws IOException {
         if (writer != null) {
             writer.flush();
             writer.close();
             writer = null;
+            output = null;
         }
     }
 
@@ -12,6 +12,7 @@ import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -216,6 +217,26 @@ class LogReplayerTest {
                 assertDoesNotThrow(() -> logReplayer.undoTransaction("TX6"));
         }
 
+        @Test
+        void testUndoSkipsRejectedOperation() throws IOException {
+                // INSERT duplikat ditolak SM: log-nya sudah tertulis, lalu ditandai REJECT
+                createTestLog(
+                                createJsonLogEntry(1000, "TX7", "BEGIN", "employees", null, null),
+                                createJsonLogEntry(1001, "TX7", "INSERT", "employees", null,
+                                                "Row{data={id=2, name=Jane}}"),
+                                createJsonLogEntry(1002, "TX7", "INSERT", "employees", null,
+                                                "Row{data={id=1, name=John}}"),
+                                createJsonLogEntry(1003, "TX7", "REJECT", "employees", null,
+                                                "Row{data={id=1, name=John}}"),
+                                createJsonLogEntry(1004, "TX7", "ABORT", "employees", null, null));
+
+                logReplayer.undoTransaction("TX7");
+
+                // Hanya INSERT Jane yang dibatalkan; baris John milik transaksi lain tidak disentuh
+                assertEquals(1, mockStorageManager.getDeleteCount(), "Rejected INSERT must not be undone");
+                assertTrue(mockStorageManager.getLastDelete().filterCondition().toString().contains("Jane"));
+        }
+
         // ========== replayLogs Tests ==========
 
         @Test
@@ -248,6 +269,23 @@ class LogReplayerTest {
                                 "Should replay 2 INSERT operations");
         }
 
+        @Test
+        void testReplaySkipsRejectedOperation() throws IOException {
+                createTestLog(
+                                createJsonLogEntry(1000, "TX1", "BEGIN", "employees", null, null),
+                                createJsonLogEntry(1001, "TX1", "INSERT", "employees", null,
+                                                "Row{data={id=1, name=John}}"),
+                                createJsonLogEntry(1002, "TX1", "INSERT", "employees", null,
+                                                "Row{data={id=1, name=John}}"),
+                                createJsonLogEntry(1003, "TX1", "REJECT", "employees", null,
+                                                "Row{data={id=1, name=John}}"),
+                                createJsonLogEntry(1004, "TX1", "COMMIT", "employees", null, null));
+
+                logReplayer.replayLogs(new RecoveryCriteria("FULL_REPLAY", null, null));
+
+                assertEquals(1, mockStorageManager.getWriteCount(), "Rejected INSERT must not be replayed");
+        }
+
         @Test
         void testReplayUpdateOperations() throws IOException {
                 createTestLog(
@@ -24,12 +24,16 @@ import com.apacy.common.dto.plan.PlanNode;
 import com.apacy.common.dto.plan.ProjectNode;
 import com.apacy.common.dto.plan.ScanNode;
 import com.apacy.common.dto.plan.SortNode;
+import com.apacy.common.enums.IndexType;
 
 /**
  * Cost estimator for query execution plans.
  */
 public class CostEstimator {
 
+    // Perkiraan fanout node B+ tree untuk menghitung tinggi indeks
+    private static final int BTREE_FANOUT = 100;
+
     private final double tS;
     private final double tT;
 
@@ -177,12 +181,12 @@ public class CostEstimator {
                 case "<":
                 case "<=":
                     if (value instanceof Number num) {
-                        max = (Double) (stats.get(tableName).maxVal().get(columnName));
-                        min = (Double) (stats.get(tableName).minVal().get(columnName));
+                        max = asDouble(stats.get(tableName).maxVal().get(columnName));
+                        min = asDouble(stats.get(tableName).minVal().get(columnName));
                         if (min == null || max == null) {
                             return new SelectivityResult(sel, (int)Math.ceil(derivedCost.nr() * sel));
                         }
-                        int v = (int) num;
+                        double v = num.doubleValue();
                         if (v <= min) sel = 0;
                         else if (v >= max) sel = 1;
                         else sel = (double)(v - min) / (double)(max - min);
@@ -192,12 +196,12 @@ public class CostEstimator {
                 case ">=":
                     // return use inequality
                     if (value instanceof Number num) {
-                        max = (Double) (stats.get(tableName).maxVal().get(columnName));
-                        min = (Double) (stats.get(tableName).minVal().get(columnName));
+                        max = asDouble(stats.get(tableName).maxVal().get(columnName));
+                        min = asDouble(stats.get(tableName).minVal().get(columnName));
                         if (min == null || max == null) {
                             return new SelectivityResult(sel, (int)Math.ceil(derivedCost.nr() * sel));
                         }
-                        int v = (int) num;
+                        double v = num.doubleValue();
                         if (v >= max) sel = 0;
                         else if (v <= min) sel = 1;
                         else sel = (double)(max - v) / (double)(max - min);
@@ -216,6 +220,14 @@ public class CostEstimator {
         throw new RuntimeException("Unknown condition node");
     }
 
+    /**
+     * Min/max statistik mengikuti tipe kolom (Integer, Long, Float); non-angka
+     * dianggap tidak tersedia.
+     */
+    private static Double asDouble(Object value) {
+        return value instanceof Number n ? n.doubleValue() : null;
+    }
+
     private Object getExpressionValue(ExpressionNode expr) {
         Object first = getTermValue(expr.term());
         if (first == null) return first;
@@ -358,6 +370,85 @@ public class CostEstimator {
         return blockTransfers + seek;
     }
 
+    /**
+     * Index nested-loop join: tiap baris outer (kiri) mem-probe indeks kolom join
+     * di tabel inner (kanan), lalu membaca blok baris yang cocok. Hanya berlaku
+     * jika inner berupa scan tabel (boleh di bawah filter) yang punya indeks
+     * pada kolom equi-join; selain itu biayanya tak hingga.
+     */
+    public double costJoinIndexNestedLoop(JoinNode node, Map<String, Statistic> stats) {
+        String type = node.joinType() != null ? node.joinType().toUpperCase() : "INNER";
+        if (!"INNER".equals(type) && !"LEFT".equals(type)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        PlanNode inner = node.right();
+        while (inner instanceof FilterNode filter) {
+            inner = filter.child();
+        }
+        if (!(inner instanceof ScanNode scan) || stats.get(scan.tableName()) == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        Statistic s = stats.get(scan.tableName());
+        String prefix = scan.alias() != null && !scan.alias().isEmpty() ? scan.alias() : scan.tableName();
+        String column = indexedJoinColumn(node.joinCondition(), prefix, s);
+        if (column == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        // Tinggi indeks: hash dan bitmap satu kali lookup, B+ tree log_fanout(nr)
+        double height = 1;
+        if (s.indexedColumn().get(column) == IndexType.BPlusTree && s.nr() > 1) {
+            height = Math.max(1, Math.ceil(Math.log(s.nr()) / Math.log(BTREE_FANOUT)));
+        }
+        // Indeks sekunder: tiap baris yang cocok dianggap satu blok
+        int distinct = s.V() != null ? s.V().getOrDefault(column, 0) : 0;
+        double matches = distinct > 0 ? Math.ceil((double) s.nr() / distinct) : s.nr();
+        matches = Math.min(matches, s.br());
+
+        DerivedCost outerCost = estimatePlanCostHelper(node.left(), stats);
+        double probe = (height + matches) * (tT + tS);
+        return outerCost.br() * (tT + tS) + outerCost.nr() * probe;
+    }
+
+    /**
+     * Kolom (tanpa prefix) milik tabel inner pada konjungsi "outer.a = inner.b"
+     * di kondisi join yang punya indeks satu kolom; null jika tidak ada.
+     */
+    private String indexedJoinColumn(Object condition, String innerPrefix, Statistic innerStats) {
+        if (condition instanceof BinaryConditionNode bin && "AND".equalsIgnoreCase(bin.operator())) {
+            String left = indexedJoinColumn(bin.left(), innerPrefix, innerStats);
+            return left != null ? left : indexedJoinColumn(bin.right(), innerPrefix, innerStats);
+        }
+        if (!(condition instanceof ComparisonConditionNode comp) || !"=".equals(comp.operator())) {
+            return null;
+        }
+        String leftAttr = singleColumn(comp.leftOperand());
+        String rightAttr = singleColumn(comp.rightOperand());
+        if (leftAttr == null || rightAttr == null) {
+            return null;
+        }
+        String innerPrefixDot = innerPrefix + ".";
+        String innerAttr;
+        if (rightAttr.startsWith(innerPrefixDot) && !leftAttr.startsWith(innerPrefixDot)) {
+            innerAttr = rightAttr;
+        } else if (leftAttr.startsWith(innerPrefixDot) && !rightAttr.startsWith(innerPrefixDot)) {
+            innerAttr = leftAttr;
+        } else {
+            return null;
+        }
+        String column = innerAttr.substring(innerPrefixDot.length());
+        return innerStats.indexedColumn() != null && innerStats.indexedColumn().containsKey(column) ? column : null;
+    }
+
+    private String singleColumn(ExpressionNode expr) {
+        if (expr == null || expr.term() == null
+                || (expr.remainderTerms() != null && !expr.remainderTerms().isEmpty())
+                || (expr.term().remainderFactors() != null && !expr.term().remainderFactors().isEmpty())) {
+            return null;
+        }
+        return expr.term().factor() instanceof ColumnFactor col ? col.columnName() : null;
+    }
+
     public double costJoinHash(JoinNode node, Map<String, Statistic> stats) {
         DerivedCost leftCost = estimatePlanCostHelper(node.left(), stats);
         DerivedCost rightCost = estimatePlanCostHelper(node.right(), stats);
@@ -238,10 +238,12 @@ public abstract class AbstractParser {
     }
 
     // Fungsi utk convert string ke integer,
-    //  atau double kalau tdk bisa integer,
+    //  atau long kalau di luar rentang integer (kolom BIGINT),
+    //  atau double kalau tdk bisa long,
     //  atau tetap string kalau tidak bisa double
     protected Object parseNumberLiteral(String value) {
         try { return Integer.parseInt(value); } catch (NumberFormatException e) {}
+        try { return Long.parseLong(value); } catch (NumberFormatException e) {}
         try { return Double.parseDouble(value); } catch (NumberFormatException e) {}
         return value;
     }
@@ -6,15 +6,20 @@ import java.util.List;
 
 import com.apacy.common.dto.ForeignKeySchema;
 import com.apacy.common.dto.ParsedQuery;
+import com.apacy.common.dto.PartitionSchema;
 import com.apacy.common.dto.ddl.ColumnDefinition;
 import com.apacy.common.dto.ddl.ParsedQueryCreate;
 import com.apacy.common.dto.ddl.ParsedQueryCreateIndex;
+import com.apacy.common.dto.ddl.ParsedQueryCreateTablespace;
 import com.apacy.common.dto.ddl.ParsedQueryDDL;
 import com.apacy.common.dto.ddl.ParsedQueryDrop;
 import com.apacy.common.dto.ddl.ParsedQueryDropIndex;
+import com.apacy.common.dto.ddl.ParsedQueryDropTablespace;
 import com.apacy.common.dto.plan.DDLNode;
 import com.apacy.common.dto.plan.PlanNode;
+import com.apacy.common.enums.CompressionType;
 import com.apacy.common.enums.DataType;
+import com.apacy.common.enums.StorageEngine;
 
 /**
  * Parser for DDL Statements.
@@ -37,6 +42,8 @@ public class DDLParser extends AbstractParser {
                 return parseCreateTable();
             } else if (t.getType() == TokenType.INDEX) {
                 return ParseCreateIndex();
+            } else if (t.getType() == TokenType.TABLESPACE) {
+                return parseCreateTablespace();
             }
         }
         else if (t.getType() == TokenType.DROP) {
@@ -46,6 +53,8 @@ public class DDLParser extends AbstractParser {
                 return parseDropTable();
             } else if (t.getType() == TokenType.INDEX) {
                 return ParseDropIndex();
+            } else if (t.getType() == TokenType.TABLESPACE) {
+                return parseDropTablespace();
             }
         }
 
@@ -79,7 +88,34 @@ public class DDLParser extends AbstractParser {
 
         consume(TokenType.RPARENTHESIS);
 
-        ParsedQueryDDL ddl = new ParsedQueryCreate(tableName, columns, foreignKeys);
+        PartitionSchema partition = null;
+        if (match(TokenType.PARTITION)) {
+            partition = parsePartitionClause(columns);
+        }
+
+        String tablespace = null;
+        if (match(TokenType.TABLESPACE)) {
+            tablespace = consume(TokenType.IDENTIFIER).getValue();
+        }
+
+        // Opsi tabel (urutan bebas): COMPRESSION = DEFLATE | NONE, ENGINE = DISK | MEMORY, CLUSTERED
+        CompressionType compression = CompressionType.NONE;
+        StorageEngine engine = StorageEngine.DISK;
+        boolean clustered = false;
+        while (true) {
+            if (matchWord("COMPRESSION")) {
+                compression = parseCompression();
+            } else if (matchWord("ENGINE")) {
+                engine = parseEngine();
+            } else if (matchWord("CLUSTERED")) {
+                clustered = true;
+            } else {
+                break;
+            }
+        }
+
+        ParsedQueryDDL ddl = new ParsedQueryCreate(tableName, columns, foreignKeys, partition, tablespace,
+            compression, engine, clustered);
         PlanNode planRoot = new DDLNode(ddl);
 
         return new ParsedQuery(
@@ -110,6 +146,10 @@ public class DDLParser extends AbstractParser {
             case "INTEGER":
                 type = DataType.INTEGER;
                 break;
+            case "BIGINT":
+            case "LONG":
+                type = DataType.BIGINT;
+                break;
             case "FLOAT":
             case "DOUBLE":
                 type = DataType.FLOAT;
@@ -144,6 +184,103 @@ public class DDLParser extends AbstractParser {
         return new ColumnDefinition(colName, type, length, isPrimary);
     }
 
+    // PARTITION BY HASH (col) PARTITIONS n
+    // PARTITION BY RANGE (col) VALUES (b1, b2, ...) -> partisi: < b1, < b2, ..., sisanya
+    private PartitionSchema parsePartitionClause(List<ColumnDefinition> columns) {
+        consume(TokenType.BY);
+
+        boolean isHash;
+        if (match(TokenType.HASH)) {
+            isHash = true;
+        } else if (match(TokenType.RANGE)) {
+            isHash = false;
+        } else {
+            throw new RuntimeException("Expected HASH or RANGE partitioning.");
+        }
+
+        consume(TokenType.LPARENTHESIS);
+        String colName = consume(TokenType.IDENTIFIER).getValue();
+        consume(TokenType.RPARENTHESIS);
+
+        ColumnDefinition column = columns.stream()
+            .filter(c -> c.getName().equalsIgnoreCase(colName))
+            .findFirst()
+            .orElseThrow(() -> new RuntimeException("Partition column '" + colName + "' is not defined."));
+
+        if (isHash) {
+            consume(TokenType.PARTITIONS);
+            int count = Integer.parseInt(consume(TokenType.NUMBER_LITERAL).getValue());
+            if (count < 1) {
+                throw new RuntimeException("Partition count must be at least 1.");
+            }
+            return PartitionSchema.hash(column.getName(), count);
+        }
+
+        consume(TokenType.VALUES);
+        consume(TokenType.LPARENTHESIS);
+        List<Object> bounds = new ArrayList<>();
+        do {
+            Object bound = parsePartitionBound(column);
+            if (!bounds.isEmpty() && compareBounds(bounds.get(bounds.size() - 1), bound) >= 0) {
+                throw new RuntimeException("Range partition bounds must be strictly increasing.");
+            }
+            bounds.add(bound);
+        } while (match(TokenType.COMMA));
+        consume(TokenType.RPARENTHESIS);
+
+        return PartitionSchema.range(column.getName(), bounds);
+    }
+
+    private Object parsePartitionBound(ColumnDefinition column) {
+        Token t = peek();
+        if (t.getType() != TokenType.NUMBER_LITERAL && t.getType() != TokenType.STRING_LITERAL) {
+            throw new RuntimeException("Expected literal partition bound, got: " + t.getValue());
+        }
+        consume(t.getType());
+
+        String raw = t.getValue();
+        return switch (column.getType()) {
+            case INTEGER -> Integer.parseInt(raw);
+            case BIGINT -> Long.parseLong(raw);
+            case FLOAT -> Float.parseFloat(raw);
+            case CHAR, VARCHAR -> raw;
+        };
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private int compareBounds(Object a, Object b) {
+        if (a instanceof Number x && b instanceof Number y) {
+            return Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private CompressionType parseCompression() {
+        Token eq = consume(TokenType.OPERATOR);
+        if (!"=".equals(eq.getValue())) {
+            throw new RuntimeException("Expected '=' after COMPRESSION");
+        }
+        String codec = consume(TokenType.IDENTIFIER).getValue();
+        try {
+            return CompressionType.valueOf(codec.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown compression: " + codec);
+        }
+    }
+
+    private StorageEngine parseEngine() {
+        Token eq = consume(TokenType.OPERATOR);
+        if (!"=".equals(eq.getValue())) {
+            throw new RuntimeException("Expected '=' after ENGINE");
+        }
+        String engine = consume(TokenType.IDENTIFIER).getValue();
+        try {
+            return StorageEngine.valueOf(engine.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown engine: " + engine);
+        }
+    }
+
     private ForeignKeySchema parseForeignKey(String currentTable) {
         // consume(TokenType.FOREIGN);
         consume(TokenType.KEY);
@@ -219,20 +356,52 @@ public class DDLParser extends AbstractParser {
 
         consume(TokenType.USING);
 
+        // BITMAP bukan keyword agar kolom/tabel bernama "bitmap" tetap bisa dipakai
         Token indexType = peek();
-        if (match(TokenType.BTREE) || match(TokenType.HASH)) {}
+        if (match(TokenType.BTREE) || match(TokenType.HASH) || matchWord("BITMAP")) {}
         else {
-            throw new RuntimeException("Expected BTREE or HASH index type.");
+            throw new RuntimeException("Expected BTREE, HASH or BITMAP index type.");
         }
 
+        // (kolom, ...): lebih dari satu kolom = indeks komposit, urutan kolom menentukan prefix
+        List<String> columnNames = new ArrayList<>();
         consume(TokenType.LPARENTHESIS);
-        String columnName = consume(TokenType.IDENTIFIER).getValue();
+        do {
+            String column = consume(TokenType.IDENTIFIER).getValue();
+            if (columnNames.contains(column)) {
+                throw new RuntimeException("Duplicate column in index key: " + column);
+            }
+            columnNames.add(column);
+        } while (match(TokenType.COMMA));
         consume(TokenType.RPARENTHESIS);
 
+        // INCLUDE (kolom, ...): kolom non-kunci yang disimpan di leaf (covering index)
+        List<String> includeColumns = new ArrayList<>();
+        if (matchWord("INCLUDE")) {
+            if (indexType.getType() != TokenType.BTREE) {
+                throw new RuntimeException("INCLUDE is only supported for BTREE indexes.");
+            }
+            consume(TokenType.LPARENTHESIS);
+            do {
+                String include = consume(TokenType.IDENTIFIER).getValue();
+                if (columnNames.contains(include) || includeColumns.contains(include)) {
+                    throw new RuntimeException("Duplicate column in INCLUDE: " + include);
+                }
+                includeColumns.add(include);
+            } while (match(TokenType.COMMA));
+            consume(TokenType.RPARENTHESIS);
+        }
+
+        String tablespace = null;
+        if (match(TokenType.TABLESPACE)) {
+            tablespace = consume(TokenType.IDENTIFIER).getValue();
+        }
+
         consume(TokenType.SEMICOLON);
         consume(TokenType.EOF);
 
-        ParsedQueryDDL ddl = new ParsedQueryCreateIndex(tableName, indexName, columnName, indexType.getValue());
+        ParsedQueryDDL ddl = new ParsedQueryCreateIndex(tableName, indexName, columnNames, indexType.getValue(),
+            tablespace, includeColumns);
         PlanNode planRoot = new DDLNode(ddl);
 
         return new ParsedQuery(
@@ -275,4 +444,81 @@ public class DDLParser extends AbstractParser {
         );
     }
 
+    // CREATE TABLESPACE name LOCATION ('dir1', 'dir2', ...) [STRIPED]
+    // LOCATION dan STRIPED hanya keyword kontekstual agar tetap bisa dipakai sebagai nama kolom
+    private ParsedQuery parseCreateTablespace() {
+        consume(TokenType.TABLESPACE);
+
+        String tablespaceName = consume(TokenType.IDENTIFIER).getValue();
+
+        consumeWord("LOCATION");
+        consume(TokenType.LPARENTHESIS);
+        List<String> locations = new ArrayList<>();
+        do {
+            locations.add(consume(TokenType.STRING_LITERAL).getValue());
+        } while (match(TokenType.COMMA));
+        consume(TokenType.RPARENTHESIS);
+
+        boolean striped = matchWord("STRIPED");
+
+        consume(TokenType.SEMICOLON);
+        consume(TokenType.EOF);
+
+        ParsedQueryDDL ddl = new ParsedQueryCreateTablespace(tablespaceName, locations, striped);
+        PlanNode planRoot = new DDLNode(ddl);
+
+        return new ParsedQuery(
+            "CREATE TABLESPACE",
+            planRoot,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            false,
+            false
+        );
+    }
+
+    private ParsedQuery parseDropTablespace() {
+        consume(TokenType.TABLESPACE);
+
+        String tablespaceName = consume(TokenType.IDENTIFIER).getValue();
+
+        consume(TokenType.SEMICOLON);
+        consume(TokenType.EOF);
+
+        ParsedQueryDDL ddl = new ParsedQueryDropTablespace(tablespaceName);
+        PlanNode planRoot = new DDLNode(ddl);
+
+        return new ParsedQuery(
+            "DROP TABLESPACE",
+            planRoot,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            false,
+            false
+        );
+    }
+
+    private boolean matchWord(String word) {
+        Token t = peek();
+        if (t.getType() == TokenType.IDENTIFIER && word.equalsIgnoreCase(t.getValue())) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void consumeWord(String word) {
+        if (!matchWord(word)) {
+            throw new RuntimeException("Expected " + word + " but found " + peek().getValue());
+        }
+    }
+
 }
\ No newline at end of file
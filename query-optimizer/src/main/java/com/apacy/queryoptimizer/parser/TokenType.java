@@ -5,6 +5,7 @@ public enum TokenType {
     SELECT, FROM, WHERE, INSERT, UPDATE, DELETE, INTO, VALUES, SET,
     JOIN, ON, NATURAL, CROSS, INNER, OUTER, LEFT, RIGHT, FULL, ORDER, BY, DESC, ASC, LIMIT, OFFSET, CREATE, TABLE, DROP, AS,
     INDEX, USING, BTREE, HASH,
+    PARTITION, PARTITIONS, RANGE, TABLESPACE,
     FOREIGN, PRIMARY, KEY, CASCADE, RESTRICT, REFERENCES,
     BEGIN, TRANSACTION, COMMIT, ABORT,
     AND, OR, NOT,
@@ -37,9 +37,12 @@ public class JoinPlanRewriter extends PlanRewriter {
         double nested = costEstimator.costJoinNestedLoop(ret, allStats);
         double merge = costEstimator.costJoinSortMerge(ret, allStats);
         double hash = costEstimator.costJoinHash(ret, allStats);
+        double indexNested = costEstimator.costJoinIndexNestedLoop(ret, allStats);
 
         JoinAlgorithm strat;
-        if (nested <= merge && nested <= hash) {
+        if (indexNested < nested && indexNested < merge && indexNested < hash) {
+            strat = JoinAlgorithm.INDEX_NESTED_LOOP;
+        } else if (nested <= merge && nested <= hash) {
             strat = JoinAlgorithm.NESTED_LOOP;
         } else if (merge <= nested && merge <= hash) {
             strat = JoinAlgorithm.SORT_MERGE;
@@ -1,15 +1,23 @@
 package com.apacy.queryoptimizer.rewriter;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.apacy.common.dto.IndexSchema;
 import com.apacy.common.dto.Statistic;
 import com.apacy.common.dto.ast.where.*;
 import com.apacy.common.dto.ast.expression.*;
 import com.apacy.common.dto.plan.FilterNode;
+import com.apacy.common.dto.plan.LimitNode;
 import com.apacy.common.dto.plan.PlanNode;
+import com.apacy.common.dto.plan.ProjectNode;
 import com.apacy.common.dto.plan.ScanNode;
+import com.apacy.common.dto.plan.SortNode;
+import com.apacy.common.enums.IndexType;
 import com.apacy.queryoptimizer.CostEstimator;
 
 public class ScanPlanRewriter extends PlanRewriter {
@@ -27,6 +35,20 @@ public class ScanPlanRewriter extends PlanRewriter {
             List<String> a = extractColumns((WhereConditionNode) node.predicate(), scan);
             if (a != null) {
                 newScan = new ScanNode(scan.tableName(), scan.alias(), a.get(1), node.predicate());
+            } else {
+                String composite = compositeIndex((WhereConditionNode) node.predicate(), scan, allStats);
+                if (composite != null) {
+                    newScan = new ScanNode(scan.tableName(), scan.alias(), scan.tableName() + "." + composite,
+                            node.predicate());
+                } else {
+                    // Beberapa indeks satu kolom: storage manager menggabungkan RID-nya lewat bitmap
+                    List<String> bitmap = bitmapColumns((WhereConditionNode) node.predicate(), scan, allStats);
+                    if (bitmap.size() > 1) {
+                        newScan = new ScanNode(scan.tableName(), scan.alias(),
+                                scan.tableName() + "." + String.join("+", new LinkedHashSet<>(bitmap)),
+                                node.predicate());
+                    }
+                }
             }
             return new FilterNode(newScan, node.predicate());
         }
@@ -34,6 +56,344 @@ public class ScanPlanRewriter extends PlanRewriter {
 
     }
 
+    /**
+     * Project(Filter(Scan berindeks)) yang seluruh kolomnya (proyeksi + predikat)
+     * ada di kunci atau INCLUDE indeks BPlusTree tersebut dijadikan index-only scan,
+     * sehingga heap tabel tidak perlu dibaca sama sekali.
+     */
+    @Override
+    protected PlanNode visitProject(ProjectNode node, Map<String, Statistic> allStats) {
+        PlanNode child = rewrite(node.child(), allStats);
+        if (child instanceof FilterNode filter && filter.child() instanceof ScanNode scan) {
+            ScanNode covering = coveringScan(scan, node.columns(), filter.predicate(), allStats);
+            if (covering != null) {
+                child = new FilterNode(covering, filter.predicate());
+            }
+        }
+        if (child == node.child()) {
+            return node;
+        }
+        return new ProjectNode(child, node.columns());
+    }
+
+    /**
+     * ORDER BY kolom ber-indeks BPlusTree (satu kolom) di atas Project/Filter dari
+     * satu tabel: SortNode dibuang dan scan membaca baris sesuai urutan indeks,
+     * naik atau turun. Jika scan sudah memakai indeks lain untuk predikatnya,
+     * urutan indeks hanya dipilih untuk top-N (LIMIT di atas ORDER BY); tanpa
+     * LIMIT, range scan yang selektif lalu sort biasanya lebih murah daripada
+     * menelusuri seluruh indeks urutan.
+     */
+    @Override
+    protected PlanNode visitSort(SortNode node, Map<String, Statistic> allStats) {
+        return orderedPlan(node, allStats, false);
+    }
+
+    @Override
+    protected PlanNode visitLimit(LimitNode node, Map<String, Statistic> allStats) {
+        if (!(node.child() instanceof SortNode sort)) {
+            return super.visitLimit(node, allStats);
+        }
+        PlanNode child = orderedPlan(sort, allStats, true);
+        if (child == sort) {
+            return node;
+        }
+        return new LimitNode(child, node.limit(), node.offset());
+    }
+
+    private PlanNode orderedPlan(SortNode sort, Map<String, Statistic> allStats, boolean topN) {
+        PlanNode child = rewrite(sort.child(), allStats);
+        PlanNode ordered = withIndexOrder(child, sort, allStats, topN);
+        if (ordered != null) {
+            return ordered;
+        }
+        if (child == sort.child()) {
+            return sort;
+        }
+        return new SortNode(child, sort.sortColumn(), sort.ascending());
+    }
+
+    /**
+     * Salin jalur Project/Filter sampai ScanNode, dengan scan yang terurut
+     * menurut kolom sort; null jika jalurnya memuat node lain (join, dll.) atau
+     * kolom sort tidak punya indeks BPlusTree.
+     */
+    private PlanNode withIndexOrder(PlanNode node, SortNode sort, Map<String, Statistic> allStats, boolean topN) {
+        if (node instanceof ProjectNode project) {
+            PlanNode child = withIndexOrder(project.child(), sort, allStats, topN);
+            return child == null ? null : new ProjectNode(child, project.columns());
+        }
+        if (node instanceof FilterNode filter) {
+            PlanNode child = withIndexOrder(filter.child(), sort, allStats, topN);
+            return child == null ? null : new FilterNode(child, filter.predicate());
+        }
+        if (!(node instanceof ScanNode scan) || scan.orderBy() != null || allStats == null) {
+            return null;
+        }
+        String column = ownColumn(sort.sortColumn(), scan);
+        Statistic stat = allStats.get(scan.tableName());
+        if (column == null || stat == null || stat.indexedColumn() == null
+                || stat.indexedColumn().get(column) != IndexType.BPlusTree) {
+            return null;
+        }
+        if (!topN && scan.indexName() != null && !column.equals(ownColumn(scan.indexName(), scan))) {
+            return null;
+        }
+        // SortNode.ascending() berisi flag DESC dari parser (lihat SortOperator)
+        return new ScanNode(scan.tableName(), scan.alias(), scan.indexName(), scan.condition(), scan.columns(),
+                scan.indexOnly(), column, sort.ascending());
+    }
+
+    private ScanNode coveringScan(ScanNode scan, List<String> projected, Object predicate,
+            Map<String, Statistic> allStats) {
+        if (scan.indexName() == null || scan.indexOnly() || projected == null || allStats == null) {
+            return null;
+        }
+        Statistic stat = allStats.get(scan.tableName());
+        if (stat == null || stat.indexIncludes() == null) {
+            return null;
+        }
+        String keyColumn = ownColumn(scan.indexName(), scan);
+        List<String> includes = keyColumn == null ? null : stat.indexIncludes().get(keyColumn);
+        if (includes == null) {
+            return null;
+        }
+
+        Set<String> needed = new LinkedHashSet<>();
+        for (String column : projected) {
+            String own = ownColumn(column, scan);
+            if (own == null) {
+                return null;
+            }
+            needed.add(own);
+        }
+        List<String> predicateColumns = new ArrayList<>();
+        if (!(predicate instanceof WhereConditionNode where) || !collectColumns(where, predicateColumns)) {
+            return null;
+        }
+        for (String column : predicateColumns) {
+            String own = ownColumn(column, scan);
+            if (own == null) {
+                return null;
+            }
+            needed.add(own);
+        }
+
+        List<String> keyColumns = List.of(keyColumn.split(IndexSchema.COLUMN_SEPARATOR));
+        for (String column : needed) {
+            if (!keyColumns.contains(column) && !includes.contains(column)) {
+                return null;
+            }
+        }
+        return new ScanNode(scan.tableName(), scan.alias(), scan.indexName(), scan.condition(),
+                List.copyOf(needed), true);
+    }
+
+    /**
+     * Indeks komposit (nama kolom gabungan, misal "prodi_id,angkatan") yang bisa
+     * dipakai predikat konjungtif: equality pada prefix kolom kunci dengan range
+     * opsional pada kolom berikutnya. Indeks hash butuh equality di semua kolom.
+     * Dipilih yang mencakup kolom kunci paling banyak; null jika tidak ada.
+     */
+    private String compositeIndex(WhereConditionNode predicate, ScanNode scan, Map<String, Statistic> allStats) {
+        Statistic stat = allStats == null ? null : allStats.get(scan.tableName());
+        if (stat == null || stat.indexedColumn() == null) {
+            return null;
+        }
+        Map<String, Set<String>> operators = new HashMap<>();
+        collectConjuncts(predicate, scan, operators);
+        if (operators.isEmpty()) {
+            return null;
+        }
+
+        String best = null;
+        int bestMatched = 0;
+        for (Map.Entry<String, IndexType> index : stat.indexedColumn().entrySet()) {
+            if (!index.getKey().contains(IndexSchema.COLUMN_SEPARATOR)) {
+                continue;
+            }
+            String[] keyColumns = index.getKey().split(IndexSchema.COLUMN_SEPARATOR);
+            int prefix = 0;
+            while (prefix < keyColumns.length && hasOperator(operators, keyColumns[prefix], "=")) {
+                prefix++;
+            }
+            int matched = prefix;
+            if (prefix < keyColumns.length) {
+                if (index.getValue() != IndexType.BPlusTree) {
+                    continue;
+                }
+                String next = keyColumns[prefix];
+                if (hasOperator(operators, next, ">") || hasOperator(operators, next, ">=")
+                        || hasOperator(operators, next, "<") || hasOperator(operators, next, "<=")) {
+                    matched++;
+                }
+            }
+            if (matched > bestMatched) {
+                best = index.getKey();
+                bestMatched = matched;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Kolom ber-indeks satu kolom yang aksesnya bisa digabung lewat bitmap RID:
+     * kolom dengan predikat di cabang AND (B+ tree dan bitmap untuk equality dan
+     * range, hash hanya untuk equality), ditambah cabang OR yang kedua sisinya
+     * bisa dijawab indeks. Kosong jika kondisi tidak bisa dibatasi indeks.
+     */
+    private List<String> bitmapColumns(WhereConditionNode predicate, ScanNode scan, Map<String, Statistic> allStats) {
+        Statistic stat = allStats == null ? null : allStats.get(scan.tableName());
+        List<String> columns = new ArrayList<>();
+        if (stat == null || stat.indexedColumn() == null) {
+            return columns;
+        }
+        if (predicate instanceof BinaryConditionNode n && "OR".equalsIgnoreCase(n.operator())) {
+            List<String> left = bitmapColumns(n.left(), scan, allStats);
+            List<String> right = left.isEmpty() ? List.of() : bitmapColumns(n.right(), scan, allStats);
+            if (!right.isEmpty()) {
+                columns.addAll(left);
+                columns.addAll(right);
+            }
+            return columns;
+        }
+        Map<String, Set<String>> operators = new HashMap<>();
+        collectConjuncts(predicate, scan, operators);
+        for (String column : operators.keySet()) {
+            IndexType type = stat.indexedColumn().get(column);
+            boolean range = hasOperator(operators, column, ">") || hasOperator(operators, column, ">=")
+                    || hasOperator(operators, column, "<") || hasOperator(operators, column, "<=");
+            boolean ordered = type == IndexType.BPlusTree || type == IndexType.Bitmap;
+            if (ordered ? range || hasOperator(operators, column, "=")
+                    : type != null && hasOperator(operators, column, "=")) {
+                columns.add(column);
+            }
+        }
+        collectDisjunctions(predicate, scan, allStats, columns);
+        return columns;
+    }
+
+    private void collectDisjunctions(WhereConditionNode node, ScanNode scan, Map<String, Statistic> allStats,
+            List<String> out) {
+        if (node instanceof BinaryConditionNode n) {
+            if ("OR".equalsIgnoreCase(n.operator())) {
+                out.addAll(bitmapColumns(n, scan, allStats));
+            } else if ("AND".equalsIgnoreCase(n.operator())) {
+                collectDisjunctions(n.left(), scan, allStats, out);
+                collectDisjunctions(n.right(), scan, allStats, out);
+            }
+        }
+    }
+
+    private static boolean hasOperator(Map<String, Set<String>> operators, String column, String operator) {
+        Set<String> ops = operators.get(column);
+        return ops != null && (ops.contains(operator) || ("=".equals(operator) && ops.contains("==")));
+    }
+
+    /**
+     * Kumpulkan operator perbandingan "kolom op literal" milik scan ini dari
+     * cabang AND; cabang lain (OR, NOT) diabaikan karena tidak bisa dipakai indeks.
+     */
+    private void collectConjuncts(WhereConditionNode node, ScanNode scan, Map<String, Set<String>> out) {
+        if (node instanceof BinaryConditionNode n) {
+            if ("AND".equalsIgnoreCase(n.operator())) {
+                collectConjuncts(n.left(), scan, out);
+                collectConjuncts(n.right(), scan, out);
+            }
+        } else if (node instanceof ComparisonConditionNode n) {
+            ExpressionNode left = n.leftOperand();
+            if (left == null || (left.remainderTerms() != null && !left.remainderTerms().isEmpty())
+                    || left.term() == null || !(left.term().factor() instanceof ColumnFactor column)
+                    || (left.term().remainderFactors() != null && !left.term().remainderFactors().isEmpty())) {
+                return;
+            }
+            List<String> rightColumns = new ArrayList<>();
+            if (!collectColumns(n.rightOperand(), rightColumns) || !rightColumns.isEmpty()) {
+                return;
+            }
+            String own = ownColumn(column.columnName(), scan);
+            if (own != null) {
+                out.computeIfAbsent(own, k -> new LinkedHashSet<>()).add(n.operator());
+            }
+        }
+    }
+
+    /**
+     * Nama kolom tanpa prefix jika kolom milik scan ini, null jika milik tabel lain,
+     * tidak berprefix, atau wildcard.
+     */
+    private String ownColumn(String qualified, ScanNode scan) {
+        int idx = qualified.indexOf('.');
+        if (idx == -1) {
+            return null;
+        }
+        String owner = qualified.substring(0, idx);
+        String column = qualified.substring(idx + 1);
+        if (column.equals("*")) {
+            return null;
+        }
+        if (owner.equalsIgnoreCase(scan.tableName())
+                || (scan.alias() != null && owner.equalsIgnoreCase(scan.alias()))) {
+            return column;
+        }
+        return null;
+    }
+
+    private boolean collectColumns(WhereConditionNode node, List<String> out) {
+        if (node instanceof BinaryConditionNode n) {
+            return collectColumns(n.left(), out) && collectColumns(n.right(), out);
+        } else if (node instanceof UnaryConditionNode n) {
+            return collectColumns(n.operand(), out);
+        } else if (node instanceof ComparisonConditionNode n) {
+            return collectColumns(n.leftOperand(), out) && collectColumns(n.rightOperand(), out);
+        }
+        return node instanceof LiteralConditionNode;
+    }
+
+    private boolean collectColumns(ExpressionNode expr, List<String> out) {
+        if (expr == null) {
+            return true;
+        }
+        if (!collectColumns(expr.term(), out)) {
+            return false;
+        }
+        if (expr.remainderTerms() != null) {
+            for (ExpressionNode.TermPair pair : expr.remainderTerms()) {
+                if (!collectColumns(pair.term(), out)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean collectColumns(TermNode term, List<String> out) {
+        if (term == null) {
+            return true;
+        }
+        if (!collectColumns(term.factor(), out)) {
+            return false;
+        }
+        if (term.remainderFactors() != null) {
+            for (TermNode.FactorPair pair : term.remainderFactors()) {
+                if (!collectColumns(pair.factor(), out)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean collectColumns(FactorNode factor, List<String> out) {
+        if (factor instanceof ColumnFactor c) {
+            out.add(c.columnName());
+            return true;
+        } else if (factor instanceof ExpressionNode e) {
+            return collectColumns(e, out);
+        }
+        return factor instanceof LiteralFactor;
+    }
+
     private List<String> extractColumns(WhereConditionNode node, ScanNode scanNode) {
         if (node instanceof BinaryConditionNode n) {
             // extractColumns(n.left(), scanNode);
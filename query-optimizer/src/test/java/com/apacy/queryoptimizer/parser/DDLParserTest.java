@@ -0,0 +1,222 @@
+package com.apacy.queryoptimizer.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.apacy.common.dto.ParsedQuery;
+import com.apacy.common.dto.PartitionSchema;
+import com.apacy.common.dto.ddl.ParsedQueryCreate;
+import com.apacy.common.dto.ddl.ParsedQueryCreateIndex;
+import com.apacy.common.dto.ddl.ParsedQueryCreateTablespace;
+import com.apacy.common.dto.ddl.ParsedQueryDDL;
+import com.apacy.common.dto.ddl.ParsedQueryDropTablespace;
+import com.apacy.common.dto.plan.DDLNode;
+import com.apacy.common.enums.CompressionType;
+import com.apacy.common.enums.DataType;
+import com.apacy.common.enums.StorageEngine;
+import com.apacy.common.enums.PartitionType;
+import com.apacy.queryoptimizer.QueryParser;
+
+class DDLParserTest {
+
+    private QueryParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new QueryParser();
+    }
+
+    private ParsedQueryDDL parseDDL(String query) throws Exception {
+        ParsedQuery pq = parser.parse(query);
+        return ((DDLNode) pq.planRoot()).ddlQuery();
+    }
+
+    private ParsedQueryCreate parseCreate(String query) throws Exception {
+        return (ParsedQueryCreate) parseDDL(query);
+    }
+
+    @Test
+    void testParseCreateTable_NoPartition() throws Exception {
+        ParsedQueryCreate create = parseCreate("CREATE TABLE orders (id INT PRIMARY KEY, region VARCHAR(10));");
+        assertNull(create.getPartition());
+    }
+
+    @Test
+    void testParseCreateTable_HashPartition() throws Exception {
+        ParsedQueryCreate create = parseCreate(
+            "CREATE TABLE orders (id INT PRIMARY KEY, region VARCHAR(10)) PARTITION BY HASH (id) PARTITIONS 4;");
+
+        PartitionSchema partition = create.getPartition();
+        assertEquals(PartitionType.HASH, partition.type());
+        assertEquals("id", partition.columnName());
+        assertEquals(4, partition.partitionCount());
+    }
+
+    @Test
+    void testParseCreateTable_RangePartition() throws Exception {
+        ParsedQueryCreate create = parseCreate(
+            "CREATE TABLE orders (id INT, amount FLOAT) PARTITION BY RANGE (amount) VALUES (10, 99.5);");
+
+        PartitionSchema partition = create.getPartition();
+        assertEquals(PartitionType.RANGE, partition.type());
+        assertEquals("amount", partition.columnName());
+        assertEquals(3, partition.partitionCount());
+        assertEquals(List.of(10.0f, 99.5f), partition.rangeBounds());
+    }
+
+    @Test
+    void testParseCreateTable_BigintColumn() throws Exception {
+        ParsedQueryCreate create = parseCreate(
+            "CREATE TABLE ledger (id BIGINT, seq LONG) PARTITION BY RANGE (id) VALUES (5000000000);");
+
+        assertEquals(DataType.BIGINT, create.getColumns().get(0).getType());
+        assertEquals(DataType.BIGINT, create.getColumns().get(1).getType());
+        assertEquals(List.of(5_000_000_000L), create.getPartition().rangeBounds());
+    }
+
+    @Test
+    void testParseCreateTable_Fail_UnknownPartitionColumn() {
+        assertThrows(Exception.class, () -> parseCreate(
+            "CREATE TABLE orders (id INT) PARTITION BY HASH (region) PARTITIONS 2;"));
+    }
+
+    @Test
+    void testParseCreateTable_Fail_UnorderedRangeBounds() {
+        assertThrows(Exception.class, () -> parseCreate(
+            "CREATE TABLE orders (id INT) PARTITION BY RANGE (id) VALUES (20, 10);"));
+    }
+
+    @Test
+    void testParseCreateTablespace_Striped() throws Exception {
+        ParsedQueryCreateTablespace ts = (ParsedQueryCreateTablespace) parseDDL(
+            "CREATE TABLESPACE fast LOCATION ('/mnt/nvme0', '/mnt/nvme1') STRIPED;");
+
+        assertEquals("fast", ts.getTablespaceName());
+        assertEquals(List.of("/mnt/nvme0", "/mnt/nvme1"), ts.getLocations());
+        assertTrue(ts.isStriped());
+    }
+
+    @Test
+    void testParseCreateTablespace_NotStriped() throws Exception {
+        ParsedQueryCreateTablespace ts = (ParsedQueryCreateTablespace) parseDDL(
+            "CREATE TABLESPACE archive LOCATION ('/mnt/hdd');");
+
+        assertEquals(List.of("/mnt/hdd"), ts.getLocations());
+        assertFalse(ts.isStriped());
+    }
+
+    @Test
+    void testParseDropTablespace() throws Exception {
+        ParsedQueryDropTablespace ts = (ParsedQueryDropTablespace) parseDDL("DROP TABLESPACE fast;");
+        assertEquals("fast", ts.getTablespaceName());
+    }
+
+    @Test
+    void testParseCreateTable_WithTablespace() throws Exception {
+        ParsedQueryCreate create = parseCreate(
+            "CREATE TABLE orders (id INT, location VARCHAR(20)) PARTITION BY HASH (id) PARTITIONS 2 TABLESPACE fast;");
+
+        assertEquals("fast", create.getTablespace());
+        assertEquals("location", create.getColumns().get(1).getName());
+        assertEquals(2, create.getPartition().partitionCount());
+    }
+
+    @Test
+    void testParseCreateIndex_WithTablespace() throws Exception {
+        ParsedQueryCreateIndex idx = (ParsedQueryCreateIndex) parseDDL(
+            "CREATE INDEX idx_orders_id ON orders USING HASH (id) TABLESPACE fast;");
+
+        assertEquals("fast", idx.getTablespace());
+        assertEquals("id", idx.getColumnName());
+    }
+
+    @Test
+    void testParseCreateIndex_WithInclude() throws Exception {
+        ParsedQueryCreateIndex idx = (ParsedQueryCreateIndex) parseDDL(
+            "CREATE INDEX idx_orders_cust ON orders USING BTREE (customer) INCLUDE (total, status) TABLESPACE fast;");
+
+        assertEquals("customer", idx.getColumnName());
+        assertEquals(List.of("total", "status"), idx.getIncludeColumns());
+        assertEquals("fast", idx.getTablespace());
+        assertTrue(((ParsedQueryCreateIndex) parseDDL(
+            "CREATE INDEX idx_orders_id ON orders USING BTREE (id);")).getIncludeColumns().isEmpty());
+        assertThrows(RuntimeException.class, () -> parseDDL(
+            "CREATE INDEX idx_orders_id ON orders USING HASH (id) INCLUDE (total);"));
+    }
+
+    @Test
+    void testParseCreateIndex_Bitmap() throws Exception {
+        ParsedQueryCreateIndex idx = (ParsedQueryCreateIndex) parseDDL(
+            "CREATE INDEX idx_mhs_fakultas ON mahasiswa USING BITMAP (fakultas);");
+
+        assertEquals("fakultas", idx.getColumnName());
+        assertEquals("BITMAP", idx.getIndexType().toUpperCase());
+        assertThrows(RuntimeException.class, () -> parseDDL(
+            "CREATE INDEX idx_mhs_fakultas ON mahasiswa USING BITMAP (fakultas) INCLUDE (nama);"));
+        assertThrows(RuntimeException.class, () -> parseDDL(
+            "CREATE INDEX idx_mhs_fakultas ON mahasiswa USING GIST (fakultas);"));
+    }
+
+    @Test
+    void testParseCreateIndex_Composite() throws Exception {
+        ParsedQueryCreateIndex idx = (ParsedQueryCreateIndex) parseDDL(
+            "CREATE INDEX idx_mhs_prodi ON mahasiswa USING BTREE (prodi_id, angkatan) INCLUDE (nama);");
+
+        assertEquals(List.of("prodi_id", "angkatan"), idx.getColumnNames());
+        assertEquals("prodi_id,angkatan", idx.getColumnName());
+        assertEquals(List.of("nama"), idx.getIncludeColumns());
+        assertThrows(RuntimeException.class, () -> parseDDL(
+            "CREATE INDEX idx_mhs_prodi ON mahasiswa USING HASH (prodi_id, prodi_id);"));
+        assertThrows(RuntimeException.class, () -> parseDDL(
+            "CREATE INDEX idx_mhs_prodi ON mahasiswa USING BTREE (prodi_id, angkatan) INCLUDE (angkatan);"));
+    }
+
+    @Test
+    void testParseCreateTable_WithCompression() throws Exception {
+        ParsedQueryCreate create = parseCreate(
+            "CREATE TABLE archive (id INT, note VARCHAR(80)) TABLESPACE cold COMPRESSION = DEFLATE;");
+
+        assertEquals("cold", create.getTablespace());
+        assertEquals(CompressionType.DEFLATE, create.getCompression());
+        assertEquals(CompressionType.NONE, parseCreate("CREATE TABLE t (id INT);").getCompression());
+    }
+
+    @Test
+    void testParseCreateTable_Fail_UnknownCompression() {
+        assertThrows(Exception.class, () -> parseCreate("CREATE TABLE t (id INT) COMPRESSION = LZ77X;"));
+    }
+
+    @Test
+    void testParseCreateTable_WithMemoryEngine() throws Exception {
+        ParsedQueryCreate create = parseCreate("CREATE TABLE cache (k INT, v VARCHAR(40)) ENGINE = MEMORY;");
+        assertEquals(StorageEngine.MEMORY, create.getEngine());
+        assertEquals(StorageEngine.DISK, parseCreate("CREATE TABLE t (id INT);").getEngine());
+
+        // Opsi tabel boleh dalam urutan apa pun
+        ParsedQueryCreate both = parseCreate("CREATE TABLE t (id INT) ENGINE = DISK COMPRESSION = DEFLATE;");
+        assertEquals(StorageEngine.DISK, both.getEngine());
+        assertEquals(CompressionType.DEFLATE, both.getCompression());
+    }
+
+    @Test
+    void testParseCreateTable_Fail_UnknownEngine() {
+        assertThrows(Exception.class, () -> parseCreate("CREATE TABLE t (id INT) ENGINE = INNODB;"));
+    }
+
+    @Test
+    void testParseCreateTable_Clustered() throws Exception {
+        ParsedQueryCreate create = parseCreate(
+            "CREATE TABLE orders (id INT PRIMARY KEY, total INT) CLUSTERED COMPRESSION = DEFLATE;");
+        assertTrue(create.isClustered());
+        assertEquals(CompressionType.DEFLATE, create.getCompression());
+        assertFalse(parseCreate("CREATE TABLE t (id INT);").isClustered());
+    }
+}
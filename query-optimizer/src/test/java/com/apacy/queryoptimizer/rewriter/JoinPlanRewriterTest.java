@@ -0,0 +1,68 @@
+package com.apacy.queryoptimizer.rewriter;
+
+import com.apacy.common.dto.Statistic;
+import com.apacy.common.dto.ast.expression.ColumnFactor;
+import com.apacy.common.dto.ast.expression.ExpressionNode;
+import com.apacy.common.dto.ast.expression.TermNode;
+import com.apacy.common.dto.ast.where.ComparisonConditionNode;
+import com.apacy.common.dto.plan.JoinNode;
+import com.apacy.common.dto.plan.ScanNode;
+import com.apacy.common.enums.IndexType;
+import com.apacy.common.enums.JoinAlgorithm;
+import com.apacy.queryoptimizer.CostEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JoinPlanRewriterTest {
+
+    private static ExpressionNode expr(String column) {
+        return new ExpressionNode(new TermNode(new ColumnFactor(column), List.of()), List.of());
+    }
+
+    private static Map<String, Statistic> stats(Map<String, IndexType> ordersIndexes) {
+        Statistic customers = new Statistic(500, 25, 40, 20, Map.of("id", 500), Map.of());
+        Statistic orders = new Statistic(200_000, 10_000, 80, 20, Map.of("customer_id", 50_000), ordersIndexes);
+        return Map.of("customers", customers, "orders", orders);
+    }
+
+    // SELECT * FROM customers JOIN orders ON customers.id = orders.customer_id
+    private static JoinNode query() {
+        ComparisonConditionNode on = new ComparisonConditionNode(expr("customers.id"), "=",
+                expr("orders.customer_id"));
+        return new JoinNode(new ScanNode("customers", "customers"), new ScanNode("orders", "orders"), on, "INNER");
+    }
+
+    @Test
+    // Outer jauh lebih kecil dari inner + indeks di kolom join inner -> probe indeks per baris outer
+    void testSmallOuterWithIndexedInnerUsesIndexNestedLoop() {
+        JoinPlanRewriter rewriter = new JoinPlanRewriter(new CostEstimator());
+        JoinNode result = (JoinNode) rewriter.rewrite(query(), stats(Map.of("customer_id", IndexType.Hash)));
+
+        assertEquals(JoinAlgorithm.INDEX_NESTED_LOOP, result.algorithm());
+    }
+
+    @Test
+    void testInnerWithoutIndexKeepsScanJoins() {
+        CostEstimator estimator = new CostEstimator();
+        Map<String, Statistic> stats = stats(Map.of());
+
+        assertTrue(Double.isInfinite(estimator.costJoinIndexNestedLoop(query(), stats)));
+        JoinNode result = (JoinNode) new JoinPlanRewriter(estimator).rewrite(query(), stats);
+        assertNotEquals(JoinAlgorithm.INDEX_NESTED_LOOP, result.algorithm());
+    }
+
+    @Test
+    void testRightJoinNeverUsesIndexNestedLoop() {
+        JoinNode join = query();
+        JoinNode right = new JoinNode(join.left(), join.right(), join.joinCondition(), "RIGHT");
+
+        assertTrue(Double.isInfinite(new CostEstimator().costJoinIndexNestedLoop(right,
+                stats(Map.of("customer_id", IndexType.BPlusTree)))));
+    }
+}
@@ -0,0 +1,182 @@
+package com.apacy.queryoptimizer.rewriter;
+
+import com.apacy.common.dto.Statistic;
+import com.apacy.common.dto.ast.expression.ColumnFactor;
+import com.apacy.common.dto.ast.expression.ExpressionNode;
+import com.apacy.common.dto.ast.expression.LiteralFactor;
+import com.apacy.common.dto.ast.expression.TermNode;
+import com.apacy.common.dto.ast.where.BinaryConditionNode;
+import com.apacy.common.dto.ast.where.ComparisonConditionNode;
+import com.apacy.common.enums.IndexType;
+import com.apacy.common.dto.plan.FilterNode;
+import com.apacy.common.dto.plan.LimitNode;
+import com.apacy.common.dto.plan.PlanNode;
+import com.apacy.common.dto.plan.ProjectNode;
+import com.apacy.common.dto.plan.ScanNode;
+import com.apacy.common.dto.plan.SortNode;
+import com.apacy.queryoptimizer.CostEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanPlanRewriterTest {
+
+    private static ExpressionNode expr(Object factor) {
+        if (factor instanceof String column) {
+            return new ExpressionNode(new TermNode(new ColumnFactor(column), List.of()), List.of());
+        }
+        return new ExpressionNode(new TermNode(new LiteralFactor(factor), List.of()), List.of());
+    }
+
+    private static Map<String, Statistic> stats() {
+        Statistic orders = new Statistic(1000, 50, 40, 20, Map.of(), Map.of("total", IndexType.BPlusTree),
+                Map.of(), Map.of(), Map.of("total", List.of("customer")));
+        return Map.of("orders", orders);
+    }
+
+    private static PlanNode query(List<String> projected) {
+        ComparisonConditionNode predicate = new ComparisonConditionNode(expr("orders.total"), ">", expr(10));
+        return new ProjectNode(new FilterNode(new ScanNode("orders", "orders"), predicate), projected);
+    }
+
+    @Test
+    // SELECT orders.customer FROM orders WHERE orders.total > 10 -> index-only scan
+    void testCoveredProjectionBecomesIndexOnly() {
+        ScanPlanRewriter rewriter = new ScanPlanRewriter(new CostEstimator());
+        PlanNode result = rewriter.rewrite(query(List.of("orders.customer")), stats());
+
+        ScanNode scan = (ScanNode) ((FilterNode) ((ProjectNode) result).child()).child();
+        assertEquals("orders.total", scan.indexName());
+        assertTrue(scan.indexOnly());
+        assertEquals(List.of("customer", "total"), scan.columns());
+    }
+
+    @Test
+    // Kolom di luar kunci + INCLUDE tetap membaca heap
+    void testUncoveredProjectionKeepsHeapScan() {
+        ScanPlanRewriter rewriter = new ScanPlanRewriter(new CostEstimator());
+        PlanNode result = rewriter.rewrite(query(List.of("orders.customer", "orders.note")), stats());
+
+        ScanNode scan = (ScanNode) ((FilterNode) ((ProjectNode) result).child()).child();
+        assertEquals("orders.total", scan.indexName());
+        assertFalse(scan.indexOnly());
+    }
+
+    private static Map<String, Statistic> compositeStats() {
+        Statistic mahasiswa = new Statistic(5000, 200, 40, 25, Map.of(),
+                Map.of("prodi_id,angkatan", IndexType.BPlusTree, "nim,prodi_id", IndexType.Hash),
+                Map.of(), Map.of(), Map.of("prodi_id,angkatan", List.of("nama")));
+        return Map.of("mahasiswa", mahasiswa);
+    }
+
+    private static PlanNode compositeQuery(String secondColumn, String secondOperator, List<String> projected) {
+        BinaryConditionNode predicate = new BinaryConditionNode(
+                new ComparisonConditionNode(expr("mahasiswa.prodi_id"), "=", expr(3)),
+                "AND",
+                new ComparisonConditionNode(expr("mahasiswa." + secondColumn), secondOperator, expr(2021)));
+        return new ProjectNode(new FilterNode(new ScanNode("mahasiswa", "mahasiswa"), predicate), projected);
+    }
+
+    @Test
+    // WHERE prodi_id = 3 AND angkatan >= 2021 -> prefix equality + range pada kolom terakhir indeks komposit
+    void testCompositeIndexPrefixAndRange() {
+        ScanPlanRewriter rewriter = new ScanPlanRewriter(new CostEstimator());
+        PlanNode result = rewriter.rewrite(compositeQuery("angkatan", ">=", List.of("mahasiswa.nama")),
+                compositeStats());
+
+        ScanNode scan = (ScanNode) ((FilterNode) ((ProjectNode) result).child()).child();
+        assertEquals("mahasiswa.prodi_id,angkatan", scan.indexName());
+        assertTrue(scan.indexOnly());
+    }
+
+    @Test
+    // Kolom pertama indeks tidak difilter -> indeks komposit tidak bisa dipakai
+    void testCompositeIndexNeedsLeadingColumn() {
+        ScanPlanRewriter rewriter = new ScanPlanRewriter(new CostEstimator());
+        BinaryConditionNode predicate = new BinaryConditionNode(
+                new ComparisonConditionNode(expr("mahasiswa.angkatan"), "=", expr(2021)),
+                "AND",
+                new ComparisonConditionNode(expr("mahasiswa.nama"), "=", expr("Budi")));
+        PlanNode plan = new FilterNode(new ScanNode("mahasiswa", "mahasiswa"), predicate);
+
+        ScanNode scan = (ScanNode) ((FilterNode) rewriter.rewrite(plan, compositeStats())).child();
+        assertNull(scan.indexName());
+
+        // Hash komposit hanya dipakai dengan equality di semua kolom
+        PlanNode hashPlan = compositeQuery("nim", ">", List.of("mahasiswa.nama"));
+        ScanNode hashScan = (ScanNode) ((FilterNode) ((ProjectNode) rewriter.rewrite(hashPlan, compositeStats()))
+                .child()).child();
+        assertEquals("mahasiswa.prodi_id,angkatan", hashScan.indexName());
+    }
+
+    @Test
+    // SELECT orders.customer FROM orders ORDER BY orders.total DESC LIMIT 5 -> scan indeks menurun tanpa SortNode
+    void testOrderByIndexedColumnDropsSort() {
+        ScanPlanRewriter rewriter = new ScanPlanRewriter(new CostEstimator());
+        PlanNode plan = new LimitNode(new SortNode(new ProjectNode(new ScanNode("orders", "orders"),
+                List.of("orders.customer")), "orders.total", true), 5, 0);
+        PlanNode result = rewriter.rewrite(plan, stats());
+
+        ProjectNode project = (ProjectNode) ((LimitNode) result).child();
+        ScanNode scan = (ScanNode) project.child();
+        assertEquals("total", scan.orderBy());
+        assertTrue(scan.descending());
+
+        // Tanpa LIMIT tetap memakai urutan indeks jika predikatnya di kolom yang sama
+        PlanNode sorted = new SortNode(query(List.of("orders.customer")), "orders.total", false);
+        ScanNode rangeScan = (ScanNode) ((FilterNode) ((ProjectNode) rewriter.rewrite(sorted, stats())).child())
+                .child();
+        assertEquals("orders.total", rangeScan.indexName());
+        assertEquals("total", rangeScan.orderBy());
+        assertFalse(rangeScan.descending());
+    }
+
+    @Test
+    // Kolom ORDER BY tanpa indeks BPlusTree tetap diurutkan SortNode
+    void testOrderByUnindexedColumnKeepsSort() {
+        ScanPlanRewriter rewriter = new ScanPlanRewriter(new CostEstimator());
+        PlanNode plan = new LimitNode(new SortNode(new ScanNode("orders", "orders"), "orders.customer", false), 5, 0);
+        PlanNode result = rewriter.rewrite(plan, stats());
+
+        SortNode sort = (SortNode) ((LimitNode) result).child();
+        assertNull(((ScanNode) sort.child()).orderBy());
+    }
+
+    @Test
+    // WHERE prodi_id = 3 AND nim = 5 tanpa indeks komposit yang cocok -> bitmap dari dua indeks satu kolom
+    void testSingleColumnIndexesCombineAsBitmap() {
+        ScanPlanRewriter rewriter = new ScanPlanRewriter(new CostEstimator());
+        Statistic mahasiswa = new Statistic(5000, 200, 40, 25, Map.of(),
+                Map.of("prodi_id", IndexType.Hash, "angkatan", IndexType.BPlusTree));
+        BinaryConditionNode predicate = new BinaryConditionNode(
+                new ComparisonConditionNode(expr("mahasiswa.prodi_id"), "=", expr(3)),
+                "AND",
+                new ComparisonConditionNode(expr("mahasiswa.angkatan"), ">=", expr(2021)));
+        PlanNode plan = new FilterNode(new ScanNode("mahasiswa", "mahasiswa"), predicate);
+
+        ScanNode scan = (ScanNode) ((FilterNode) rewriter.rewrite(plan, Map.of("mahasiswa", mahasiswa))).child();
+        assertTrue(scan.indexName().contains("prodi_id") && scan.indexName().contains("angkatan"));
+
+        // Hash tidak bisa menjawab range, jadi OR dengan prodi_id > 3 tidak memakai indeks
+        BinaryConditionNode or = new BinaryConditionNode(
+                new ComparisonConditionNode(expr("mahasiswa.prodi_id"), ">", expr(3)),
+                "OR",
+                new ComparisonConditionNode(expr("mahasiswa.angkatan"), ">=", expr(2021)));
+        ScanNode orScan = (ScanNode) ((FilterNode) rewriter.rewrite(
+                new FilterNode(new ScanNode("mahasiswa", "mahasiswa"), or), Map.of("mahasiswa", mahasiswa))).child();
+        assertNull(orScan.indexName());
+
+        // Indeks BITMAP menjawab range, jadi OR yang sama bisa digabung
+        Statistic bitmapped = new Statistic(5000, 200, 40, 25, Map.of(),
+                Map.of("prodi_id", IndexType.Bitmap, "angkatan", IndexType.BPlusTree));
+        ScanNode bitmapScan = (ScanNode) ((FilterNode) rewriter.rewrite(
+                new FilterNode(new ScanNode("mahasiswa", "mahasiswa"), or), Map.of("mahasiswa", bitmapped))).child();
+        assertTrue(bitmapScan.indexName().contains("prodi_id") && bitmapScan.indexName().contains("angkatan"));
+    }
+}
@@ -1,8 +1,12 @@
 package com.apacy.queryprocessor;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import com.apacy.common.dto.IndexSchema;
+import com.apacy.common.dto.Schema;
 import com.apacy.common.dto.plan.CartesianNode;
 import com.apacy.common.dto.plan.DDLNode;
 import com.apacy.common.dto.plan.FilterNode;
@@ -22,6 +26,7 @@ import com.apacy.queryprocessor.execution.CartesianOperator;
 import com.apacy.queryprocessor.execution.DDLOperator;
 import com.apacy.queryprocessor.execution.FilterOperator;
 import com.apacy.queryprocessor.execution.HashJoinOperator;
+import com.apacy.queryprocessor.execution.IndexNestedLoopJoinOperator;
 import com.apacy.queryprocessor.execution.LimitOperator;
 import com.apacy.queryprocessor.execution.ModifyOperator;
 import com.apacy.queryprocessor.execution.NestedLoopJoinOperator;
@@ -93,12 +98,19 @@ public class PlanTranslator {
      * Memilih strategi join terbaik berdasarkan karakteristik input.
      */
     private Operator buildJoin(JoinNode node, int txId, IStorageManager sm, IConcurrencyControlManager ccm, IFailureRecoveryManager frm) {
-        Operator left = build(node.left(), txId, sm, ccm, frm);
-        Operator right = build(node.right(), txId, sm, ccm, frm);
-        
         String type = node.joinType() != null ? node.joinType().toUpperCase() : "INNER";
         JoinAlgorithm algo = (node.algorithm() != null) ? node.algorithm() : JoinAlgorithm.NESTED_LOOP;
 
+        if (algo == JoinAlgorithm.INDEX_NESTED_LOOP) {
+            Operator indexJoin = buildIndexNestedLoop(node, type, txId, sm, ccm, frm);
+            if (indexJoin != null) {
+                return indexJoin;
+            }
+        }
+
+        Operator left = build(node.left(), txId, sm, ccm, frm);
+        Operator right = build(node.right(), txId, sm, ccm, frm);
+
         // CROSS JOIN
         if ("CROSS".equals(type) || algo == JoinAlgorithm.CARTESIAN) {
             return new CartesianOperator(left, right);
@@ -127,6 +139,91 @@ public class PlanTranslator {
         return new NestedLoopJoinOperator(left, right, node.joinCondition(), type);
     }
     
+    /**
+     * Index nested-loop join (INNER/LEFT): sisi kanan harus scan tabel, boleh di
+     * bawah FilterNode, dan kondisi join memuat "outer.a = inner.b" dengan b
+     * berindeks. null jika bentuk plan tidak cocok; caller lalu memakai join biasa.
+     */
+    private Operator buildIndexNestedLoop(JoinNode node, String type, int txId, IStorageManager sm,
+            IConcurrencyControlManager ccm, IFailureRecoveryManager frm) {
+        if (!"INNER".equals(type) && !"LEFT".equals(type)) {
+            return null;
+        }
+        List<Object> innerPredicates = new ArrayList<>();
+        PlanNode inner = node.right();
+        while (inner instanceof FilterNode filter) {
+            innerPredicates.add(filter.predicate());
+            inner = filter.child();
+        }
+        if (!(inner instanceof ScanNode scan)) {
+            return null;
+        }
+        Schema innerSchema = sm.getSchema(scan.tableName());
+        if (innerSchema == null) {
+            return null;
+        }
+        Set<String> indexed = new HashSet<>();
+        for (IndexSchema index : innerSchema.indexes()) {
+            indexed.add(index.columnName());
+        }
+        String prefix = (scan.alias() != null && !scan.alias().isEmpty()) ? scan.alias() : scan.tableName();
+        String[] pair = findIndexJoinColumns(node.joinCondition(), prefix + ".", indexed);
+        if (pair == null) {
+            return null;
+        }
+        Operator outer = build(node.left(), txId, sm, ccm, frm);
+        return new IndexNestedLoopJoinOperator(outer, scan, innerPredicates, pair[0], pair[1],
+                node.joinCondition(), type, sm);
+    }
+
+    /**
+     * Pasangan {kolomOuter, kolomInner} (lengkap dengan prefix) dari konjungsi
+     * equality pertama antar kolom yang sisi inner-nya berindeks; sama dengan
+     * kolom yang dipakai CostEstimator saat menghitung biaya index join.
+     */
+    private String[] findIndexJoinColumns(Object condition, String innerPrefix, Set<String> indexed) {
+        if (condition instanceof com.apacy.common.dto.ast.where.BinaryConditionNode bin) {
+            if (!"AND".equalsIgnoreCase(bin.operator())) {
+                return null;
+            }
+            String[] left = findIndexJoinColumns(bin.left(), innerPrefix, indexed);
+            return left != null ? left : findIndexJoinColumns(bin.right(), innerPrefix, indexed);
+        }
+        if (condition instanceof com.apacy.common.dto.ast.where.ComparisonConditionNode comp
+                && "=".equals(comp.operator())) {
+            String leftCol = qualifiedColumn(comp.leftOperand());
+            String rightCol = qualifiedColumn(comp.rightOperand());
+            if (leftCol == null || rightCol == null) {
+                return null;
+            }
+            String[] pair = null;
+            if (rightCol.startsWith(innerPrefix) && !leftCol.startsWith(innerPrefix)) {
+                pair = new String[] { leftCol, rightCol };
+            } else if (leftCol.startsWith(innerPrefix) && !rightCol.startsWith(innerPrefix)) {
+                pair = new String[] { rightCol, leftCol };
+            }
+            if (pair != null && indexed.contains(pair[1].substring(innerPrefix.length()))) {
+                return pair;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Nama kolom apa adanya jika ekspresi hanya berisi satu kolom.
+     */
+    private String qualifiedColumn(com.apacy.common.dto.ast.expression.ExpressionNode expr) {
+        if (expr == null || expr.term() == null
+                || (expr.remainderTerms() != null && !expr.remainderTerms().isEmpty())
+                || (expr.term().remainderFactors() != null && !expr.term().remainderFactors().isEmpty())) {
+            return null;
+        }
+        if (expr.term().factor() instanceof com.apacy.common.dto.ast.expression.ColumnFactor colFactor) {
+            return colFactor.columnName();
+        }
+        return null;
+    }
+
     // ==================================================================================
     // HELPER METHODS (Preserved from original implementation)
     // ==================================================================================
@@ -371,7 +371,11 @@ public class QueryBinder {
                 scan.tableName(), 
                 scan.alias(), 
                 scan.indexName(), 
-                boundCondition
+                boundCondition,
+                scan.columns(),
+                scan.indexOnly(),
+                scan.orderBy(),
+                scan.descending()
             );
         }
 
@@ -95,8 +95,12 @@ public class ConditionEvaluator {
             }
         }
 
-        // 1. Numeric Comparison
+        // 1. Numeric Comparison (bilangan bulat dibandingkan sebagai long agar
+        //    nilai BIGINT di atas 2^53 tidak tertukar karena pembulatan double)
         if (v1 instanceof Number n1 && v2 instanceof Number n2) {
+            if (isIntegral(n1) && isIntegral(n2)) {
+                return checkOp(Long.compare(n1.longValue(), n2.longValue()), op);
+            }
             double d1 = n1.doubleValue();
             double d2 = n2.doubleValue();
             int cmp = Double.compare(d1, d2);
@@ -116,6 +120,10 @@ public class ConditionEvaluator {
         return false;
     }
 
+    private static boolean isIntegral(Number n) {
+        return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+    }
+
     private static boolean checkOp(int cmp, String op) {
         switch (op) {
             case "=":
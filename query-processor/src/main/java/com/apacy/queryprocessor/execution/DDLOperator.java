@@ -9,10 +9,13 @@ import com.apacy.common.dto.ForeignKeySchema;
 import com.apacy.common.dto.IndexSchema;
 import com.apacy.common.dto.Row;
 import com.apacy.common.dto.Schema;
+import com.apacy.common.dto.TablespaceSchema;
 import com.apacy.common.dto.ddl.ColumnDefinition;
 import com.apacy.common.dto.ddl.ParsedQueryCreate;
+import com.apacy.common.dto.ddl.ParsedQueryCreateTablespace;
 import com.apacy.common.dto.ddl.ParsedQueryDDL;
 import com.apacy.common.dto.ddl.ParsedQueryDrop;
+import com.apacy.common.dto.ddl.ParsedQueryDropTablespace;
 import com.apacy.common.dto.plan.DDLNode;
 import com.apacy.common.enums.IndexType;
 import com.apacy.common.interfaces.IStorageManager;
@@ -56,14 +59,28 @@ public class DDLOperator implements Operator {
             else if (ddlQuery instanceof com.apacy.common.dto.ddl.ParsedQueryCreateIndex idxCmd) {
                 sm.setIndex(
                     idxCmd.getTableName(), 
-                    idxCmd.getColumnName(), 
-                    idxCmd.getIndexType()
+                    idxCmd.getColumnNames(), 
+                    idxCmd.getIndexType(),
+                    idxCmd.getTablespace(),
+                    idxCmd.getIncludeColumns()
                 );
             }
             // DROP INDEX
             else if (ddlQuery instanceof com.apacy.common.dto.ddl.ParsedQueryDropIndex idxCmd) {
                 sm.dropIndex(idxCmd.getTableName(), idxCmd.getIndexName());
             }
+            // CREATE TABLESPACE
+            else if (ddlQuery instanceof ParsedQueryCreateTablespace tsCmd) {
+                sm.createTablespace(new TablespaceSchema(
+                    tsCmd.getTablespaceName(),
+                    tsCmd.getLocations(),
+                    tsCmd.isStriped()
+                ));
+            }
+            // DROP TABLESPACE
+            else if (ddlQuery instanceof ParsedQueryDropTablespace tsCmd) {
+                sm.dropTablespace(tsCmd.getTablespaceName());
+            }
         } catch (IOException e) {
             throw new RuntimeException("Storage IO Error executing DDL: " + e.getMessage(), e);
         }
@@ -85,6 +102,7 @@ public class DDLOperator implements Operator {
 
         List<Column> smColumns = new ArrayList<>();
         List<IndexSchema> smIndexes = new ArrayList<>();
+        String clusterKey = null;
 
         for (ColumnDefinition colDef : query.getColumns()) {
             Column col = new Column(colDef.getName(), colDef.getType(), colDef.getLength());
@@ -93,18 +111,32 @@ public class DDLOperator implements Operator {
             if (colDef.isPrimaryKey()) {
                 String indexName = "pk_" + tableName + "_" + colDef.getName();
                 String indexFile = tableName + "_" + colDef.getName() + ".idx";
-                
-                IndexSchema pkIndex = new IndexSchema(indexName, colDef.getName(), IndexType.Hash, indexFile);
+
+                // Tabel CLUSTERED: PK menentukan urutan fisik baris, lookup & range lewat direktori halaman
+                IndexType pkType = query.isClustered() ? IndexType.BPlusTree : IndexType.Hash;
+                IndexSchema pkIndex = new IndexSchema(indexName, colDef.getName(), pkType, indexFile, null, List.of(), true);
                 smIndexes.add(pkIndex);
+                if (query.isClustered() && clusterKey == null) {
+                    clusterKey = colDef.getName();
+                }
             }
         }
 
+        if (query.isClustered() && clusterKey == null) {
+            throw new RuntimeException("Cannot create table. CLUSTERED table '" + tableName + "' requires a PRIMARY KEY.");
+        }
+
         return new Schema(
             tableName, 
             dataFileName, 
             smColumns, 
             smIndexes, 
-            query.getForeignKeys() 
+            query.getForeignKeys(),
+            query.getPartition(),
+            query.getTablespace(),
+            query.getCompression(),
+            query.getEngine(),
+            clusterKey
         );
     }
 }
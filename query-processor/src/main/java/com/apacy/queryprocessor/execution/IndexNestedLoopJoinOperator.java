@@ -0,0 +1,192 @@
+package com.apacy.queryprocessor.execution;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.apacy.common.dto.Column;
+import com.apacy.common.dto.Row;
+import com.apacy.common.dto.Schema;
+import com.apacy.common.dto.ast.expression.ColumnFactor;
+import com.apacy.common.dto.ast.expression.ExpressionNode;
+import com.apacy.common.dto.ast.expression.LiteralFactor;
+import com.apacy.common.dto.ast.expression.TermNode;
+import com.apacy.common.dto.ast.where.BinaryConditionNode;
+import com.apacy.common.dto.ast.where.ComparisonConditionNode;
+import com.apacy.common.dto.ast.where.WhereConditionNode;
+import com.apacy.common.dto.plan.ScanNode;
+import com.apacy.common.interfaces.IStorageManager;
+import com.apacy.queryprocessor.evaluator.ConditionEvaluator;
+
+/**
+ * Index Nested-Loop Join: untuk setiap baris outer, tabel inner dibaca lewat
+ * scan berindeks dengan kondisi "kolomInner = nilaiOuter", sehingga SM cukup
+ * mem-probe indeks kolom join (hash/B+ tree/bitmap) alih-alih memindai seluruh
+ * tabel inner. Cocok bila outer kecil dan inner besar.
+ */
+public class IndexNestedLoopJoinOperator implements Operator {
+    private final Operator outerChild;
+    private final ScanNode innerScan;
+    private final List<Object> innerPredicates; // predikat FilterNode di atas scan inner
+    private final String outerColumn;           // nama kolom outer, lengkap dengan prefix
+    private final String innerColumn;           // nama kolom inner, lengkap dengan prefix
+    private final Object joinCondition;
+    private final String joinType; // "INNER", "LEFT"
+    private final IStorageManager sm;
+
+    private Schema innerSchema;
+
+    // State variables
+    private Row currentOuterRow;
+    private Operator probe;
+    private boolean matchFoundForOuter;
+
+    public IndexNestedLoopJoinOperator(Operator outerChild, ScanNode innerScan, List<Object> innerPredicates,
+            String outerColumn, String innerColumn, Object joinCondition, String joinType, IStorageManager sm) {
+        this.outerChild = outerChild;
+        this.innerScan = innerScan;
+        this.innerPredicates = innerPredicates != null ? innerPredicates : List.of();
+        this.outerColumn = outerColumn;
+        this.innerColumn = innerColumn;
+        this.joinCondition = joinCondition;
+        this.joinType = joinType != null ? joinType.toUpperCase() : "INNER";
+        this.sm = sm;
+    }
+
+    /**
+     * Kolom inner (dengan prefix) yang di-probe lewat indeks untuk tiap baris outer.
+     */
+    public String getInnerColumn() {
+        return innerColumn;
+    }
+
+    @Override
+    public void open() {
+        outerChild.open();
+        innerSchema = sm.getSchema(innerScan.tableName());
+        currentOuterRow = outerChild.next();
+        openProbe();
+    }
+
+    @Override
+    public Row next() {
+        while (currentOuterRow != null) {
+            if (probe != null) {
+                Row innerRow;
+                while ((innerRow = probe.next()) != null) {
+                    Row mergedRow = mergeRows(currentOuterRow, innerRow);
+                    if (ConditionEvaluator.evaluate(mergedRow, joinCondition)) {
+                        matchFoundForOuter = true;
+                        return mergedRow;
+                    }
+                }
+            }
+
+            if (joinType.contains("LEFT") && !matchFoundForOuter) {
+                Row nullRow = createNullRow(currentOuterRow);
+                advanceOuter();
+                return nullRow;
+            }
+
+            advanceOuter();
+        }
+
+        return null;
+    }
+
+    private void advanceOuter() {
+        closeProbe();
+        currentOuterRow = outerChild.next();
+        openProbe();
+    }
+
+    /**
+     * Buka scan inner untuk baris outer saat ini. NULL tidak pernah sama
+     * dengan nilai apa pun, jadi baris outer dengan kunci NULL tidak di-probe.
+     */
+    private void openProbe() {
+        matchFoundForOuter = false;
+        probe = null;
+        if (currentOuterRow == null) {
+            return;
+        }
+        Object value = getRowValue(currentOuterRow, outerColumn);
+        if (value == null) {
+            return;
+        }
+
+        WhereConditionNode condition = new ComparisonConditionNode(column(innerColumn), "=", literal(value));
+        if (innerScan.condition() instanceof WhereConditionNode scanCondition) {
+            condition = new BinaryConditionNode(condition, "AND", scanCondition);
+        }
+        String indexName = innerScan.indexName() != null ? innerScan.indexName() : innerColumn;
+        Operator op = new ScanOperator(new ScanNode(innerScan.tableName(), innerScan.alias(), indexName, condition), sm);
+        for (Object predicate : innerPredicates) {
+            op = new FilterOperator(op, predicate);
+        }
+        op.open();
+        probe = op;
+    }
+
+    private void closeProbe() {
+        if (probe != null) {
+            probe.close();
+            probe = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        closeProbe();
+        outerChild.close();
+        innerSchema = null;
+    }
+
+    private static ExpressionNode column(String name) {
+        return new ExpressionNode(new TermNode(new ColumnFactor(name), List.of()), List.of());
+    }
+
+    /**
+     * Nilai string diberi kutip seperti literal SQL agar SM tidak menafsirkan
+     * string berisi angka sebagai bilangan.
+     */
+    private static ExpressionNode literal(Object value) {
+        Object literal = value instanceof String s ? "'" + s + "'" : value;
+        return new ExpressionNode(new TermNode(new LiteralFactor(literal), List.of()), List.of());
+    }
+
+    private Row mergeRows(Row outer, Row inner) {
+        Map<String, Object> data = new HashMap<>(outer.data());
+        for (var entry : inner.data().entrySet()) {
+            data.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        return new Row(data);
+    }
+
+    private Row createNullRow(Row outer) {
+        Map<String, Object> data = new HashMap<>(outer.data());
+        if (innerSchema != null) {
+            String prefix = (innerScan.alias() != null && !innerScan.alias().isEmpty())
+                            ? innerScan.alias()
+                            : innerScan.tableName();
+            for (Column col : innerSchema.columns()) {
+                data.putIfAbsent(prefix + "." + col.name(), null);
+            }
+        }
+        return new Row(data);
+    }
+
+    private Object getRowValue(Row row, String columnName) {
+        if (row.data().containsKey(columnName)) {
+            return row.get(columnName);
+        }
+
+        String suffix = "." + columnName.substring(columnName.lastIndexOf('.') + 1);
+        for (String key : row.data().keySet()) {
+            if (key.endsWith(suffix)) {
+                return row.get(key);
+            }
+        }
+        return null;
+    }
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntSupplier;
 
 import com.apacy.common.dto.DataDeletion;
 import com.apacy.common.dto.DataRetrieval;
@@ -144,49 +145,58 @@ public class ModifyOperator implements Operator {
 
         validateInsert(newRow, node.targetTable());
 
-        frm.writeDataLog(String.valueOf(txId), "INSERT", node.targetTable(), null, newRow);
-
+        // Duplikat PK ditolak SM saat kuncinya diklaim di indeks UNIQUE (atomik, satu probe)
         DataWrite dw = new DataWrite(node.targetTable(), newRow, null);
-        affectedRows = sm.writeBlock(dw);
+        affectedRows = applyLogged("INSERT", null, newRow, () -> sm.writeBlock(dw));
     }
 
-    private void validatePrimaryKey(Row newRow, String tableName) {
-    Schema schema = sm.getSchema(tableName);
-    if (schema == null) return;
-
-    String pkColumnName = null;
-    String prefix = "pk_" + tableName + "_";
-
-    for (IndexSchema idx : schema.indexes()) {
-        if (idx.indexName().startsWith(prefix)) {
-            pkColumnName = idx.columnName();
-            break; 
+    /**
+     * Log ditulis sebelum perubahan (WAL). Undo/redo mencocokkan baris lewat
+     * isinya, jadi kalau SM menolak perubahan atau tidak mengubah apa pun,
+     * record kompensasi REJECT ditulis supaya entri tadi dilewati dan tidak
+     * mengenai baris lain yang isinya sama.
+     */
+    private int applyLogged(String operation, Row oldRow, Row newRow, IntSupplier change) {
+        writeDataLog(operation, oldRow, newRow);
+        int affected;
+        try {
+            affected = change.getAsInt();
+        } catch (RuntimeException e) {
+            writeDataLog("REJECT", oldRow, newRow);
+            throw e;
+        }
+        if (affected == 0) {
+            writeDataLog("REJECT", oldRow, newRow);
         }
+        return affected;
     }
 
-    if (pkColumnName == null) return;
-
-    Object pkValue = newRow.get(pkColumnName);
-
-    if (pkValue == null) {
-        throw new RuntimeException("Primary Key Violation: Column '" + pkColumnName + "' cannot be NULL.");
+    /**
+     * Tabel ENGINE=MEMORY bersifat volatil dan non-transaksional:
+     * perubahannya tidak dicatat ke WAL.
+     */
+    private void writeDataLog(String operation, Row oldRow, Row newRow) {
+        Schema schema = sm.getSchema(node.targetTable());
+        if (schema != null && schema.isInMemory()) {
+            return;
+        }
+        frm.writeDataLog(String.valueOf(txId), operation, node.targetTable(), oldRow, newRow);
     }
 
-    WhereConditionNode filter = createEqualityCondition(pkColumnName, pkValue);
-    
-    DataRetrieval checkPK = new DataRetrieval(
-        tableName,
-        List.of(pkColumnName),
-        filter,
-        true
-    );
-
-    List<Row> results = sm.readBlock(checkPK);
+    /**
+     * Keunikan PK ditegakkan oleh indeks UNIQUE di SM; di sini hanya cek NULL
+     * yang tidak butuh I/O.
+     */
+    private void validatePrimaryKey(Row newRow, String tableName) {
+        Schema schema = sm.getSchema(tableName);
+        if (schema == null) return;
 
-    if (!results.isEmpty()) {
-        throw new RuntimeException("Primary Key Violation: Duplicate entry '" + pkValue + "' for key '" + pkColumnName + "'.");
+        for (IndexSchema idx : schema.indexes()) {
+            if (idx.unique() && !idx.isComposite() && newRow.get(idx.columnName()) == null) {
+                throw new RuntimeException("Primary Key Violation: Column '" + idx.columnName() + "' cannot be NULL.");
+            }
+        }
     }
-}
 
     private void validateInsert(Row newRow, String tableName) {
     Schema schema = sm.getSchema(tableName);
@@ -225,17 +235,13 @@ public class ModifyOperator implements Operator {
             return;
         }
 
-        Row childRow;
-        while ((childRow = child.next()) != null) {
+        for (Row childRow : targetRows()) {
             validateDelete(childRow, node.targetTable());
 
-            frm.writeDataLog(String.valueOf(txId), "DELETE", node.targetTable(), childRow, null);
-
             WhereConditionNode predicate = buildIdentityAstFromRow(childRow);
 
             DataDeletion dd = new DataDeletion(node.targetTable(), predicate);
-            int deleted = sm.deleteBlock(dd);
-            affectedRows += deleted;
+            affectedRows += applyLogged("DELETE", childRow, null, () -> sm.deleteBlock(dd));
         }
     }
 
@@ -251,8 +257,7 @@ public class ModifyOperator implements Operator {
             }
         }
 
-        Row oldRow;
-        while ((oldRow = child.next()) != null) {
+        for (Row oldRow : targetRows()) {
             Map<String, Object> mergedData = new HashMap<>(oldRow.data());
 
             List<String> targetCols = node.targetColumns();
@@ -270,58 +275,40 @@ public class ModifyOperator implements Operator {
 
             validateUpdateParent(oldRow, newRow, node.targetTable());
 
-            frm.writeDataLog(String.valueOf(txId), "UPDATE", node.targetTable(), oldRow, newRow);
-
             WhereConditionNode updatePredicate = buildIdentityAstFromRow(oldRow);
             DataUpdate du = new DataUpdate(node.targetTable(), newRow, updatePredicate);
-            int updated = sm.updateBlock(du);
-            affectedRows += updated;
+            affectedRows += applyLogged("UPDATE", oldRow, newRow, () -> sm.updateBlock(du));
+        }
+    }
+
+    /**
+     * Baris target dikumpulkan dulu sebelum dimodifikasi: scan di bawahnya
+     * lazy, dan baris yang dipindah oleh UPDATE tidak boleh terbaca dua kali.
+     */
+    private List<Row> targetRows() {
+        List<Row> rows = new ArrayList<>();
+        Row row;
+        while ((row = child.next()) != null) {
+            rows.add(row);
         }
+        return rows;
     }
 
+    /**
+     * Kunci baru diklaim SM lewat indeks UNIQUE saat baris di-update (di tempat
+     * maupun dipindah), jadi di sini hanya cek NULL.
+     */
     private void validateUpdatePrimaryKey(Row oldRow, Row newRow, String tableName) {
         Schema schema = sm.getSchema(tableName);
         if (schema == null) return;
 
-        String pkColumnName = null;
-        String prefix = "pk_" + tableName + "_";
-
         for (IndexSchema idx : schema.indexes()) {
-            if (idx.indexName().startsWith(prefix)) {
-                pkColumnName = idx.columnName();
-                break;
+            if (idx.unique() && !idx.isComposite() && getColumnValue(newRow, idx.columnName()) == null) {
+                throw new RuntimeException("Primary Key Constraint Violation: Column '" + idx.columnName() + "' cannot be NULL.");
             }
         }
-
-        if (pkColumnName == null) return;
-
-        Object oldValue = getColumnValue(oldRow, pkColumnName);
-        Object newValue = getColumnValue(newRow, pkColumnName);
-
-        if (newValue == null || newValue.equals(oldValue)) {
-            return; 
-        }
-
-        if (newValue == null) {
-            throw new RuntimeException("Primary Key Constraint Violation: Column '" + pkColumnName + "' cannot be NULL.");
-        }
-
-        WhereConditionNode filter = createEqualityCondition(pkColumnName, newValue);
-        
-        DataRetrieval checkPK = new DataRetrieval(
-            tableName,
-            List.of(pkColumnName),
-            filter,
-            true
-        );
-
-        List<Row> results = sm.readBlock(checkPK);
-
-        if (!results.isEmpty()) {
-            throw new RuntimeException("Primary Key Constraint Violation: Duplicate entry '" + newValue + 
-                "' for key '" + pkColumnName + "' in table '" + tableName + "'.");
-        }
     }
+
     private void validateUpdateChild(Row oldRow, Row newRow, String tableName) {
         Schema schema = sm.getSchema(tableName);
         if (schema.getForeignKeys() == null) return;
@@ -3,7 +3,6 @@ package com.apacy.queryprocessor.execution;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 
 import com.apacy.common.dto.DataRetrieval;
@@ -18,7 +17,7 @@ public class ScanOperator implements Operator {
     private final ScanNode node;
     private final IStorageManager sm;
     private Iterator<Row> iterator;
-    private List<Row> buffer;
+    private Schema schema;
 
     public ScanOperator(ScanNode node, IStorageManager sm) {
         this.node = node;
@@ -29,18 +28,20 @@ public class ScanOperator implements Operator {
     public void open() {
         boolean useIndex = (node.indexName() != null);
         WhereConditionNode filterCondition = (WhereConditionNode) node.condition();
-        // In a real implementation, this would open a cursor/file stream.
-        // Due to StorageManager limitations, we read the block into memory here.
+        // Baris dibaca lazy dari storage: operator di atas (LIMIT, join) yang
+        // berhenti lebih awal tidak memicu pembacaan halaman sisanya.
         DataRetrieval dr = new DataRetrieval(
             node.tableName(), 
-            null,
+            node.indexOnly() ? node.columns() : null,
             filterCondition, 
-            useIndex 
+            useIndex,
+            node.indexOnly(),
+            node.orderBy(),
+            node.descending()
         );
-        this.buffer = sm.readBlock(dr);
-        if (this.buffer != null) {
-            this.iterator = this.buffer.iterator();
-        }
+        // Resolve skema sekali per scan, bukan per baris
+        this.schema = sm.getSchema(node.tableName());
+        this.iterator = sm.scanBlock(dr);
     }
 
     @Override
@@ -55,9 +56,12 @@ public class ScanOperator implements Operator {
                             ? node.alias() 
                             : node.tableName();
 
-            Schema schema = sm.getSchema(node.tableName());
-
-            if (schema != null) {
+            if (node.indexOnly() && node.columns() != null) {
+                // Index-only scan: baris hanya berisi kolom yang diminta
+                for (String colName : node.columns()) {
+                    prefixedData.put(prefix + "." + colName, rawRow.get(colName));
+                }
+            } else if (schema != null) {
                 for (Column col : schema.columns()) {
                     String colName = col.name();
                     Object val = rawRow.get(colName); 
@@ -77,7 +81,7 @@ public class ScanOperator implements Operator {
 
     @Override
     public void close() {
-        this.buffer = null;
         this.iterator = null;
+        this.schema = null;
     }
 }
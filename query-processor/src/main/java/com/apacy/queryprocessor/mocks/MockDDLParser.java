@@ -96,6 +96,10 @@ public class MockDDLParser extends AbstractParser {
             case "INTEGER":
                 type = DataType.INTEGER;
                 break;
+            case "BIGINT":
+            case "LONG":
+                type = DataType.BIGINT;
+                break;
             case "FLOAT":
             case "DOUBLE":
                 type = DataType.FLOAT;
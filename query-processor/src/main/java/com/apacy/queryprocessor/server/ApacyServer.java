@@ -87,8 +87,10 @@ public class ApacyServer {
         }
         
         // Inisialisasi storage manager
-        StorageManager storageManager = new StorageManager("../data");
+        StorageManager storageManager = new StorageManager(config.getDataDirectory());
         storageManager.initialize();
+        // Indeks dibuka lazy; warm-up jalan di background tanpa menahan koneksi pertama
+        storageManager.warmUpIndexes(config.getIndexWarmUpThreads());
         
         // Inisialisasi komponen lainnya
         QueryOptimizer queryOptimizer = new QueryOptimizer();
@@ -7,5 +7,17 @@ public class ServerConfig {
     @JsonProperty("algorithm")
     public String algorithm = "lock";
 
+    // Direktori data utama (tablespace "default"); tablespace lain didaftarkan via CREATE TABLESPACE
+    @JsonProperty("dataDirectory")
+    public String dataDirectory = "../data";
+
+    // Thread untuk membuka indeks di background setelah startup; 0 = indeks dibuka saat pertama dipakai
+    @JsonProperty("indexWarmUpThreads")
+    public int indexWarmUpThreads = 2;
+
     public String getAlgorithm() { return algorithm; }
+
+    public String getDataDirectory() { return dataDirectory; }
+
+    public int getIndexWarmUpThreads() { return indexWarmUpThreads; }
 }
\ No newline at end of file
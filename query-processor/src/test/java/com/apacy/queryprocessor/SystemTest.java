@@ -5,13 +5,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,9 +22,21 @@ import org.junit.jupiter.api.Test;
 
 import com.apacy.common.dto.ExecutionResult;
 import com.apacy.common.dto.Row;
+import com.apacy.common.dto.ast.expression.ColumnFactor;
+import com.apacy.common.dto.ast.expression.ExpressionNode;
+import com.apacy.common.dto.ast.expression.LiteralFactor;
+import com.apacy.common.dto.ast.expression.TermNode;
+import com.apacy.common.dto.ast.where.BinaryConditionNode;
+import com.apacy.common.dto.ast.where.ComparisonConditionNode;
+import com.apacy.common.dto.plan.FilterNode;
+import com.apacy.common.dto.plan.JoinNode;
+import com.apacy.common.dto.plan.ScanNode;
+import com.apacy.common.enums.JoinAlgorithm;
 import com.apacy.concurrencycontrolmanager.ConcurrencyControlManager;
 import com.apacy.failurerecoverymanager.FailureRecoveryManager;
 import com.apacy.queryoptimizer.QueryOptimizer;
+import com.apacy.queryprocessor.execution.IndexNestedLoopJoinOperator;
+import com.apacy.queryprocessor.execution.Operator;
 import com.apacy.storagemanager.StorageManager;
 
 /**
@@ -142,6 +157,39 @@ class SystemTest {
         // Note: Tergantung implementasi ProjectOperator apakah menghapus key lain atau bikin map baru
     }
 
+    @Test
+    @DisplayName("E2E: Kolom BIGINT (CREATE -> INSERT -> SELECT WHERE -> statistik)")
+    void testBigintColumn() {
+        assertTrue(queryProcessor.executeQuery("CREATE TABLE ledger (id BIGINT, note VARCHAR(10));").success());
+        // 2^53 dan 2^53 + 1 sama jika dibandingkan sebagai double
+        assertTrue(queryProcessor.executeQuery("INSERT INTO ledger (id, note) VALUES (9007199254740992, 'a');").success());
+        assertTrue(queryProcessor.executeQuery("INSERT INTO ledger (id, note) VALUES (9007199254740993, 'b');").success());
+        assertTrue(queryProcessor.executeQuery("INSERT INTO ledger (id, note) VALUES (7, 'c');").success());
+
+        ExecutionResult eq = queryProcessor.executeQuery("SELECT * FROM ledger WHERE id = 9007199254740993;");
+        assertTrue(eq.success());
+        assertEquals(1, eq.rows().size());
+        assertEquals(9007199254740993L, eq.rows().get(0).get("ledger.id"));
+        assertEquals("b", eq.rows().get(0).get("ledger.note"));
+
+        ExecutionResult range = queryProcessor.executeQuery("SELECT note FROM ledger WHERE id > 9007199254740992;");
+        assertTrue(range.success());
+        assertEquals(1, range.rows().size());
+
+        ExecutionResult small = queryProcessor.executeQuery("SELECT note FROM ledger WHERE id < 100;");
+        assertTrue(small.success());
+        assertEquals(1, small.rows().size());
+
+        var stats = storageManager.getAllStats().get("ledger");
+        assertEquals(7L, stats.minVal().get("id"));
+        assertEquals(9007199254740993L, stats.maxVal().get("id"));
+
+        // Literal di luar rentang INT ke kolom INTEGER ditolak, bukan dipotong
+        queryProcessor.executeQuery("CREATE TABLE small (id INTEGER);");
+        assertEquals(0, queryProcessor.executeQuery("INSERT INTO small (id) VALUES (5000000000);").affectedRows());
+        assertEquals(0, queryProcessor.executeQuery("SELECT * FROM small;").rows().size());
+    }
+
     @Test
     @DisplayName("E2E: Update Data and Verify Persistence")
     void testUpdateData() {
@@ -218,6 +266,104 @@ class SystemTest {
         }
     }
 
+    @Test
+    @DisplayName("E2E: Index Nested-Loop Join mem-probe indeks kolom join inner")
+    void testIndexNestedLoopJoin() {
+        queryProcessor.executeQuery("CREATE TABLE students (sid INTEGER, name VARCHAR(20));");
+        queryProcessor.executeQuery("CREATE TABLE grades (sid INTEGER, score INTEGER);");
+        queryProcessor.executeQuery("INSERT INTO students (sid, name) VALUES (1, 'Ani');");
+        queryProcessor.executeQuery("INSERT INTO students (sid, name) VALUES (2, 'Budi');");
+        queryProcessor.executeQuery("INSERT INTO students (sid, name) VALUES (3, 'Cici');");
+        queryProcessor.executeQuery("INSERT INTO grades (sid, score) VALUES (1, 90);");
+        queryProcessor.executeQuery("INSERT INTO grades (sid, score) VALUES (1, 70);");
+        queryProcessor.executeQuery("INSERT INTO grades (sid, score) VALUES (2, 80);");
+        assertTrue(queryProcessor.executeQuery("CREATE INDEX idx_grades_sid ON grades USING HASH (sid);").success());
+
+        ComparisonConditionNode on = new ComparisonConditionNode(column("students.sid"), "=", column("grades.sid"));
+        PlanTranslator translator = new PlanTranslator();
+
+        // INNER: Ani dua nilai, Budi satu, Cici tidak ada
+        Operator inner = translator.build(new JoinNode(new ScanNode("students", "students"),
+            new ScanNode("grades", "grades"), on, "INNER", JoinAlgorithm.INDEX_NESTED_LOOP), 0, storageManager, ccm, frm);
+        assertTrue(inner instanceof IndexNestedLoopJoinOperator);
+        List<Row> rows = drain(inner);
+        assertEquals(3, rows.size());
+        assertEquals(2, rows.stream().filter(r -> "Ani".equals(r.get("students.name"))).count());
+        assertTrue(rows.stream().allMatch(r -> r.get("students.sid").equals(r.get("grades.sid"))));
+
+        // LEFT + filter di atas scan inner: Ani (score > 85) cocok, Budi dan Cici berisi NULL
+        ComparisonConditionNode highScore = new ComparisonConditionNode(column("grades.score"), ">", literal(85));
+        Operator left = translator.build(new JoinNode(new ScanNode("students", "students"),
+            new FilterNode(new ScanNode("grades", "grades"), highScore), on, "LEFT",
+            JoinAlgorithm.INDEX_NESTED_LOOP), 0, storageManager, ccm, frm);
+        rows = drain(left);
+        assertEquals(3, rows.size());
+        Row ani = rows.stream().filter(r -> "Ani".equals(r.get("students.name"))).findFirst().orElseThrow();
+        assertEquals(90, ani.get("grades.score"));
+        Row cici = rows.stream().filter(r -> "Cici".equals(r.get("students.name"))).findFirst().orElseThrow();
+        assertTrue(cici.data().containsKey("grades.score"));
+        assertNull(cici.get("grades.score"));
+    }
+
+    @Test
+    @DisplayName("E2E: Index Nested-Loop Join mem-probe kolom join yang berindeks")
+    void testIndexNestedLoopJoinPicksIndexedColumn() {
+        queryProcessor.executeQuery("CREATE TABLE enrollments (sid INTEGER, course INTEGER);");
+        queryProcessor.executeQuery("CREATE TABLE scores (student INTEGER, course_id INTEGER, score INTEGER);");
+        queryProcessor.executeQuery("INSERT INTO enrollments (sid, course) VALUES (1, 10);");
+        queryProcessor.executeQuery("INSERT INTO enrollments (sid, course) VALUES (1, 20);");
+        queryProcessor.executeQuery("INSERT INTO enrollments (sid, course) VALUES (2, 10);");
+        queryProcessor.executeQuery("INSERT INTO scores (student, course_id, score) VALUES (1, 10, 90);");
+        queryProcessor.executeQuery("INSERT INTO scores (student, course_id, score) VALUES (1, 20, 75);");
+        queryProcessor.executeQuery("INSERT INTO scores (student, course_id, score) VALUES (2, 20, 60);");
+        assertTrue(queryProcessor.executeQuery(
+            "CREATE INDEX idx_scores_course ON scores USING HASH (course_id);").success());
+
+        // Hanya kolom join kedua (scores.course_id) yang berindeks
+        BinaryConditionNode on = new BinaryConditionNode(
+            new ComparisonConditionNode(column("enrollments.sid"), "=", column("scores.student")),
+            "AND",
+            new ComparisonConditionNode(column("enrollments.course"), "=", column("scores.course_id")));
+        Operator join = new PlanTranslator().build(new JoinNode(new ScanNode("enrollments", "enrollments"),
+            new ScanNode("scores", "scores"), on, "INNER", JoinAlgorithm.INDEX_NESTED_LOOP),
+            0, storageManager, ccm, frm);
+        assertTrue(join instanceof IndexNestedLoopJoinOperator);
+        assertEquals("scores.course_id", ((IndexNestedLoopJoinOperator) join).getInnerColumn());
+
+        List<Row> rows = drain(join);
+        assertEquals(2, rows.size());
+        assertTrue(rows.stream().allMatch(r -> r.get("enrollments.sid").equals(r.get("scores.student"))
+            && r.get("enrollments.course").equals(r.get("scores.course_id"))));
+
+        // Tanpa kolom join berindeks, translator kembali ke join biasa
+        ComparisonConditionNode unindexed =
+            new ComparisonConditionNode(column("enrollments.sid"), "=", column("scores.student"));
+        Operator plain = new PlanTranslator().build(new JoinNode(new ScanNode("enrollments", "enrollments"),
+            new ScanNode("scores", "scores"), unindexed, "INNER", JoinAlgorithm.INDEX_NESTED_LOOP),
+            0, storageManager, ccm, frm);
+        assertFalse(plain instanceof IndexNestedLoopJoinOperator);
+        assertEquals(5, drain(plain).size());
+    }
+
+    private static ExpressionNode column(String name) {
+        return new ExpressionNode(new TermNode(new ColumnFactor(name), List.of()), List.of());
+    }
+
+    private static ExpressionNode literal(Object value) {
+        return new ExpressionNode(new TermNode(new LiteralFactor(value), List.of()), List.of());
+    }
+
+    private static List<Row> drain(Operator op) {
+        List<Row> rows = new ArrayList<>();
+        op.open();
+        Row row;
+        while ((row = op.next()) != null) {
+            rows.add(row);
+        }
+        op.close();
+        return rows;
+    }
+
     @Test
     @DisplayName("E2E: Transaction Integrity (Commit/Rollback Check)")
     void testTransactionLogging() {
@@ -5,15 +5,29 @@ import java.io.RandomAccessFile;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
 /**
  * Boilerplate Block Manager for low-level block operations.
+ *
+ * Secara default setiap file berada di dataDirectory. File milik tablespace
+ * didaftarkan lewat registerLayout(): ditempatkan di salah satu lokasi
+ * tablespace, atau di-stripe sehingga blok logis n berada di lokasi
+ * (n mod k) pada blok lokal (n / k), dengan k = jumlah lokasi.
+ *
+ * File yang ditandai lewat setCompressed() disimpan terkompresi: setiap blok
+ * logis dipetakan ke extent berukuran variabel oleh PageTranslationMap.
+ * Pemanggil tetap melihat blok logis berukuran blockSize yang sudah
+ * didekompresi.
  */
 public class BlockManager {
 
@@ -22,7 +36,27 @@ public class BlockManager {
   private final String dataDirectory;
   private final int blockSize;
 
+  // Kunci: path fisik absolut (satu file logis bisa terdiri dari beberapa stripe)
   private final Map<String, RandomAccessFile> openFiles;
+  // Penempatan file logis di luar dataDirectory (nama file -> lokasi)
+  private final Map<String, Layout> layouts;
+  // File logis yang disimpan terkompresi, dan map halaman per path fisik
+  private final Set<String> compressedFiles;
+  private final Map<String, PageTranslationMap> pageMaps;
+
+  // Byte yang benar-benar dibaca/ditulis ke disk (setelah kompresi)
+  private final AtomicLong physicalBytesRead = new AtomicLong();
+  private final AtomicLong physicalBytesWritten = new AtomicLong();
+
+  /**
+   * Penempatan fisik satu file logis. Tanpa striping, directories berisi tepat
+   * satu lokasi.
+   */
+  private record Layout(List<Path> directories, boolean striped) {
+    int width() {
+      return striped ? directories.size() : 1;
+    }
+  }
 
   public BlockManager(String dataDirectory) {
     this(dataDirectory, DEFAULT_BLOCK_SIZE);
@@ -32,6 +66,9 @@ public class BlockManager {
     this.dataDirectory = dataDirectory;
     this.blockSize = blockSize;
     this.openFiles = new ConcurrentHashMap<>();
+    this.layouts = new ConcurrentHashMap<>();
+    this.compressedFiles = ConcurrentHashMap.newKeySet();
+    this.pageMaps = new ConcurrentHashMap<>();
 
     try {
       Files.createDirectories(Paths.get(this.dataDirectory));
@@ -41,32 +78,133 @@ public class BlockManager {
   }
 
   // Helper //
-  private Path getFilePath(String fileName) {
-    return Paths.get(dataDirectory, fileName);
+  /**
+   * Daftarkan penempatan file logis ke lokasi-lokasi tablespace. Lokasi relatif
+   * di-resolve terhadap dataDirectory. Harus dipanggil sebelum file dibuka.
+   */
+  public void registerLayout(String fileName, List<String> locations, boolean striped) throws IOException {
+    if (locations == null || locations.isEmpty()) {
+      unregisterLayout(fileName);
+      return;
+    }
+    List<Path> dirs = new ArrayList<>();
+    for (String location : locations) {
+      Path dir = Paths.get(dataDirectory).resolve(location).toAbsolutePath().normalize();
+      Files.createDirectories(dir);
+      dirs.add(dir);
+    }
+    if (!striped) {
+      // Tanpa striping: satu file utuh di satu lokasi, dipilih stabil dari nama file
+      dirs = List.of(dirs.get(Math.floorMod(fileName.hashCode(), dirs.size())));
+    }
+    Layout layout = new Layout(List.copyOf(dirs), striped && dirs.size() > 1);
+    Layout previous = layouts.put(fileName, layout);
+    if (previous != null && !previous.equals(layout)) {
+      closeFiles(previous, fileName);
+    }
+  }
+
+  /**
+   * Tandai file logis sebagai terkompresi (atau tidak). Harus dipanggil
+   * sebelum file dibuka. File terkompresi tidak di-stripe: seluruh extent
+   * berada di lokasi pertama layout-nya.
+   */
+  public void setCompressed(String fileName, boolean compressed) throws IOException {
+    boolean changed = compressed ? compressedFiles.add(fileName) : compressedFiles.remove(fileName);
+    if (changed) {
+      closeFiles(layoutOf(fileName), fileName);
+    }
+  }
+
+  public boolean isCompressed(String fileName) {
+    return compressedFiles.contains(fileName);
+  }
+
+  private PageTranslationMap pageMapOf(String fileName) throws IOException {
+    Path path = stripePath(layoutOf(fileName), fileName, 0);
+    try {
+      return pageMaps.computeIfAbsent(path.toString(), key -> {
+        try {
+          return new PageTranslationMap(path, blockSize);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Kembalikan file logis ke penempatan default (dataDirectory).
+   */
+  public void unregisterLayout(String fileName) throws IOException {
+    Layout previous = layouts.remove(fileName);
+    if (previous != null) {
+      closeFiles(previous, fileName);
+    }
+  }
+
+  private Layout layoutOf(String fileName) {
+    Layout layout = layouts.get(fileName);
+    if (layout == null) {
+      return new Layout(List.of(Paths.get(dataDirectory).toAbsolutePath().normalize()), false);
+    }
+    return layout;
+  }
+
+  /**
+   * Path fisik stripe ke-i dari file logis.
+   */
+  private Path stripePath(Layout layout, String fileName, int stripe) {
+    return layout.directories().get(stripe).resolve(fileName);
   }
 
   /**
    * Helper: Dapatkan file handle yang sudah terbuka, atau buka baru jika belum
    * ada.
    */
-  private synchronized RandomAccessFile getOpenFile(String fileName) throws IOException {
-    RandomAccessFile raf = openFiles.get(fileName);
+  private synchronized RandomAccessFile getOpenFile(Path filePath) throws IOException {
+    String key = filePath.toString();
+    RandomAccessFile raf = openFiles.get(key);
 
     if (raf == null) {
-      Path filePath = getFilePath(fileName);
       // Mode "rw" = Read & Write
       raf = new RandomAccessFile(filePath.toFile(), "rw");
-      openFiles.put(fileName, raf);
+      openFiles.put(key, raf);
     }
     return raf;
   }
 
+  private void closeFiles(Layout layout, String fileName) throws IOException {
+    PageTranslationMap pageMap = pageMaps.remove(stripePath(layout, fileName, 0).toString());
+    if (pageMap != null) {
+      pageMap.close();
+    }
+    for (int i = 0; i < layout.width(); i++) {
+      RandomAccessFile raf = openFiles.remove(stripePath(layout, fileName, i).toString());
+      if (raf != null) {
+        synchronized (raf) {
+          raf.close();
+        }
+      }
+    }
+  }
+
   /**
    * Read a block from the specified file at the given block number.
    */
   public byte[] readBlock(String fileName, long blockNumber) throws IOException {
-    RandomAccessFile raf = getOpenFile(fileName);
-    long position = blockNumber * blockSize;
+    if (compressedFiles.contains(fileName)) {
+      byte[] page = new byte[blockSize];
+      physicalBytesRead.addAndGet(pageMapOf(fileName).readPage(blockNumber, page));
+      return page;
+    }
+
+    Layout layout = layoutOf(fileName);
+    int width = layout.width();
+    RandomAccessFile raf = getOpenFile(stripePath(layout, fileName, (int) (blockNumber % width)));
+    long position = (blockNumber / width) * blockSize;
     byte[] blockData = new byte[blockSize];
 
     synchronized (raf) {
@@ -84,6 +222,7 @@ public class BlockManager {
         throw new IOException("Blok " + blockNumber + " korup/tidak lengkap di " + fileName, e);
       }
     }
+    physicalBytesRead.addAndGet(blockSize);
     return blockData;
   }
 
@@ -95,8 +234,16 @@ public class BlockManager {
       throw new IOException("Data ( " + data.length + " bytes) lebih besar dari blockSize (" + blockSize + " bytes)");
     }
 
-    RandomAccessFile raf = getOpenFile(fileName);
-    long position = blockNumber * blockSize;
+    if (compressedFiles.contains(fileName)) {
+      byte[] page = data.length == blockSize ? data : Arrays.copyOf(data, blockSize);
+      physicalBytesWritten.addAndGet(pageMapOf(fileName).writePage(blockNumber, page));
+      return;
+    }
+
+    Layout layout = layoutOf(fileName);
+    int width = layout.width();
+    RandomAccessFile raf = getOpenFile(stripePath(layout, fileName, (int) (blockNumber % width)));
+    long position = (blockNumber / width) * blockSize;
 
     synchronized (raf) {
       raf.seek(position);
@@ -107,6 +254,37 @@ public class BlockManager {
         raf.write(padding);
       }
     }
+    physicalBytesWritten.addAndGet(blockSize);
+  }
+
+  /**
+   * Tulis beberapa blok berurutan mulai dari startBlock. Untuk file biasa
+   * (tanpa stripe/kompresi) semua blok digabung menjadi satu write.
+   */
+  public void writeBlocks(String fileName, long startBlock, List<byte[]> blocks) throws IOException {
+    Layout layout = layoutOf(fileName);
+    if (blocks.size() == 1 || compressedFiles.contains(fileName) || layout.width() > 1) {
+      for (int i = 0; i < blocks.size(); i++) {
+        writeBlock(fileName, startBlock + i, blocks.get(i));
+      }
+      return;
+    }
+
+    byte[] buffer = new byte[blocks.size() * blockSize];
+    for (int i = 0; i < blocks.size(); i++) {
+      byte[] data = blocks.get(i);
+      if (data.length > blockSize) {
+        throw new IOException("Data ( " + data.length + " bytes) lebih besar dari blockSize (" + blockSize + " bytes)");
+      }
+      System.arraycopy(data, 0, buffer, i * blockSize, data.length);
+    }
+
+    RandomAccessFile raf = getOpenFile(stripePath(layout, fileName, 0));
+    synchronized (raf) {
+      raf.seek(startBlock * blockSize);
+      raf.write(buffer);
+    }
+    physicalBytesWritten.addAndGet(buffer.length);
   }
 
   /**
@@ -121,15 +299,31 @@ public class BlockManager {
 
   /**
    * Get the number of blocks in the specified file.
+   * Untuk file ter-stripe, jumlah blok adalah total blok di semua stripe.
    */
   public long getBlockCount(String fileName) throws IOException {
-    Path filePath = getFilePath(fileName);
+    if (compressedFiles.contains(fileName)) {
+      Path path = stripePath(layoutOf(fileName), fileName, 0);
+      if (!pageMaps.containsKey(path.toString()) && !Files.exists(path)) {
+        return 0;
+      }
+      return pageMapOf(fileName).pageCount();
+    }
+    Layout layout = layoutOf(fileName);
+    long total = 0;
+    for (int i = 0; i < layout.width(); i++) {
+      total += getPhysicalBlockCount(stripePath(layout, fileName, i));
+    }
+    return total;
+  }
+
+  private long getPhysicalBlockCount(Path filePath) throws IOException {
     if (!Files.exists(filePath)) {
       return 0;
     }
 
     // Gunakan file yang terbuka untuk cek panjang (lebih cepat)
-    RandomAccessFile raf = getOpenFile(fileName);
+    RandomAccessFile raf = getOpenFile(filePath);
     long fileLength;
 
     synchronized (raf) {
@@ -142,6 +336,32 @@ public class BlockManager {
     return (fileLength + blockSize - 1) / blockSize;
   }
 
+  /**
+   * Ukuran fisik file logis di disk (total semua stripe atau extent terkompresi).
+   */
+  public long getPhysicalSize(String fileName) throws IOException {
+    if (compressedFiles.contains(fileName)) {
+      return getBlockCount(fileName) == 0 ? 0 : pageMapOf(fileName).physicalSize();
+    }
+    return getBlockCount(fileName) * blockSize;
+  }
+
+  public long getPhysicalBytesRead() {
+    return physicalBytesRead.get();
+  }
+
+  public long getPhysicalBytesWritten() {
+    return physicalBytesWritten.get();
+  }
+
+  /**
+   * Direktori fisik tempat file logis (atau stripe-stripenya) disimpan.
+   */
+  public List<Path> getFileLocations(String fileName) {
+    Layout layout = layoutOf(fileName);
+    return layout.directories().subList(0, layout.width());
+  }
+
   /**
    * Flush all pending writes to disk.
    */
@@ -153,6 +373,9 @@ public class BlockManager {
         raf.getChannel().force(true); // Force write to disk
       }
     }
+    for (PageTranslationMap pageMap : pageMaps.values()) {
+      pageMap.force();
+    }
   }
 
   /**
@@ -174,6 +397,15 @@ public class BlockManager {
       }
     }
     openFiles.clear();
+
+    for (Map.Entry<String, PageTranslationMap> entry : pageMaps.entrySet()) {
+      try {
+        entry.getValue().close();
+      } catch (IOException e) {
+        System.err.println("Gagal menutup file: " + entry.getKey());
+      }
+    }
+    pageMaps.clear();
   }
 
   /**
@@ -191,16 +423,17 @@ public class BlockManager {
   }
 
   public void deleteFile(String fileName) throws IOException {
-    if (openFiles.containsKey(fileName)) {
-      RandomAccessFile raf = openFiles.remove(fileName);
-      synchronized (raf) {
-        raf.close();
+    Layout layout = layoutOf(fileName);
+    closeFiles(layout, fileName);
+    boolean found = false;
+    if (compressedFiles.contains(fileName)) {
+      found = PageTranslationMap.deleteFiles(stripePath(layout, fileName, 0));
+    } else {
+      for (int i = 0; i < layout.width(); i++) {
+        found |= Files.deleteIfExists(stripePath(layout, fileName, i));
       }
     }
-    Path filePath = getFilePath(fileName);
-    if (Files.exists(filePath)) {
-      Files.delete(filePath);
-    } else {
+    if (!found) {
       System.err.println("BlockManager: File not found for deletion -> " + fileName);
     }
   }
@@ -0,0 +1,694 @@
+package com.apacy.storagemanager;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Buffer pool untuk halaman data tabel di atas BlockManager.
+ *
+ * Penulisan hanya menandai frame sebagai dirty; halaman dirty ditulis ke disk
+ * oleh thread page cleaner di background (terurut per file & nomor blok,
+ * halaman berurutan digabung menjadi satu write), saat frame di-evict, atau
+ * saat flushAll() (checkpoint/shutdown). Tidak ada fsync per statement:
+ * durabilitas statement berasal dari WAL milik Failure Recovery Manager.
+ *
+ * Monitor pool hanya menjaga peta frame, tidak pernah dipegang selama I/O.
+ * Miss memasang frame "loading" lalu membaca disk di luar monitor; thread lain
+ * yang meminta halaman yang sama menunggu frame itu, bukan membaca ulang.
+ * Korban eviction yang dirty ditandai writing dan ditulis oleh thread yang
+ * memicu eviction setelah monitor dilepas, lalu baru dibuang dari pool.
+ *
+ * readBlock() selalu mengembalikan salinan, sehingga pemanggil bebas
+ * memodifikasi array tanpa mengotori cache sebelum writeBlock().
+ *
+ * Urutan read-modify-write pada satu halaman (misal readBlock, packRowToBlock,
+ * lalu writeBlock) dilindungi latch halaman shared/exclusive berdurasi pendek
+ * dari latchShared()/latchExclusive(). Latch dibuat per halaman saat diminta
+ * dan dibuang saat tidak ada pemegang/penunggu, sehingga halaman berbeda tidak
+ * pernah saling menunggu. Thread yang memegang lebih dari satu latch halaman
+ * (split ClusteredIndex) wajib memintanya dengan urutan (file, nomor blok)
+ * menaik; urutan ini diperiksa dan pelanggaran dilempar sebagai
+ * IllegalStateException.
+ */
+public class BufferPool {
+
+  public static final int DEFAULT_CAPACITY = 2048; // 2048 x 4KB = 8MB
+  public static final long DEFAULT_CLEANER_INTERVAL_MS = 200;
+
+  /**
+   * Latch halaman yang sedang dipegang; lepas dengan close() (try-with-resources).
+   */
+  public final class PageLatch implements AutoCloseable {
+    private final PageId id;
+    private final Lock lock;
+
+    private PageLatch(PageId id, Lock lock) {
+      this.id = id;
+      this.lock = lock;
+    }
+
+    @Override
+    public void close() {
+      lock.unlock();
+      release(id);
+    }
+  }
+
+  private record PageId(String fileName, long blockNumber) {
+  }
+
+  private static final Comparator<PageId> PAGE_ORDER = Comparator.comparing(PageId::fileName)
+      .thenComparingLong(PageId::blockNumber);
+
+  /**
+   * Lock satu halaman beserta jumlah thread yang memegang/menunggunya; refs
+   * hanya diubah di dalam compute() peta latches.
+   */
+  private static final class Latch {
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    int refs;
+  }
+
+  private static final class Frame {
+    byte[] data; // null selama loading
+    boolean dirty;
+    long version; // naik setiap kali frame ditulis
+    boolean writing; // sedang ditulis cleaner/eviction, jangan di-evict
+    boolean loading; // sedang dibaca dari disk oleh thread yang pertama miss
+    boolean dropped; // dibuang deleteFile, jangan ditulis lagi
+
+    Frame(byte[] data) {
+      this.data = data;
+      this.loading = data == null;
+    }
+
+    /**
+     * Tandai selesai dibaca (atau gagal) dan bangunkan penunggu. Dipanggil
+     * sambil memegang monitor pool: urutan kunci selalu pool lalu frame.
+     */
+    synchronized void loaded() {
+      loading = false;
+      notifyAll();
+    }
+
+    synchronized void awaitLoaded() throws InterruptedIOException {
+      while (loading) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Terinterupsi saat menunggu halaman dibaca");
+        }
+      }
+    }
+  }
+
+  private final BlockManager blockManager;
+  private final int capacity;
+  private final long cleanerIntervalMs;
+
+  // LRU: urutan akses, entri tertua di depan
+  private final LinkedHashMap<PageId, Frame> frames = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Long> blockCounts = new HashMap<>();
+  private int dirtyCount = 0;
+
+  // Cleaner memegang read lock selama menulis; deleteFile memegang write lock
+  // agar tulisan yang sedang berjalan tidak membuat ulang file yang dihapus
+  private final ReentrantReadWriteLock ioLock = new ReentrantReadWriteLock();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong pagesCleaned = new AtomicLong();
+  private final AtomicLong cleanerWrites = new AtomicLong();
+
+  private final ConcurrentHashMap<PageId, Latch> latches = new ConcurrentHashMap<>();
+  // Latch yang sedang dipegang thread ini, untuk memeriksa urutan menaik
+  private final ThreadLocal<ArrayDeque<PageId>> heldLatches = ThreadLocal.withInitial(ArrayDeque::new);
+  private final AtomicLong sharedLatches = new AtomicLong();
+  private final AtomicLong exclusiveLatches = new AtomicLong();
+  private final AtomicLong sharedLatchWaits = new AtomicLong();
+  private final AtomicLong exclusiveLatchWaits = new AtomicLong();
+  private final AtomicLong latchWaitNanos = new AtomicLong();
+
+  private Thread cleaner;
+  private volatile boolean running;
+
+  public BufferPool(BlockManager blockManager) {
+    this(blockManager, DEFAULT_CAPACITY, DEFAULT_CLEANER_INTERVAL_MS);
+  }
+
+  public BufferPool(BlockManager blockManager, int capacity, long cleanerIntervalMs) {
+    this.blockManager = blockManager;
+    this.capacity = capacity;
+    this.cleanerIntervalMs = cleanerIntervalMs;
+  }
+
+  /**
+   * Jalankan thread page cleaner (idempotent).
+   */
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    cleaner = new Thread(this::cleanerLoop, "page-cleaner");
+    cleaner.setDaemon(true);
+    cleaner.start();
+  }
+
+  /**
+   * Hentikan page cleaner lalu tulis semua halaman dirty dan fsync.
+   */
+  public void shutdown() throws IOException {
+    Thread t;
+    synchronized (this) {
+      running = false;
+      t = cleaner;
+      cleaner = null;
+      notifyAll();
+    }
+    if (t != null) {
+      try {
+        t.join(TimeUnit.SECONDS.toMillis(5));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    flushAll();
+  }
+
+  // ==================================================================================
+  // AKSES HALAMAN
+  // ==================================================================================
+
+  public byte[] readBlock(String fileName, long blockNumber) throws IOException {
+    PageId id = new PageId(fileName, blockNumber);
+    while (true) {
+      Frame frame;
+      DirtyPage victim = null;
+      boolean owner;
+      synchronized (this) {
+        frame = frames.get(id);
+        if (frame != null && !frame.loading) {
+          hits.incrementAndGet();
+          return frame.data.clone();
+        }
+        owner = frame == null;
+        if (owner) {
+          misses.incrementAndGet();
+          frame = new Frame(null);
+          victim = install(id, frame);
+        }
+      }
+      if (owner) {
+        return load(id, frame, victim);
+      }
+      // Thread lain sedang membaca halaman ini; tunggu lalu coba lagi (jika
+      // pembacaannya gagal, frame sudah dibuang dan percobaan ini menjadi miss)
+      frame.awaitLoaded();
+    }
+  }
+
+  /**
+   * Bagian pemilik miss: tulis korban eviction lalu baca halaman, keduanya di
+   * luar monitor. Jika writeBlock() sudah mengisi frame selama pembacaan, isi
+   * dari writer yang dipakai karena lebih baru dari disk.
+   */
+  private byte[] load(PageId id, Frame frame, DirtyPage victim) throws IOException {
+    byte[] data;
+    try {
+      writeVictim(victim);
+      data = blockManager.readBlock(id.fileName(), id.blockNumber());
+    } catch (IOException | RuntimeException e) {
+      synchronized (this) {
+        if (frame.loading) {
+          frames.remove(id, frame);
+          frame.loaded();
+        }
+      }
+      throw e;
+    }
+    synchronized (this) {
+      if (frame.loading) {
+        frame.data = data;
+        frame.loaded();
+      }
+      return frame.data.clone();
+    }
+  }
+
+  public void writeBlock(String fileName, long blockNumber, byte[] data) throws IOException {
+    checkBlockSize(data);
+    DirtyPage victim;
+    synchronized (this) {
+      victim = putLocked(new PageId(fileName, blockNumber), data);
+    }
+    writeVictim(victim);
+  }
+
+  /**
+   * Seperti writeBlock, tetapi halaman langsung ditulis ke disk dan di-fsync
+   * sebelum kembali. Dipakai untuk penanda yang harus sampai di disk lebih
+   * dulu dari halaman dirty lain (meta indeks "tidak bersih"). Write lock I/O
+   * menunggu putaran cleaner yang sedang berjalan, jadi snapshot lama halaman
+   * ini tidak bisa tertulis sesudahnya.
+   */
+  public void writeThrough(String fileName, long blockNumber, byte[] data) throws IOException {
+    checkBlockSize(data);
+    PageId id = new PageId(fileName, blockNumber);
+    ioLock.writeLock().lock();
+    try {
+      DirtyPage victim;
+      DirtyPage page;
+      synchronized (this) {
+        victim = putLocked(id, data);
+        Frame frame = frames.get(id);
+        page = new DirtyPage(id, frame, frame.data.clone(), frame.version);
+      }
+      writeVictim(victim);
+      blockManager.writeBlock(fileName, blockNumber, page.snapshot());
+      blockManager.flush();
+      synchronized (this) {
+        if (page.frame().dirty && page.frame().version == page.version()) {
+          page.frame().dirty = false;
+          dirtyCount--;
+        }
+      }
+    } finally {
+      ioLock.writeLock().unlock();
+    }
+  }
+
+  public long appendBlock(String fileName, byte[] data) throws IOException {
+    checkBlockSize(data);
+    long newBlockNumber;
+    DirtyPage victim;
+    synchronized (this) {
+      newBlockNumber = blockCountLocked(fileName);
+      victim = putLocked(new PageId(fileName, newBlockNumber), data);
+    }
+    writeVictim(victim);
+    return newBlockNumber;
+  }
+
+  private void checkBlockSize(byte[] data) throws IOException {
+    int blockSize = blockManager.getBlockSize();
+    if (data.length > blockSize) {
+      throw new IOException("Data ( " + data.length + " bytes) lebih besar dari blockSize (" + blockSize + " bytes)");
+    }
+  }
+
+  /**
+   * Salin data ke frame (dipasang jika belum ada) dan tandai dirty. Frame yang
+   * masih loading langsung diisi dan penunggunya dibangunkan.
+   *
+   * @return korban eviction dirty yang harus ditulis pemanggil di luar monitor
+   */
+  private DirtyPage putLocked(PageId id, byte[] data) throws IOException {
+    int blockSize = blockManager.getBlockSize();
+    Frame frame = frames.get(id);
+    DirtyPage victim = null;
+    if (frame == null) {
+      frame = new Frame(new byte[blockSize]);
+      victim = install(id, frame);
+    } else if (frame.loading) {
+      frame.data = new byte[blockSize];
+    }
+    System.arraycopy(data, 0, frame.data, 0, data.length);
+    if (data.length < blockSize) {
+      Arrays.fill(frame.data, data.length, blockSize, (byte) 0);
+    }
+    if (frame.loading) {
+      frame.loaded();
+    }
+    frame.version++;
+    if (!frame.dirty) {
+      frame.dirty = true;
+      dirtyCount++;
+    }
+    long count = blockCountLocked(id.fileName());
+    if (id.blockNumber() >= count) {
+      blockCounts.put(id.fileName(), id.blockNumber() + 1);
+    }
+    if (dirtyCount * 4 >= capacity) {
+      notifyAll(); // bangunkan cleaner lebih awal saat >= 25% frame dirty
+    }
+    return victim;
+  }
+
+  /**
+   * Jumlah blok logis, termasuk blok baru yang belum ditulis ke disk.
+   */
+  public synchronized long getBlockCount(String fileName) throws IOException {
+    return blockCountLocked(fileName);
+  }
+
+  private long blockCountLocked(String fileName) throws IOException {
+    Long count = blockCounts.get(fileName);
+    if (count == null) {
+      count = blockManager.getBlockCount(fileName);
+      blockCounts.put(fileName, count);
+    }
+    return count;
+  }
+
+  /**
+   * Buang semua frame milik file lalu hapus file fisiknya.
+   */
+  public void deleteFile(String fileName) throws IOException {
+    ioLock.writeLock().lock();
+    try {
+      synchronized (this) {
+        Iterator<Map.Entry<PageId, Frame>> it = frames.entrySet().iterator();
+        while (it.hasNext()) {
+          Map.Entry<PageId, Frame> e = it.next();
+          if (e.getKey().fileName().equals(fileName)) {
+            if (e.getValue().dirty) {
+              dirtyCount--;
+            }
+            e.getValue().dropped = true;
+            it.remove();
+          }
+        }
+        blockCounts.remove(fileName);
+        blockManager.deleteFile(fileName);
+      }
+    } finally {
+      ioLock.writeLock().unlock();
+    }
+  }
+
+  private DirtyPage install(PageId id, Frame frame) {
+    frames.put(id, frame);
+    return frames.size() > capacity ? evictOne(id) : null;
+  }
+
+  /**
+   * Pilih frame LRU yang tidak sedang ditulis/dibaca (dan bukan frame yang
+   * baru dipasang). Frame bersih langsung dibuang; frame dirty ditandai
+   * writing dan dikembalikan untuk ditulis di luar monitor lewat
+   * writeVictim(), sehingga pool sementara melebihi kapasitas.
+   */
+  private DirtyPage evictOne(PageId installed) {
+    Iterator<Map.Entry<PageId, Frame>> it = frames.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<PageId, Frame> e = it.next();
+      Frame frame = e.getValue();
+      if (frame.writing || frame.loading || e.getKey().equals(installed)) {
+        continue;
+      }
+      if (!frame.dirty) {
+        it.remove();
+        return null;
+      }
+      frame.writing = true;
+      return new DirtyPage(e.getKey(), frame, frame.data.clone(), frame.version);
+    }
+    return null;
+  }
+
+  /**
+   * Tulis korban eviction dari evictOne() tanpa memegang monitor. Setelah
+   * tertulis, frame dibuang jika tidak diubah selama penulisan dan pool masih
+   * melebihi kapasitas; jika diubah, frame tetap dirty untuk cleaner.
+   */
+  private void writeVictim(DirtyPage victim) throws IOException {
+    if (victim == null) {
+      return;
+    }
+    // Read lock: deleteFile tidak bisa membuang frame/file selama penulisan
+    ioLock.readLock().lock();
+    try {
+      Frame frame = victim.frame();
+      boolean skip;
+      synchronized (this) {
+        // Frame yang sudah berubah tetap dirty; snapshot lama tidak boleh
+        // menimpa versi yang mungkin sudah ditulis writeThrough()
+        skip = frame.dropped || frame.version != victim.version();
+      }
+      boolean written = false;
+      try {
+        if (!skip) {
+          blockManager.writeBlock(victim.id().fileName(), victim.id().blockNumber(), victim.snapshot());
+          written = true;
+        }
+      } finally {
+        synchronized (this) {
+          frame.writing = false;
+          if (written && frame.dirty && frame.version == victim.version()) {
+            frame.dirty = false;
+            dirtyCount--;
+            if (frames.size() > capacity) {
+              frames.remove(victim.id(), frame);
+            }
+          }
+        }
+      }
+    } finally {
+      ioLock.readLock().unlock();
+    }
+  }
+
+  // ==================================================================================
+  // LATCH HALAMAN
+  // ==================================================================================
+
+  /**
+   * Latch shared: banyak pembaca boleh memegang halaman yang sama.
+   */
+  public PageLatch latchShared(String fileName, long blockNumber) {
+    PageId id = new PageId(fileName, blockNumber);
+    return acquire(id, pin(id).lock.readLock(), sharedLatches, sharedLatchWaits);
+  }
+
+  /**
+   * Latch exclusive untuk read-modify-write satu halaman.
+   */
+  public PageLatch latchExclusive(String fileName, long blockNumber) {
+    PageId id = new PageId(fileName, blockNumber);
+    return acquire(id, pin(id).lock.writeLock(), exclusiveLatches, exclusiveLatchWaits);
+  }
+
+  private Latch pin(PageId id) {
+    return latches.compute(id, (k, latch) -> {
+      Latch l = latch == null ? new Latch() : latch;
+      l.refs++;
+      return l;
+    });
+  }
+
+  private void unpin(PageId id) {
+    latches.computeIfPresent(id, (k, latch) -> --latch.refs == 0 ? null : latch);
+  }
+
+  private PageLatch acquire(PageId id, Lock lock, AtomicLong acquired, AtomicLong waits) {
+    ArrayDeque<PageId> held = heldLatches.get();
+    PageId last = held.peekLast();
+    if (last != null && PAGE_ORDER.compare(id, last) < 0) {
+      unpin(id);
+      throw new IllegalStateException("Latch halaman " + id + " diminta setelah " + last
+          + "; latch ganda harus berurutan (file, blok) menaik");
+    }
+    acquired.incrementAndGet();
+    if (!lock.tryLock()) {
+      // Kontensi: catat lalu tunggu
+      waits.incrementAndGet();
+      long start = System.nanoTime();
+      lock.lock();
+      latchWaitNanos.addAndGet(System.nanoTime() - start);
+    }
+    held.addLast(id);
+    return new PageLatch(id, lock);
+  }
+
+  private void release(PageId id) {
+    heldLatches.get().removeLastOccurrence(id);
+    unpin(id);
+  }
+
+  // ==================================================================================
+  // PAGE CLEANER
+  // ==================================================================================
+
+  private void cleanerLoop() {
+    while (running) {
+      try {
+        synchronized (this) {
+          if (running && dirtyCount * 4 < capacity) {
+            wait(cleanerIntervalMs);
+          }
+        }
+        if (running) {
+          cleanDirtyPages();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (IOException e) {
+        System.err.println("[BufferPool] Page cleaner gagal menulis halaman: " + e.getMessage());
+      }
+    }
+  }
+
+  private record DirtyPage(PageId id, Frame frame, byte[] snapshot, long version) {
+  }
+
+  /**
+   * Satu putaran cleaner: ambil snapshot semua halaman dirty, urutkan per
+   * file & nomor blok, tulis run halaman berurutan sebagai satu write, lalu
+   * tandai bersih jika frame tidak berubah selama penulisan.
+   *
+   * @return jumlah halaman yang ditulis
+   */
+  public int cleanDirtyPages() throws IOException {
+    ioLock.readLock().lock();
+    try {
+      List<DirtyPage> dirty = new ArrayList<>();
+      synchronized (this) {
+        for (Map.Entry<PageId, Frame> e : frames.entrySet()) {
+          Frame frame = e.getValue();
+          if (frame.dirty && !frame.writing) {
+            frame.writing = true;
+            dirty.add(new DirtyPage(e.getKey(), frame, frame.data.clone(), frame.version));
+          }
+        }
+      }
+      if (dirty.isEmpty()) {
+        return 0;
+      }
+
+      dirty.sort(Comparator.comparing((DirtyPage d) -> d.id().fileName())
+          .thenComparingLong(d -> d.id().blockNumber()));
+
+      try {
+        int start = 0;
+        while (start < dirty.size()) {
+          int end = start + 1;
+          while (end < dirty.size()
+              && dirty.get(end).id().fileName().equals(dirty.get(start).id().fileName())
+              && dirty.get(end).id().blockNumber() == dirty.get(end - 1).id().blockNumber() + 1) {
+            end++;
+          }
+          List<byte[]> run = new ArrayList<>(end - start);
+          for (int i = start; i < end; i++) {
+            run.add(dirty.get(i).snapshot());
+          }
+          blockManager.writeBlocks(dirty.get(start).id().fileName(), dirty.get(start).id().blockNumber(), run);
+          cleanerWrites.incrementAndGet();
+          start = end;
+        }
+      } finally {
+        synchronized (this) {
+          for (DirtyPage d : dirty) {
+            d.frame().writing = false;
+            if (d.frame().dirty && d.frame().version == d.version()) {
+              d.frame().dirty = false;
+              dirtyCount--;
+            }
+          }
+        }
+      }
+      pagesCleaned.addAndGet(dirty.size());
+      return dirty.size();
+    } finally {
+      ioLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Tulis semua halaman yang dirty saat dipanggil lalu fsync (dipakai
+   * checkpoint & shutdown). Write lock menunggu putaran cleaner yang sedang
+   * berjalan selesai sehingga tidak ada halaman yang terlewat.
+   */
+  public void flushAll() throws IOException {
+    ioLock.writeLock().lock();
+    try {
+      cleanDirtyPages();
+      blockManager.flush();
+    } finally {
+      ioLock.writeLock().unlock();
+    }
+  }
+
+  // ==================================================================================
+  // STATISTIK
+  // ==================================================================================
+
+  public synchronized int getDirtyPageCount() {
+    return dirtyCount;
+  }
+
+  public synchronized int getCachedPageCount() {
+    return frames.size();
+  }
+
+  public int getBlockSize() {
+    return blockManager.getBlockSize();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getPagesCleaned() {
+    return pagesCleaned.get();
+  }
+
+  /**
+   * Jumlah operasi write yang dilakukan cleaner (satu per run halaman berurutan).
+   */
+  public long getCleanerWrites() {
+    return cleanerWrites.get();
+  }
+
+  public long getSharedLatchCount() {
+    return sharedLatches.get();
+  }
+
+  public long getExclusiveLatchCount() {
+    return exclusiveLatches.get();
+  }
+
+  /**
+   * Jumlah latch shared yang harus menunggu (kontensi).
+   */
+  public long getSharedLatchWaits() {
+    return sharedLatchWaits.get();
+  }
+
+  /**
+   * Jumlah latch exclusive yang harus menunggu (kontensi).
+   */
+  public long getExclusiveLatchWaits() {
+    return exclusiveLatchWaits.get();
+  }
+
+  /**
+   * Total waktu tunggu latch (nanodetik) dari semua latch yang berkontensi.
+   */
+  public long getLatchWaitNanos() {
+    return latchWaitNanos.get();
+  }
+}
@@ -1,177 +1,238 @@
 package com.apacy.storagemanager;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 import com.apacy.common.dto.Column;
 import com.apacy.common.dto.IndexSchema;
 import com.apacy.common.dto.ForeignKeySchema;
+import com.apacy.common.dto.PartitionSchema;
 import com.apacy.common.dto.Schema;
+import com.apacy.common.dto.TablespaceSchema;
 import com.apacy.common.enums.*;
 
 /**
  * Mengelola metadata database (skema tabel, kolom, dan indeks).
+ *
+ * Katalog di memori adalah snapshot immutable yang dipublikasikan lewat
+ * AtomicReference: pembaca (getSchema, getAllSchemas) tidak pernah mengunci,
+ * sedangkan DDL membuat salinan baru (copy-on-write) secara serial.
+ *
+ * Persistensi bersifat inkremental: setiap perubahan di-append sebagai delta
+ * ke 'system_catalog.log', dan log tersebut dipadatkan (compaction) ke
+ * 'system_catalog.dat' setelah beberapa delta.
+ *
+ * Selain skema tabel, katalog juga menyimpan daftar tablespace (nama logis
+ * untuk direktori data) dalam snapshot terpisah dengan mekanisme yang sama.
  */
 public class CatalogManager {
 
   private final String catalogFilePath;
-  private final int MAGIC_NUMBER = 0xACDB0101;
-
-  private Map<String, Schema> schemaCache;
-
+  private final String catalogLogPath;
+  // v1: tanpa section ekstensi, v2: setiap skema diakhiri section ekstensi bertag
+  private final int LEGACY_MAGIC_NUMBER = 0xACDB0101;
+  private final int MAGIC_NUMBER = 0xACDB0102;
+  // Log v1/v2: record delta ditulis berurutan tanpa bingkai. v3: setiap append
+  // dibungkus bingkai [panjang][CRC32][isi] agar record yang terpotong terdeteksi.
+  private final int LEGACY_LOG_MAGIC_NUMBER = 0xACDB10C1;
+  private final int UNFRAMED_LOG_MAGIC_NUMBER = 0xACDB10C2;
+  private final int LOG_MAGIC_NUMBER = 0xACDB10C3;
+
+  // Jenis record delta di log katalog
+  private static final byte DELTA_PUT = 1;
+  private static final byte DELTA_DROP = 2;
+  private static final byte DELTA_PUT_TABLESPACE = 3;
+  private static final byte DELTA_DROP_TABLESPACE = 4;
+
+  // Tag section ekstensi skema (format v2). Tag yang tidak dikenal dilewati.
+  private static final byte EXT_PARTITION = 1;
+  private static final byte EXT_TABLESPACE = 2;
+  private static final byte EXT_COMPRESSION = 3;
+  private static final byte EXT_ENGINE = 4;
+  private static final byte EXT_CLUSTER = 5;
+  private static final byte EXT_INDEX_INCLUDE = 6;
+  private static final byte EXT_INDEX_UNIQUE = 7;
+
+  /** Jumlah delta di log sebelum katalog dipadatkan ulang ke file utama. */
+  public static final int COMPACTION_THRESHOLD = 32;
+
+  private final AtomicReference<Map<String, Schema>> snapshot;
+  private final AtomicReference<Map<String, TablespaceSchema>> tablespaces;
+  private final Object writeLock = new Object();
+  private int pendingDeltas = 0;
 
   public CatalogManager(String catalogFilePath) {
     this.catalogFilePath = catalogFilePath;
-    this.schemaCache = new HashMap<>();
+    this.catalogLogPath = catalogFilePath.endsWith(".dat")
+        ? catalogFilePath.substring(0, catalogFilePath.length() - 4) + ".log"
+        : catalogFilePath + ".log";
+    this.snapshot = new AtomicReference<>(Collections.emptyMap());
+    this.tablespaces = new AtomicReference<>(Collections.emptyMap());
   }
 
   /**
    * Dipanggil oleh StorageManager.initialize() saat startup.
+   * Memuat file katalog utama lalu me-replay delta yang ada di log.
    */
   public void loadCatalog() throws IOException {
     System.out.println("CatalogManager: Memuat katalog dari " + catalogFilePath + "...");
-    this.schemaCache.clear();
+    synchronized (writeLock) {
+      Map<String, Schema> loaded = new HashMap<>();
+      Map<String, TablespaceSchema> loadedTablespaces = new HashMap<>();
+      boolean legacy = false;
 
-    try (DataInputStream dis = new DataInputStream(new FileInputStream(catalogFilePath))) {
+      try (DataInputStream dis = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(catalogFilePath)))) {
 
-      int magic = dis.readInt();
-      if (magic != MAGIC_NUMBER) {
-        throw new IOException("Bukan file system_catalog.dat yang valid.");
-      }
-      int tableCount = dis.readInt();
-      System.out.println("CatalogManager: Menemukan " + tableCount + " tabel.");
-
-      for (int i = 0; i < tableCount; i++) {
-
-        String tableName = dis.readUTF();
-        String dataFile = dis.readUTF();
-        int columnCount = dis.readInt();
-
-        // Baca Kolom
-        List<Column> columns = new ArrayList<>();
-        for (int j = 0; j < columnCount; j++) {
-          String colName = dis.readUTF();
-          int colTypeInt = dis.readInt();
-          int colLength = dis.readInt();
-          DataType colType = DataType.fromValue(colTypeInt);
-          columns.add(new Column(colName, colType, colLength));
+        int magic = dis.readInt();
+        if (magic != MAGIC_NUMBER && magic != LEGACY_MAGIC_NUMBER) {
+          throw new IOException("Bukan file system_catalog.dat yang valid.");
         }
-
-        // Baca Indeks
-        int indexCount = dis.readInt();
-        List<IndexSchema> indexes = new ArrayList<>();
-        for (int k = 0; k < indexCount; k++) {
-          String idxName = dis.readUTF();
-          String idxColName = dis.readUTF();
-          int idxTypeInt = dis.readInt();
-          IndexType idxType = IndexType.fromValue(idxTypeInt);
-          String idxFile = dis.readUTF();
-          indexes.add(new IndexSchema(idxName, idxColName, idxType, idxFile));
+        legacy = (magic == LEGACY_MAGIC_NUMBER);
+        int tableCount = dis.readInt();
+        System.out.println("CatalogManager: Menemukan " + tableCount + " tabel.");
+
+        for (int i = 0; i < tableCount; i++) {
+          Schema schema = readSchema(dis, !legacy, legacy);
+          loaded.put(schema.tableName(), schema);
+          System.out.println("CatalogManager: Memuat skema untuk tabel '" + schema.tableName() + "'.");
         }
 
-        int fkCount = 0;
-        List<ForeignKeySchema> foreignKeys = new ArrayList<>();
-
-        // Baca Foreign Key
-        try {
-          fkCount = dis.readInt();
-          for (int l = 0; l < fkCount; l++) {
-            String constraintName = dis.readUTF();
-            String colName = dis.readUTF();
-            String refTable = dis.readUTF();
-            String refCol = dis.readUTF();
-            boolean isCascading = dis.readBoolean();
-            foreignKeys.add(new ForeignKeySchema(constraintName, colName, refTable, refCol, isCascading));
+        // Section tablespace ada di akhir file (katalog lama tidak memilikinya)
+        if (!legacy) {
+          try {
+            int tablespaceCount = dis.readInt();
+            for (int i = 0; i < tablespaceCount; i++) {
+              TablespaceSchema ts = readTablespace(dis);
+              loadedTablespaces.put(ts.name(), ts);
+            }
+          } catch (EOFException e) {
+            // Katalog v2 yang ditulis sebelum ada tablespace
           }
-        } catch (EOFException e) {
-          System.out.println("Warning: End of file reached while reading Foreign Keys for table " + tableName);
         }
+      } catch (FileNotFoundException e) {
+        System.out.println("CatalogManager: Katalog '" + catalogFilePath + "' belum ada. Membuat katalog awal...");
+        createSystemCatalog(); // Panggil helper untuk membuat file
+      }
 
-        // Buat record Schema "all-in-one"
-        Schema schema = new Schema(tableName, dataFile, columns, indexes, foreignKeys);
+      int replayed = replayLog(loaded, loadedTablespaces);
+      this.snapshot.set(Collections.unmodifiableMap(loaded));
+      this.tablespaces.set(Collections.unmodifiableMap(loadedTablespaces));
 
-        this.schemaCache.put(tableName, schema);
-        System.out.println("CatalogManager: Memuat skema untuk tabel '" + tableName + "'.");
+      // Padatkan saat startup agar ekor log yang terpotong tidak tertimpa append baru,
+      // sekaligus menaikkan katalog format lama ke format terbaru
+      if (replayed > 0 || legacy || new File(catalogLogPath).exists()) {
+        writeCatalog();
       }
-    } catch (FileNotFoundException e) {
-      System.out.println("CatalogManager: Katalog '" + catalogFilePath + "' belum ada. Membuat katalog awal...");
-      createSystemCatalog(); // Panggil helper untuk membuat file
     }
     System.out.println("CatalogManager: Katalog berhasil dimuat ke memori.");
   }
 
   /**
-   * Menulis ulang seluruh cache memori ke file 'system_catalog.dat'.
+   * Compaction: menulis ulang seluruh snapshot ke file 'system_catalog.dat'
+   * lalu mengosongkan log delta.
    */
   public void writeCatalog() throws IOException {
-    System.out.println("CatalogManager: Menulis ulang katalog ke disk...");
-    try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(catalogFilePath))) {
+    synchronized (writeLock) {
+      System.out.println("CatalogManager: Menulis ulang katalog ke disk...");
+      writeBaseFile(snapshot.get().values(), tablespaces.get().values());
+      Files.deleteIfExists(Paths.get(catalogLogPath));
+      pendingDeltas = 0;
+    }
+  }
+
+  // --- GETTER (lock-free, membaca snapshot terakhir) ---
+  public Schema getSchema(String tableName) {
+    return snapshot.get().get(tableName);
+  }
 
-      dos.writeInt(MAGIC_NUMBER);
-      dos.writeInt(schemaCache.size());
 
-      for (Schema schema : schemaCache.values()) {
+  public Collection<Schema> getAllSchemas() {
+    return snapshot.get().values();
+  }
 
-        // Ambil data HANYA dari objek Schema
-        dos.writeUTF(schema.tableName());
-        dos.writeUTF(schema.dataFile());
-        dos.writeInt(schema.columns().size());
+  public TablespaceSchema getTablespace(String name) {
+    return tablespaces.get().get(name);
+  }
 
-        // Tulis Kolom
-        for (Column col : schema.columns()) {
-          dos.writeUTF(col.name());
-          dos.writeInt(col.type().getValue());
-          dos.writeInt(col.length());
-        }
+  public Collection<TablespaceSchema> getAllTablespaces() {
+    return tablespaces.get().values();
+  }
 
-        // Tulis Indeks
-        dos.writeInt(schema.indexes().size());
-        for (IndexSchema idx : schema.indexes()) {
-          dos.writeUTF(idx.indexName());
-          dos.writeUTF(idx.columnName());
-          dos.writeInt(idx.indexType().getValue());
-          dos.writeUTF(idx.indexFile());
-        }
+  // --- LOGIKA TABLESPACE ---
 
-        // Tulis Foreign Key
-        List<ForeignKeySchema> fks = schema.getForeignKeys();
-        if (fks == null)
-          fks = new ArrayList<>();
-
-        dos.writeInt(fks.size());
-        for (ForeignKeySchema fk : fks) {
-          dos.writeUTF(fk.constraintName());
-          dos.writeUTF(fk.columnName());
-          dos.writeUTF(fk.referenceTable());
-          dos.writeUTF(fk.referenceColumn());
-          dos.writeBoolean(fk.isCascading());
-        }
+  public void addTablespace(TablespaceSchema tablespace) throws IOException {
+    synchronized (writeLock) {
+      if (TablespaceSchema.DEFAULT.equals(tablespace.name())
+          || tablespaces.get().containsKey(tablespace.name())) {
+        throw new IOException("Tablespace '" + tablespace.name() + "' sudah ada.");
       }
+      Map<String, TablespaceSchema> copy = new HashMap<>(tablespaces.get());
+      copy.put(tablespace.name(), tablespace);
+      appendTablespaceDelta(DELTA_PUT_TABLESPACE, tablespace, tablespace.name());
+      tablespaces.set(Collections.unmodifiableMap(copy));
+      compactIfNeeded();
     }
   }
 
-  // --- GETTER ---
-  public Schema getSchema(String tableName) {
-    return schemaCache.get(tableName);
+  public void removeTablespace(String name) throws IOException {
+    synchronized (writeLock) {
+      if (!tablespaces.get().containsKey(name)) {
+        throw new IOException("Tablespace '" + name + "' tidak ditemukan.");
+      }
+      List<String> users = getTablespaceUsers(name);
+      if (!users.isEmpty()) {
+        throw new IOException("Tablespace '" + name + "' masih dipakai oleh " + users);
+      }
+      Map<String, TablespaceSchema> copy = new HashMap<>(tablespaces.get());
+      copy.remove(name);
+      appendTablespaceDelta(DELTA_DROP_TABLESPACE, null, name);
+      tablespaces.set(Collections.unmodifiableMap(copy));
+      compactIfNeeded();
+    }
   }
 
-
-  public Collection<Schema> getAllSchemas() {
-    return schemaCache.values();
+  /**
+   * Tabel (atau "tabel.indeks") yang ditempatkan di tablespace tertentu.
+   */
+  public List<String> getTablespaceUsers(String name) {
+    List<String> users = new ArrayList<>();
+    for (Schema s : snapshot.get().values()) {
+      if (name.equals(s.tablespace())) {
+        users.add(s.tableName());
+      }
+      for (IndexSchema idx : s.indexes()) {
+        if (name.equals(idx.tablespace())) {
+          users.add(s.tableName() + "." + idx.indexName());
+        }
+      }
+    }
+    return users;
   }
 
   // --- LOGIKA CREATE TABLE ---
 
   public void addSchemaToCache(Schema newSchema) throws IOException {
-    if (schemaCache.containsKey(newSchema.tableName())) {
-      throw new IOException("Tabel '" + newSchema.tableName() + "' sudah ada.");
-    }
-    schemaCache.put(newSchema.tableName(), newSchema);
+    mutate(copy -> {
+      if (copy.containsKey(newSchema.tableName())) {
+        throw new UncheckedIOException(new IOException("Tabel '" + newSchema.tableName() + "' sudah ada."));
+      }
+      copy.put(newSchema.tableName(), newSchema);
+    });
   }
 
   /**
@@ -179,22 +240,27 @@ public class CatalogManager {
    */
   private void createSystemCatalog() throws IOException {
     System.out.println("Membuat file katalog awal (kosong) di: " + catalogFilePath);
-    new File(catalogFilePath).getParentFile().mkdirs();
+    File parent = new File(catalogFilePath).getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
 
-    writeCatalog();
+    writeBaseFile(List.of(), List.of());
   }
 
   /**
    * Update schema in cache
-   * 
+   *
    * @param updatedSchema
    * @throws IOException
    */
   public void updateSchema(Schema updatedSchema) throws IOException {
-    if (!schemaCache.containsKey(updatedSchema.tableName())) {
-      throw new IOException("Table: " + updatedSchema.tableName() + " not found");
-    }
-    schemaCache.put(updatedSchema.tableName(), updatedSchema);
+    mutate(copy -> {
+      if (!copy.containsKey(updatedSchema.tableName())) {
+        throw new UncheckedIOException(new IOException("Table: " + updatedSchema.tableName() + " not found"));
+      }
+      copy.put(updatedSchema.tableName(), updatedSchema);
+    });
   }
 
   /**
@@ -205,13 +271,13 @@ public class CatalogManager {
     catalogManager.createSystemCatalog();
   }
 
-  public void removeSchema(String tableName) {
-    this.schemaCache.remove(tableName);
+  public void removeSchema(String tableName) throws IOException {
+    mutate(copy -> copy.remove(tableName));
   }
 
   public List<String> getDependentTables(String tableName) {
     List<String> dependents = new ArrayList<>();
-    for (Schema s : schemaCache.values()) {
+    for (Schema s : snapshot.get().values()) {
       if (s.tableName().equals(tableName))
         continue;
       if (s.getForeignKeys() != null) {
@@ -227,28 +293,591 @@ public class CatalogManager {
   }
 
   public void removeForeignKeyReferences(String targetTable) throws IOException {
-    List<Schema> schemasToUpdate = new ArrayList<>();
-    for (Schema s : schemaCache.values()) {
-      boolean isModified = false;
-      List<ForeignKeySchema> currentFks = s.getForeignKeys();
-      if (currentFks == null || currentFks.isEmpty())
-        continue;
-      boolean hasRef = currentFks.stream()
-          .anyMatch(fk -> fk.referenceTable().equals(targetTable));
-      if (hasRef)
-        schemasToUpdate.add(s);
-    }
-    for (Schema s : schemasToUpdate) {
-      List<ForeignKeySchema> newFks = s.getForeignKeys().stream()
-          .filter(fk -> !fk.referenceTable().equals(targetTable))
-          .collect(Collectors.toList());
-      Schema newSchema = new Schema(
-          s.tableName(),
-          s.dataFile(),
-          s.columns(),
-          s.indexes(),
-          newFks);
-      this.schemaCache.put(s.tableName(), newSchema);
+    mutate(copy -> {
+      for (Schema s : new ArrayList<>(copy.values())) {
+        List<ForeignKeySchema> currentFks = s.getForeignKeys();
+        if (currentFks == null || currentFks.isEmpty())
+          continue;
+        boolean hasRef = currentFks.stream()
+            .anyMatch(fk -> fk.referenceTable().equals(targetTable));
+        if (!hasRef)
+          continue;
+        List<ForeignKeySchema> newFks = currentFks.stream()
+            .filter(fk -> !fk.referenceTable().equals(targetTable))
+            .collect(Collectors.toList());
+        copy.put(s.tableName(), s.withForeignKeys(newFks));
+      }
+    });
+  }
+
+  // ==================================================================================
+  // COPY-ON-WRITE & DELTA LOG
+  // ==================================================================================
+
+  /**
+   * Menjalankan satu perubahan DDL: salin snapshot, ubah salinannya, tulis
+   * delta ke log, baru publikasikan snapshot baru. Pembaca yang sedang
+   * berjalan tetap memegang snapshot lama yang konsisten.
+   */
+  private void mutate(Consumer<Map<String, Schema>> change) throws IOException {
+    synchronized (writeLock) {
+      Map<String, Schema> current = snapshot.get();
+      Map<String, Schema> copy = new HashMap<>(current);
+      try {
+        change.accept(copy);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+
+      appendDeltas(current, copy);
+      snapshot.set(Collections.unmodifiableMap(copy));
+      compactIfNeeded();
     }
   }
+
+  private void compactIfNeeded() throws IOException {
+    if (pendingDeltas >= COMPACTION_THRESHOLD) {
+      writeCatalog();
+    }
+  }
+
+  /**
+   * Tulis hanya skema yang berubah (PUT) atau terhapus (DROP) ke log.
+   */
+  private void appendDeltas(Map<String, Schema> before, Map<String, Schema> after) throws IOException {
+    List<Schema> puts = new ArrayList<>();
+    List<String> drops = new ArrayList<>();
+    for (Map.Entry<String, Schema> e : after.entrySet()) {
+      if (!e.getValue().equals(before.get(e.getKey()))) {
+        puts.add(e.getValue());
+      }
+    }
+    for (String tableName : before.keySet()) {
+      if (!after.containsKey(tableName)) {
+        drops.add(tableName);
+      }
+    }
+    if (puts.isEmpty() && drops.isEmpty()) {
+      return;
+    }
+
+    appendToLog(dos -> {
+      for (Schema s : puts) {
+        dos.writeByte(DELTA_PUT);
+        writeSchema(dos, s);
+      }
+      for (String tableName : drops) {
+        dos.writeByte(DELTA_DROP);
+        dos.writeUTF(tableName);
+      }
+    });
+    pendingDeltas += puts.size() + drops.size();
+  }
+
+  private void appendTablespaceDelta(byte op, TablespaceSchema tablespace, String name) throws IOException {
+    appendToLog(dos -> {
+      dos.writeByte(op);
+      if (op == DELTA_PUT_TABLESPACE) {
+        writeTablespace(dos, tablespace);
+      } else {
+        dos.writeUTF(name);
+      }
+    });
+    pendingDeltas++;
+  }
+
+  @FunctionalInterface
+  private interface LogWriter {
+    void write(DataOutputStream dos) throws IOException;
+  }
+
+  /**
+   * Append record ke log delta lalu fsync sebelum perubahan dipublikasikan.
+   * Semua delta dari satu append masuk satu bingkai, sehingga saat replay
+   * diterapkan semuanya atau tidak sama sekali.
+   */
+  private void appendToLog(LogWriter writer) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream payload = new DataOutputStream(bos);
+    writer.write(payload);
+    payload.flush();
+    byte[] bytes = bos.toByteArray();
+
+    File logFile = new File(catalogLogPath);
+    boolean fresh = !logFile.exists() || logFile.length() == 0;
+    try (FileOutputStream fos = new FileOutputStream(logFile, true);
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos))) {
+      if (fresh) {
+        dos.writeInt(LOG_MAGIC_NUMBER);
+      }
+      dos.writeInt(bytes.length);
+      dos.writeInt(checksum(bytes));
+      dos.write(bytes);
+      dos.flush();
+      fos.getFD().sync();
+    }
+  }
+
+  private static int checksum(byte[] bytes) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Replay log delta di atas katalog yang dimuat dari file utama.
+   * Bingkai terakhir yang terpotong atau checksum-nya tidak cocok (crash saat
+   * append) dianggap akhir log dan tidak diterapkan sebagian pun.
+   *
+   * @return jumlah delta yang berhasil di-replay
+   */
+  private int replayLog(Map<String, Schema> target, Map<String, TablespaceSchema> targetTablespaces)
+      throws IOException {
+    File logFile = new File(catalogLogPath);
+    if (!logFile.exists() || logFile.length() == 0) {
+      return 0;
+    }
+
+    int replayed = 0;
+    try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+      int magic = dis.readInt();
+      if (magic == LOG_MAGIC_NUMBER) {
+        replayed = replayFrames(dis, target, targetTablespaces);
+      } else if (magic == UNFRAMED_LOG_MAGIC_NUMBER || magic == LEGACY_LOG_MAGIC_NUMBER) {
+        replayed = replayUnframed(dis, magic == UNFRAMED_LOG_MAGIC_NUMBER, target, targetTablespaces);
+      } else {
+        throw new IOException("Bukan file log katalog yang valid: " + catalogLogPath);
+      }
+    } catch (EOFException e) {
+      System.out.println("Warning: Log katalog terpotong sebelum header, diabaikan.");
+    }
+    System.out.println("CatalogManager: Replay " + replayed + " delta dari log katalog.");
+    return replayed;
+  }
+
+  private int replayFrames(DataInputStream dis, Map<String, Schema> target,
+      Map<String, TablespaceSchema> targetTablespaces) throws IOException {
+    int replayed = 0;
+    while (true) {
+      byte[] frame;
+      try {
+        int length = dis.readInt();
+        int expected = dis.readInt();
+        if (length < 0) {
+          System.out.println("Warning: Bingkai log katalog rusak, sisa log diabaikan.");
+          return replayed;
+        }
+        frame = dis.readNBytes(length);
+        if (frame.length < length || checksum(frame) != expected) {
+          System.out.println("Warning: Bingkai terakhir di log katalog terpotong, diabaikan.");
+          return replayed;
+        }
+      } catch (EOFException e) {
+        // Akhir log yang bersih, atau header bingkai terpotong
+        return replayed;
+      }
+
+      // Delta diterapkan ke salinan dulu agar bingkai yang gagal diurai tidak diterapkan sebagian
+      Map<String, Schema> schemas = new HashMap<>(target);
+      Map<String, TablespaceSchema> spaces = new HashMap<>(targetTablespaces);
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+      int count = 0;
+      int op;
+      while ((op = in.read()) != -1) {
+        applyDelta(op, in, true, schemas, spaces);
+        count++;
+      }
+      target.clear();
+      target.putAll(schemas);
+      targetTablespaces.clear();
+      targetTablespaces.putAll(spaces);
+      replayed += count;
+    }
+  }
+
+  /**
+   * Log format lama tanpa bingkai: record terakhir yang terpotong diabaikan.
+   */
+  private int replayUnframed(DataInputStream dis, boolean withExtensions, Map<String, Schema> target,
+      Map<String, TablespaceSchema> targetTablespaces) throws IOException {
+    int replayed = 0;
+    try {
+      while (true) {
+        int op = dis.read();
+        if (op == -1) {
+          break;
+        }
+        applyDelta(op, dis, withExtensions, target, targetTablespaces);
+        replayed++;
+      }
+    } catch (EOFException e) {
+      System.out.println("Warning: Record terakhir di log katalog terpotong, diabaikan.");
+    }
+    return replayed;
+  }
+
+  private void applyDelta(int op, DataInputStream dis, boolean withExtensions, Map<String, Schema> target,
+      Map<String, TablespaceSchema> targetTablespaces) throws IOException {
+    if (op == DELTA_PUT) {
+      Schema s = readSchema(dis, withExtensions, false);
+      target.put(s.tableName(), s);
+    } else if (op == DELTA_DROP) {
+      target.remove(dis.readUTF());
+    } else if (op == DELTA_PUT_TABLESPACE) {
+      TablespaceSchema ts = readTablespace(dis);
+      targetTablespaces.put(ts.name(), ts);
+    } else if (op == DELTA_DROP_TABLESPACE) {
+      targetTablespaces.remove(dis.readUTF());
+    } else {
+      throw new IOException("Jenis delta katalog tidak dikenal: " + op);
+    }
+  }
+
+  /**
+   * Tulis file utama secara atomik (tulis ke file sementara lalu rename).
+   */
+  private void writeBaseFile(Collection<Schema> schemas, Collection<TablespaceSchema> spaces) throws IOException {
+    Path target = Paths.get(catalogFilePath);
+    Path tmp = Paths.get(catalogFilePath + ".tmp");
+    try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos))) {
+
+      dos.writeInt(MAGIC_NUMBER);
+      dos.writeInt(schemas.size());
+
+      for (Schema schema : schemas) {
+        writeSchema(dos, schema);
+      }
+
+      dos.writeInt(spaces.size());
+      for (TablespaceSchema ts : spaces) {
+        writeTablespace(dos, ts);
+      }
+      dos.flush();
+      fos.getFD().sync();
+    }
+    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void writeTablespace(DataOutputStream dos, TablespaceSchema ts) throws IOException {
+    dos.writeUTF(ts.name());
+    dos.writeBoolean(ts.striped());
+    dos.writeInt(ts.locations().size());
+    for (String location : ts.locations()) {
+      dos.writeUTF(location);
+    }
+  }
+
+  private TablespaceSchema readTablespace(DataInputStream dis) throws IOException {
+    String name = dis.readUTF();
+    boolean striped = dis.readBoolean();
+    int locationCount = dis.readInt();
+    List<String> locations = new ArrayList<>();
+    for (int i = 0; i < locationCount; i++) {
+      locations.add(dis.readUTF());
+    }
+    return new TablespaceSchema(name, locations, striped);
+  }
+
+  private void writeSchema(DataOutputStream dos, Schema schema) throws IOException {
+    // Ambil data HANYA dari objek Schema
+    dos.writeUTF(schema.tableName());
+    dos.writeUTF(schema.dataFile());
+    dos.writeInt(schema.columns().size());
+
+    // Tulis Kolom
+    for (Column col : schema.columns()) {
+      dos.writeUTF(col.name());
+      dos.writeInt(col.type().getValue());
+      dos.writeInt(col.length());
+    }
+
+    // Tulis Indeks
+    dos.writeInt(schema.indexes().size());
+    for (IndexSchema idx : schema.indexes()) {
+      dos.writeUTF(idx.indexName());
+      dos.writeUTF(idx.columnName());
+      dos.writeInt(idx.indexType().getValue());
+      dos.writeUTF(idx.indexFile());
+    }
+
+    // Tulis Foreign Key
+    List<ForeignKeySchema> fks = schema.getForeignKeys();
+    if (fks == null)
+      fks = new ArrayList<>();
+
+    dos.writeInt(fks.size());
+    for (ForeignKeySchema fk : fks) {
+      dos.writeUTF(fk.constraintName());
+      dos.writeUTF(fk.columnName());
+      dos.writeUTF(fk.referenceTable());
+      dos.writeUTF(fk.referenceColumn());
+      dos.writeBoolean(fk.isCascading());
+    }
+
+    writeExtensions(dos, schema);
+  }
+
+  /**
+   * Section ekstensi: [jumlah] lalu [tag][panjang][payload] per ekstensi.
+   * Panjang eksplisit membuat pembaca bisa melewati tag yang tidak dikenal.
+   */
+  private void writeExtensions(DataOutputStream dos, Schema schema) throws IOException {
+    Map<Byte, byte[]> extensions = new LinkedHashMap<>();
+
+    if (schema.partition() != null) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream ext = new DataOutputStream(bos);
+      PartitionSchema partition = schema.partition();
+      Column partitionColumn = schema.getColumnByName(partition.columnName());
+      ext.writeInt(partition.type().getValue());
+      ext.writeUTF(partition.columnName());
+      ext.writeInt(partition.partitionCount());
+      ext.writeInt(partition.rangeBounds().size());
+      for (Object bound : partition.rangeBounds()) {
+        writeTypedValue(ext, partitionColumn.type(), bound);
+      }
+      ext.flush();
+      extensions.put(EXT_PARTITION, bos.toByteArray());
+    }
+
+    // Penempatan tabel & indeks: [tablespace tabel] lalu [jumlah] [namaIndeks, tablespace]
+    List<IndexSchema> placedIndexes = schema.indexes().stream()
+        .filter(idx -> idx.tablespace() != null)
+        .collect(Collectors.toList());
+    if (schema.tablespace() != null || !placedIndexes.isEmpty()) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream ext = new DataOutputStream(bos);
+      ext.writeUTF(schema.tablespace() == null ? "" : schema.tablespace());
+      ext.writeInt(placedIndexes.size());
+      for (IndexSchema idx : placedIndexes) {
+        ext.writeUTF(idx.indexName());
+        ext.writeUTF(idx.tablespace());
+      }
+      ext.flush();
+      extensions.put(EXT_TABLESPACE, bos.toByteArray());
+    }
+
+    if (schema.isCompressed()) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream ext = new DataOutputStream(bos);
+      ext.writeInt(schema.compression().getValue());
+      ext.flush();
+      extensions.put(EXT_COMPRESSION, bos.toByteArray());
+    }
+
+    if (schema.isInMemory()) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream ext = new DataOutputStream(bos);
+      ext.writeInt(schema.engine().getValue());
+      ext.flush();
+      extensions.put(EXT_ENGINE, bos.toByteArray());
+    }
+
+    if (schema.isClustered()) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream ext = new DataOutputStream(bos);
+      ext.writeUTF(schema.clusterKey());
+      ext.flush();
+      extensions.put(EXT_CLUSTER, bos.toByteArray());
+    }
+
+    // Kolom INCLUDE (covering index): [jumlah] lalu [namaIndeks, jumlahKolom, kolom...]
+    List<IndexSchema> coveringIndexes = schema.indexes().stream()
+        .filter(idx -> !idx.includeColumns().isEmpty())
+        .collect(Collectors.toList());
+    if (!coveringIndexes.isEmpty()) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream ext = new DataOutputStream(bos);
+      ext.writeInt(coveringIndexes.size());
+      for (IndexSchema idx : coveringIndexes) {
+        ext.writeUTF(idx.indexName());
+        ext.writeInt(idx.includeColumns().size());
+        for (String column : idx.includeColumns()) {
+          ext.writeUTF(column);
+        }
+      }
+      ext.flush();
+      extensions.put(EXT_INDEX_INCLUDE, bos.toByteArray());
+    }
+
+    // Indeks UNIQUE: [jumlah] lalu [namaIndeks...]
+    List<IndexSchema> uniqueIndexes = schema.indexes().stream()
+        .filter(IndexSchema::unique)
+        .collect(Collectors.toList());
+    if (!uniqueIndexes.isEmpty()) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream ext = new DataOutputStream(bos);
+      ext.writeInt(uniqueIndexes.size());
+      for (IndexSchema idx : uniqueIndexes) {
+        ext.writeUTF(idx.indexName());
+      }
+      ext.flush();
+      extensions.put(EXT_INDEX_UNIQUE, bos.toByteArray());
+    }
+
+    dos.writeInt(extensions.size());
+    for (Map.Entry<Byte, byte[]> e : extensions.entrySet()) {
+      dos.writeByte(e.getKey());
+      dos.writeInt(e.getValue().length);
+      dos.write(e.getValue());
+    }
+  }
+
+  private void writeTypedValue(DataOutputStream dos, DataType type, Object value) throws IOException {
+    switch (type) {
+      case INTEGER -> dos.writeInt(((Number) value).intValue());
+      case BIGINT -> dos.writeLong(((Number) value).longValue());
+      case FLOAT -> dos.writeFloat(((Number) value).floatValue());
+      case CHAR, VARCHAR -> dos.writeUTF(String.valueOf(value));
+    }
+  }
+
+  private Object readTypedValue(DataInputStream dis, DataType type) throws IOException {
+    return switch (type) {
+      case INTEGER -> dis.readInt();
+      case BIGINT -> dis.readLong();
+      case FLOAT -> dis.readFloat();
+      case CHAR, VARCHAR -> dis.readUTF();
+    };
+  }
+
+  /**
+   * @param lenientForeignKeys true hanya untuk file utama format v1, yang skema
+   *                           terakhirnya boleh tidak memiliki section foreign key
+   */
+  private Schema readSchema(DataInputStream dis, boolean withExtensions, boolean lenientForeignKeys)
+      throws IOException {
+    String tableName = dis.readUTF();
+    String dataFile = dis.readUTF();
+    int columnCount = dis.readInt();
+
+    // Baca Kolom
+    List<Column> columns = new ArrayList<>();
+    for (int j = 0; j < columnCount; j++) {
+      String colName = dis.readUTF();
+      int colTypeInt = dis.readInt();
+      int colLength = dis.readInt();
+      DataType colType = DataType.fromValue(colTypeInt);
+      columns.add(new Column(colName, colType, colLength));
+    }
+
+    // Baca Indeks
+    int indexCount = dis.readInt();
+    List<IndexSchema> indexes = new ArrayList<>();
+    for (int k = 0; k < indexCount; k++) {
+      String idxName = dis.readUTF();
+      String idxColName = dis.readUTF();
+      int idxTypeInt = dis.readInt();
+      IndexType idxType = IndexType.fromValue(idxTypeInt);
+      String idxFile = dis.readUTF();
+      indexes.add(new IndexSchema(idxName, idxColName, idxType, idxFile));
+    }
+
+    List<ForeignKeySchema> foreignKeys = new ArrayList<>();
+
+    // Baca Foreign Key
+    try {
+      int fkCount = dis.readInt();
+      for (int l = 0; l < fkCount; l++) {
+        String constraintName = dis.readUTF();
+        String colName = dis.readUTF();
+        String refTable = dis.readUTF();
+        String refCol = dis.readUTF();
+        boolean isCascading = dis.readBoolean();
+        foreignKeys.add(new ForeignKeySchema(constraintName, colName, refTable, refCol, isCascading));
+      }
+    } catch (EOFException e) {
+      if (!lenientForeignKeys) {
+        throw e;
+      }
+      System.out.println("Warning: End of file reached while reading Foreign Keys for table " + tableName);
+    }
+
+    // Baca section ekstensi (hanya ada di format v2)
+    PartitionSchema partition = null;
+    String tablespace = null;
+    CompressionType compression = CompressionType.NONE;
+    StorageEngine engine = StorageEngine.DISK;
+    String clusterKey = null;
+    boolean uniqueRecorded = false;
+    if (withExtensions) {
+      int extCount = dis.readInt();
+      for (int e = 0; e < extCount; e++) {
+        byte tag = dis.readByte();
+        byte[] payload = new byte[dis.readInt()];
+        dis.readFully(payload);
+        DataInputStream ext = new DataInputStream(new ByteArrayInputStream(payload));
+
+        if (tag == EXT_PARTITION) {
+          PartitionType type = PartitionType.fromValue(ext.readInt());
+          String partitionColumn = ext.readUTF();
+          int partitionCount = ext.readInt();
+          int boundCount = ext.readInt();
+          DataType boundType = columns.stream()
+              .filter(c -> c.name().equalsIgnoreCase(partitionColumn))
+              .map(Column::type)
+              .findFirst()
+              .orElseThrow(() -> new IOException("Kolom partisi '" + partitionColumn + "' tidak ditemukan."));
+          List<Object> bounds = new ArrayList<>();
+          for (int b = 0; b < boundCount; b++) {
+            bounds.add(readTypedValue(ext, boundType));
+          }
+          partition = new PartitionSchema(type, partitionColumn, partitionCount, bounds);
+        } else if (tag == EXT_TABLESPACE) {
+          String tableTablespace = ext.readUTF();
+          tablespace = tableTablespace.isEmpty() ? null : tableTablespace;
+          int placedCount = ext.readInt();
+          for (int p = 0; p < placedCount; p++) {
+            String idxName = ext.readUTF();
+            String idxTablespace = ext.readUTF();
+            indexes.replaceAll(idx -> idx.indexName().equals(idxName) ? idx.withTablespace(idxTablespace) : idx);
+          }
+        } else if (tag == EXT_COMPRESSION) {
+          compression = CompressionType.fromValue(ext.readInt());
+        } else if (tag == EXT_ENGINE) {
+          engine = StorageEngine.fromValue(ext.readInt());
+        } else if (tag == EXT_CLUSTER) {
+          clusterKey = ext.readUTF();
+        } else if (tag == EXT_INDEX_INCLUDE) {
+          int coveringCount = ext.readInt();
+          for (int c = 0; c < coveringCount; c++) {
+            String idxName = ext.readUTF();
+            List<String> includeColumns = new ArrayList<>();
+            int includeCount = ext.readInt();
+            for (int i = 0; i < includeCount; i++) {
+              includeColumns.add(ext.readUTF());
+            }
+            indexes.replaceAll(idx -> idx.indexName().equals(idxName)
+                ? new IndexSchema(idx.indexName(), idx.columnName(), idx.indexType(), idx.indexFile(),
+                    idx.tablespace(), includeColumns, idx.unique())
+                : idx);
+          }
+        } else if (tag == EXT_INDEX_UNIQUE) {
+          uniqueRecorded = true;
+          int uniqueCount = ext.readInt();
+          for (int u = 0; u < uniqueCount; u++) {
+            String idxName = ext.readUTF();
+            indexes.replaceAll(idx -> idx.indexName().equals(idxName) ? idx.withUnique(true) : idx);
+          }
+        } else {
+          System.out.println("Warning: Ekstensi katalog tidak dikenal (tag " + tag + ") pada tabel " + tableName);
+        }
+      }
+    }
+
+    // Katalog lama belum mencatat flag UNIQUE; indeks PRIMARY KEY dikenali dari
+    // namanya, kecuali kuncinya tidak memuat kolom partisi (tidak bisa dicek lokal)
+    if (!uniqueRecorded) {
+      String pkPrefix = "pk_" + tableName + "_";
+      String partitionColumn = partition != null ? partition.columnName() : null;
+      indexes.replaceAll(idx -> idx.indexName().startsWith(pkPrefix)
+          && (partitionColumn == null || idx.keyColumns().contains(partitionColumn))
+          ? idx.withUnique(true) : idx);
+    }
+
+    // Buat record Schema "all-in-one"
+    return new Schema(tableName, dataFile, columns, indexes, foreignKeys, partition, tablespace, compression,
+        engine, clusterKey);
+  }
 }
@@ -0,0 +1,405 @@
+package com.apacy.storagemanager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.apacy.common.dto.Row;
+import com.apacy.common.dto.Schema;
+import com.apacy.common.enums.DataType;
+
+/**
+ * Penyimpanan tabel CLUSTERED (index-organized): baris disimpan di halaman
+ * data slotted biasa, tetapi setiap halaman memegang rentang kunci
+ * [lowKey, lowKey halaman berikutnya) dari kolom clusterKey (PK).
+ *
+ * Blok 0 memegang rentang paling bawah (tanpa lowKey); direktori lowKey ->
+ * nomor blok untuk halaman lain disimpan di "<file>.cdir" lewat buffer pool
+ * dan menggantikan indeks PK terpisah: lookup PK = satu halaman, range scan
+ * PK = halaman berurutan tanpa fetch RID acak. Halaman penuh di-split (dipadatkan
+ * lalu separuh atas dipindah ke halaman baru, atau halaman baru kosong untuk
+ * insert menaik); baris yang pindah dilaporkan lewat Listener agar RID di
+ * indeks sekunder ikut diperbarui. Halaman tidak pernah digabung saat delete.
+ *
+ * Insert dan baca memegang structureLock (read) ditambah latch satu halaman;
+ * split memegang structureLock (write) sehingga boleh me-latch dua halaman:
+ * halaman yang penuh lalu halaman hasil append, yang nomor bloknya selalu lebih
+ * besar sesuai urutan latch menaik di BufferPool.
+ */
+final class ClusteredIndex {
+
+  public static final String DIRECTORY_SUFFIX = ".cdir";
+
+  /**
+   * Pemberitahuan perubahan RID untuk indeks sekunder.
+   */
+  interface Listener {
+    void rowInserted(long blockNumber, int slotId, Row row);
+
+    void rowsMoved(List<Move> moves);
+  }
+
+  record Move(Row row, long fromRid, long toRid) {
+  }
+
+  private record Slot(int slotId, Comparable<?> key, Row row) {
+  }
+
+  private static final Comparator<Slot> BY_KEY = (a, b) -> ColumnKeys.ORDER.compare(a.key(), b.key());
+
+  private final String dataFile;
+  private final String directoryFile;
+  private final String clusterKey;
+  private final DataType keyType;
+  private final BufferPool bufferPool;
+  private final Serializer serializer;
+  private final ConcurrentSkipListMap<Object, Long> directory = new ConcurrentSkipListMap<>(ColumnKeys.ORDER);
+  private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+
+  ClusteredIndex(Schema schema, String dataFile, BufferPool bufferPool, Serializer serializer) {
+    this.dataFile = dataFile;
+    this.directoryFile = directoryFileOf(dataFile);
+    this.clusterKey = schema.clusterKey();
+    this.keyType = schema.getColumnByName(clusterKey).type();
+    this.bufferPool = bufferPool;
+    this.serializer = serializer;
+  }
+
+  static String directoryFileOf(String dataFile) {
+    return dataFile + DIRECTORY_SUFFIX;
+  }
+
+  String clusterKey() {
+    return clusterKey;
+  }
+
+  /**
+   * Kunci cluster dari literal predikat, atau null jika tidak bisa
+   * dikonversi tepat (caller full scan).
+   */
+  Comparable<?> toKey(Object value) {
+    return ColumnKeys.exact(keyType, value);
+  }
+
+  // ==================================================================================
+  // INSERT & SPLIT
+  // ==================================================================================
+
+  /**
+   * Sisipkan baris ke halaman yang memegang rentang kuncinya.
+   *
+   * @return false jika kunci sudah ada (PK duplikat)
+   */
+  boolean insert(Schema schema, Row row, Listener listener) throws IOException {
+    Comparable<?> key = toKey(row.get(clusterKey));
+    if (key == null) {
+      throw new IOException("Nilai kunci cluster '" + clusterKey + "' tidak valid: " + row.get(clusterKey));
+    }
+    while (true) {
+      long blockNumber;
+      structureLock.readLock().lock();
+      try {
+        blockNumber = pageFor(key);
+        try (BufferPool.PageLatch latch = bufferPool.latchExclusive(dataFile, blockNumber)) {
+          byte[] page = bufferPool.readBlock(dataFile, blockNumber);
+          for (Slot slot : liveSlots(page, schema)) {
+            if (ColumnKeys.ORDER.compare(slot.key(), key) == 0) {
+              return false;
+            }
+          }
+          byte[] updated;
+          try {
+            updated = serializer.packRowToBlock(page, row, schema);
+          } catch (IOException fullBlock) {
+            updated = null;
+          }
+          if (updated != null) {
+            bufferPool.writeBlock(dataFile, blockNumber, updated);
+            listener.rowInserted(blockNumber, serializer.getLastPackedSlotId(), row);
+            return true;
+          }
+        }
+      } finally {
+        structureLock.readLock().unlock();
+      }
+      split(schema, blockNumber, row, key, listener);
+    }
+  }
+
+  /**
+   * Padatkan halaman penuh lalu, jika baris baru tetap tidak muat, pindahkan
+   * separuh atas ke halaman baru (atau buka halaman kosong untuk kunci di atas
+   * semua baris halaman, pola insert menaik).
+   */
+  private void split(Schema schema, long blockNumber, Row newRow, Comparable<?> newKey, Listener listener)
+      throws IOException {
+    structureLock.writeLock().lock();
+    try (BufferPool.PageLatch latch = bufferPool.latchExclusive(dataFile, blockNumber)) {
+      byte[] page = bufferPool.readBlock(dataFile, blockNumber);
+      List<Slot> live = liveSlots(page, schema);
+      live.sort(BY_KEY);
+      List<Move> moves = new ArrayList<>();
+
+      byte[] compacted = pack(schema, blockNumber, blockNumber, live, moves);
+      if (fits(schema, compacted, newRow)) {
+        bufferPool.writeBlock(dataFile, blockNumber, compacted);
+      } else if (live.isEmpty()) {
+        throw new IOException("Baris lebih besar dari satu halaman kosong");
+      } else {
+        // Kunci pertama separuh atas selalu > lowKey halaman ini (newKey >= lowKey
+        // karena diarahkan ke sini), sehingga tidak menimpa entri direktorinya
+        moves.clear();
+        boolean ascending = ColumnKeys.ORDER.compare(newKey, live.get(live.size() - 1).key()) > 0;
+        int cut = ascending ? live.size() : live.size() / 2;
+        List<Slot> lower = live.subList(0, cut);
+        List<Slot> upper = live.subList(cut, live.size());
+
+        long newBlock = bufferPool.appendBlock(dataFile, serializer.initializeNewBlock());
+        try (BufferPool.PageLatch newLatch = bufferPool.latchExclusive(dataFile, newBlock)) {
+          bufferPool.writeBlock(dataFile, newBlock, pack(schema, blockNumber, newBlock, upper, moves));
+          bufferPool.writeBlock(dataFile, blockNumber, pack(schema, blockNumber, blockNumber, lower, moves));
+        }
+        directory.put(upper.isEmpty() ? newKey : upper.get(0).key(), newBlock);
+        persistDirectory();
+      }
+      if (!moves.isEmpty()) {
+        listener.rowsMoved(moves);
+      }
+    } finally {
+      structureLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Halaman baru berisi slots (terurut kunci) untuk blok toBlock; baris yang
+   * RID-nya berubah dicatat ke moves.
+   */
+  private byte[] pack(Schema schema, long fromBlock, long toBlock, List<Slot> slots, List<Move> moves)
+      throws IOException {
+    byte[] page = serializer.initializeNewBlock();
+    for (Slot slot : slots) {
+      page = serializer.packRowToBlock(page, slot.row(), schema);
+      long from = Rid.encode(fromBlock, slot.slotId());
+      long to = Rid.encode(toBlock, serializer.getLastPackedSlotId());
+      if (from != to) {
+        moves.add(new Move(slot.row(), from, to));
+      }
+    }
+    return page;
+  }
+
+  private boolean fits(Schema schema, byte[] page, Row row) {
+    try {
+      serializer.packRowToBlock(page.clone(), row, schema);
+      return true;
+    } catch (IOException full) {
+      return false;
+    }
+  }
+
+  /**
+   * Halaman yang memegang rentang kunci key; kunci di bawah lowKey pertama
+   * masuk blok 0.
+   */
+  private long pageFor(Object key) {
+    Map.Entry<Object, Long> entry = directory.floorEntry(key);
+    return entry == null ? 0 : entry.getValue();
+  }
+
+  private List<Slot> liveSlots(byte[] page, Schema schema) throws IOException {
+    List<Slot> slots = new ArrayList<>();
+    int slotCount = serializer.getSlotCount(page);
+    for (int slotId = 0; slotId < slotCount; slotId++) {
+      Row row = serializer.readRowAtSlot(page, schema, slotId);
+      if (row != null) {
+        slots.add(new Slot(slotId, (Comparable<?>) row.get(clusterKey), row));
+      }
+    }
+    return slots;
+  }
+
+  // ==================================================================================
+  // BACA
+  // ==================================================================================
+
+  /**
+   * Baris dengan kunci di rentang [min, max] (batas null = terbuka), terurut
+   * menurut kunci. Hanya halaman yang rentangnya beririsan yang dibaca.
+   */
+  List<Row> rows(Schema schema, Comparable<?> min, boolean minInclusive, Comparable<?> max, boolean maxInclusive)
+      throws IOException {
+    List<Row> rows = new ArrayList<>();
+    for (Slot slot : scan(schema, min, minInclusive, max, maxInclusive)) {
+      rows.add(slot.row());
+    }
+    return rows;
+  }
+
+  /**
+   * Sama seperti rows() tetapi mengembalikan RID, untuk DELETE/UPDATE.
+   */
+  List<Long> rids(Schema schema, Comparable<?> min, boolean minInclusive, Comparable<?> max, boolean maxInclusive)
+      throws IOException {
+    List<Long> rids = new ArrayList<>();
+    structureLock.readLock().lock();
+    try {
+      for (long blockNumber : pagesFor(min, max)) {
+        List<Slot> live = readLive(schema, blockNumber);
+        for (Slot slot : live) {
+          if (inRange(slot.key(), min, minInclusive, max, maxInclusive)) {
+            rids.add(Rid.encode(blockNumber, slot.slotId()));
+          }
+        }
+      }
+    } finally {
+      structureLock.readLock().unlock();
+    }
+    return rids;
+  }
+
+  private List<Slot> scan(Schema schema, Comparable<?> min, boolean minInclusive, Comparable<?> max,
+      boolean maxInclusive) throws IOException {
+    List<Slot> result = new ArrayList<>();
+    structureLock.readLock().lock();
+    try {
+      for (long blockNumber : pagesFor(min, max)) {
+        List<Slot> live = readLive(schema, blockNumber);
+        live.sort(BY_KEY);
+        for (Slot slot : live) {
+          if (inRange(slot.key(), min, minInclusive, max, maxInclusive)) {
+            result.add(slot);
+          }
+        }
+      }
+    } finally {
+      structureLock.readLock().unlock();
+    }
+    return result;
+  }
+
+  private List<Slot> readLive(Schema schema, long blockNumber) throws IOException {
+    try (BufferPool.PageLatch latch = bufferPool.latchShared(dataFile, blockNumber)) {
+      return liveSlots(bufferPool.readBlock(dataFile, blockNumber), schema);
+    }
+  }
+
+  /**
+   * Blok yang rentang kuncinya beririsan dengan [min, max], urut kunci.
+   */
+  private List<Long> pagesFor(Object min, Object max) {
+    List<Long> pages = new ArrayList<>();
+    Object from = min == null ? null : directory.floorKey(min);
+    if (from == null) {
+      pages.add(0L);
+    }
+    NavigableMap<Object, Long> view = from == null ? directory : directory.tailMap(from, true);
+    if (max != null) {
+      view = view.headMap(max, true);
+    }
+    pages.addAll(view.values());
+    return pages;
+  }
+
+  private static boolean inRange(Object key, Object min, boolean minInclusive, Object max, boolean maxInclusive) {
+    if (min != null) {
+      int c = ColumnKeys.ORDER.compare(key, min);
+      if (c < 0 || (c == 0 && !minInclusive)) {
+        return false;
+      }
+    }
+    if (max != null) {
+      int c = ColumnKeys.ORDER.compare(key, max);
+      if (c > 0 || (c == 0 && !maxInclusive)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // ==================================================================================
+  // PERSISTENSI DIREKTORI
+  // ==================================================================================
+
+  /**
+   * Layout: [panjang payload (int)][jumlah entri (int)] lalu per entri
+   * [lowKey bertipe kolom][nomor blok (long)], tersebar di blok berurutan.
+   */
+  private void persistDirectory() throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bos);
+    dos.writeInt(directory.size());
+    for (Map.Entry<Object, Long> e : directory.entrySet()) {
+      writeKey(dos, e.getKey());
+      dos.writeLong(e.getValue());
+    }
+    dos.flush();
+    byte[] payload = bos.toByteArray();
+
+    int blockSize = bufferPool.getBlockSize();
+    ByteBuffer all = ByteBuffer.allocate(Integer.BYTES + payload.length);
+    all.putInt(payload.length).put(payload);
+    byte[] bytes = all.array();
+    for (int offset = 0, block = 0; offset < bytes.length; offset += blockSize, block++) {
+      byte[] page = new byte[blockSize];
+      System.arraycopy(bytes, offset, page, 0, Math.min(blockSize, bytes.length - offset));
+      bufferPool.writeBlock(directoryFile, block, page);
+    }
+  }
+
+  /**
+   * Muat direktori dari file .cdir (tabel baru/kosong tidak punya file ini).
+   */
+  void load() throws IOException {
+    directory.clear();
+    if (bufferPool.getBlockCount(directoryFile) == 0) {
+      return;
+    }
+    byte[] first = bufferPool.readBlock(directoryFile, 0);
+    int length = ByteBuffer.wrap(first).getInt();
+    int blockSize = bufferPool.getBlockSize();
+    byte[] bytes = new byte[Integer.BYTES + length];
+    for (int offset = 0, block = 0; offset < bytes.length; offset += blockSize, block++) {
+      byte[] page = block == 0 ? first : bufferPool.readBlock(directoryFile, block);
+      System.arraycopy(page, 0, bytes, offset, Math.min(blockSize, bytes.length - offset));
+    }
+
+    DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes, Integer.BYTES, length));
+    int count = dis.readInt();
+    for (int i = 0; i < count; i++) {
+      Object key = readKey(dis);
+      directory.put(key, dis.readLong());
+    }
+  }
+
+  int pageCount() {
+    return directory.size() + 1;
+  }
+
+  private void writeKey(DataOutputStream dos, Object key) throws IOException {
+    switch (keyType) {
+      case INTEGER -> dos.writeInt((Integer) key);
+      case BIGINT -> dos.writeLong((Long) key);
+      case FLOAT -> dos.writeFloat((Float) key);
+      default -> dos.writeUTF(key.toString());
+    }
+  }
+
+  private Object readKey(DataInputStream dis) throws IOException {
+    return switch (keyType) {
+      case INTEGER -> dis.readInt();
+      case BIGINT -> dis.readLong();
+      case FLOAT -> dis.readFloat();
+      default -> dis.readUTF();
+    };
+  }
+}
@@ -0,0 +1,52 @@
+package com.apacy.storagemanager;
+
+import java.util.Comparator;
+
+import com.apacy.common.enums.DataType;
+
+/**
+ * Helper kunci kolom untuk struktur terurut (indeks memori, tabel clustered).
+ *
+ * Nilai kolom yang dibaca dari halaman selalu bertipe Java sesuai kolomnya
+ * (Integer, Long, Float, String), sehingga cukup dibandingkan secara natural.
+ * Literal dari predikat perlu dikonversi dulu lewat exact().
+ */
+final class ColumnKeys {
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  static final Comparator<Object> ORDER = (a, b) -> ((Comparable) a).compareTo(b);
+
+  private ColumnKeys() {
+  }
+
+  /**
+   * Konversi literal predikat ke tipe kunci kolom. null jika konversinya
+   * tidak tepat (misal 2.5 untuk kolom INTEGER), supaya range tidak
+   * kehilangan baris karena pembulatan.
+   */
+  static Comparable<?> exact(DataType keyType, Object value) {
+    switch (keyType) {
+      case INTEGER:
+      case BIGINT:
+        if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+          long v = ((Number) value).longValue();
+          if (keyType == DataType.INTEGER) {
+            return (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) ? (Comparable<?>) (int) v : null;
+          }
+          return v;
+        }
+        if (value instanceof Number n && n.doubleValue() == Math.rint(n.doubleValue())) {
+          return exact(keyType, n.longValue());
+        }
+        return null;
+      case FLOAT:
+        if (value instanceof Number n) {
+          float f = n.floatValue();
+          return (double) f == n.doubleValue() ? (Comparable<?>) f : null;
+        }
+        return null;
+      default:
+        return value == null ? null : value.toString();
+    }
+  }
+}
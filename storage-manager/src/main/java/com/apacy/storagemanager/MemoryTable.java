@@ -0,0 +1,352 @@
+package com.apacy.storagemanager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.apacy.common.dto.Row;
+import com.apacy.common.enums.DataType;
+import com.apacy.common.enums.IndexType;
+
+/**
+ * Row store untuk tabel ENGINE=MEMORY.
+ *
+ * Baris disimpan di ConcurrentSkipListMap dengan row id monoton (pengganti
+ * RID blok/slot), tanpa BlockManager, WAL, maupun fsync; isinya hilang saat
+ * server restart, definisi tabelnya tetap ada di katalog. Indeks Hash memakai
+ * ConcurrentHashMap dan indeks BPlusTree memakai ConcurrentSkipListSet
+ * (mendukung range scan), sehingga pembaca tidak pernah mengunci.
+ *
+ * Baris yang disimpan harus sudah dinormalisasi (Serializer.normalizeRow)
+ * sehingga tipe nilainya sama dengan baris dari tabel disk. Baris identik
+ * ditolak, sama seperti writeBlock pada tabel disk, tetapi lewat peta
+ * identitas O(1) alih-alih full scan. Kolom UNIQUE (PRIMARY KEY) diklaim
+ * lewat putIfAbsent di peta kuncinya, sehingga dua insert kunci sama tidak
+ * bisa sama-sama lolos.
+ */
+final class MemoryTable {
+
+  private final ConcurrentSkipListMap<Long, Row> rows = new ConcurrentSkipListMap<>();
+  private final ConcurrentHashMap<Map<String, Object>, Long> identity = new ConcurrentHashMap<>();
+  private final AtomicLong nextRowId = new AtomicLong();
+  private final ConcurrentHashMap<String, MemoryIndex> indexes = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, ConcurrentHashMap<Object, Long>> uniqueKeys = new ConcurrentHashMap<>();
+
+  // ==================================================================================
+  // BARIS
+  // ==================================================================================
+
+  /**
+   * @return row id baru, atau -1 jika baris identik sudah ada
+   * @throws IllegalStateException jika nilai kolom UNIQUE sudah dipakai baris lain
+   */
+  long insert(Row row) {
+    long rowId = nextRowId.getAndIncrement();
+    if (identity.putIfAbsent(row.data(), rowId) != null) {
+      return -1;
+    }
+    try {
+      claimUniqueKeys(null, row, rowId);
+    } catch (IllegalStateException e) {
+      identity.remove(row.data(), rowId);
+      throw e;
+    }
+    rows.put(rowId, row);
+    for (Map.Entry<String, MemoryIndex> e : indexes.entrySet()) {
+      e.getValue().add(row.get(e.getKey()), rowId);
+    }
+    return rowId;
+  }
+
+  Row get(long rowId) {
+    return rows.get(rowId);
+  }
+
+  /**
+   * Hapus baris hanya jika isinya masih oldRow (aman terhadap writer lain).
+   */
+  boolean remove(long rowId, Row oldRow) {
+    if (!rows.remove(rowId, oldRow)) {
+      return false;
+    }
+    identity.remove(oldRow.data(), rowId);
+    releaseUniqueKeys(null, oldRow, rowId);
+    for (Map.Entry<String, MemoryIndex> e : indexes.entrySet()) {
+      e.getValue().remove(oldRow.get(e.getKey()), rowId);
+    }
+    return true;
+  }
+
+  /**
+   * Ganti isi baris di tempat (row id tetap).
+   *
+   * @return false jika baris sudah berubah/terhapus, atau newRow identik
+   *         dengan baris lain
+   * @throws IllegalStateException jika nilai kolom UNIQUE baru sudah dipakai baris lain
+   */
+  boolean replace(long rowId, Row oldRow, Row newRow) {
+    if (oldRow.data().equals(newRow.data())) {
+      return rows.get(rowId) == oldRow;
+    }
+    if (identity.putIfAbsent(newRow.data(), rowId) != null) {
+      return false;
+    }
+    try {
+      claimUniqueKeys(oldRow, newRow, rowId);
+    } catch (IllegalStateException e) {
+      identity.remove(newRow.data(), rowId);
+      throw e;
+    }
+    if (!rows.replace(rowId, oldRow, newRow)) {
+      identity.remove(newRow.data(), rowId);
+      releaseUniqueKeys(oldRow, newRow, rowId);
+      return false;
+    }
+    identity.remove(oldRow.data(), rowId);
+    releaseUniqueKeys(newRow, oldRow, rowId);
+    for (Map.Entry<String, MemoryIndex> e : indexes.entrySet()) {
+      Object oldKey = oldRow.get(e.getKey());
+      Object newKey = newRow.get(e.getKey());
+      if (!oldKey.equals(newKey)) {
+        e.getValue().remove(oldKey, rowId);
+        e.getValue().add(newKey, rowId);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * View terurut (row id) seluruh baris; konsisten lemah, aman dipakai
+   * bersamaan dengan writer.
+   */
+  Set<Map.Entry<Long, Row>> entries() {
+    return rows.entrySet();
+  }
+
+  Collection<Row> rows() {
+    return rows.values();
+  }
+
+  int size() {
+    return rows.size();
+  }
+
+  // ==================================================================================
+  // INDEKS
+  // ==================================================================================
+
+  void addIndex(String column, IndexType type, DataType keyType) {
+    MemoryIndex index = type == IndexType.BPlusTree
+        ? new OrderedIndex(keyType)
+        : new HashedIndex(keyType);
+    for (Map.Entry<Long, Row> e : rows.entrySet()) {
+      index.add(e.getValue().get(column), e.getKey());
+    }
+    indexes.put(column, index);
+  }
+
+  void dropIndex(String column) {
+    indexes.remove(column);
+    uniqueKeys.remove(column);
+  }
+
+  /**
+   * Tandai kolom sebagai UNIQUE; nilai baris yang sudah ada langsung diklaim.
+   */
+  void addUniqueKey(String column) {
+    ConcurrentHashMap<Object, Long> keys = new ConcurrentHashMap<>();
+    for (Map.Entry<Long, Row> e : rows.entrySet()) {
+      Object key = e.getValue().get(column);
+      if (key != null) {
+        keys.put(key, e.getKey());
+      }
+    }
+    uniqueKeys.put(column, keys);
+  }
+
+  /**
+   * Klaim nilai kolom UNIQUE row untuk rowId. Kolom yang nilainya sama dengan
+   * unchanged (baris lama pada update) dilewati; NULL tidak diklaim. Jika ada
+   * nilai yang sudah dipakai, klaim yang sudah dibuat dicabut lagi.
+   */
+  private void claimUniqueKeys(Row unchanged, Row row, long rowId) {
+    List<String> claimed = new ArrayList<>();
+    for (Map.Entry<String, ConcurrentHashMap<Object, Long>> e : uniqueKeys.entrySet()) {
+      Object key = row.get(e.getKey());
+      if (key == null || (unchanged != null && key.equals(unchanged.get(e.getKey())))) {
+        continue;
+      }
+      if (e.getValue().putIfAbsent(key, rowId) != null) {
+        for (String column : claimed) {
+          uniqueKeys.get(column).remove(row.get(column), rowId);
+        }
+        throw StorageManager.uniqueViolation(e.getKey(), key);
+      }
+      claimed.add(e.getKey());
+    }
+  }
+
+  private void releaseUniqueKeys(Row unchanged, Row row, long rowId) {
+    for (Map.Entry<String, ConcurrentHashMap<Object, Long>> e : uniqueKeys.entrySet()) {
+      Object key = row.get(e.getKey());
+      if (key != null && (unchanged == null || !key.equals(unchanged.get(e.getKey())))) {
+        e.getValue().remove(key, rowId);
+      }
+    }
+  }
+
+  boolean hasOrderedIndex(String column) {
+    return indexes.get(column) instanceof OrderedIndex;
+  }
+
+  /**
+   * Row id dengan nilai kolom = value, atau null jika kolom tidak terindeks
+   * atau literal tidak bisa dikonversi ke tipe kolom (caller full scan).
+   */
+  List<Long> lookup(String column, Object value) {
+    MemoryIndex index = indexes.get(column);
+    if (index == null) {
+      return null;
+    }
+    Comparable<?> key = index.toKey(value);
+    if (key == null) {
+      return null;
+    }
+    return index.lookup(key);
+  }
+
+  /**
+   * Range scan pada indeks BPlusTree (batas null = terbuka), atau null jika
+   * tidak ada indeks terurut atau batas tidak bisa dikonversi secara tepat.
+   */
+  List<Long> range(String column, Object min, boolean minInclusive, Object max, boolean maxInclusive) {
+    if (!(indexes.get(column) instanceof OrderedIndex index)) {
+      return null;
+    }
+    Comparable<?> lo = min == null ? null : index.toKey(min);
+    Comparable<?> hi = max == null ? null : index.toKey(max);
+    if ((min != null && lo == null) || (max != null && hi == null)) {
+      return null;
+    }
+    return index.range(lo, minInclusive, hi, maxInclusive);
+  }
+
+  // ==================================================================================
+  // IMPLEMENTASI INDEKS
+  // ==================================================================================
+
+  private abstract static class MemoryIndex {
+    private final DataType keyType;
+
+    MemoryIndex(DataType keyType) {
+      this.keyType = keyType;
+    }
+
+    abstract void add(Object key, long rowId);
+
+    abstract void remove(Object key, long rowId);
+
+    abstract List<Long> lookup(Comparable<?> key);
+
+    Comparable<?> toKey(Object value) {
+      return ColumnKeys.exact(keyType, value);
+    }
+  }
+
+  private static final class HashedIndex extends MemoryIndex {
+    private final ConcurrentHashMap<Object, Set<Long>> buckets = new ConcurrentHashMap<>();
+
+    HashedIndex(DataType keyType) {
+      super(keyType);
+    }
+
+    @Override
+    void add(Object key, long rowId) {
+      buckets.compute(key, (k, ids) -> {
+        Set<Long> set = ids != null ? ids : ConcurrentHashMap.newKeySet();
+        set.add(rowId);
+        return set;
+      });
+    }
+
+    @Override
+    void remove(Object key, long rowId) {
+      buckets.computeIfPresent(key, (k, ids) -> {
+        ids.remove(rowId);
+        return ids.isEmpty() ? null : ids;
+      });
+    }
+
+    @Override
+    List<Long> lookup(Comparable<?> key) {
+      Set<Long> ids = buckets.get(key);
+      return ids == null ? List.of() : new ArrayList<>(ids);
+    }
+  }
+
+  /**
+   * Entri (kunci, row id) di skip list; row id membuat entri dengan kunci
+   * sama tetap unik, dan Long.MIN/MAX_VALUE dipakai sebagai batas pencarian.
+   */
+  private record Entry(Comparable<?> key, long rowId) {
+  }
+
+  private static final class OrderedIndex extends MemoryIndex {
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+      int c = ColumnKeys.ORDER.compare(a.key(), b.key());
+      return c != 0 ? c : Long.compare(a.rowId(), b.rowId());
+    };
+
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+    OrderedIndex(DataType keyType) {
+      super(keyType);
+    }
+
+    @Override
+    void add(Object key, long rowId) {
+      entries.add(new Entry((Comparable<?>) key, rowId));
+    }
+
+    @Override
+    void remove(Object key, long rowId) {
+      entries.remove(new Entry((Comparable<?>) key, rowId));
+    }
+
+    @Override
+    List<Long> lookup(Comparable<?> key) {
+      return range(key, true, key, true);
+    }
+
+    List<Long> range(Comparable<?> min, boolean minInclusive, Comparable<?> max, boolean maxInclusive) {
+      Entry lo = min == null ? null : new Entry(min, minInclusive ? Long.MIN_VALUE : Long.MAX_VALUE);
+      Entry hi = max == null ? null : new Entry(max, maxInclusive ? Long.MAX_VALUE : Long.MIN_VALUE);
+      NavigableSet<Entry> view;
+      if (lo != null && hi != null) {
+        if (ORDER.compare(lo, hi) > 0) {
+          return new ArrayList<>();
+        }
+        view = entries.subSet(lo, true, hi, true);
+      } else if (lo != null) {
+        view = entries.tailSet(lo, true);
+      } else if (hi != null) {
+        view = entries.headSet(hi, true);
+      } else {
+        view = entries;
+      }
+      List<Long> ids = new ArrayList<>();
+      for (Entry e : view) {
+        ids.add(e.rowId());
+      }
+      return ids;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+package com.apacy.storagemanager;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Page translation map untuk file terkompresi.
+ *
+ * Halaman logis (blockSize byte) dikompresi dengan Deflater lalu disimpan
+ * sebagai extent berukuran variabel di file data fisik. File pendamping
+ * "<file>.pmap" berisi satu entri per halaman logis:
+ * [offset extent (long)][panjang terkompresi (int)][kapasitas extent (int)].
+ *
+ * Extent dialokasikan dalam kelipatan EXTENT_ALIGNMENT sehingga perubahan
+ * kecil pada halaman bisa ditulis ulang di tempat. Jika hasil kompresi tidak
+ * muat lagi, halaman dipindah ke extent baru di akhir file (extent lama
+ * dibiarkan kosong sampai tabel dibangun ulang). Halaman yang tidak bisa
+ * dikompresi disimpan apa adanya (panjang == blockSize).
+ */
+public final class PageTranslationMap {
+
+  public static final String MAP_SUFFIX = ".pmap";
+
+  private static final int ENTRY_SIZE = Long.BYTES + Integer.BYTES + Integer.BYTES;
+  private static final int EXTENT_ALIGNMENT = 256;
+
+  private final int blockSize;
+  private final RandomAccessFile data;
+  private final RandomAccessFile map;
+  private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+  private final Inflater inflater = new Inflater();
+
+  private long[] offsets;
+  private int[] lengths;
+  private int[] capacities;
+  private int pageCount;
+  private long dataEnd;
+
+  public PageTranslationMap(Path dataPath, int blockSize) throws IOException {
+    this.blockSize = blockSize;
+    this.data = new RandomAccessFile(dataPath.toFile(), "rw");
+    this.map = new RandomAccessFile(mapPath(dataPath).toFile(), "rw");
+    load();
+  }
+
+  public static Path mapPath(Path dataPath) {
+    return dataPath.resolveSibling(dataPath.getFileName() + MAP_SUFFIX);
+  }
+
+  /**
+   * Hapus file data dan file map milik sebuah file terkompresi.
+   */
+  public static boolean deleteFiles(Path dataPath) throws IOException {
+    boolean found = Files.deleteIfExists(dataPath);
+    found |= Files.deleteIfExists(mapPath(dataPath));
+    return found;
+  }
+
+  private void load() throws IOException {
+    int entries = (int) (map.length() / ENTRY_SIZE);
+    offsets = new long[Math.max(16, entries)];
+    lengths = new int[offsets.length];
+    capacities = new int[offsets.length];
+    map.seek(0);
+    for (int i = 0; i < entries; i++) {
+      offsets[i] = map.readLong();
+      lengths[i] = map.readInt();
+      capacities[i] = map.readInt();
+      dataEnd = Math.max(dataEnd, offsets[i] + capacities[i]);
+    }
+    pageCount = entries;
+  }
+
+  public synchronized long pageCount() {
+    return pageCount;
+  }
+
+  /**
+   * Baca dan dekompresi satu halaman logis.
+   *
+   * @return jumlah byte fisik yang dibaca dari disk
+   */
+  public synchronized int readPage(long pageNumber, byte[] target) throws IOException {
+    if (pageNumber < 0 || pageNumber >= pageCount) {
+      throw new IOException("Nomor blok " + pageNumber + " di luar batas file terkompresi");
+    }
+    int p = (int) pageNumber;
+    byte[] stored = new byte[lengths[p]];
+    data.seek(offsets[p]);
+    data.readFully(stored);
+
+    if (lengths[p] == blockSize) {
+      System.arraycopy(stored, 0, target, 0, blockSize);
+      return stored.length;
+    }
+
+    inflater.reset();
+    inflater.setInput(stored);
+    try {
+      int n = inflater.inflate(target, 0, blockSize);
+      if (n != blockSize) {
+        throw new IOException("Halaman terkompresi " + pageNumber + " korup (" + n + " byte)");
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Halaman terkompresi " + pageNumber + " korup", e);
+    }
+    return stored.length;
+  }
+
+  /**
+   * Kompresi lalu tulis satu halaman logis (harus tepat blockSize byte).
+   *
+   * @return jumlah byte fisik yang ditulis ke disk
+   */
+  public synchronized int writePage(long pageNumber, byte[] page) throws IOException {
+    if (pageNumber < 0 || pageNumber > Integer.MAX_VALUE) {
+      throw new IOException("Nomor blok " + pageNumber + " di luar batas file terkompresi");
+    }
+    byte[] stored = compress(page);
+    int p = (int) pageNumber;
+
+    // Halaman "bolong" di antara akhir map dan pageNumber diisi halaman kosong
+    while (pageCount < p) {
+      writePage(pageCount, new byte[blockSize]);
+    }
+    ensureCapacity(p + 1);
+
+    boolean fits = p < pageCount && stored.length <= capacities[p];
+    if (!fits) {
+      offsets[p] = dataEnd;
+      capacities[p] = align(stored.length);
+      dataEnd += capacities[p];
+    }
+    lengths[p] = stored.length;
+
+    data.seek(offsets[p]);
+    data.write(stored);
+    if (!fits) {
+      // Pastikan extent terakhir benar-benar sepanjang kapasitasnya
+      data.setLength(Math.max(data.length(), dataEnd));
+    }
+
+    map.seek((long) p * ENTRY_SIZE);
+    map.writeLong(offsets[p]);
+    map.writeInt(lengths[p]);
+    map.writeInt(capacities[p]);
+    pageCount = Math.max(pageCount, p + 1);
+    return stored.length;
+  }
+
+  private byte[] compress(byte[] page) {
+    deflater.reset();
+    deflater.setInput(page, 0, blockSize);
+    deflater.finish();
+    byte[] buffer = new byte[blockSize];
+    int n = deflater.deflate(buffer);
+    if (!deflater.finished() || n >= blockSize) {
+      // Tidak menguntungkan: simpan mentah
+      return Arrays.copyOf(page, blockSize);
+    }
+    return Arrays.copyOf(buffer, n);
+  }
+
+  private static int align(int length) {
+    return ((length + EXTENT_ALIGNMENT - 1) / EXTENT_ALIGNMENT) * EXTENT_ALIGNMENT;
+  }
+
+  private void ensureCapacity(int size) {
+    if (size <= offsets.length) {
+      return;
+    }
+    int newSize = Math.max(size, offsets.length * 2);
+    offsets = Arrays.copyOf(offsets, newSize);
+    lengths = Arrays.copyOf(lengths, newSize);
+    capacities = Arrays.copyOf(capacities, newSize);
+  }
+
+  /**
+   * Ukuran fisik (byte) seluruh extent, termasuk ruang kosong yang teralokasi.
+   */
+  public synchronized long physicalSize() {
+    return dataEnd;
+  }
+
+  public synchronized void force() throws IOException {
+    data.getChannel().force(true);
+    map.getChannel().force(true);
+  }
+
+  public synchronized void close() throws IOException {
+    deflater.end();
+    inflater.end();
+    data.close();
+    map.close();
+  }
+}
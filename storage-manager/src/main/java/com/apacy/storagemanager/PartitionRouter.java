@@ -0,0 +1,131 @@
+package com.apacy.storagemanager;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.apacy.common.dto.Column;
+import com.apacy.common.dto.PartitionSchema;
+import com.apacy.common.dto.Schema;
+import com.apacy.common.enums.DataType;
+import com.apacy.common.enums.PartitionType;
+
+/**
+ * Menentukan partisi tujuan sebuah baris dan memangkas (prune) partisi
+ * yang tidak mungkin memenuhi predikat pada kolom partisi.
+ */
+public final class PartitionRouter {
+
+  private PartitionRouter() {
+  }
+
+  /**
+   * Partisi tujuan untuk nilai kolom partisi.
+   */
+  public static int route(Schema schema, Object value) {
+    PartitionSchema partition = schema.partition();
+    if (partition.type() == PartitionType.HASH) {
+      Column col = schema.getColumnByName(partition.columnName());
+      return Math.floorMod(stableHash(col.type(), value), partition.partitionCount());
+    }
+    return rangePartition(partition.rangeBounds(), value);
+  }
+
+  /**
+   * Kandidat partisi untuk satu predikat "kolomPartisi op nilai".
+   * Predikat yang tidak bisa dipakai untuk pruning mengembalikan semua partisi.
+   */
+  public static BitSet candidates(Schema schema, String operator, Object value) {
+    PartitionSchema partition = schema.partition();
+    int count = partition.partitionCount();
+    BitSet result = new BitSet(count);
+
+    boolean equality = "=".equals(operator) || "==".equals(operator);
+    if (equality) {
+      result.set(route(schema, value));
+      return result;
+    }
+
+    if (partition.type() == PartitionType.RANGE) {
+      int p = rangePartition(partition.rangeBounds(), value);
+      switch (operator) {
+        case ">", ">=" -> {
+          result.set(p, count);
+          return result;
+        }
+        case "<=" -> {
+          result.set(0, p + 1);
+          return result;
+        }
+        case "<" -> {
+          // Partisi p dimulai tepat di nilai ini, jadi tidak mungkin berisi nilai < value
+          List<Object> bounds = partition.rangeBounds();
+          boolean atLowerBound = p > 0 && compare(value, bounds.get(p - 1)) == 0;
+          result.set(0, atLowerBound ? p : p + 1);
+          return result;
+        }
+        default -> {
+        }
+      }
+    }
+
+    // HASH tidak bisa memangkas predikat range, dan != tidak memangkas apa pun
+    result.set(0, count);
+    return result;
+  }
+
+  private static int rangePartition(List<Object> bounds, Object value) {
+    if (value == null) {
+      return 0;
+    }
+    for (int i = 0; i < bounds.size(); i++) {
+      if (compare(value, bounds.get(i)) < 0) {
+        return i;
+      }
+    }
+    return bounds.size();
+  }
+
+  /**
+   * Hash yang stabil lintas tipe literal (misal Integer vs Long, Float vs Double)
+   * karena dinormalisasi ke tipe kolom terlebih dahulu.
+   */
+  private static int stableHash(DataType type, Object value) {
+    if (value == null) {
+      return 0;
+    }
+    switch (type) {
+      case INTEGER:
+      case BIGINT:
+        if (value instanceof Number n) {
+          return Long.hashCode(n.longValue());
+        }
+        try {
+          return Long.hashCode(Long.parseLong(value.toString().trim()));
+        } catch (NumberFormatException e) {
+          return value.toString().hashCode();
+        }
+      case FLOAT:
+        if (value instanceof Number n) {
+          return Float.hashCode(n.floatValue());
+        }
+        try {
+          return Float.hashCode(Float.parseFloat(value.toString().trim()));
+        } catch (NumberFormatException e) {
+          return value.toString().hashCode();
+        }
+      default:
+        return value.toString().hashCode();
+    }
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static int compare(Object a, Object b) {
+    if (a instanceof Number x && b instanceof Number y) {
+      return Double.compare(x.doubleValue(), y.doubleValue());
+    }
+    if (a.getClass() == b.getClass() && a instanceof Comparable) {
+      return ((Comparable) a).compareTo(b);
+    }
+    return a.toString().compareTo(b.toString());
+  }
+}
@@ -0,0 +1,39 @@
+package com.apacy.storagemanager;
+
+/**
+ * Helper untuk Record Identifier (RID) 64-bit.
+ *
+ * Layout: 48 bit nomor blok (high) + 16 bit slot id (low).
+ * Dengan blok 4KB, satu tabel bisa menampung hingga 2^48 blok
+ * (jauh di atas batas lama 65.536 blok / 256MB pada RID 32-bit).
+ */
+public final class Rid {
+
+  public static final int SLOT_BITS = 16;
+  public static final long SLOT_MASK = (1L << SLOT_BITS) - 1;
+  public static final long MAX_BLOCK = (1L << (Long.SIZE - SLOT_BITS)) - 1;
+
+  private Rid() {
+  }
+
+  /**
+   * Gabungkan nomor blok dan slot id menjadi satu RID.
+   */
+  public static long encode(long blockNumber, int slotId) {
+    if (blockNumber < 0 || blockNumber > MAX_BLOCK) {
+      throw new IllegalArgumentException("Nomor blok di luar jangkauan RID: " + blockNumber);
+    }
+    if (slotId < 0 || slotId > SLOT_MASK) {
+      throw new IllegalArgumentException("Slot id di luar jangkauan RID: " + slotId);
+    }
+    return (blockNumber << SLOT_BITS) | slotId;
+  }
+
+  public static long blockOf(long rid) {
+    return rid >>> SLOT_BITS;
+  }
+
+  public static int slotOf(long rid) {
+    return (int) (rid & SLOT_MASK);
+  }
+}
@@ -32,7 +32,8 @@ public class Serializer {
     private static final int SLOT_SIZE = 8; // 4 + 4
     private static final int SLOT_OFFSET_OFFSET = 0;
     private static final int SLOT_LENGTH_OFFSET = 4;
-    private int lastSlotId = -1;
+    // Per thread: satu Serializer dipakai bersama oleh semua sesi yang menulis paralel
+    private final ThreadLocal<Integer> lastSlotId = ThreadLocal.withInitial(() -> -1);
 
     public Serializer(CatalogManager catalogManager) {
         this.catalogManager = catalogManager;
@@ -128,7 +129,7 @@ public class Serializer {
 
                 // Perbarui header blok
                 buffer.putInt(HEADER_FREE_SPACE_OFFSET, newDataOffset); // Geser pointer spasi kosong
-                this.lastSlotId = slotId;
+                this.lastSlotId.set(slotId);
 
                 return blockData;
             }
@@ -153,7 +154,7 @@ public class Serializer {
         // Perbarui header blok
         buffer.putInt(HEADER_SLOT_COUNT_OFFSET, slotCount + 1); // Tambah jumlah slot
         buffer.putInt(HEADER_FREE_SPACE_OFFSET, newDataOffset); // Geser pointer spasi kosong
-        this.lastSlotId = slotCount;
+        this.lastSlotId.set(slotCount);
 
         return blockData;
     }
@@ -193,6 +194,9 @@ public class Serializer {
                 case INTEGER: // INTEGER
                     buffer.putInt(toIntSafely(rawvalue, col.name()));
                     break;
+                case BIGINT: // BIGINT
+                    buffer.putLong(toLongSafely(rawvalue, col.name()));
+                    break;
                 case FLOAT: // FLOAT
                     buffer.putFloat(toFloatSafely(rawvalue, col.name()));
                     break;
@@ -225,6 +229,9 @@ public class Serializer {
                     case INTEGER: // INTEGER
                         rowData.put(col.name(), buffer.getInt());
                         break;
+                    case BIGINT: // BIGINT
+                        rowData.put(col.name(), buffer.getLong());
+                        break;
                     case FLOAT: // FLOAT
                         rowData.put(col.name(), buffer.getFloat());
                         break;
@@ -255,6 +262,38 @@ public class Serializer {
         return new Row(rowData);
     }
 
+    /**
+     * Konversi Row ke bentuk yang sama persis dengan hasil serialize lalu
+     * deserialize (tipe Java per kolom, NULL jadi nilai default, kolom di luar
+     * skema dibuang), tanpa menyentuh byte. Dipakai engine MEMORY agar baris
+     * yang disimpan identik dengan baris dari tabel disk.
+     */
+    public Row normalizeRow(Row row, Schema schema) throws IOException {
+        Map<String, Object> data = row.data();
+        Map<String, Object> normalized = new HashMap<>();
+        for (Column col : schema.columns()) {
+            Object rawvalue = data.get(col.name());
+            switch (col.type()) {
+                case INTEGER:
+                    normalized.put(col.name(), toIntSafely(rawvalue, col.name()));
+                    break;
+                case BIGINT:
+                    normalized.put(col.name(), toLongSafely(rawvalue, col.name()));
+                    break;
+                case FLOAT:
+                    normalized.put(col.name(), toFloatSafely(rawvalue, col.name()));
+                    break;
+                case CHAR:
+                case VARCHAR:
+                    normalized.put(col.name(), new String(toStringBytesSafely(rawvalue), StandardCharsets.UTF_8));
+                    break;
+                default:
+                    throw new IOException("Tipe data tidak didukung: " + col.type());
+            }
+        }
+        return new Row(normalized);
+    }
+
     /**
      * Calculate the estimated size of a serialized Row.
      * TODO: Implement size estimation logic
@@ -270,6 +309,9 @@ public class Serializer {
                 case INTEGER: // INTEGER
                     totalSize += Integer.BYTES; // 4 byte
                     break;
+                case BIGINT: // BIGINT
+                    totalSize += Long.BYTES; // 8 byte
+                    break;
                 case FLOAT: // FLOAT
                     totalSize += Float.BYTES; // 4 byte
                     break;
@@ -285,7 +327,7 @@ public class Serializer {
     }
 
     public int getLastPackedSlotId() {
-        return this.lastSlotId;
+        return this.lastSlotId.get();
     }
 
     public Row readRowAtSlot(byte[] blockData, Schema schema, int slotId) throws IOException {
@@ -357,6 +399,13 @@ public class Serializer {
     private int toIntSafely(Object value, String colName) throws IOException {
         if (value == null) return 0; // Default value untuk NULL
         if (value instanceof Integer) return (Integer) value;
+        if (value instanceof Long l) {
+            // Literal di luar rentang int (misal untuk kolom BIGINT) jangan dipotong diam-diam
+            if (l != l.intValue()) {
+                throw new IOException("Nilai " + l + " di luar rentang INT untuk kolom '" + colName + "', gunakan BIGINT");
+            }
+            return l.intValue();
+        }
         if (value instanceof Number) return ((Number) value).intValue();
         if (value instanceof String) {
             try {
@@ -371,6 +420,24 @@ public class Serializer {
         throw new IOException("Tipe data salah untuk kolom '" + colName + "'. Butuh INT, dapat: " + value.getClass().getSimpleName());
     }
 
+    /**
+     * Konversi aman ke Long.
+     * Menangani: Null, Long, Number (Integer/Short), String angka.
+     */
+    private long toLongSafely(Object value, String colName) throws IOException {
+        if (value == null) return 0L; // Default value untuk NULL
+        if (value instanceof Long) return (Long) value;
+        if (value instanceof Number) return ((Number) value).longValue();
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                throw new IOException("Kolom '" + colName + "' butuh BIGINT, tapi terima String non-angka: " + value);
+            }
+        }
+        throw new IOException("Tipe data salah untuk kolom '" + colName + "'. Butuh BIGINT, dapat: " + value.getClass().getSimpleName());
+    }
+
     /**
      * Konversi aman ke Float.
      * Menangani: Null, Float, Double, Number, String angka.
@@ -24,13 +24,16 @@ public class StatsCollector {
     
     // StatsCollector butuh akses ke semua komponen internal SM
     private final CatalogManager catalogManager;
-    private final BlockManager blockManager;
+    private final BufferPool bufferPool;
     private final Serializer serializer;
+    private final Map<String, MemoryTable> memoryTables; // Row store tabel ENGINE=MEMORY
 
-    public StatsCollector(CatalogManager catalogManager, BlockManager blockManager, Serializer serializer) {
+    public StatsCollector(CatalogManager catalogManager, BufferPool bufferPool, Serializer serializer,
+            Map<String, MemoryTable> memoryTables) {
         this.catalogManager = catalogManager;
-        this.blockManager = blockManager;
+        this.bufferPool = bufferPool;
         this.serializer = serializer;
+        this.memoryTables = memoryTables;
     }
     
     /**
@@ -60,12 +63,14 @@ public class StatsCollector {
      * Logika utama: Melakukan Full Table Scan untuk 1 tabel dan menghitung metriknya.
      */
     private Statistic collectStatsForTable(Schema schema) throws IOException {
-        String tableName = schema.tableName();
-        String dataFile = schema.dataFile();
-
         int nr = 0; // jumlah tuple
-        // 1. Dapatkan jumlah blok (br)
-        long br = blockManager.getBlockCount(dataFile);
+        // 1. Dapatkan jumlah blok (br), dijumlahkan dari semua partisi.
+        // Tabel ENGINE=MEMORY tidak punya blok (br = 0, biaya I/O nol).
+        long br = 0;
+        List<String> dataFiles = schema.isInMemory() ? List.of() : schema.dataFiles();
+        for (String dataFile : dataFiles) {
+            br += bufferPool.getBlockCount(dataFile);
+        }
         long totalRowSize = 0; // total ukuran byte semua tuple (untuk menghitung lr)
         
         // Map untuk V(A,r): Map<NamaKolom, Set<NilaiUnik>>
@@ -80,46 +85,45 @@ public class StatsCollector {
         }
 
        
-        // 2. Iterasi setiap blok untuk menghitung nr, lr, dan V(A,r)
-        for (long blockNumber = 0; blockNumber < br; blockNumber++) {
-            byte[] blockData = blockManager.readBlock(dataFile, blockNumber);
+        // 2. Iterasi setiap blok (di setiap file partisi) untuk menghitung nr, lr, dan V(A,r)
+        for (String dataFile : dataFiles) {
+            long fileBlocks = bufferPool.getBlockCount(dataFile);
+            for (long blockNumber = 0; blockNumber < fileBlocks; blockNumber++) {
+                byte[] blockData = bufferPool.readBlock(dataFile, blockNumber);
             
-            // 3. Deserialize blok (mendapatkan List<Row>)
-            // Kita perlu serializer untuk membaca struktur Slotted Page
-            List<Row> rowsInBlock = serializer.deserializeBlock(blockData, schema);
-
-            if (rowsInBlock != null && !rowsInBlock.isEmpty()) {
-                for (Row row : rowsInBlock) {
-                    // 4. Hitung nr (jumlah row)
-                    nr++;
+                // 3. Deserialize blok (mendapatkan List<Row>)
+                // Kita perlu serializer untuk membaca struktur Slotted Page
+                List<Row> rowsInBlock = serializer.deserializeBlock(blockData, schema);
+
+                if (rowsInBlock != null && !rowsInBlock.isEmpty()) {
+                    for (Row row : rowsInBlock) {
+                        // 4. Hitung nr (jumlah row)
+                        nr++;
                     
-                    // 5. Akumulasi total ukuran (menggunakan estimator serializer)
-                    totalRowSize += serializer.estimateSize(row, schema);
-
-                    // 6. Kumpulkan nilai unik untuk V(A,r)
-                    for (Map.Entry<String, Object> entry : row.data().entrySet()) {
-                        String colName = entry.getKey();
-                        Object val = entry.getValue();
-                        
-                        // Tambahkan nilai ke Set (duplikat akan diabaikan oleh HashSet)
-                        if (val == null) continue;
-
-                        // Kumpulkan Distinct Values
-                        if (distinctValues.containsKey(colName)) {
-                            distinctValues.get(colName).add(val);
-                        }
-
-                        // [BARU] Update Min/Max
-                        updateMinMax(minMap, maxMap, colName, val);
+                        // 5. Akumulasi total ukuran (menggunakan estimator serializer)
+                        totalRowSize += serializer.estimateSize(row, schema);
+
+                        // 6. Kumpulkan nilai unik untuk V(A,r)
+                        collectColumnValues(row, distinctValues, minMap, maxMap);
                     }
                 }
             }
         }
 
+        // Tabel ENGINE=MEMORY: baris langsung dari row store
+        MemoryTable memoryTable = schema.isInMemory() ? memoryTables.get(schema.tableName()) : null;
+        if (memoryTable != null) {
+            for (Row row : memoryTable.rows()) {
+                nr++;
+                totalRowSize += serializer.estimateSize(row, schema);
+                collectColumnValues(row, distinctValues, minMap, maxMap);
+            }
+        }
+
         // 7. Hitung statistik final (lr, fr)
         int lr = (nr == 0) ? 0 : (int) (totalRowSize / nr); 
         
-        int blockSize = blockManager.getBlockSize();
+        int blockSize = bufferPool.getBlockSize();
         
         // fr: blocking factor
         int fr = (lr == 0) ? 0 : (blockSize / lr); 
@@ -138,8 +142,39 @@ public class StatsCollector {
                 (a, b) -> a // Jaga-jaga jika ada duplikat
             ));
 
-        // 10. Kembalikan objek Statistic
-        return new Statistic(nr, (int) br, lr, fr, V, indexedColumn, minMap, maxMap);
+        // 10. Kolom yang bisa dijawab tiap indeks BPlusTree (kunci + INCLUDE) untuk index-only scan.
+        //     Indeks cluster key tidak punya entri terpisah (baris ada di halaman clustered).
+        Map<String, List<String>> indexIncludes = new HashMap<>();
+        for (IndexSchema index : schema.indexes()) {
+            if (index.indexType() == IndexType.BPlusTree && !index.columnName().equals(schema.clusterKey())) {
+                indexIncludes.putIfAbsent(index.columnName(), index.includeColumns());
+            }
+        }
+
+        // 11. Kembalikan objek Statistic
+        return new Statistic(nr, (int) br, lr, fr, V, indexedColumn, minMap, maxMap, indexIncludes);
+    }
+
+    /**
+     * Helper untuk mengumpulkan nilai unik dan min/max semua kolom sebuah baris
+     */
+    private void collectColumnValues(Row row, Map<String, Set<Object>> distinctValues,
+            Map<String, Object> minMap, Map<String, Object> maxMap) {
+        for (Map.Entry<String, Object> entry : row.data().entrySet()) {
+            String colName = entry.getKey();
+            Object val = entry.getValue();
+
+            // Tambahkan nilai ke Set (duplikat akan diabaikan oleh HashSet)
+            if (val == null) continue;
+
+            // Kumpulkan Distinct Values
+            if (distinctValues.containsKey(colName)) {
+                distinctValues.get(colName).add(val);
+            }
+
+            // [BARU] Update Min/Max
+            updateMinMax(minMap, maxMap, colName, val);
+        }
     }
 
     /**
@@ -1,12 +1,30 @@
 package com.apacy.storagemanager;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.apacy.common.DBMSComponent;
 import com.apacy.common.dto.Column;
@@ -16,23 +34,32 @@ import com.apacy.common.dto.DataUpdate;
 import com.apacy.common.dto.DataWrite;
 import com.apacy.common.dto.ForeignKeySchema;
 import com.apacy.common.dto.IndexSchema;
+import com.apacy.common.dto.PartitionSchema;
 import com.apacy.common.dto.Row;
 import com.apacy.common.dto.Schema;
 import com.apacy.common.dto.Statistic;
+import com.apacy.common.dto.TablespaceSchema;
 import com.apacy.common.dto.ast.expression.ColumnFactor;
 import com.apacy.common.dto.ast.expression.ExpressionNode;
 import com.apacy.common.dto.ast.expression.FactorNode;
 import com.apacy.common.dto.ast.expression.LiteralFactor;
+import com.apacy.common.dto.ast.expression.TermNode;
 import com.apacy.common.dto.ast.where.BinaryConditionNode;
 import com.apacy.common.dto.ast.where.ComparisonConditionNode;
+import com.apacy.common.dto.ast.where.LiteralConditionNode;
 import com.apacy.common.dto.ast.where.UnaryConditionNode;
 import com.apacy.common.enums.DataType;
 import com.apacy.common.enums.IndexType;
 import com.apacy.common.interfaces.IStorageManager;
 import com.apacy.storagemanager.index.BPlusIndex;
+import com.apacy.storagemanager.index.BitmapIndex;
+import com.apacy.storagemanager.index.BulkLoadable;
+import com.apacy.storagemanager.index.CompositeKey;
+import com.apacy.storagemanager.index.ExternalSorter;
 import com.apacy.storagemanager.index.HashIndex;
 import com.apacy.storagemanager.index.IIndex;
 import com.apacy.storagemanager.index.IndexManager;
+import com.apacy.storagemanager.index.RidBitmap;
 
 public class StorageManager extends DBMSComponent implements IStorageManager {
 
@@ -49,19 +76,56 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
         }
     }
 
+  /**
+   * Segmen fisik sebuah tabel: seluruh tabel (partition = -1) atau satu partisi.
+   * indexKey adalah kunci tabel di IndexManager untuk indeks lokal segmen ini.
+   */
+  private record Segment(String indexKey, String dataFile, int partition) {
+    IndexSchema localIndex(IndexSchema idx) {
+      if (partition < 0) {
+        return idx;
+      }
+      return new IndexSchema(idx.indexName(), idx.columnName(), idx.indexType(),
+          PartitionSchema.segmentFile(idx.indexFile(), partition), idx.tablespace(), idx.includeColumns(),
+          idx.unique());
+    }
+  }
+
   private final BlockManager blockManager;
+  private final BufferPool bufferPool; // Cache halaman data + page cleaner
   private final Serializer serializer;
   private final StatsCollector statsCollector;
   private final CatalogManager catalogManager;
   private final IndexManager indexManager; // Helper class untuk B+Tree/Hash
+  private final ExecutorService partitionScanExecutor; // Scan paralel antar partisi
+  private final Map<String, MemoryTable> memoryTables = new ConcurrentHashMap<>(); // Tabel ENGINE=MEMORY
+  private final Map<String, ClusteredIndex> clusteredTables = new ConcurrentHashMap<>(); // Tabel CLUSTERED
+
+  static final double DEFAULT_INDEX_FILL_FACTOR = 0.9;
+  static final int DEFAULT_INDEX_SORT_RUN_ENTRIES = 200_000;
+  private static final long INDEX_BUILD_BLOCKS_PER_TASK = 64;
+  private static final int FETCH_WINDOW_BITS = 10;
+  private static final int FETCH_WINDOW_MIN = 8; // RID per jendela fetch heap pertama, lalu berlipat dua
+  private static final int FETCH_WINDOW_MAX = 1 << FETCH_WINDOW_BITS;
+  private static final long FETCH_WINDOW_POS_MASK = FETCH_WINDOW_MAX - 1;
+  private volatile double indexFillFactor = DEFAULT_INDEX_FILL_FACTOR; // Porsi halaman terisi saat bulk build indeks
+  private volatile int indexSortRunEntries = DEFAULT_INDEX_SORT_RUN_ENTRIES; // Entri per run external sort
 
   public StorageManager(String dataDirectory) {
     super("Storage Manager");
     this.catalogManager = new CatalogManager(dataDirectory + "/system_catalog.dat");
     this.blockManager = new BlockManager(dataDirectory);
+    this.bufferPool = new BufferPool(this.blockManager);
     this.serializer = new Serializer(this.catalogManager);
-    this.statsCollector = new StatsCollector(this.catalogManager, this.blockManager, this.serializer);
+    this.statsCollector = new StatsCollector(this.catalogManager, this.bufferPool, this.serializer,
+        this.memoryTables);
     this.indexManager = new IndexManager();
+    this.partitionScanExecutor = Executors.newFixedThreadPool(
+        Math.max(1, Runtime.getRuntime().availableProcessors()), r -> {
+          Thread t = new Thread(r, "partition-scan");
+          t.setDaemon(true);
+          return t;
+        });
   }
 
   @Override
@@ -73,11 +137,29 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
 
       for (Schema schema : catalogManager.getAllSchemas()) {
         System.out.println("Processing schema: " + schema.tableName());
+        if (schema.isInMemory()) {
+          // Isi tabel volatil tidak bertahan antar restart, hanya strukturnya
+          memoryTables.put(schema.tableName(), newMemoryTable(schema));
+          continue;
+        }
+        applyLayouts(schema);
+        if (schema.isClustered()) {
+          ClusteredIndex clustered = new ClusteredIndex(schema, schema.dataFile(), bufferPool, serializer);
+          clustered.load();
+          clusteredTables.put(schema.tableName(), clustered);
+        }
         for (IndexSchema idx : schema.indexes()) {
+          if (isClusterKeyIndex(schema, idx)) {
+            continue; // Dilayani direktori halaman tabel clustered
+          }
           System.out.println("Creating index: " + idx.indexName() + " for column: " + idx.columnName());
           try {
-            IIndex<?, ?> index = createIndexInstance(schema, idx);
-            indexManager.register(schema.tableName(), idx.columnName(), idx.indexType().toString(), index);
+            for (Segment segment : segmentsOf(schema)) {
+              // File indeks baru dibuka saat pertama dipakai atau oleh warmUpIndexes
+              IIndex<?, ?> index = createIndexInstance(schema, segment.localIndex(idx));
+              indexManager.registerLazy(segment.indexKey(), idx.columnName(), idx.indexType().toString(), index,
+                  () -> openIndex(schema, segment, idx, index));
+            }
             System.out.println("Successfully created index: " + idx.indexName());
           } catch (Exception indexError) {
             System.err.println("Error creating index " + idx.indexName() + ": " + indexError.getMessage());
@@ -85,17 +167,109 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
           }
         }
       }
-      this.indexManager.loadAll(this.catalogManager);
+      this.bufferPool.start();
     } catch (Exception e) {
       System.err.println("Gagal menginitialize Storage Manager! " + e.getMessage());
     }
   }
 
+  /**
+   * Buka file indeks yang didaftarkan lazy saat initialize. File berformat
+   * lama (satu baris per node/entri), snapshot yang tidak bersih, atau file
+   * yang hilang dikosongkan saat dibuka; isi ulang dari tabelnya sekali di sini.
+   *
+   * Kalau gagal, exception diteruskan ke IndexManager (slot ditandai rusak
+   * dan pemanggil kembali ke scan heap) dan file indeksnya dihapus: selama
+   * rusak penulisan tidak memperbaruinya, jadi startup berikutnya harus
+   * membangunnya ulang dari tabel, bukan memercayai isinya.
+   */
+  private void openIndex(Schema schema, Segment segment, IndexSchema idx, IIndex<?, ?> index) {
+    try {
+      boolean missing = bufferPool.getBlockCount(segment.localIndex(idx).indexFile()) == 0;
+      index.loadFromFile(catalogManager);
+      if (!missing && !index.isRebuildRequired()) {
+        return;
+      }
+      @SuppressWarnings("unchecked")
+      IIndex<Object, Long> typedIndex = (IIndex<Object, Long>) index;
+      populateIndexFromTable(schema, segment.dataFile(), typedIndex, idx);
+      index.markRebuilt();
+      System.out.println("Rebuilt index " + idx.indexName() + " in page format");
+    } catch (Exception e) {
+      System.err.println("Gagal membuka indeks " + idx.indexName() + ": " + e.getMessage());
+      index.remove();
+      throw e instanceof RuntimeException re ? re
+          : new IllegalStateException("Gagal membuka indeks " + idx.indexName(), e);
+    }
+  }
+
+  /**
+   * Pastikan indeks segmen sudah dibuka (dan dibangun ulang bila perlu) sebelum
+   * penulisan memegang latch halaman heap, karena rebuild ikut membaca heap.
+   */
+  private void openIndexes(Schema schema, Segment segment) {
+    for (IndexSchema idx : schema.indexes()) {
+      indexManager.get(segment.indexKey(), idx.columnName(), idx.indexType().toString());
+    }
+  }
+
+  /**
+   * Buka semua indeks yang belum dibuka di background dengan threads thread,
+   * supaya query pertama tidak menanggung biaya membuka indeks. Server tetap
+   * melayani selama warm-up; indeks yang diminta sebelum giliran warm-up-nya
+   * dibuka oleh pemintanya. Progres dicetak setiap indeks selesai dan bisa
+   * dibaca lewat {@link #getIndexWarmUpProgress()}.
+   *
+   * @param threads jumlah thread warm-up; 0 = tanpa warm-up (murni lazy)
+   */
+  public CompletableFuture<Void> warmUpIndexes(int threads) {
+    if (threads <= 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "index-warmup");
+      t.setDaemon(true);
+      return t;
+    });
+    long start = System.nanoTime();
+    return indexManager.warmUp(pool, progress -> System.out.println("[StorageManager] Index warm-up: " + progress))
+        .whenComplete((ignored, error) -> {
+          pool.shutdown();
+          System.out.printf("[StorageManager] Index warm-up selesai dalam %d ms: %s%n",
+              (System.nanoTime() - start) / 1_000_000, indexManager.progress());
+        });
+  }
+
+  public IndexManager.WarmUpProgress getIndexWarmUpProgress() {
+    return indexManager.progress();
+  }
+
   @Override
   public void shutdown() {
 
-    indexManager.flushAll(this.catalogManager);
+    try {
+      // Meta indeks ditandai bersih setelah semua halaman tertulis; shutdown
+      // menulis meta tersebut bersama sisa halaman dirty
+      indexManager.flushAll(this.catalogManager, bufferPool::flushAll);
+    } catch (IOException e) {
+      System.err.println("Gagal checkpoint indeks saat shutdown: " + e.getMessage());
+    }
+    try {
+      bufferPool.shutdown();
+    } catch (IOException e) {
+      System.err.println("Gagal menulis halaman dirty saat shutdown: " + e.getMessage());
+    }
+    partitionScanExecutor.shutdown();
+  }
 
+  /**
+   * Tulis semua halaman dirty di buffer pool ke disk lalu fsync.
+   * Dipanggil oleh checkpoint; statement biasa tidak menunggu fsync.
+   */
+  public void flushDirtyPages() throws IOException {
+    // Snapshot indeks bitmap ikut halaman dirty; meta bersih ditulis sesudahnya
+    indexManager.flushAll(this.catalogManager, bufferPool::flushAll);
+    bufferPool.flushAll();
   }
 
   public CatalogManager getCatalogManager() {
@@ -107,33 +281,241 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
     return this.catalogManager.getSchema(tableName);
   }
 
-  private List<Row> fetchRowsFromRids(List<Integer> rids, Schema schema, Object filterRoot, List<String> columns) throws IOException {
-    List<Row> results = new ArrayList<>();
-    String fileName = schema.dataFile();
+  // ==================================================================================
+  // ITERATOR BARIS (LAZY)
+  // ==================================================================================
 
-    for (int encodedRid : rids) {
-        // dapetin rid: Block Number (High 16 bits) & Slot ID (Low 16 bits)
-        long blockNo = (encodedRid >>> 16);
-        int slotNo = encodedRid & 0xFFFF;
+  /**
+   * Iterator yang menghitung elemen berikutnya hanya saat diminta; computeNext
+   * mengembalikan null jika sudah habis.
+   */
+  private abstract static class LazyIterator<T> implements Iterator<T> {
+    private T nextItem;
+    private boolean done;
 
-        byte[] blockData = blockManager.readBlock(fileName, blockNo);
-        
-        Row row = serializer.readRowAtSlot(blockData, schema, slotNo);
+    protected abstract T computeNext() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+      if (nextItem == null && !done) {
+        try {
+          nextItem = computeNext();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        done = nextItem == null;
+      }
+      return nextItem != null;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      T item = nextItem;
+      nextItem = null;
+      return item;
+    }
+  }
+
+  /**
+   * RID dari indeks untuk rentang kunci: B+ tree dibaca leaf demi leaf,
+   * indeks bitmap mengembalikan RID urut blok, indeks hash (hanya equality)
+   * mengembalikan isi bucket-nya.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static PrimitiveIterator.OfLong ridsOf(IIndex<?, ?> index, Object min, boolean minInclusive, Object max,
+      boolean maxInclusive) {
+    if (index instanceof BPlusIndex btree) {
+      return btree.ridIterator((Comparable) min, minInclusive, (Comparable) max, maxInclusive);
+    }
+    if (index instanceof BitmapIndex bitmap) {
+      return bitmap.bitmap(min, minInclusive, max, maxInclusive).iterator();
+    }
+    List<Long> rids = ((IIndex) index).getAddresses(min, minInclusive, max, maxInclusive);
+    return rids.stream().mapToLong(Long::longValue).iterator();
+  }
+
+  /**
+   * Ambil baris heap untuk RID dari indeks dengan urutan bebas; lihat
+   * {@link #fetchRows(PrimitiveIterator.OfLong, Schema, String, Object, List, boolean)}.
+   */
+  private Iterator<Row> fetchRows(PrimitiveIterator.OfLong rids, Schema schema, String fileName, Object filterRoot,
+      List<String> columns) {
+    return fetchRows(rids, schema, fileName, filterRoot, columns, false);
+  }
+
+  /**
+   * Ambil baris heap untuk RID dari indeks per jendela RID. Setiap jendela
+   * dikelompokkan per nomor blok, sehingga blok yang muncul berkali-kali di
+   * jendela cukup di-latch dan dibaca sekali dan aksesnya urut blok, bukan
+   * acak. Slot yang diminta saja yang di-decode. Jendela mulai kecil dan
+   * membesar dua kali lipat (sampai {@link #FETCH_WINDOW_MAX}), jadi pemanggil
+   * yang berhenti setelah beberapa baris (LIMIT) tetap hanya membaca sedikit
+   * leaf indeks dan halaman heap.
+   *
+   * @param keepOrder true = baris dikembalikan sesuai urutan RID masuk (urutan
+   *                  indeks, misalnya untuk ORDER BY); blok tetap dibaca sekali
+   *                  per jendela saat baris pertamanya diminta. false = baris
+   *                  dikembalikan urut blok.
+   */
+  private Iterator<Row> fetchRows(PrimitiveIterator.OfLong rids, Schema schema, String fileName, Object filterRoot,
+      List<String> columns, boolean keepOrder) {
+    return new LazyIterator<>() {
+      private final long[] window = new long[FETCH_WINDOW_MAX];
+      private final long[] keys = new long[FETCH_WINDOW_MAX]; // (blok << FETCH_WINDOW_BITS) | posisi, terurut
+      private final Row[] rows = new Row[FETCH_WINDOW_MAX];
+      private final boolean[] loaded = new boolean[FETCH_WINDOW_MAX];
+      private int windowSize = FETCH_WINDOW_MIN;
+      private int count;
+      private int next;
+      private long cachedBlock = -1;
+      private byte[] cachedData;
+
+      @Override
+      protected Row computeNext() throws IOException {
+        while (true) {
+          if (next >= count && !fillWindow()) {
+            return null;
+          }
+          int pos = keepOrder ? next : (int) (keys[next] & FETCH_WINDOW_POS_MASK);
+          next++;
+          if (!loaded[pos]) {
+            loadBlock(Rid.blockOf(window[pos]));
+          }
+          Row row = rows[pos];
+          rows[pos] = null;
+
+          // reevaluate buat
+          // 1. Hash Index collisions
+          // 2. Compound predicates (misal index di 'id', tapi querynya 'id=1 AND name="A"')
+          if (row != null && evaluateCondition(row, filterRoot)) {
+            return projectColumns(row, columns);
+          }
+        }
+      }
+
+      private boolean fillWindow() {
+        count = 0;
+        next = 0;
+        while (count < windowSize && rids.hasNext()) {
+          // dapetin rid: Block Number (High 48 bits) & Slot ID (Low 16 bits)
+          window[count] = rids.nextLong();
+          keys[count] = (Rid.blockOf(window[count]) << FETCH_WINDOW_BITS) | count;
+          loaded[count] = false;
+          count++;
+        }
+        Arrays.sort(keys, 0, count);
+        windowSize = Math.min(windowSize * 2, FETCH_WINDOW_MAX);
+        return count > 0;
+      }
+
+      /**
+       * Baca blok sekali lalu decode semua slot jendela yang ada di blok itu.
+       */
+      private void loadBlock(long blockNo) throws IOException {
+        if (blockNo != cachedBlock) {
+          cachedData = readPageShared(fileName, blockNo);
+          cachedBlock = blockNo;
+        }
+        int i = lowerBound(blockNo << FETCH_WINDOW_BITS);
+        for (; i < count && (keys[i] >>> FETCH_WINDOW_BITS) == blockNo; i++) {
+          int pos = (int) (keys[i] & FETCH_WINDOW_POS_MASK);
+          rows[pos] = serializer.readRowAtSlot(cachedData, schema, Rid.slotOf(window[pos]));
+          loaded[pos] = true;
+        }
+      }
+
+      private int lowerBound(long key) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+          int mid = (lo + hi) >>> 1;
+          if (keys[mid] < key) {
+            lo = mid + 1;
+          } else {
+            hi = mid;
+          }
+        }
+        return lo;
+      }
+    };
+  }
 
-        if (row != null) {
-            // reevaluate buat
-            // 1. Hash Index collisions
-            // 2. Compound predicates (misal index di 'id', tapi querynya 'id=1 AND name="A"')
+  /**
+   * Full scan file heap; blok berikutnya dibaca saat baris blok sebelumnya habis.
+   */
+  private Iterator<Row> heapScan(Schema schema, String fileName, Object filterRoot, List<String> columns)
+      throws IOException {
+    long blockCount = bufferPool.getBlockCount(fileName);
+    return new LazyIterator<>() {
+      private long nextBlock;
+      private Iterator<Row> blockRows = Collections.emptyIterator();
+
+      @Override
+      protected Row computeNext() throws IOException {
+        while (true) {
+          while (blockRows.hasNext()) {
+            Row row = blockRows.next();
             if (evaluateCondition(row, filterRoot)) {
-                results.add(projectColumns(row, columns));
+              return projectColumns(row, columns);
             }
+          }
+          if (nextBlock >= blockCount) {
+            return null;
+          }
+          blockRows = serializer.deserializeBlock(readPageShared(fileName, nextBlock++), schema).iterator();
         }
-    }
-    return results;
-}
+      }
+    };
+  }
+
+  /**
+   * Urutkan baris seperti SortOperator: NULL dianggap paling besar, jadi berada
+   * di akhir urutan naik dan di awal urutan turun.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static void sortRows(List<Row> rows, String column, boolean descending) {
+    Comparator<Row> comparator = (a, b) -> {
+      Object x = a.data().get(column);
+      Object y = b.data().get(column);
+      if (x == null || y == null) {
+        return x == y ? 0 : (x == null ? 1 : -1);
+      }
+      if (x instanceof Number n1 && y instanceof Number n2 && x.getClass() != y.getClass()) {
+        return Double.compare(n1.doubleValue(), n2.doubleValue());
+      }
+      if (x.getClass() == y.getClass() && x instanceof Comparable c) {
+        return c.compareTo(y);
+      }
+      return x.toString().compareTo(y.toString());
+    };
+    rows.sort(descending ? comparator.reversed() : comparator);
+  }
+
+  private Iterator<Row> filterRows(Iterator<Row> source, Object filterRoot, List<String> columns) {
+    return new LazyIterator<>() {
+      @Override
+      protected Row computeNext() {
+        while (source.hasNext()) {
+          Row row = source.next();
+          if (evaluateCondition(row, filterRoot)) {
+            return projectColumns(row, columns);
+          }
+        }
+        return null;
+      }
+    };
+  }
 
   @Override
     public List<Row> readBlock(DataRetrieval dataRetrieval) {
+        if (dataRetrieval.orderBy() != null) {
+            List<Row> rows = new ArrayList<>();
+            scanBlock(dataRetrieval).forEachRemaining(rows::add);
+            return rows;
+        }
         try {
             // 1. Validasi Skema
             Schema schema = catalogManager.getSchema(dataRetrieval.tableName());
@@ -146,87 +528,26 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
             
             // 3. Analisis AST untuk potensi penggunaan indeks
             List<IndexLookupRequest> indexPredicates = extractIndexPredicates(filterRoot, schema);
-            
-            // Index Scan
-            if (dataRetrieval.useIndex() && !indexPredicates.isEmpty()) {
-                for (IndexSchema idxSchema : schema.indexes()) {
-                    IIndex<?,?> index = indexManager.get(
-                        schema.tableName(), 
-                        idxSchema.columnName(), 
-                        idxSchema.indexType().toString()
-                    );
-                    
-                    if (index == null) continue;
-
-                    // A. Cek Equality Lookup (=)
-                    Object eqValue = null;
-                    for (IndexLookupRequest req : indexPredicates) {
-                        if (req.columnName.equals(idxSchema.columnName()) && 
-                           ("=".equals(req.operator) || "==".equals(req.operator))) {
-                            eqValue = req.value;
-                            break;
-                        }
-                    }
 
-                    if (eqValue != null) {
-                        // Cast ke raw type atau unchecked untuk menghindar masalah generic
-                        @SuppressWarnings({"unchecked", "rawtypes"})
-                        List<Integer> rids = ((IIndex)index).getAddress(eqValue);
-                        
-                        return fetchRowsFromRids(rids, schema, filterRoot, dataRetrieval.columns());
-                    }
-                    
-                    // B. Cek Range Scan (Hanya BPlusTree)
-                    if (idxSchema.indexType() == IndexType.BPlusTree && index instanceof BPlusIndex) {
-                        Comparable<?> minVal = null;
-                        boolean minInclusive = true;
-                        Comparable<?> maxVal = null;
-                        boolean maxInclusive = true;
-                        boolean rangeFound = false;
-
-                        for (IndexLookupRequest req : indexPredicates) {
-                            if (!req.columnName.equals(idxSchema.columnName())) continue;
-                            
-                            if (!(req.value instanceof Comparable)) continue;
-                            Comparable<?> val = (Comparable<?>) req.value;
-
-                            if (">=".equals(req.operator)) {
-                                minVal = val; minInclusive = true; rangeFound = true;
-                            } else if (">".equals(req.operator)) {
-                                minVal = val; minInclusive = false; rangeFound = true;
-                            } else if ("<=".equals(req.operator)) {
-                                maxVal = val; maxInclusive = true; rangeFound = true;
-                            } else if ("<".equals(req.operator)) {
-                                maxVal = val; maxInclusive = false; rangeFound = true;
-                            }
-                        }
-
-                        if (rangeFound) {
-                            @SuppressWarnings({"unchecked", "rawtypes"})
-                            BPlusIndex btree = (BPlusIndex) index;
-                            
-                            List<Integer> rids = btree.getAddresses(minVal, minInclusive, maxVal, maxInclusive);
-                            
-                            return fetchRowsFromRids(rids, schema, filterRoot, dataRetrieval.columns());
-                        }
-                    }
-                }
+            if (schema.isInMemory()) {
+                return readMemory(schema, dataRetrieval, filterRoot, indexPredicates);
+            }
+            
+            // 4. Pruning partisi berdasarkan predikat pada kolom partisi
+            List<Segment> segments = pruneSegments(schema, indexPredicates);
+            if (segments.size() == 1) {
+                return readSegment(schema, segments.get(0), dataRetrieval, filterRoot, indexPredicates);
             }
 
-            // --- STRATEGI 2: FULL TABLE SCAN (Fallback) ---
-            String fileName = schema.dataFile();
+            // Partisi yang tersisa dipindai paralel, hasil digabung sesuai urutan partisi
+            List<Future<List<Row>>> scans = new ArrayList<>();
+            for (Segment segment : segments) {
+                scans.add(partitionScanExecutor.submit(
+                    () -> readSegment(schema, segment, dataRetrieval, filterRoot, indexPredicates)));
+            }
             List<Row> allRows = new ArrayList<>();
-            long blockCount = blockManager.getBlockCount(fileName);
-
-            for (long i = 0; i < blockCount; i++) {
-                byte[] block = blockManager.readBlock(fileName, i);
-                List<Row> rows = serializer.deserializeBlock(block, schema);
-                
-                for (Row row : rows) {
-                    if (evaluateCondition(row, filterRoot)) { 
-                        allRows.add(projectColumns(row, dataRetrieval.columns()));
-                    }
-                }
+            for (Future<List<Row>> scan : scans) {
+                allRows.addAll(scan.get());
             }
             return allRows;
 
@@ -241,113 +562,678 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
         }
     }
 
-  // ==================================================================================
-  // [AST EVALUATOR] LOGIKA UTAMA FILTERING
-  // ==================================================================================
+    /**
+     * Versi lazy readBlock untuk tabel satu segmen: leaf indeks dan halaman heap
+     * dibaca saat iterator maju, sehingga LIMIT atau join yang berhenti lebih
+     * awal tidak membaca sisanya. Tabel in-memory dan tabel partisi (dipindai
+     * paralel) tetap dibaca utuh lewat readBlock.
+     */
+    @Override
+    public Iterator<Row> scanBlock(DataRetrieval dataRetrieval) {
+        try {
+            Schema schema = catalogManager.getSchema(dataRetrieval.tableName());
+            if (schema == null) {
+                throw new IOException("Tabel tidak ditemukan di katalog: " + dataRetrieval.tableName());
+            }
+            if (!schema.isInMemory()) {
+                Object filterRoot = dataRetrieval.filterCondition();
+                List<IndexLookupRequest> indexPredicates = extractIndexPredicates(filterRoot, schema);
+                List<Segment> segments = pruneSegments(schema, indexPredicates);
+                if (segments.size() == 1) {
+                    if (dataRetrieval.orderBy() == null) {
+                        return scanSegment(schema, segments.get(0), dataRetrieval, filterRoot, indexPredicates);
+                    }
+                    Iterator<Row> ordered = orderedScan(schema, segments.get(0), dataRetrieval, filterRoot,
+                        indexPredicates);
+                    if (ordered != null) {
+                        return ordered;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[StorageManager] Error reading block: " + e.getMessage());
+            return Collections.emptyIterator();
+        }
+        if (dataRetrieval.orderBy() != null) {
+            return readSorted(dataRetrieval).iterator();
+        }
+        return readBlock(dataRetrieval).iterator();
+    }
 
-  /**
-   * Mengevaluasi apakah Row memenuhi kondisi filter (AST).
-   * Mendukung: AND, OR, =, >, <, >=, <=, !=
-   */
-  private boolean evaluateCondition(Row row, Object condition) {
-    // Jika filter null, berarti "SELECT *", semua lolos.
-    if (condition == null) {
-      return true;
+    /**
+     * COUNT(*) dari indeks bitmap bila seluruh kondisi (AND/OR/NOT atas
+     * "kolom op literal") bisa dijawab tepat oleh indeks bitmap: jumlahnya
+     * kardinalitas hasil operasi bitmap tiap partisi, tanpa membaca heap.
+     * Selain itu baris dipindai dan dihitung.
+     */
+    @Override
+    public long countRows(DataRetrieval dataRetrieval) {
+        Schema schema = catalogManager.getSchema(dataRetrieval.tableName());
+        if (schema != null && !schema.isInMemory() && dataRetrieval.useIndex()) {
+            Object filterRoot = dataRetrieval.filterCondition();
+            long total = 0;
+            for (Segment segment : pruneSegments(schema, extractIndexPredicates(filterRoot, schema))) {
+                long count = exactCount(filterRoot, schema, segment);
+                if (count < 0) {
+                    total = -1;
+                    break;
+                }
+                total += count;
+            }
+            if (total >= 0) {
+                return total;
+            }
+        }
+        return IStorageManager.super.countRows(dataRetrieval);
     }
 
-    // 1. Handle Logika Binary (AND / OR)
-    if (condition instanceof BinaryConditionNode bin) {
-      boolean leftResult = evaluateCondition(row, bin.left());
-      boolean rightResult = evaluateCondition(row, bin.right());
+    /**
+     * Scan terurut menurut dataRetrieval.orderBy() lewat indeks B+ tree satu kolom
+     * pada kolom tersebut: RID diambil dari leaf sesuai urutan kunci (naik atau
+     * turun) dan baris heap dibaca satu per satu, sehingga ORDER BY ... LIMIT k
+     * hanya membaca sekitar k entri indeks dan k baris. Predikat pada kolom yang
+     * sama mempersempit rentang indeks. Heap menyimpan NULL sebagai nilai default
+     * tipe (0 atau ""), sama seperti kunci indeks, jadi urutannya sama dengan
+     * hasil SortOperator atas baris yang dibaca. null jika tidak ada indeks yang
+     * cocok.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Iterator<Row> orderedScan(Schema schema, Segment segment, DataRetrieval dataRetrieval, Object filterRoot,
+            List<IndexLookupRequest> indexPredicates) throws IOException {
+        Column keyColumn = schema.getColumnByName(
+            dataRetrieval.orderBy().substring(dataRetrieval.orderBy().lastIndexOf(".") + 1));
+        if (keyColumn == null) {
+            return null;
+        }
+        String column = keyColumn.name();
+        for (IndexSchema idxSchema : schema.indexes()) {
+            if (idxSchema.isComposite() || idxSchema.indexType() != IndexType.BPlusTree
+                    || !idxSchema.columnName().equals(column)) {
+                continue;
+            }
+            if (!(indexManager.get(segment.indexKey(), column, IndexType.BPlusTree.toString())
+                    instanceof BPlusIndex btree)) {
+                continue;
+            }
 
-      if ("AND".equalsIgnoreCase(bin.operator())) {
-        return leftResult && rightResult;
-      } else if ("OR".equalsIgnoreCase(bin.operator())) {
-        return leftResult || rightResult;
-      }
+            KeyRange range = columnRange(column, indexPredicates);
+            if (range == null) {
+                range = new KeyRange(null, true, null, true);
+            }
+            return fetchRows(btree.ridIterator((Comparable) range.min(), range.minInclusive(),
+                (Comparable) range.max(), range.maxInclusive(), dataRetrieval.descending()), schema,
+                segment.dataFile(), filterRoot, dataRetrieval.columns(), true);
+        }
+        return null;
     }
 
-    // 2. Handle Perbandingan (=, >, <, dll)
-    if (condition instanceof ComparisonConditionNode comp) {
-      Object leftVal = extractValue(row, comp.leftOperand());
-      Object rightVal = extractValue(row, comp.rightOperand());
-      return compareValues(leftVal, rightVal, comp.operator());
+    /**
+     * Fallback urutan untuk tabel tanpa indeks B+ tree pada kolom urutan, tabel
+     * in-memory, dan tabel partisi: baca semua baris lalu urutkan.
+     */
+    private List<Row> readSorted(DataRetrieval dataRetrieval) {
+        List<Row> rows = new ArrayList<>(readBlock(new DataRetrieval(dataRetrieval.tableName(), null,
+            dataRetrieval.filterCondition(), dataRetrieval.useIndex())));
+        String column = dataRetrieval.orderBy().substring(dataRetrieval.orderBy().lastIndexOf(".") + 1);
+        sortRows(rows, column, dataRetrieval.descending());
+        rows.replaceAll(row -> projectColumns(row, dataRetrieval.columns()));
+        return rows;
     }
 
-    // 3. Handle Unary (NOT) - Jika ada di DTO common
-    if (condition instanceof UnaryConditionNode unary) {
-      if ("NOT".equalsIgnoreCase(unary.operator())) {
-        return !evaluateCondition(row, unary.operand());
-      }
+    /**
+     * Membaca satu segmen (tabel utuh atau satu partisi) seluruhnya ke memori.
+     */
+    private List<Row> readSegment(Schema schema, Segment segment, DataRetrieval dataRetrieval, Object filterRoot,
+            List<IndexLookupRequest> indexPredicates) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        scanSegment(schema, segment, dataRetrieval, filterRoot, indexPredicates).forEachRemaining(rows::add);
+        return rows;
     }
 
-    return false;
-  }
+    /**
+     * Iterator baris satu segmen, memakai indeks lokal segmen jika memungkinkan,
+     * atau full scan file segmen sebagai fallback. Leaf B+ tree dan halaman heap
+     * dibaca saat iterator maju, jadi pemanggil yang berhenti lebih awal tidak
+     * membaca sisanya.
+     */
+    private Iterator<Row> scanSegment(Schema schema, Segment segment, DataRetrieval dataRetrieval, Object filterRoot,
+            List<IndexLookupRequest> indexPredicates) throws IOException {
+        ClusteredIndex clustered = clusteredTables.get(schema.tableName());
+        List<String> columns = dataRetrieval.columns();
+        AccessPath path = dataRetrieval.useIndex()
+            ? chooseAccessPath(schema, segment, filterRoot, indexPredicates, !dataRetrieval.indexOnly())
+            : AccessPath.FULL_SCAN;
+        KeyRange range = path.range();
+
+        switch (path.kind()) {
+            case CLUSTER_RANGE:
+                // Tabel clustered: halaman yang rentangnya cocok dibaca langsung
+                return filterRows(clustered.rows(schema, range.min(), range.minInclusive(), range.max(),
+                    range.maxInclusive()).iterator(), filterRoot, columns);
+            case BITMAP_HEAP:
+                return fetchRows(indexRids(filterRoot, schema, segment).iterator(), schema, segment.dataFile(),
+                    filterRoot, columns);
+            case INDEX_RANGE:
+                BPlusIndex<?, ?> covering = coveringIndex(path.indexSchema(), path.index(), dataRetrieval, filterRoot);
+                if (covering != null) {
+                    return scanCovering(covering, range.min(), range.minInclusive(), range.max(),
+                        range.maxInclusive(), filterRoot, columns);
+                }
+                return fetchRows(ridsOf(path.index(), range.min(), range.minInclusive(), range.max(),
+                    range.maxInclusive()), schema, segment.dataFile(), filterRoot, columns);
+            default:
+                break;
+        }
+
+        // --- FULL TABLE SCAN (Fallback) ---
+        if (clustered != null) {
+            // Urutan hasil mengikuti kunci cluster
+            return filterRows(clustered.rows(schema, null, true, null, true).iterator(), filterRoot, columns);
+        }
+        return heapScan(schema, segment.dataFile(), filterRoot, columns);
+    }
+
+  // ==================================================================================
+  // PEMILIHAN JALUR AKSES
+  // ==================================================================================
 
   /**
-   * Mengambil nilai real dari ExpressionNode (bisa dari Kolom Row atau Literal).
+   * Jalur akses satu segmen untuk predikat WHERE, dipakai bersama oleh
+   * SELECT, DELETE, dan UPDATE. index/indexSchema hanya terisi untuk
+   * INDEX_RANGE; range kosong untuk BITMAP_HEAP dan FULL_SCAN.
    */
-  private Object extractValue(Row row, ExpressionNode expr) {
-    if (expr == null || expr.term() == null || expr.term().factor() == null)
-      return null;
+  private record AccessPath(Kind kind, IndexSchema indexSchema, IIndex<?, ?> index, KeyRange range) {
 
-    FactorNode factor = expr.term().factor();
-
-    if (factor instanceof ColumnFactor col) {
-      String colName = col.columnName();
-      // Coba ambil langsung (siapa tahu key di Row sudah lengkap)
-      Object val = row.get(colName);
-      if (val != null) return val;
+    enum Kind { CLUSTER_RANGE, BITMAP_HEAP, INDEX_RANGE, FULL_SCAN }
 
-      // Jika null, coba buang prefix tabelnya
-      if (colName.contains(".")) {
-          String shortName = colName.substring(colName.lastIndexOf(".") + 1);
-          return row.get(shortName);
-      }
-      return null;
-    } else if (factor instanceof LiteralFactor lit) {
-      Object val = lit.value();
-      if (val instanceof Number || val instanceof Boolean) {
-          return val;
-      }
-      String valStr = (lit.value() != null) ? lit.value().toString() : null;
-      return parseLiteral(valStr, null);
-    }
-    return null;
+    static final AccessPath FULL_SCAN = new AccessPath(Kind.FULL_SCAN, null, null, null);
   }
 
   /**
-   * Konversi String literal ke Object Java yang sesuai.
+   * Urutan pilihan: rentang kunci cluster, gabungan beberapa indeks lewat RID
+   * bitmap (jika tidak ada indeks komposit yang cocok), lalu indeks pertama
+   * yang bisa menjawab predikat (komposit, equality pada indeks apa pun, atau
+   * range pada B+ tree / bitmap). FULL_SCAN jika tidak ada.
+   *
+   * @param allowBitmapHeap false untuk scan yang hanya boleh dijawab satu indeks
+   *                        (indexOnly)
    */
-  private Object parseLiteral(String value, String type) {
-    if (value == null)
-      return null;
-    String clean = value.replace("'", "").replace("\"", ""); // Hapus quote
-
-    // Jika type tidak diberikan (null), coba tebak sendiri
-    if (type == null) {
-      try {
-        // Cek Integer
-        if (value.matches("-?\\d+")) {
-          return Integer.parseInt(value);
-        }
-        // Cek Double/Float
-        else if (value.matches("-?\\d+\\.\\d+")) {
-          return Double.parseDouble(value);
-        }
-      } catch (NumberFormatException e) {
-        // Jika gagal parsing angka, anggap sebagai String biasa
-      }
+  private AccessPath chooseAccessPath(Schema schema, Segment segment, Object filterRoot,
+      List<IndexLookupRequest> indexPredicates, boolean allowBitmapHeap) {
+    ClusteredIndex clustered = clusteredTables.get(schema.tableName());
+    KeyRange clusterRange = clustered != null ? clusterRange(clustered, indexPredicates) : null;
+    if (clusterRange != null) {
+      return new AccessPath(AccessPath.Kind.CLUSTER_RANGE, null, null, clusterRange);
     }
-    // Jika type diberikan (opsional, untuk masa depan)
-    else if ("INTEGER".equalsIgnoreCase(type)) {
-      try {
-        return Integer.parseInt(value);
-      } catch (Exception e) {
-      }
+
+    if (allowBitmapHeap && !hasCompositeMatch(schema, indexPredicates)
+        && indexLookups(filterRoot, schema, segment) > 1) {
+      return new AccessPath(AccessPath.Kind.BITMAP_HEAP, null, null, null);
     }
 
-    return clean;
+    if (indexPredicates.isEmpty()) {
+      return AccessPath.FULL_SCAN;
+    }
+    for (IndexSchema idxSchema : schema.indexes()) {
+      IIndex<?, ?> index = indexManager.get(segment.indexKey(), idxSchema.columnName(),
+          idxSchema.indexType().toString());
+      if (index == null) continue;
+
+      KeyRange range = idxSchema.isComposite()
+          ? compositeRange(idxSchema, indexPredicates)
+          : columnRange(idxSchema.columnName(), indexPredicates);
+      if (range == null) continue;
+      // Indeks hash satu kolom hanya untuk equality
+      if (!idxSchema.isComposite() && !range.isEquality()
+          && !(index instanceof BPlusIndex || index instanceof BitmapIndex)) continue;
+      return new AccessPath(AccessPath.Kind.INDEX_RANGE, idxSchema, index, range);
+    }
+    return AccessPath.FULL_SCAN;
+  }
+
+  /**
+   * RID kandidat DELETE/UPDATE dari jalur akses terpilih, atau null untuk full
+   * scan. RID dikumpulkan lebih dulu karena indeks ikut berubah selama baris
+   * diproses (baris yang kuncinya pindah ke depan rentang tidak diproses dua kali).
+   */
+  private List<Long> candidateRids(Schema schema, Segment segment, Object filterRoot,
+      List<IndexLookupRequest> indexPredicates) throws IOException {
+    AccessPath path = chooseAccessPath(schema, segment, filterRoot, indexPredicates, true);
+    KeyRange range = path.range();
+    PrimitiveIterator.OfLong rids;
+    switch (path.kind()) {
+      case CLUSTER_RANGE:
+        return clusteredTables.get(schema.tableName())
+            .rids(schema, range.min(), range.minInclusive(), range.max(), range.maxInclusive());
+      case BITMAP_HEAP:
+        rids = indexRids(filterRoot, schema, segment).iterator();
+        break;
+      case INDEX_RANGE:
+        rids = ridsOf(path.index(), range.min(), range.minInclusive(), range.max(), range.maxInclusive());
+        break;
+      default:
+        return null;
+    }
+    List<Long> result = new ArrayList<>();
+    rids.forEachRemaining((long rid) -> result.add(rid));
+    return result;
+  }
+
+  // ==================================================================================
+  // BITMAP HEAP SCAN
+  // ==================================================================================
+
+  /**
+   * Indeks satu kolom segmen yang bisa menjawab range pada column: bitmap
+   * (langsung berupa RidBitmap) atau B+ tree untuk range apa pun, hash hanya
+   * untuk equality. null jika tidak ada.
+   */
+  private IIndex<?, ?> lookupIndex(Schema schema, Segment segment, String column, KeyRange range) {
+    if (range == null) {
+      return null;
+    }
+    boolean equality = range.isEquality();
+    IIndex<?, ?> btree = null;
+    IIndex<?, ?> hash = null;
+    for (IndexSchema idxSchema : schema.indexes()) {
+      if (idxSchema.isComposite() || !idxSchema.columnName().equals(column)) continue;
+      IIndex<?, ?> index = indexManager.get(segment.indexKey(), column, idxSchema.indexType().toString());
+      if (index instanceof BitmapIndex<?, ?>) {
+        return index;
+      }
+      if (index instanceof BPlusIndex<?, ?> && btree == null) {
+        btree = index;
+      } else if (index != null && equality && hash == null) {
+        hash = index;
+      }
+    }
+    return btree != null ? btree : hash;
+  }
+
+  private boolean hasCompositeMatch(Schema schema, List<IndexLookupRequest> indexPredicates) {
+    for (IndexSchema idxSchema : schema.indexes()) {
+      if (idxSchema.isComposite() && compositeRange(idxSchema, indexPredicates) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Jumlah akses indeks yang dibutuhkan {@link #indexRids}; 0 jika kondisi
+   * tidak bisa dibatasi indeks. Tidak membaca indeks sama sekali.
+   */
+  private int indexLookups(Object condition, Schema schema, Segment segment) {
+    if (condition instanceof BinaryConditionNode bin && "OR".equalsIgnoreCase(bin.operator())) {
+      int left = indexLookups(bin.left(), schema, segment);
+      int right = left == 0 ? 0 : indexLookups(bin.right(), schema, segment);
+      return right == 0 ? 0 : left + right;
+    }
+    List<IndexLookupRequest> predicates = extractIndexPredicates(condition, schema);
+    int lookups = 0;
+    for (String column : predicateColumns(predicates)) {
+      if (lookupIndex(schema, segment, column, columnRange(column, predicates)) != null) {
+        lookups++;
+      }
+    }
+    for (Object disjunction : disjunctions(condition)) {
+      lookups += indexLookups(disjunction, schema, segment);
+    }
+    return lookups;
+  }
+
+  /**
+   * RID kandidat kondisi dari indeks satu kolom: konjungsi di-intersect,
+   * disjungsi di-union, dan predikat pada kolom yang sama digabung menjadi satu
+   * range scan. Konjungsi yang tidak bisa dijawab indeks dilewati, jadi hasilnya
+   * superset dan filter tetap dievaluasi per baris. Hanya untuk kondisi dengan
+   * {@link #indexLookups} > 0.
+   */
+  private RidBitmap indexRids(Object condition, Schema schema, Segment segment) {
+    if (condition instanceof BinaryConditionNode bin && "OR".equalsIgnoreCase(bin.operator())) {
+      return indexRids(bin.left(), schema, segment).or(indexRids(bin.right(), schema, segment));
+    }
+    List<IndexLookupRequest> predicates = extractIndexPredicates(condition, schema);
+    RidBitmap result = null;
+    for (String column : predicateColumns(predicates)) {
+      KeyRange range = columnRange(column, predicates);
+      IIndex<?, ?> index = lookupIndex(schema, segment, column, range);
+      if (index == null) continue;
+      RidBitmap rids = index instanceof BitmapIndex<?, ?> bitmap
+          ? bitmap.bitmap(range.min(), range.minInclusive(), range.max(), range.maxInclusive())
+          : RidBitmap.of(ridsOf(index, range.min(), range.minInclusive(), range.max(), range.maxInclusive()));
+      result = result == null ? rids : result.and(rids);
+      if (result.isEmpty()) {
+        return result;
+      }
+    }
+    for (Object disjunction : disjunctions(condition)) {
+      if (indexLookups(disjunction, schema, segment) == 0) continue;
+      RidBitmap rids = indexRids(disjunction, schema, segment);
+      result = result == null ? rids : result.and(rids);
+    }
+    return result;
+  }
+
+  /**
+   * Jumlah baris segmen yang memenuhi kondisi menurut indeks bitmap, atau -1
+   * jika kondisi tidak bisa dijawab tepat (lihat {@link #exactRids}). Satu
+   * perbandingan cukup menjumlahkan kardinalitas bitmap tanpa membentuk union.
+   */
+  private long exactCount(Object condition, Schema schema, Segment segment) {
+    if (condition instanceof ComparisonConditionNode comp && !isNotEqual(comp.operator())) {
+      String column = getColumnNameSafe(comp.leftOperand());
+      Object value = getLiteralValueSafe(comp.rightOperand());
+      BitmapIndex<?, ?> index = bitmapIndex(schema, segment, column, value);
+      KeyRange range = index == null ? null
+          : columnRange(column, List.of(new IndexLookupRequest(column, comp.operator(), value)));
+      return range == null ? -1 : index.count(range.min(), range.minInclusive(), range.max(), range.maxInclusive());
+    }
+    RidBitmap rids = condition == null ? universe(schema, segment) : exactRids(condition, schema, segment);
+    return rids == null ? -1 : rids.cardinality();
+  }
+
+  /**
+   * RID yang memenuhi kondisi secara tepat, dihitung seluruhnya dari indeks
+   * bitmap: AND = and, OR = or, NOT dan != = komplemen terhadap semua baris
+   * terindeks. null jika ada bagian kondisi yang bukan "kolom op literal" pada
+   * kolom ber-indeks bitmap. Heap menyimpan NULL sebagai nilai default tipe,
+   * sama seperti kunci indeks, jadi hasilnya sama dengan evaluasi per baris.
+   */
+  private RidBitmap exactRids(Object condition, Schema schema, Segment segment) {
+    if (condition instanceof BinaryConditionNode bin) {
+      boolean and = "AND".equalsIgnoreCase(bin.operator());
+      if (!and && !"OR".equalsIgnoreCase(bin.operator())) {
+        return null;
+      }
+      RidBitmap left = exactRids(bin.left(), schema, segment);
+      RidBitmap right = left == null ? null : exactRids(bin.right(), schema, segment);
+      if (right == null) {
+        return null;
+      }
+      return and ? left.and(right) : left.or(right);
+    }
+    if (condition instanceof UnaryConditionNode unary && "NOT".equalsIgnoreCase(unary.operator())) {
+      RidBitmap operand = exactRids(unary.operand(), schema, segment);
+      RidBitmap all = operand == null ? null : universe(schema, segment);
+      return all == null ? null : all.andNot(operand);
+    }
+    if (condition instanceof ComparisonConditionNode comp) {
+      String column = getColumnNameSafe(comp.leftOperand());
+      Object value = getLiteralValueSafe(comp.rightOperand());
+      BitmapIndex<?, ?> index = bitmapIndex(schema, segment, column, value);
+      if (index == null) {
+        return null;
+      }
+      if (isNotEqual(comp.operator())) {
+        return index.all().andNot(index.bitmap(value, true, value, true));
+      }
+      KeyRange range = columnRange(column, List.of(new IndexLookupRequest(column, comp.operator(), value)));
+      return range == null ? null
+          : index.bitmap(range.min(), range.minInclusive(), range.max(), range.maxInclusive());
+    }
+    return null;
+  }
+
+  /**
+   * Indeks bitmap pada column yang perbandingannya dengan value sama dengan
+   * evaluasi per baris: literal string untuk kolom CHAR/VARCHAR, literal angka
+   * untuk kolom numerik. null jika tidak ada.
+   */
+  private BitmapIndex<?, ?> bitmapIndex(Schema schema, Segment segment, String column, Object value) {
+    Column col = column == null ? null : schema.getColumnByName(column);
+    if (col == null || value == null) {
+      return null;
+    }
+    boolean text = col.type() == DataType.CHAR || col.type() == DataType.VARCHAR;
+    if (text ? !(value instanceof String) : !(value instanceof Number)) {
+      return null;
+    }
+    for (IndexSchema idxSchema : schema.indexes()) {
+      if (idxSchema.indexType() == IndexType.Bitmap && !idxSchema.isComposite()
+          && idxSchema.columnName().equals(column)
+          && indexManager.get(segment.indexKey(), column, IndexType.Bitmap.toString())
+              instanceof BitmapIndex<?, ?> bitmap) {
+        return bitmap;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Semua baris segmen menurut salah satu indeks bitmap tabel; null jika tidak ada.
+   */
+  private RidBitmap universe(Schema schema, Segment segment) {
+    for (IndexSchema idxSchema : schema.indexes()) {
+      if (idxSchema.indexType() == IndexType.Bitmap
+          && indexManager.get(segment.indexKey(), idxSchema.columnName(), IndexType.Bitmap.toString())
+              instanceof BitmapIndex<?, ?> bitmap) {
+        return bitmap.all();
+      }
+    }
+    return null;
+  }
+
+  private static boolean isNotEqual(String operator) {
+    return "!=".equals(operator) || "<>".equals(operator);
+  }
+
+  private static Set<String> predicateColumns(List<IndexLookupRequest> predicates) {
+    Set<String> columns = new LinkedHashSet<>();
+    for (IndexLookupRequest req : predicates) {
+      columns.add(req.columnName);
+    }
+    return columns;
+  }
+
+  /**
+   * Cabang OR yang menjadi konjungsi kondisi (langsung atau di bawah AND).
+   */
+  private static List<Object> disjunctions(Object condition) {
+    List<Object> out = new ArrayList<>();
+    if (condition instanceof BinaryConditionNode bin) {
+      if ("OR".equalsIgnoreCase(bin.operator())) {
+        out.add(bin);
+      } else if ("AND".equalsIgnoreCase(bin.operator())) {
+        out.addAll(disjunctions(bin.left()));
+        out.addAll(disjunctions(bin.right()));
+      }
+    }
+    return out;
+  }
+
+  // ==================================================================================
+  // [AST EVALUATOR] LOGIKA UTAMA FILTERING
+  // ==================================================================================
+
+  /**
+   * Mengevaluasi apakah Row memenuhi kondisi filter (AST).
+   * Mendukung: AND, OR, =, >, <, >=, <=, !=
+   */
+  private boolean evaluateCondition(Row row, Object condition) {
+    // Jika filter null, berarti "SELECT *", semua lolos.
+    if (condition == null) {
+      return true;
+    }
+
+    // 1. Handle Logika Binary (AND / OR)
+    if (condition instanceof BinaryConditionNode bin) {
+      boolean leftResult = evaluateCondition(row, bin.left());
+      boolean rightResult = evaluateCondition(row, bin.right());
+
+      if ("AND".equalsIgnoreCase(bin.operator())) {
+        return leftResult && rightResult;
+      } else if ("OR".equalsIgnoreCase(bin.operator())) {
+        return leftResult || rightResult;
+      }
+    }
+
+    // 2. Handle Perbandingan (=, >, <, dll)
+    if (condition instanceof ComparisonConditionNode comp) {
+      Object leftVal = extractValue(row, comp.leftOperand());
+      Object rightVal = extractValue(row, comp.rightOperand());
+      return compareValues(leftVal, rightVal, comp.operator());
+    }
+
+    // 3. Handle Unary (NOT) - Jika ada di DTO common
+    if (condition instanceof UnaryConditionNode unary) {
+      if ("NOT".equalsIgnoreCase(unary.operator())) {
+        return !evaluateCondition(row, unary.operand());
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Indeks BPlusTree yang bisa menjawab query tanpa heap: caller meminta index-only,
+   * kolom yang diminta eksplisit (bukan "*"), dan semua kolom proyeksi + predikat
+   * ada di kunci atau INCLUDE indeks. null jika tidak memenuhi.
+   */
+  private BPlusIndex<?, ?> coveringIndex(IndexSchema idxSchema, IIndex<?, ?> index, DataRetrieval dataRetrieval,
+      Object filterRoot) {
+    if (!dataRetrieval.indexOnly() || !(index instanceof BPlusIndex<?, ?> btree)) {
+      return null;
+    }
+    List<String> columns = dataRetrieval.columns();
+    if (columns == null || columns.isEmpty() || columns.contains("*")) {
+      return null;
+    }
+    Set<String> needed = new HashSet<>();
+    for (String column : columns) {
+      needed.add(column.contains(".") ? column.substring(column.lastIndexOf(".") + 1) : column);
+    }
+    if (!collectConditionColumns(filterRoot, needed)) {
+      return null;
+    }
+    return idxSchema.covers(needed) ? btree : null;
+  }
+
+  /**
+   * Kumpulkan nama kolom (tanpa prefix tabel) yang dirujuk kondisi.
+   * false jika ada node yang tidak dikenali.
+   */
+  private boolean collectConditionColumns(Object condition, Set<String> out) {
+    if (condition == null || condition instanceof LiteralConditionNode) {
+      return true;
+    }
+    if (condition instanceof BinaryConditionNode binary) {
+      return collectConditionColumns(binary.left(), out) && collectConditionColumns(binary.right(), out);
+    }
+    if (condition instanceof UnaryConditionNode unary) {
+      return collectConditionColumns(unary.operand(), out);
+    }
+    if (condition instanceof ComparisonConditionNode comp) {
+      return collectExpressionColumns(comp.leftOperand(), out) && collectExpressionColumns(comp.rightOperand(), out);
+    }
+    return false;
+  }
+
+  private boolean collectExpressionColumns(ExpressionNode expr, Set<String> out) {
+    if (expr == null) {
+      return true;
+    }
+    List<TermNode> terms = new ArrayList<>();
+    terms.add(expr.term());
+    if (expr.remainderTerms() != null) {
+      expr.remainderTerms().forEach(pair -> terms.add(pair.term()));
+    }
+    for (TermNode term : terms) {
+      if (term == null) {
+        continue;
+      }
+      List<FactorNode> factors = new ArrayList<>();
+      factors.add(term.factor());
+      if (term.remainderFactors() != null) {
+        term.remainderFactors().forEach(pair -> factors.add(pair.factor()));
+      }
+      for (FactorNode factor : factors) {
+        if (factor instanceof ColumnFactor col) {
+          String name = col.columnName();
+          out.add(name.contains(".") ? name.substring(name.lastIndexOf(".") + 1) : name);
+        } else if (factor instanceof ExpressionNode nested) {
+          if (!collectExpressionColumns(nested, out)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Iterator<Row> scanCovering(BPlusIndex<?, ?> covering, Object min, boolean minInclusive, Object max,
+      boolean maxInclusive, Object filterRoot, List<String> columns) {
+    Iterator<Row> entries = ((BPlusIndex) covering).coveringIterator((Comparable) min, minInclusive,
+        (Comparable) max, maxInclusive);
+    return filterRows(entries, filterRoot, columns);
+  }
+
+  /**
+   * Mengambil nilai real dari ExpressionNode (bisa dari Kolom Row atau Literal).
+   */
+  private Object extractValue(Row row, ExpressionNode expr) {
+    if (expr == null || expr.term() == null || expr.term().factor() == null)
+      return null;
+
+    FactorNode factor = expr.term().factor();
+
+    if (factor instanceof ColumnFactor col) {
+      String colName = col.columnName();
+      // Coba ambil langsung (siapa tahu key di Row sudah lengkap)
+      Object val = row.get(colName);
+      if (val != null) return val;
+
+      // Jika null, coba buang prefix tabelnya
+      if (colName.contains(".")) {
+          String shortName = colName.substring(colName.lastIndexOf(".") + 1);
+          return row.get(shortName);
+      }
+      return null;
+    } else if (factor instanceof LiteralFactor lit) {
+      Object val = lit.value();
+      if (val instanceof Number || val instanceof Boolean) {
+          return val;
+      }
+      String valStr = (lit.value() != null) ? lit.value().toString() : null;
+      return parseLiteral(valStr, null);
+    }
+    return null;
+  }
+
+  /**
+   * Konversi String literal ke Object Java yang sesuai.
+   */
+  private Object parseLiteral(String value, String type) {
+    if (value == null)
+      return null;
+    String clean = value.replace("'", "").replace("\"", ""); // Hapus quote
+
+    // Jika type tidak diberikan (null), coba tebak sendiri
+    if (type == null) {
+      try {
+        // Cek Integer, lalu Long untuk nilai BIGINT di luar rentang int
+        if (value.matches("-?\\d+")) {
+          long parsed = Long.parseLong(value);
+          return parsed == (int) parsed ? (Object) (int) parsed : (Object) parsed;
+        }
+        // Cek Double/Float
+        else if (value.matches("-?\\d+\\.\\d+")) {
+          return Double.parseDouble(value);
+        }
+      } catch (NumberFormatException e) {
+        // Jika gagal parsing angka, anggap sebagai String biasa
+      }
+    }
+    // Jika type diberikan (opsional, untuk masa depan)
+    else if ("INTEGER".equalsIgnoreCase(type)) {
+      try {
+        return Integer.parseInt(value);
+      } catch (Exception e) {
+      }
+    }
+
+    return clean;
   }
 
   /**
@@ -378,7 +1264,11 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
       }
     }
 
-    // Convert ke Double untuk perbandingan angka aman
+    // Bilangan bulat dibandingkan sebagai long (BIGINT di atas 2^53 tidak
+    // presisi sebagai double), selain itu convert ke Double
+    if (isIntegral(v1) && isIntegral(v2)) {
+      return checkOp(Long.compare(((Number) v1).longValue(), ((Number) v2).longValue()), operator);
+    }
     if (v1 instanceof Number && v2 instanceof Number) {
       double d1 = ((Number) v1).doubleValue();
       double d2 = ((Number) v2).doubleValue();
@@ -399,6 +1289,10 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
     return false;
   }
 
+  private static boolean isIntegral(Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
   private boolean checkOp(int comparison, String operator) {
     return switch (operator) {
       case "=" -> comparison == 0;
@@ -449,14 +1343,45 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
       if (schema == null) {
         throw new IOException("Tabel tidak ditemukan: " + dataWrite.tableName());
       }
-      String fileName = schema.dataFile();
+      if (schema.isInMemory()) {
+        return writeMemory(schema, dataWrite.newData());
+      }
+      Segment segment = segmentForRow(schema, dataWrite.newData());
+      openIndexes(schema, segment);
+      requireUniqueIndexes(schema, segment);
+      List<IIndex<?, ?>> changing = beginIndexChange(schema, segment);
+      try {
+        return writeToSegment(schema, segment, dataWrite);
+      } finally {
+        endIndexChange(changing);
+      }
+    } catch (IOException e) {
+      System.err.println("Error writing block: " + e.getMessage());
+      return 0;
+    }
+  }
+
+  /**
+   * Bagian writeBlock untuk tabel di disk; indeks segmen sudah dibuka dan
+   * ditandai sedang berubah.
+   */
+  private int writeToSegment(Schema schema, Segment segment, DataWrite dataWrite) throws IOException {
+    String fileName = segment.dataFile();
+    ClusteredIndex clustered = clusteredTables.get(schema.tableName());
+    if (clustered != null) {
+      return writeClustered(schema, segment, clustered, dataWrite.newData());
+    }
 
+    // Tabel dengan indeks UNIQUE tidak perlu full scan: baris identik pasti
+    // juga bentrok di kunci unique-nya, dan itu dicek lewat satu probe indeks
+    // saat baris ditempatkan di bawah.
+    if (!hasUniqueIndex(schema)) {
       // Global duplicate-row prevention: if an identical row (all columns)
       // already exists in the table, reject the insert.
       try {
-        long existingBlocks = blockManager.getBlockCount(fileName);
+        long existingBlocks = bufferPool.getBlockCount(fileName);
         for (long b = 0; b < existingBlocks; b++) {
-          byte[] blockData = blockManager.readBlock(fileName, b);
+          byte[] blockData = readPageShared(fileName, b);
           List<Row> rows = serializer.deserializeBlock(blockData, schema);
           for (Row r : rows) {
             if (r != null && r.data().equals(dataWrite.newData().data())) {
@@ -468,54 +1393,44 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
       } catch (Exception dupScanErr) {
         System.err.println("Warning: duplicate scan failed: " + dupScanErr.getMessage());
       }
+    }
 
-      long blockCount = blockManager.getBlockCount(fileName);
-      long targetBlockNumber = -1;
-      int newSlotId = -1;
-      boolean packed = false;
-      // byte[] blockData;
-
-      for (long blockNumber = 0; blockNumber < blockCount; blockNumber++) {
-        byte[] candidate = blockManager.readBlock(fileName, blockNumber);
-        try {
-          byte[] updated = serializer.packRowToBlock(candidate, dataWrite.newData(), schema);
-          blockManager.writeBlock(fileName, blockNumber, updated);
-          targetBlockNumber = blockNumber;
-          newSlotId = serializer.getLastPackedSlotId();
-          packed = true;
-          break;
-        } catch (IOException fullBlock) {
-          // next block bro
-          continue;
-        }
-      }
-
-      if (!packed) {
-        byte[] newBlock = serializer.initializeNewBlock();
-        newBlock = serializer.packRowToBlock(newBlock, dataWrite.newData(), schema);
-        targetBlockNumber = blockManager.appendBlock(fileName, newBlock);
-        newSlotId = serializer.getLastPackedSlotId();
-      }
-
-      blockManager.flush();
-
-      for (IndexSchema idxSchema : schema.indexes()) {
-        @SuppressWarnings("unchecked")
-        IIndex<Object, Integer> index = (IIndex<Object, Integer>) indexManager.get(
-            schema.tableName(), idxSchema.columnName(), idxSchema.indexType().toString());
-
-        if (index != null) {
-          Object key = dataWrite.newData().data().get(idxSchema.columnName());
-          int ridValue = (int) ((targetBlockNumber << 16) | (newSlotId & 0xFFFF));
-          index.insertData(key, ridValue);
-          index.writeToFile(this.catalogManager);
+    // Cari halaman dengan ruang kosong; read-pack-write dan update indeks
+    // dilakukan di bawah latch exclusive halaman agar insert paralel ke
+    // halaman yang sama tidak saling menimpa. Jika semua penuh, tambahkan
+    // halaman kosong lalu coba lagi (halaman itu bisa saja diisi sesi lain).
+    // Kunci UNIQUE diklaim sebelum halaman ditulis: jika ditolak, halaman
+    // tidak berubah sama sekali.
+    long startBlock = 0;
+    while (true) {
+      long blockCount = bufferPool.getBlockCount(fileName);
+      for (long blockNumber = startBlock; blockNumber < blockCount; blockNumber++) {
+        try (BufferPool.PageLatch latch = bufferPool.latchExclusive(fileName, blockNumber)) {
+          byte[] candidate = bufferPool.readBlock(fileName, blockNumber);
+          byte[] updated;
+          try {
+            updated = serializer.packRowToBlock(candidate, dataWrite.newData(), schema);
+          } catch (IOException fullBlock) {
+            if (serializer.getSlotCount(candidate) == 0) {
+              throw fullBlock; // Baris lebih besar dari satu halaman kosong
+            }
+            continue; // next block bro
+          }
+          int slotId = serializer.getLastPackedSlotId();
+          List<Runnable> claims = claimUniqueKeys(schema, segment, Rid.encode(blockNumber, slotId),
+              dataWrite.newData());
+          try {
+            bufferPool.writeBlock(fileName, blockNumber, updated);
+          } catch (IOException | RuntimeException e) {
+            claims.forEach(Runnable::run);
+            throw e;
+          }
+          insertRowIntoIndexes(schema, segment, blockNumber, slotId, dataWrite.newData(), true);
+          return 1;
         }
       }
-
-      return 1;
-    } catch (IOException e) {
-      System.err.println("Error writing block: " + e.getMessage());
-      return 0;
+      startBlock = blockCount;
+      bufferPool.appendBlock(fileName, serializer.initializeNewBlock());
     }
   }
 
@@ -540,32 +1455,35 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
       if (targetIndex == null) {
         throw new IOException("Index '" + indexName + "' not found on table '" + tableName + "'");
       }
+      if (isClusterKeyIndex(schema, targetIndex)) {
+        throw new IOException("Index '" + indexName + "' is the cluster key of table '" + tableName + "'");
+      }
 
-      // 3. Hapus dari IndexManager (Runtime/Memory)
-      indexManager.drop(
-          tableName, 
-          targetIndex.columnName(), 
-          targetIndex.indexType().toString()
-      );
+      MemoryTable memoryTable = memoryTables.get(tableName);
+      if (memoryTable != null) {
+        memoryTable.dropIndex(targetIndex.columnName());
+      }
 
-      // 4. Hapus File Fisik (.idx)
-      blockManager.deleteFile(targetIndex.indexFile());
+      for (Segment segment : schema.isInMemory() ? List.<Segment>of() : segmentsOf(schema)) {
+        // 3. Hapus dari IndexManager (Runtime/Memory)
+        indexManager.drop(
+            segment.indexKey(), 
+            targetIndex.columnName(), 
+            targetIndex.indexType().toString()
+        );
+
+        // 4. Hapus File Fisik (.idx), termasuk frame-nya di buffer pool
+        bufferPool.deleteFile(segment.localIndex(targetIndex).indexFile());
+      }
 
       // 5. Update Schema (Metadata)
       List<IndexSchema> updatedIndexes = new ArrayList<>(schema.indexes());
       updatedIndexes.remove(targetIndex);
 
-      Schema newSchema = new Schema(
-          schema.tableName(),
-          schema.dataFile(),
-          schema.columns(),
-          updatedIndexes,
-          schema.getForeignKeys()
-      );
+      Schema newSchema = schema.withIndexes(updatedIndexes);
 
-      // 6. Simpan perubahan ke Katalog
+      // 6. Simpan perubahan ke Katalog (delta langsung di-append ke log katalog)
       catalogManager.updateSchema(newSchema);
-      catalogManager.writeCatalog();
 
       System.out.println("Index dropped successfully: " + indexName);
 
@@ -576,27 +1494,76 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
 
   public void createTable(Schema newSchema) throws IOException {
     System.out.println("StorageManager: Menerima perintah CREATE TABLE untuk: " + newSchema.tableName());
-    // 1. Tambahkan skema baru ke cache memori Katalog
-    catalogManager.addSchemaToCache(newSchema);
-
-    // 2. Tulis ulang (flush) seluruh katalog ke disk
-    catalogManager.writeCatalog();
+    if (newSchema.isInMemory()) {
+      createMemoryTable(newSchema);
+      return;
+    }
+    TablespaceSchema tablespace = resolveTablespace(newSchema.tablespace());
+    if (newSchema.isCompressed() && tablespace != null && tablespace.striped()) {
+      throw new IOException("Tabel terkompresi tidak bisa ditempatkan di tablespace STRIPED: " + tablespace.name());
+    }
+    if (newSchema.isClustered()) {
+      if (newSchema.isPartitioned()) {
+        throw new IOException("Tabel CLUSTERED tidak bisa dipartisi: " + newSchema.tableName());
+      }
+      if (newSchema.getColumnByName(newSchema.clusterKey()) == null) {
+        throw new IOException("Kolom kunci cluster '" + newSchema.clusterKey() + "' tidak ditemukan.");
+      }
+    }
+    for (IndexSchema idxSchema : newSchema.indexes()) {
+      resolveTablespace(idxSchema.tablespace());
+      checkUniqueKeyLayout(newSchema, idxSchema);
+    }
 
-    // 3. Buat file .dat kosong (dengan 1 blok header)
-    byte[] initialBlock = serializer.initializeNewBlock();
-    blockManager.writeBlock(newSchema.dataFile(), 0, initialBlock);
+    // 1. Tambahkan skema baru ke Katalog (snapshot baru + delta di log katalog)
+    catalogManager.addSchemaToCache(newSchema);
+    applyLayouts(newSchema);
+
+    for (Segment segment : segmentsOf(newSchema)) {
+      // 2. Buat file .dat kosong (dengan 1 blok header), satu per partisi
+      byte[] initialBlock = serializer.initializeNewBlock();
+      bufferPool.writeBlock(segment.dataFile(), 0, initialBlock);
+      if (newSchema.isClustered()) {
+        clusteredTables.put(newSchema.tableName(),
+            new ClusteredIndex(newSchema, segment.dataFile(), bufferPool, serializer));
+      }
 
-    // 4. TODO: Buat file .idx (jika ada indeks)
-    for (IndexSchema idxSchema : newSchema.indexes()) {
-      IIndex<?, ?> index = createIndexInstance(newSchema, idxSchema);
-      indexManager.register(newSchema.tableName(), idxSchema.columnName(), idxSchema.indexType().toString(),
-          index);
-      index.writeToFile(this.catalogManager); // Tulis file .idx kosong
+      // 3. Buat file .idx (jika ada indeks), indeks bersifat lokal per partisi
+      for (IndexSchema idxSchema : newSchema.indexes()) {
+        if (isClusterKeyIndex(newSchema, idxSchema)) {
+          continue;
+        }
+        IIndex<?, ?> index = createIndexInstance(newSchema, segment.localIndex(idxSchema));
+        indexManager.register(segment.indexKey(), idxSchema.columnName(), idxSchema.indexType().toString(),
+            index);
+        index.writeToFile(this.catalogManager); // Tulis file .idx kosong
+      }
     }
 
     System.out.println("StorageManager: Tabel " + newSchema.tableName() + " berhasil dibuat di disk.");
   }
 
+  /**
+   * Indeks UNIQUE hanya dicek di segmen tempat baris ditulis (indeks lokal per
+   * partisi, halaman kunci untuk tabel clustered). Itu cukup jika kuncinya
+   * memuat kolom partisi / kunci cluster: baris dengan kunci sama pasti jatuh
+   * di segmen atau halaman yang sama. Kunci lain ditolak saat DDL (seperti
+   * MySQL), bukan dicek lewat probe ke segmen lain yang tidak atomik.
+   */
+  private static void checkUniqueKeyLayout(Schema schema, IndexSchema idxSchema) throws IOException {
+    if (!idxSchema.unique()) {
+      return;
+    }
+    if (schema.isPartitioned() && !idxSchema.keyColumns().contains(schema.partition().columnName())) {
+      throw new IOException("Indeks UNIQUE '" + idxSchema.indexName() + "' harus memuat kolom partisi '"
+          + schema.partition().columnName() + "'.");
+    }
+    if (schema.isClustered() && !idxSchema.keyColumns().contains(schema.clusterKey())) {
+      throw new IOException("Indeks UNIQUE '" + idxSchema.indexName() + "' harus memuat kunci cluster '"
+          + schema.clusterKey() + "'.");
+    }
+  }
+
   @Override
   public int deleteBlock(DataDeletion dataDeletion) {
     try {
@@ -605,108 +1572,67 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
         throw new IOException("Table " + dataDeletion.tableName() + " not found");
       }
 
-      String fileName = schema.dataFile();
       Object filterRoot = dataDeletion.filterCondition(); // Ini sekarang AST (WhereConditionNode)
 
       // 1. Ekstrak kondisi indeks dari AST (pengganti parseFilterCondition)
       List<IndexLookupRequest> indexPredicates = extractIndexPredicates(filterRoot, schema);
+      if (schema.isInMemory()) {
+        return deleteMemory(schema, filterRoot, indexPredicates);
+      }
 
+      // 2. Hapus per segmen (partisi yang tidak relevan sudah dipangkas)
       int deletedRows = 0;
-      List<Integer> ridsToDelete = Collections.emptyList();
-      boolean useIndexScan = false;
-
-      // 2. Logika Pemilihan Indeks
-      if (!indexPredicates.isEmpty()) {
-        for (IndexSchema idxSchema : schema.indexes()) {
-          IIndex<?, ?> index = indexManager.get(
-              schema.tableName(),
-              idxSchema.columnName(),
-              idxSchema.indexType().toString());
-
-          if (index == null) continue;
-
-          // A. Equality Check (=)
-          Object eqValue = null;
-          for (IndexLookupRequest req : indexPredicates) {
-            if (req.columnName.equals(idxSchema.columnName()) && 
-               ("=".equals(req.operator) || "==".equals(req.operator))) {
-              eqValue = req.value;
-              break;
-            }
-          }
-
-          if (eqValue != null) {
-            // Cast ke raw type untuk menghindari error generic
-            @SuppressWarnings({"unchecked", "rawtypes"})
-            List<Integer> rids = ((IIndex) index).getAddress(eqValue);
-            ridsToDelete = rids;
-            useIndexScan = true;
-          } 
-          // B. Range Check (BPlusTree Only)
-          else if (idxSchema.indexType() == IndexType.BPlusTree && index instanceof BPlusIndex) {
-            Comparable<?> minVal = null;
-            boolean minInclusive = true;
-            Comparable<?> maxVal = null;
-            boolean maxInclusive = true;
-            boolean rangeFound = false;
-
-            for (IndexLookupRequest req : indexPredicates) {
-              if (!req.columnName.equals(idxSchema.columnName())) continue;
-              if (!(req.value instanceof Comparable)) continue;
-              
-              Comparable<?> val = (Comparable<?>) req.value;
-
-              if (">=".equals(req.operator)) {
-                minVal = val; minInclusive = true; rangeFound = true;
-              } else if (">".equals(req.operator)) {
-                minVal = val; minInclusive = false; rangeFound = true;
-              } else if ("<=".equals(req.operator)) {
-                maxVal = val; maxInclusive = true; rangeFound = true;
-              } else if ("<".equals(req.operator)) {
-                maxVal = val; maxInclusive = false; rangeFound = true;
-              }
-            }
-
-            if (rangeFound) {
-              @SuppressWarnings({"unchecked", "rawtypes"})
-              BPlusIndex btree = (BPlusIndex) index;
-              ridsToDelete = btree.getAddresses(minVal, minInclusive, maxVal, maxInclusive);
-              useIndexScan = true;
-            }
-          }
-
-          if (useIndexScan) break;
+      for (Segment segment : pruneSegments(schema, indexPredicates)) {
+        openIndexes(schema, segment);
+        List<IIndex<?, ?>> changing = beginIndexChange(schema, segment);
+        try {
+          deletedRows += deleteFromSegment(schema, segment, filterRoot, indexPredicates);
+        } finally {
+          endIndexChange(changing);
         }
       }
+      return deletedRows;
+    } catch (IOException e) {
+      System.err.println("Error deleting block: " + e.getMessage());
+      return 0;
+    }
+  }
 
-      // --- 3. EXECUTION ---
-      if (useIndexScan) {
-        // A. STRATEGI INDEX SCAN
-        for (int encodedRid : ridsToDelete) {
-          long blockNo = (encodedRid >>> 16);
-          int slotNo = encodedRid & 0xFFFF;
+  private int deleteFromSegment(Schema schema, Segment segment, Object filterRoot,
+      List<IndexLookupRequest> indexPredicates) throws IOException {
+    String fileName = segment.dataFile();
+    int deletedRows = 0;
+    List<Long> ridsToDelete = candidateRids(schema, segment, filterRoot, indexPredicates);
 
-          byte[] blockData = blockManager.readBlock(fileName, blockNo);
+    if (ridsToDelete != null) {
+      // A. STRATEGI INDEX SCAN
+      for (long encodedRid : ridsToDelete) {
+        long blockNo = Rid.blockOf(encodedRid);
+        int slotNo = Rid.slotOf(encodedRid);
+
+        try (BufferPool.PageLatch latch = bufferPool.latchExclusive(fileName, blockNo)) {
+          byte[] blockData = bufferPool.readBlock(fileName, blockNo);
           Row row = serializer.readRowAtSlot(blockData, schema, slotNo);
 
           if (row != null) {
             // Evaluasi ulang kondisi menggunakan AST Evaluator
             if (evaluateCondition(row, filterRoot)) {
               if (serializer.deleteSlot(blockData, slotNo)) {
-                blockManager.writeBlock(fileName, blockNo, blockData); // Tulis balik segera
-                removeRowFromIndexes(schema, blockNo, slotNo, row);
+                bufferPool.writeBlock(fileName, blockNo, blockData); // Tulis balik segera
+                removeRowFromIndexes(schema, segment, blockNo, slotNo, row);
                 deletedRows++;
               }
             }
           }
         }
-        blockManager.flush();
-      } else {
-        // B. STRATEGI FULL TABLE SCAN (Fallback)
-        long blockCount = blockManager.getBlockCount(fileName);
+      }
+    } else {
+      // B. STRATEGI FULL TABLE SCAN (Fallback)
+      long blockCount = bufferPool.getBlockCount(fileName);
 
-        for (long blockNumber = 0; blockNumber < blockCount; blockNumber++) {
-          byte[] blockData = blockManager.readBlock(fileName, blockNumber);
+      for (long blockNumber = 0; blockNumber < blockCount; blockNumber++) {
+        try (BufferPool.PageLatch latch = bufferPool.latchExclusive(fileName, blockNumber)) {
+          byte[] blockData = bufferPool.readBlock(fileName, blockNumber);
           int slotCount = serializer.getSlotCount(blockData);
           boolean blockDirty = false;
 
@@ -721,61 +1647,200 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
             if (serializer.deleteSlot(blockData, slotId)) {
               deletedRows++;
               blockDirty = true;
-              removeRowFromIndexes(schema, blockNumber, slotId, row);
+              removeRowFromIndexes(schema, segment, blockNumber, slotId, row);
             }
           }
 
           if (blockDirty) {
-            blockManager.writeBlock(fileName, blockNumber, blockData);
+            bufferPool.writeBlock(fileName, blockNumber, blockData);
           }
         }
-        blockManager.flush();
       }
-
-      return deletedRows;
-    } catch (IOException e) {
-      System.err.println("Error deleting block: " + e.getMessage());
-      return 0;
     }
+
+    return deletedRows;
   }
 
   @Override
   public void setIndex(String table, String column, String indexType) {
+    setIndex(table, column, indexType, null);
+  }
+
+  @Override
+  public void setIndex(String table, String column, String indexType, String tablespace) {
+    setIndex(table, column, indexType, tablespace, List.of());
+  }
+
+  /**
+   * Indeks komposit: kolom kunci disimpan di katalog sebagai satu columnName
+   * yang digabung (lihat IndexSchema#joinColumns).
+   */
+  @Override
+  public void setIndex(String table, List<String> columns, String indexType, String tablespace,
+      List<String> includeColumns) {
+    setIndex(table, IndexSchema.joinColumns(columns), indexType, tablespace, includeColumns);
+  }
+
+  @Override
+  public void setIndex(String table, String column, String indexType, String tablespace,
+      List<String> includeColumns) {
     try {
       Schema schema = catalogManager.getSchema(table);
       if (schema == null) {
         throw new IOException("Table " + table + " not found");
       }
 
-      Column targetColumn = schema.getColumnByName(column);
-      if (targetColumn == null) {
-        throw new IOException("Column " + column + " not found on table " + table);
+      List<String> keyColumns = List.of(column.split(IndexSchema.COLUMN_SEPARATOR));
+      for (int i = 0; i < keyColumns.size(); i++) {
+        if (schema.getColumnByName(keyColumns.get(i)) == null) {
+          throw new IOException("Column " + keyColumns.get(i) + " not found on table " + table);
+        }
+        if (keyColumns.indexOf(keyColumns.get(i)) != i) {
+          throw new IOException("Duplicate column in index key: " + keyColumns.get(i));
+        }
+      }
+      Column targetColumn = schema.getColumnByName(keyColumns.get(0));
+
+      if (keyColumns.size() > 1 && schema.isInMemory()) {
+        throw new IOException("Indeks komposit tidak didukung untuk tabel ENGINE=MEMORY.");
+      }
+      if (schema.isClustered() && schema.clusterKey().equals(column)) {
+        throw new IOException("Column " + column + " is already the cluster key of table " + table);
       }
 
       IndexType typeEnum = findIndexType(indexType);
+      if (typeEnum == IndexType.Bitmap && keyColumns.size() > 1) {
+        throw new IOException("Indeks bitmap hanya untuk satu kolom; buat satu indeks per kolom, "
+            + "bitmap-nya digabung saat query.");
+      }
+      List<String> includes = includeColumns == null ? List.of() : includeColumns;
+      if (!includes.isEmpty()) {
+        if (typeEnum != IndexType.BPlusTree) {
+          throw new IOException("INCLUDE hanya didukung untuk indeks BPlusTree.");
+        }
+        if (schema.isInMemory()) {
+          throw new IOException("INCLUDE tidak berlaku untuk tabel ENGINE=MEMORY.");
+        }
+        for (String include : includes) {
+          if (schema.getColumnByName(include) == null) {
+            throw new IOException("Column " + include + " not found on table " + table);
+          }
+          if (keyColumns.contains(include) || includes.indexOf(include) != includes.lastIndexOf(include)) {
+            throw new IOException("Duplicate column in INCLUDE: " + include);
+          }
+        }
+      }
       String suffix = typeEnum.name().toLowerCase();
-      String indexFile = table + "_" + column + "_" + suffix + ".idx";
-      String indexName = "idx_" + table + "_" + column + "_" + suffix;
+      String keyName = String.join("_", keyColumns);
+      String indexFile = table + "_" + keyName + "_" + suffix + ".idx";
+      String indexName = "idx_" + table + "_" + keyName + "_" + suffix;
+
+      if (schema.isInMemory()) {
+        if (tablespace != null) {
+          throw new IOException("Indeks tabel ENGINE=MEMORY tidak bisa ditempatkan di tablespace.");
+        }
+        memoryTables.get(table).addIndex(column, typeEnum, targetColumn.type());
+        List<IndexSchema> updatedIndexes = new ArrayList<>(schema.indexes());
+        updatedIndexes.add(new IndexSchema(indexName, column, typeEnum, indexFile));
+        catalogManager.updateSchema(schema.withIndexes(updatedIndexes));
+        return;
+      }
 
-      IndexSchema newIndexSchema = new IndexSchema(indexName, column, typeEnum, indexFile);
-      IIndex<?, ?> index = createIndexInstance(schema, newIndexSchema);
-      indexManager.register(table, column, typeEnum.toString(), index);
+      resolveTablespace(tablespace);
+      IndexSchema newIndexSchema = new IndexSchema(indexName, column, typeEnum, indexFile, tablespace, includes);
+      for (Segment segment : segmentsOf(schema)) {
+        applyLayout(segment.localIndex(newIndexSchema).indexFile(),
+            tablespace != null ? tablespace : schema.tablespace());
+        IIndex<?, ?> index = createIndexInstance(schema, segment.localIndex(newIndexSchema));
+        indexManager.register(segment.indexKey(), column, typeEnum.toString(), index);
 
-      @SuppressWarnings("unchecked")
-      IIndex<Object, Integer> typedIndex = (IIndex<Object, Integer>) index;
-      populateIndexFromTable(schema, typedIndex, column);
-      index.writeToFile(catalogManager);
+        @SuppressWarnings("unchecked")
+        IIndex<Object, Long> typedIndex = (IIndex<Object, Long>) index;
+        populateIndexFromTable(schema, segment.dataFile(), typedIndex, newIndexSchema);
+        index.writeToFile(catalogManager);
+      }
 
       List<IndexSchema> updatedIndexes = new ArrayList<>(schema.indexes());
       updatedIndexes.add(newIndexSchema);
-      Schema updatedSchema = new Schema(schema.tableName(), schema.dataFile(), schema.columns(), updatedIndexes);
-      catalogManager.updateSchema(updatedSchema);
-      catalogManager.writeCatalog();
+      catalogManager.updateSchema(schema.withIndexes(updatedIndexes));
     } catch (IOException e) {
       System.err.println("Failed to create a new index: " + e.getMessage());
     }
   }
 
+  // ==================================================================================
+  // TABLESPACE
+  // ==================================================================================
+
+  /**
+   * Daftarkan tablespace baru. Lokasi harus unik agar stripe tidak saling
+   * menimpa; direktori dibuat jika belum ada.
+   */
+  @Override
+  public void createTablespace(TablespaceSchema tablespace) throws IOException {
+    if (tablespace.locations().isEmpty()) {
+      throw new IOException("Tablespace '" + tablespace.name() + "' harus memiliki minimal satu lokasi.");
+    }
+    Path base = Paths.get(blockManager.getDataDirectory());
+    HashSet<Path> seen = new HashSet<>();
+    for (String location : tablespace.locations()) {
+      if (!seen.add(base.resolve(location).toAbsolutePath().normalize())) {
+        throw new IOException("Lokasi duplikat pada tablespace '" + tablespace.name() + "': " + location);
+      }
+    }
+    catalogManager.addTablespace(tablespace);
+  }
+
+  /**
+   * Hapus tablespace dari katalog. Ditolak jika masih ada tabel/indeks di dalamnya.
+   */
+  @Override
+  public void dropTablespace(String name) throws IOException {
+    catalogManager.removeTablespace(name);
+  }
+
+  /**
+   * null atau "default" = direktori data utama.
+   */
+  private TablespaceSchema resolveTablespace(String name) throws IOException {
+    if (name == null || TablespaceSchema.DEFAULT.equals(name)) {
+      return null;
+    }
+    TablespaceSchema tablespace = catalogManager.getTablespace(name);
+    if (tablespace == null) {
+      throw new IOException("Tablespace '" + name + "' tidak ditemukan.");
+    }
+    return tablespace;
+  }
+
+  private void applyLayout(String fileName, String tablespaceName) throws IOException {
+    TablespaceSchema tablespace = resolveTablespace(tablespaceName);
+    if (tablespace == null) {
+      blockManager.unregisterLayout(fileName);
+    } else {
+      blockManager.registerLayout(fileName, tablespace.locations(), tablespace.striped());
+    }
+  }
+
+  /**
+   * Daftarkan penempatan fisik semua file data dan indeks milik tabel ke
+   * BlockManager. Indeks tanpa tablespace sendiri ikut tablespace tabelnya.
+   * Kompresi halaman hanya berlaku untuk file data, bukan indeks.
+   */
+  private void applyLayouts(Schema schema) throws IOException {
+    for (Segment segment : segmentsOf(schema)) {
+      applyLayout(segment.dataFile(), schema.tablespace());
+      blockManager.setCompressed(segment.dataFile(), schema.isCompressed());
+      if (schema.isClustered()) {
+        applyLayout(ClusteredIndex.directoryFileOf(segment.dataFile()), schema.tablespace());
+      }
+      for (IndexSchema idx : schema.indexes()) {
+        applyLayout(segment.localIndex(idx).indexFile(),
+            idx.tablespace() != null ? idx.tablespace() : schema.tablespace());
+      }
+    }
+  }
+
   @Override
   public Map<String, Statistic> getAllStats() {
     // TODO:
@@ -793,178 +1858,879 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
    */
 
   private IIndex<?, ?> createIndexInstance(Schema tableSchema, IndexSchema idxSchema) throws IOException {
-    Column col = tableSchema.getColumnByName(idxSchema.columnName());
-    if (col == null) {
-      throw new IOException("Kolom '" + idxSchema.columnName() + "' untuk indeks tidak ditemukan.");
+    List<Column> keyColumns = new ArrayList<>();
+    for (String name : idxSchema.keyColumns()) {
+      Column col = tableSchema.getColumnByName(name);
+      if (col == null) {
+        throw new IOException("Kolom '" + name + "' untuk indeks tidak ditemukan.");
+      }
+      keyColumns.add(col);
+    }
+
+    if (idxSchema.indexType() == IndexType.Hash) {
+      try {
+        // Extendible hash berbasis halaman di buffer pool; nilai = RID 64-bit (Long)
+        return new HashIndex<>(
+            tableSchema.tableName(),
+            idxSchema.columnName(),
+            idxSchema.indexFile(),
+            keyColumns,
+            this.bufferPool);
+      } catch (IllegalArgumentException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    } else if (idxSchema.indexType() == IndexType.BPlusTree) {
+      List<Column> included = new ArrayList<>();
+      for (String name : idxSchema.includeColumns()) {
+        Column includedColumn = tableSchema.getColumnByName(name);
+        if (includedColumn == null) {
+          throw new IOException("Kolom INCLUDE '" + name + "' tidak ditemukan.");
+        }
+        included.add(includedColumn);
+      }
+      try {
+        // Node tree berupa halaman di buffer pool; entri terbesar harus muat 1/4 halaman
+        return new BPlusIndex<>(
+            tableSchema.tableName(),
+            idxSchema.columnName(),
+            idxSchema.indexFile(),
+            keyColumns,
+            included,
+            this.bufferPool);
+      } catch (IllegalArgumentException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    } else if (idxSchema.indexType() == IndexType.Bitmap) {
+      if (keyColumns.size() > 1) {
+        throw new IOException("Indeks bitmap hanya untuk satu kolom.");
+      }
+      // Bitmap per nilai di memori; file .idx berisi snapshot (lihat BitmapIndex)
+      return new BitmapIndex<>(
+          tableSchema.tableName(),
+          idxSchema.columnName(),
+          idxSchema.indexFile(),
+          keyColumns.get(0),
+          this.bufferPool);
+    } else {
+      throw new UnsupportedOperationException("Tipe indeks tidak dikenal: " + idxSchema.indexType());
+    }
+  }
+
+  /**
+   * Kunci indeks untuk sebuah baris: nilai kolomnya, atau {@link CompositeKey}
+   * berisi nilai tiap kolom kunci (sesuai urutan indeks) untuk indeks komposit.
+   */
+  private static Object indexKey(IndexSchema idxSchema, Row row) {
+    if (!idxSchema.isComposite()) {
+      return row.data().get(idxSchema.columnName());
+    }
+    List<String> columns = idxSchema.keyColumns();
+    Object[] values = new Object[columns.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = row.data().get(columns.get(i));
+    }
+    return new CompositeKey(values);
+  }
+
+  private void removeRowFromIndexes(Schema schema, Segment segment, long blockNumber, int slotId, Row row) {
+    long ridValue = Rid.encode(blockNumber, slotId);
+    for (IndexSchema idxSchema : schema.indexes()) {
+      @SuppressWarnings("unchecked")
+      IIndex<Object, Long> index = (IIndex<Object, Long>) indexManager.get(
+          segment.indexKey(),
+          idxSchema.columnName(),
+          idxSchema.indexType().toString());
+      if (index != null) {
+        Object key = indexKey(idxSchema, row);
+        index.deleteData(key, ridValue);
+        index.writeToFile(this.catalogManager);
+      }
+    }
+  }
+
+  private void insertRowIntoIndexes(Schema schema, Segment segment, long blockNumber, int slotId, Row row) {
+    insertRowIntoIndexes(schema, segment, blockNumber, slotId, row, false);
+  }
+
+  /**
+   * @param skipUnique true jika entri indeks UNIQUE sudah diklaim lewat {@link #claimUniqueKeys}
+   */
+  private void insertRowIntoIndexes(Schema schema, Segment segment, long blockNumber, int slotId, Row row,
+      boolean skipUnique) {
+    long ridValue = Rid.encode(blockNumber, slotId);
+    for (IndexSchema idxSchema : schema.indexes()) {
+      if (skipUnique && idxSchema.unique()) {
+        continue;
+      }
+      @SuppressWarnings("unchecked")
+      IIndex<Object, Long> index = (IIndex<Object, Long>) indexManager.get(
+          segment.indexKey(), idxSchema.columnName(), idxSchema.indexType().toString());
+      if (index != null) {
+        insertIndexEntry(schema, idxSchema, index, row, ridValue);
+        index.writeToFile(this.catalogManager);
+      }
+    }
+  }
+
+  /**
+   * Sisipkan entri (kunci, RID); indeks covering ikut menyimpan nilai kolom INCLUDE baris.
+   */
+  private void insertIndexEntry(Schema schema, IndexSchema idxSchema, IIndex<Object, Long> index, Row row,
+      long ridValue) {
+    insertIndexEntry(schema, idxSchema, index, row, ridValue, false);
+  }
+
+  /**
+   * @param ifAbsent true = insertIfAbsent (indeks UNIQUE)
+   * @return false jika ifAbsent dan kuncinya sudah ada di indeks
+   */
+  private boolean insertIndexEntry(Schema schema, IndexSchema idxSchema, IIndex<Object, Long> index, Row row,
+      long ridValue, boolean ifAbsent) {
+    Object key = indexKey(idxSchema, row);
+    if (idxSchema.includeColumns().isEmpty() || !(index instanceof BPlusIndex<?, ?>)) {
+      if (ifAbsent) {
+        return index.insertIfAbsent(key, ridValue);
+      }
+      index.insertData(key, ridValue);
+      return true;
+    }
+    Row typed = row;
+    try {
+      typed = serializer.normalizeRow(row, schema);
+    } catch (IOException e) {
+      // Simpan nilai apa adanya; serializer tetap mengonversi saat indeks ditulis
+    }
+    Object[] payload = new Object[idxSchema.includeColumns().size()];
+    for (int j = 0; j < payload.length; j++) {
+      payload[j] = typed.data().get(idxSchema.includeColumns().get(j));
+    }
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BPlusIndex btree = (BPlusIndex) index;
+    if (ifAbsent) {
+      return btree.insertIfAbsent((Comparable) key, ridValue, payload);
+    }
+    btree.insertData((Comparable) key, ridValue, payload);
+    return true;
+  }
+
+  private static boolean hasUniqueIndex(Schema schema) {
+    for (IndexSchema idx : schema.indexes()) {
+      if (idx.unique()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Tandai semua indeks segmen sedang berubah sebelum heap-nya disentuh:
+   * meta indeks yang bersih ditulis "tidak bersih" ke disk lebih dulu, jadi
+   * halaman heap yang sempat di-flush tanpa entri indeksnya (crash di tengah
+   * statement) membuat indeks dibangun ulang saat dibuka, bukan dipercaya.
+   */
+  private List<IIndex<?, ?>> beginIndexChange(Schema schema, Segment segment) {
+    List<IIndex<?, ?>> changing = new ArrayList<>();
+    try {
+      for (IndexSchema idx : schema.indexes()) {
+        IIndex<?, ?> index = indexManager.get(segment.indexKey(), idx.columnName(), idx.indexType().toString());
+        if (index != null) {
+          index.beginChange();
+          changing.add(index);
+        }
+      }
+    } catch (RuntimeException e) {
+      endIndexChange(changing);
+      throw e;
+    }
+    return changing;
+  }
+
+  private void endIndexChange(List<IIndex<?, ?>> changing) {
+    for (IIndex<?, ?> index : changing) {
+      index.endChange();
+    }
+  }
+
+  /**
+   * Kunci UNIQUE hanya ditegakkan lewat indeksnya (lihat claimUniqueKeys).
+   * Jika indeks UNIQUE segmen gagal dibuka, IndexManager mengembalikan null
+   * dan penulisan ditolak daripada menerima duplikat tanpa pemeriksaan.
+   *
+   * @throws IllegalStateException jika ada indeks UNIQUE yang tidak tersedia
+   */
+  private void requireUniqueIndexes(Schema schema, Segment segment) {
+    for (IndexSchema idxSchema : schema.indexes()) {
+      if (idxSchema.unique() && !isClusterKeyIndex(schema, idxSchema)
+          && indexManager.get(segment.indexKey(), idxSchema.columnName(), idxSchema.indexType().toString()) == null) {
+        throw new IllegalStateException("Indeks UNIQUE '" + idxSchema.indexName() + "' pada tabel '"
+            + schema.tableName() + "' tidak tersedia; perubahan ditolak sampai indeks dibangun ulang.");
+      }
+    }
+  }
+
+  private static boolean hasNullComponent(Object key) {
+    if (key instanceof CompositeKey ck) {
+      for (int i = 0; i < ck.size(); i++) {
+        if (ck.get(i) == null) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return key == null;
+  }
+
+  static IllegalStateException uniqueViolation(String column, Object key) {
+    return new IllegalStateException("Unique Constraint Violation: Duplicate entry '" + key + "' for key '"
+        + column + "'.");
+  }
+
+  /**
+   * Klaim kunci baris di semua indeks UNIQUE segmen lewat insertIfAbsent,
+   * satu probe per indeks. Kunci yang mengandung NULL tidak ikut dicek
+   * (sama seperti UNIQUE di SQL) dan disisipkan biasa.
+   *
+   * @return aksi untuk mencabut klaim jika baris akhirnya batal ditulis
+   * @throws IllegalStateException jika ada kunci yang sudah dipakai baris lain;
+   *         klaim yang sudah dibuat dicabut dulu
+   */
+  private List<Runnable> claimUniqueKeys(Schema schema, Segment segment, long ridValue, Row row) {
+    List<Runnable> claims = new ArrayList<>();
+    for (IndexSchema idxSchema : schema.indexes()) {
+      if (!idxSchema.unique()) {
+        continue;
+      }
+      @SuppressWarnings("unchecked")
+      IIndex<Object, Long> index = (IIndex<Object, Long>) indexManager.get(
+          segment.indexKey(), idxSchema.columnName(), idxSchema.indexType().toString());
+      if (index == null) {
+        continue;
+      }
+      Object key = indexKey(idxSchema, row);
+      if (!insertIndexEntry(schema, idxSchema, index, row, ridValue, !hasNullComponent(key))) {
+        claims.forEach(Runnable::run);
+        throw uniqueViolation(idxSchema.columnName(), key);
+      }
+      claims.add(() -> index.deleteData(key, ridValue));
+    }
+    for (IndexSchema idxSchema : schema.indexes()) {
+      if (idxSchema.unique()) {
+        IIndex<?, ?> index = indexManager.get(segment.indexKey(), idxSchema.columnName(),
+            idxSchema.indexType().toString());
+        if (index != null) {
+          index.writeToFile(this.catalogManager);
+        }
+      }
+    }
+    return claims;
+  }
+
+  /**
+   * Salinan halaman yang dibaca di bawah latch shared, sehingga pembaca tidak
+   * melihat halaman di tengah read-modify-write sesi lain.
+   */
+  private byte[] readPageShared(String fileName, long blockNumber) throws IOException {
+    try (BufferPool.PageLatch latch = bufferPool.latchShared(fileName, blockNumber)) {
+      return bufferPool.readBlock(fileName, blockNumber);
+    }
+  }
+
+  /**
+   * Bulk build indeks dari isi tabel: blok data dipindai paralel, pasangan
+   * (kunci, RID) diurutkan lewat external sort, lalu indeks ditulis sekali
+   * jalan (B+ tree bottom-up, hash per partisi) dengan indexFillFactor.
+   */
+  private void populateIndexFromTable(Schema schema, String dataFile, IIndex<Object, Long> index,
+      IndexSchema idxSchema) throws IOException {
+    BulkLoadable bulk = (BulkLoadable) index;
+    Path tempDir = Files.createTempDirectory(Paths.get(blockManager.getDataDirectory()), "index_build");
+    try (ExternalSorter sorter = bulk.newSorter(tempDir, indexSortRunEntries)) {
+      long blockCount = bufferPool.getBlockCount(dataFile);
+      long tasks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+          blockCount / INDEX_BUILD_BLOCKS_PER_TASK));
+      long chunk = (blockCount + tasks - 1) / tasks;
+      List<Future<?>> scans = new ArrayList<>();
+      for (long from = 0; from < blockCount; from += chunk) {
+        long start = from;
+        long end = Math.min(blockCount, from + chunk);
+        scans.add(partitionScanExecutor.submit(() -> {
+          scanIndexEntries(schema, dataFile, idxSchema, start, end, sorter);
+          return null;
+        }));
+      }
+      for (Future<?> scan : scans) {
+        scan.get();
+      }
+      bulk.bulkLoad(sorter, indexFillFactor);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Build indeks " + idxSchema.indexName() + " terinterupsi", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Gagal memindai tabel untuk indeks " + idxSchema.indexName() + ": "
+          + e.getCause().getMessage(), e.getCause());
+    } finally {
+      Files.deleteIfExists(tempDir);
+    }
+  }
+
+  /**
+   * Satu tugas scan build indeks: blok [start, end) ke writer sorter sendiri.
+   */
+  private void scanIndexEntries(Schema schema, String dataFile, IndexSchema idxSchema, long start, long end,
+      ExternalSorter sorter) throws IOException {
+    List<String> includes = idxSchema.includeColumns();
+    try (ExternalSorter.Writer writer = sorter.writer()) {
+      for (long blockNumber = start; blockNumber < end; blockNumber++) {
+        byte[] blockData = readPageShared(dataFile, blockNumber);
+        int slotCount = serializer.getSlotCount(blockData);
+        for (int slotId = 0; slotId < slotCount; slotId++) {
+          Row row = serializer.readRowAtSlot(blockData, schema, slotId);
+          if (row == null)
+            continue;
+          Object[] payload = null;
+          if (!includes.isEmpty()) {
+            payload = new Object[includes.size()];
+            for (int j = 0; j < payload.length; j++) {
+              payload[j] = row.data().get(includes.get(j));
+            }
+          }
+          writer.add(indexKey(idxSchema, row), Rid.encode(blockNumber, slotId), payload);
+        }
+      }
+    }
+  }
+
+
+//   private List<ParsedFilter> parseFilterCondition(Object filterCondition, Schema schema) {
+//     if (filterCondition == null || schema == null) {
+//       return Collections.emptyList();
+//     }
+
+//     if (!(filterCondition instanceof String)) {
+//       return Collections.emptyList();
+//     }
+
+//     String raw = filterCondition.toString().trim();
+//     if (raw.isEmpty()) {
+//       return Collections.emptyList();
+//     }
+
+//     List<ParsedFilter> results = new ArrayList<>();
+//     String[] expressions = raw.split("(?i)\\s+AND\\s+");
+
+//     String[] operators = { ">=", "<=", "!=", "<>", "=", ">", "<" };
+
+//     for (String expression : expressions) {
+//       expression = expression.trim();
+//       String matchedOp = null;
+
+//       for (String op : operators) {
+//         if (expression.contains(op)) {
+//           matchedOp = op;
+//           break;
+//         }
+//       }
+
+//       if (matchedOp == null)
+//         continue;
+
+//       int opIndex = expression.indexOf(matchedOp);
+//       String columnName = expression.substring(0, opIndex).trim();
+//       String literalRaw = expression.substring(opIndex + matchedOp.length()).trim();
+
+//       Column column = schema.getColumnByName(columnName);
+//       if (column == null)
+//         continue;
+
+//       String literal = stripQuotes(literalRaw);
+//       Object typedValue = convertLiteral(column, literal);
+
+//       if (typedValue != null) {
+//         results.add(new ParsedFilter(column.name(), matchedOp, typedValue));
+//       }
+//     }
+//     return results;
+//   }
+
+//   private Object convertLiteral(Column column, String literal) {
+//     try {
+//       return switch (column.type()) {
+//         case INTEGER -> Integer.parseInt(literal);
+//         case FLOAT -> Float.parseFloat(literal);
+//         case CHAR -> literal.charAt(0);
+//         case VARCHAR -> literal;
+//       };
+//     } catch (Exception e) {
+//       return null;
+//     }
+//   }
+
+//   private String stripQuotes(String literal) {
+//     if (literal.length() >= 2) {
+//       if ((literal.startsWith("\"") && literal.endsWith("\"")) ||
+//           (literal.startsWith("'") && literal.endsWith("'"))) {
+//         return literal.substring(1, literal.length() - 1);
+//       }
+//     }
+//     return literal;
+//   }
+
+  
+
+    /**
+     * Menelusuri AST untuk mencari kondisi yang bisa menggunakan indeks.
+     * Saat ini support sederhana: ComparisonConditionNode (col op val)
+     * dan BinaryConditionNode (AND).
+     */
+    private List<IndexLookupRequest> extractIndexPredicates(Object conditionNode, Schema schema) {
+        List<IndexLookupRequest> results = new ArrayList<>();
+        if (conditionNode == null) return results;
+
+        // 1. Handle Comparison (Leaf): col = val
+        if (conditionNode instanceof ComparisonConditionNode comp) {
+            // Cek apakah kiri adalah Kolom dan kanan adalah Literal (atau sebaliknya)
+            String colName = getColumnNameSafe(comp.leftOperand());
+            Object val = getLiteralValueSafe(comp.rightOperand());
+            
+            if (colName != null && val != null) {
+                results.add(new IndexLookupRequest(colName, comp.operator(), val));
+            }
+        }
+        // 2. Handle Binary (AND): recursion
+        else if (conditionNode instanceof BinaryConditionNode bin) {
+            if ("AND".equalsIgnoreCase(bin.operator())) {
+                results.addAll(extractIndexPredicates(bin.left(), schema));
+                results.addAll(extractIndexPredicates(bin.right(), schema));
+            }
+            // Catatan: OR biasanya tidak bisa langsung pakai single index scan sederhana
+        }
+        
+        return results;
+    }
+
+  // ==================================================================================
+  // INDEKS KOMPOSIT
+  // ==================================================================================
+
+  /**
+   * Rentang kunci indeks komposit dari predikat konjungtif: equality pada
+   * prefix kolom kunci, lalu boleh ada batas range pada kolom berikutnya.
+   * Batas yang hanya berisi prefix mencakup semua kunci yang diawalinya (lihat
+   * CompositeKey). Null jika kolom pertama tidak punya predikat, atau indeks
+   * hash tanpa equality di semua kolom.
+   */
+  private static KeyRange compositeRange(IndexSchema idxSchema, List<IndexLookupRequest> indexPredicates) {
+    List<String> columns = idxSchema.keyColumns();
+    List<Object> prefix = new ArrayList<>();
+    for (String column : columns) {
+      Object eqValue = null;
+      for (IndexLookupRequest req : indexPredicates) {
+        if (req.columnName.equals(column) && ("=".equals(req.operator) || "==".equals(req.operator))) {
+          eqValue = req.value;
+          break;
+        }
+      }
+      if (eqValue == null) break;
+      prefix.add(eqValue);
+    }
+
+    if (prefix.size() == columns.size()) {
+      CompositeKey key = new CompositeKey(prefix.toArray());
+      return new KeyRange(key, true, key, true);
+    }
+    if (idxSchema.indexType() != IndexType.BPlusTree) {
+      return null;
+    }
+
+    Object minVal = null;
+    boolean minInclusive = true;
+    Object maxVal = null;
+    boolean maxInclusive = true;
+    String rangeColumn = columns.get(prefix.size());
+    for (IndexLookupRequest req : indexPredicates) {
+      if (!req.columnName.equals(rangeColumn) || !(req.value instanceof Comparable)) continue;
+      if (">=".equals(req.operator) || ">".equals(req.operator)) {
+        minVal = req.value; minInclusive = ">=".equals(req.operator);
+      } else if ("<=".equals(req.operator) || "<".equals(req.operator)) {
+        maxVal = req.value; maxInclusive = "<=".equals(req.operator);
+      }
+    }
+    if (prefix.isEmpty() && minVal == null && maxVal == null) {
+      return null;
+    }
+    return new KeyRange(boundKey(prefix, minVal), minVal == null || minInclusive,
+        boundKey(prefix, maxVal), maxVal == null || maxInclusive);
+  }
+
+  /**
+   * Batas komposit prefix + nilai range; null (terbuka) jika keduanya kosong.
+   */
+  private static CompositeKey boundKey(List<Object> prefix, Object value) {
+    if (value == null) {
+      return prefix.isEmpty() ? null : new CompositeKey(prefix.toArray());
+    }
+    List<Object> values = new ArrayList<>(prefix);
+    values.add(value);
+    return new CompositeKey(values.toArray());
+  }
+
+  // ==================================================================================
+  // TABEL CLUSTERED
+  // ==================================================================================
+
+  /**
+   * Rentang kunci cluster hasil predikat konjungtif (= atau batas range).
+   */
+  private record KeyRange(Comparable<?> min, boolean minInclusive, Comparable<?> max, boolean maxInclusive) {
+
+    boolean isEquality() {
+      return min != null && minInclusive && maxInclusive && min.equals(max);
+    }
+  }
+
+  private static boolean isClusterKeyIndex(Schema schema, IndexSchema idx) {
+    return schema.isClustered() && idx.columnName().equals(schema.clusterKey());
+  }
+
+  /**
+   * Rentang kunci dari predikat pada kolom kunci cluster, atau null jika tidak
+   * ada predikat yang bisa dipakai (literal yang tidak bisa dikonversi tepat
+   * diabaikan, evaluateCondition tetap memfilter hasilnya).
+   */
+  private KeyRange clusterRange(ClusteredIndex clustered, List<IndexLookupRequest> indexPredicates) {
+    Comparable<?> minVal = null;
+    boolean minInclusive = true;
+    Comparable<?> maxVal = null;
+    boolean maxInclusive = true;
+    boolean rangeFound = false;
+    for (IndexLookupRequest req : indexPredicates) {
+      if (!req.columnName.equals(clustered.clusterKey())) continue;
+      Comparable<?> key = clustered.toKey(req.value);
+      if (key == null) continue;
+      if ("=".equals(req.operator) || "==".equals(req.operator)) {
+        return new KeyRange(key, true, key, true);
+      } else if (">=".equals(req.operator) || ">".equals(req.operator)) {
+        minVal = key; minInclusive = ">=".equals(req.operator); rangeFound = true;
+      } else if ("<=".equals(req.operator) || "<".equals(req.operator)) {
+        maxVal = key; maxInclusive = "<=".equals(req.operator); rangeFound = true;
+      }
+    }
+    return rangeFound ? new KeyRange(minVal, minInclusive, maxVal, maxInclusive) : null;
+  }
+
+  /**
+   * Rentang kunci indeks satu kolom dari predikat konjungtif pada column;
+   * null jika tidak ada predikat = atau range pada kolom tersebut.
+   */
+  private static KeyRange columnRange(String column, List<IndexLookupRequest> indexPredicates) {
+    Comparable<?> minVal = null;
+    boolean minInclusive = true;
+    Comparable<?> maxVal = null;
+    boolean maxInclusive = true;
+    boolean rangeFound = false;
+    for (IndexLookupRequest req : indexPredicates) {
+      if (!req.columnName.equals(column) || !(req.value instanceof Comparable<?> key)) continue;
+      if ("=".equals(req.operator) || "==".equals(req.operator)) {
+        return new KeyRange(key, true, key, true);
+      } else if (">=".equals(req.operator) || ">".equals(req.operator)) {
+        minVal = key; minInclusive = ">=".equals(req.operator); rangeFound = true;
+      } else if ("<=".equals(req.operator) || "<".equals(req.operator)) {
+        maxVal = key; maxInclusive = "<=".equals(req.operator); rangeFound = true;
+      }
+    }
+    return rangeFound ? new KeyRange(minVal, minInclusive, maxVal, maxInclusive) : null;
+  }
+
+  /**
+   * Insert ke tabel clustered. Duplikat cukup dicek di halaman kuncinya (kunci
+   * cluster = PK), tanpa full scan; RID yang berubah karena split diteruskan ke
+   * indeks sekunder.
+   */
+  private int writeClustered(Schema schema, Segment segment, ClusteredIndex clustered, Row row)
+      throws IOException {
+    boolean inserted = clustered.insert(schema, row, new ClusteredIndex.Listener() {
+      @Override
+      public void rowInserted(long blockNumber, int slotId, Row insertedRow) {
+        insertRowIntoIndexes(schema, segment, blockNumber, slotId, insertedRow);
+      }
+
+      @Override
+      public void rowsMoved(List<ClusteredIndex.Move> moves) {
+        moveRowsInIndexes(schema, segment, moves);
+      }
+    });
+    if (!inserted) {
+      IndexSchema clusterIndex = clusterKeyIndex(schema);
+      if (clusterIndex != null && clusterIndex.unique()) {
+        throw uniqueViolation(schema.clusterKey(), row.data().get(schema.clusterKey()));
+      }
+      System.err.println("Duplicate row detected. Insert rejected.");
+      return 0;
+    }
+    return 1;
+  }
+
+  private static IndexSchema clusterKeyIndex(Schema schema) {
+    for (IndexSchema idx : schema.indexes()) {
+      if (isClusterKeyIndex(schema, idx)) {
+        return idx;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Semua RID lama dihapus dulu sebelum RID baru disisipkan, karena RID baru
+   * sebuah baris bisa sama dengan RID lama baris lain di halaman yang sama.
+   */
+  private void moveRowsInIndexes(Schema schema, Segment segment, List<ClusteredIndex.Move> moves) {
+    for (IndexSchema idxSchema : schema.indexes()) {
+      @SuppressWarnings("unchecked")
+      IIndex<Object, Long> index = (IIndex<Object, Long>) indexManager.get(
+          segment.indexKey(), idxSchema.columnName(), idxSchema.indexType().toString());
+      if (index == null) {
+        continue;
+      }
+      for (ClusteredIndex.Move move : moves) {
+        index.deleteData(indexKey(idxSchema, move.row()), move.fromRid());
+      }
+      for (ClusteredIndex.Move move : moves) {
+        insertIndexEntry(schema, idxSchema, index, move.row(), move.toRid());
+      }
+      index.writeToFile(this.catalogManager);
+    }
+  }
+
+  // ==================================================================================
+  // ENGINE MEMORY
+  // ==================================================================================
+
+  private MemoryTable newMemoryTable(Schema schema) {
+    MemoryTable table = new MemoryTable();
+    for (IndexSchema idx : schema.indexes()) {
+      table.addIndex(idx.columnName(), idx.indexType(), schema.getColumnByName(idx.columnName()).type());
+      if (idx.unique()) {
+        table.addUniqueKey(idx.columnName());
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Tabel ENGINE=MEMORY hanya didaftarkan ke katalog; tidak ada file .dat
+   * maupun .idx. Partisi, tablespace, dan kompresi adalah properti
+   * penyimpanan fisik sehingga ditolak.
+   */
+  private void createMemoryTable(Schema schema) throws IOException {
+    if (schema.isPartitioned() || schema.tablespace() != null || schema.isCompressed() || schema.isClustered()) {
+      throw new IOException("Tabel ENGINE=MEMORY tidak mendukung PARTITION, TABLESPACE, COMPRESSION, maupun CLUSTERED: "
+          + schema.tableName());
+    }
+    for (IndexSchema idx : schema.indexes()) {
+      if (idx.isComposite()) {
+        throw new IOException("Indeks komposit tidak didukung untuk tabel ENGINE=MEMORY: " + idx.indexName());
+      }
+      if (schema.getColumnByName(idx.columnName()) == null) {
+        throw new IOException("Kolom '" + idx.columnName() + "' untuk indeks tidak ditemukan.");
+      }
+      if (idx.tablespace() != null) {
+        throw new IOException("Indeks tabel ENGINE=MEMORY tidak bisa ditempatkan di tablespace.");
+      }
+    }
+    catalogManager.addSchemaToCache(schema);
+    memoryTables.put(schema.tableName(), newMemoryTable(schema));
+    System.out.println("StorageManager: Tabel " + schema.tableName() + " dibuat di memori (ENGINE=MEMORY).");
+  }
+
+  private MemoryTable memoryTableOf(Schema schema) throws IOException {
+    MemoryTable table = memoryTables.get(schema.tableName());
+    if (table == null) {
+      throw new IOException("Row store memori untuk tabel " + schema.tableName() + " tidak ditemukan");
+    }
+    return table;
+  }
+
+  /**
+   * Kandidat row id dari indeks memori (equality dulu, lalu range pada indeks
+   * terurut), atau null jika tidak ada indeks yang bisa dipakai.
+   */
+  private List<Long> memoryCandidates(Schema schema, MemoryTable table, List<IndexLookupRequest> indexPredicates) {
+    if (indexPredicates.isEmpty()) {
+      return null;
+    }
+    for (IndexSchema idxSchema : schema.indexes()) {
+      String column = idxSchema.columnName();
+      for (IndexLookupRequest req : indexPredicates) {
+        if (req.columnName.equals(column) && ("=".equals(req.operator) || "==".equals(req.operator))) {
+          List<Long> ids = table.lookup(column, req.value);
+          if (ids != null) {
+            return ids;
+          }
+        }
+      }
+      if (!table.hasOrderedIndex(column)) {
+        continue;
+      }
+      Object minVal = null;
+      boolean minInclusive = true;
+      Object maxVal = null;
+      boolean maxInclusive = true;
+      boolean rangeFound = false;
+      for (IndexLookupRequest req : indexPredicates) {
+        if (!req.columnName.equals(column)) continue;
+        if (">=".equals(req.operator) || ">".equals(req.operator)) {
+          minVal = req.value; minInclusive = ">=".equals(req.operator); rangeFound = true;
+        } else if ("<=".equals(req.operator) || "<".equals(req.operator)) {
+          maxVal = req.value; maxInclusive = "<=".equals(req.operator); rangeFound = true;
+        }
+      }
+      if (rangeFound) {
+        List<Long> ids = table.range(column, minVal, minInclusive, maxVal, maxInclusive);
+        if (ids != null) {
+          return ids;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Baris yang memenuhi filter beserta row id-nya, lewat indeks memori jika
+   * ada atau scan seluruh skip list.
+   */
+  private List<Map.Entry<Long, Row>> matchMemory(Schema schema, MemoryTable table, Object filterRoot,
+      List<IndexLookupRequest> indexPredicates, boolean useIndex) {
+    List<Map.Entry<Long, Row>> matches = new ArrayList<>();
+    List<Long> candidates = useIndex ? memoryCandidates(schema, table, indexPredicates) : null;
+    if (candidates != null) {
+      for (long rowId : candidates) {
+        Row row = table.get(rowId);
+        if (row != null && evaluateCondition(row, filterRoot)) {
+          matches.add(Map.entry(rowId, row));
+        }
+      }
+      return matches;
+    }
+    for (Map.Entry<Long, Row> e : table.entries()) {
+      if (evaluateCondition(e.getValue(), filterRoot)) {
+        matches.add(Map.entry(e.getKey(), e.getValue()));
+      }
     }
+    return matches;
+  }
 
-    DataType keyType = col.type();
-    DataType valueType = DataType.INTEGER;
-
-    if (idxSchema.indexType() == IndexType.Hash) {
-      return new HashIndex<>(
-          tableSchema.tableName(),
-          col.name(),
-          idxSchema.indexFile(),
-          keyType,
-          valueType, // Tipe V (Value) -> Asumsi kita simpan Integer (RID)
-          this.blockManager,
-          this.serializer);
-    } else if (idxSchema.indexType() == IndexType.BPlusTree) {
-      int order = 100;
-      return new BPlusIndex<>(
-          tableSchema.tableName(),
-          col.name(),
-          order,
-          idxSchema.indexFile(),
-          this.blockManager,
-          this.serializer);
-    } else {
-      throw new UnsupportedOperationException("Tipe indeks tidak dikenal: " + idxSchema.indexType());
+  private List<Row> readMemory(Schema schema, DataRetrieval dataRetrieval, Object filterRoot,
+      List<IndexLookupRequest> indexPredicates) throws IOException {
+    MemoryTable table = memoryTableOf(schema);
+    List<Row> results = new ArrayList<>();
+    for (Map.Entry<Long, Row> match : matchMemory(schema, table, filterRoot, indexPredicates,
+        dataRetrieval.useIndex())) {
+      // Salinan, supaya pemanggil tidak bisa mengubah baris di row store
+      results.add(projectColumns(new Row(new HashMap<>(match.getValue().data())), dataRetrieval.columns()));
     }
+    return results;
   }
 
-  private void removeRowFromIndexes(Schema schema, long blockNumber, int slotId, Row row) {
-    int ridValue = (int) ((blockNumber << 16) | (slotId & 0xFFFF));
-    for (IndexSchema idxSchema : schema.indexes()) {
-      @SuppressWarnings("unchecked")
-      IIndex<Object, Integer> index = (IIndex<Object, Integer>) indexManager.get(
-          schema.tableName(),
-          idxSchema.columnName(),
-          idxSchema.indexType().toString());
-      if (index != null) {
-        Object key = row.data().get(idxSchema.columnName());
-        index.deleteData(key, ridValue);
-        index.writeToFile(this.catalogManager);
-      }
+  private int writeMemory(Schema schema, Row newData) throws IOException {
+    Row row = serializer.normalizeRow(newData, schema);
+    if (memoryTableOf(schema).insert(row) < 0) {
+      System.err.println("Duplicate row detected. Insert rejected.");
+      return 0;
     }
+    return 1;
   }
 
-  private void populateIndexFromTable(Schema schema, IIndex<Object, Integer> index, String column)
+  private int deleteMemory(Schema schema, Object filterRoot, List<IndexLookupRequest> indexPredicates)
       throws IOException {
-    long blockCount = blockManager.getBlockCount(schema.dataFile());
-    for (long blockNumber = 0; blockNumber < blockCount; blockNumber++) {
-      byte[] blockData = blockManager.readBlock(schema.dataFile(), blockNumber);
-      int slotCount = serializer.getSlotCount(blockData);
-      for (int slotId = 0; slotId < slotCount; slotId++) {
-        Row row = serializer.readRowAtSlot(blockData, schema, slotId);
-        if (row == null)
-          continue;
-        Object key = row.data().get(column);
-        int ridValue = (int) ((blockNumber << 16) | (slotId & 0xFFFF));
-        index.insertData(key, ridValue);
+    MemoryTable table = memoryTableOf(schema);
+    int deletedRows = 0;
+    for (Map.Entry<Long, Row> match : matchMemory(schema, table, filterRoot, indexPredicates, true)) {
+      if (table.remove(match.getKey(), match.getValue())) {
+        deletedRows++;
       }
     }
+    return deletedRows;
   }
 
-//   private List<ParsedFilter> parseFilterCondition(Object filterCondition, Schema schema) {
-//     if (filterCondition == null || schema == null) {
-//       return Collections.emptyList();
-//     }
-
-//     if (!(filterCondition instanceof String)) {
-//       return Collections.emptyList();
-//     }
-
-//     String raw = filterCondition.toString().trim();
-//     if (raw.isEmpty()) {
-//       return Collections.emptyList();
-//     }
-
-//     List<ParsedFilter> results = new ArrayList<>();
-//     String[] expressions = raw.split("(?i)\\s+AND\\s+");
-
-//     String[] operators = { ">=", "<=", "!=", "<>", "=", ">", "<" };
-
-//     for (String expression : expressions) {
-//       expression = expression.trim();
-//       String matchedOp = null;
-
-//       for (String op : operators) {
-//         if (expression.contains(op)) {
-//           matchedOp = op;
-//           break;
-//         }
-//       }
-
-//       if (matchedOp == null)
-//         continue;
-
-//       int opIndex = expression.indexOf(matchedOp);
-//       String columnName = expression.substring(0, opIndex).trim();
-//       String literalRaw = expression.substring(opIndex + matchedOp.length()).trim();
-
-//       Column column = schema.getColumnByName(columnName);
-//       if (column == null)
-//         continue;
-
-//       String literal = stripQuotes(literalRaw);
-//       Object typedValue = convertLiteral(column, literal);
+  private int updateMemory(Schema schema, DataUpdate dataUpdate, Object filterRoot,
+      List<IndexLookupRequest> indexPredicates) throws IOException {
+    MemoryTable table = memoryTableOf(schema);
+    int updatedRows = 0;
+    for (Map.Entry<Long, Row> match : matchMemory(schema, table, filterRoot, indexPredicates, true)) {
+      Map<String, Object> mergedData = new HashMap<>(match.getValue().data());
+      mergedData.putAll(dataUpdate.updatedData().data());
+      Row newRow = serializer.normalizeRow(new Row(mergedData), schema);
+      if (table.replace(match.getKey(), match.getValue(), newRow)) {
+        updatedRows++;
+      }
+    }
+    return updatedRows;
+  }
 
-//       if (typedValue != null) {
-//         results.add(new ParsedFilter(column.name(), matchedOp, typedValue));
-//       }
-//     }
-//     return results;
-//   }
+  // ==================================================================================
+  // SEGMEN & PARTISI
+  // ==================================================================================
 
-//   private Object convertLiteral(Column column, String literal) {
-//     try {
-//       return switch (column.type()) {
-//         case INTEGER -> Integer.parseInt(literal);
-//         case FLOAT -> Float.parseFloat(literal);
-//         case CHAR -> literal.charAt(0);
-//         case VARCHAR -> literal;
-//       };
-//     } catch (Exception e) {
-//       return null;
-//     }
-//   }
+  private static Segment segmentOf(Schema schema, int partition) {
+    if (!schema.isPartitioned()) {
+      return new Segment(schema.tableName(), schema.dataFile(), -1);
+    }
+    return new Segment(
+        schema.tableName() + "$p" + partition,
+        PartitionSchema.segmentFile(schema.dataFile(), partition),
+        partition);
+  }
 
-//   private String stripQuotes(String literal) {
-//     if (literal.length() >= 2) {
-//       if ((literal.startsWith("\"") && literal.endsWith("\"")) ||
-//           (literal.startsWith("'") && literal.endsWith("'"))) {
-//         return literal.substring(1, literal.length() - 1);
-//       }
-//     }
-//     return literal;
-//   }
+  private static List<Segment> segmentsOf(Schema schema) {
+    if (!schema.isPartitioned()) {
+      return List.of(segmentOf(schema, -1));
+    }
+    List<Segment> segments = new ArrayList<>();
+    for (int p = 0; p < schema.partition().partitionCount(); p++) {
+      segments.add(segmentOf(schema, p));
+    }
+    return segments;
+  }
 
-  
+  /**
+   * Segmen tujuan untuk baris baru (ditentukan oleh nilai kolom partisi).
+   */
+  private static Segment segmentForRow(Schema schema, Row row) {
+    if (!schema.isPartitioned()) {
+      return segmentOf(schema, -1);
+    }
+    Object key = row.data().get(schema.partition().columnName());
+    return segmentOf(schema, PartitionRouter.route(schema, key));
+  }
 
-    /**
-     * Menelusuri AST untuk mencari kondisi yang bisa menggunakan indeks.
-     * Saat ini support sederhana: ComparisonConditionNode (col op val)
-     * dan BinaryConditionNode (AND).
-     */
-    private List<IndexLookupRequest> extractIndexPredicates(Object conditionNode, Schema schema) {
-        List<IndexLookupRequest> results = new ArrayList<>();
-        if (conditionNode == null) return results;
+  /**
+   * Partition pruning: hanya segmen yang mungkin memenuhi predikat konjungtif
+   * pada kolom partisi yang dipertahankan.
+   */
+  private List<Segment> pruneSegments(Schema schema, List<IndexLookupRequest> predicates) {
+    if (!schema.isPartitioned()) {
+      return segmentsOf(schema);
+    }
+    PartitionSchema partition = schema.partition();
+    BitSet live = new BitSet(partition.partitionCount());
+    live.set(0, partition.partitionCount());
+    for (IndexLookupRequest req : predicates) {
+      if (req.columnName.equalsIgnoreCase(partition.columnName())) {
+        live.and(PartitionRouter.candidates(schema, req.operator, req.value));
+      }
+    }
 
-        // 1. Handle Comparison (Leaf): col = val
-        if (conditionNode instanceof ComparisonConditionNode comp) {
-            // Cek apakah kiri adalah Kolom dan kanan adalah Literal (atau sebaliknya)
-            String colName = getColumnNameSafe(comp.leftOperand());
-            Object val = getLiteralValueSafe(comp.rightOperand());
-            
-            if (colName != null && val != null) {
-                results.add(new IndexLookupRequest(colName, comp.operator(), val));
-            }
-        }
-        // 2. Handle Binary (AND): recursion
-        else if (conditionNode instanceof BinaryConditionNode bin) {
-            if ("AND".equalsIgnoreCase(bin.operator())) {
-                results.addAll(extractIndexPredicates(bin.left(), schema));
-                results.addAll(extractIndexPredicates(bin.right(), schema));
-            }
-            // Catatan: OR biasanya tidak bisa langsung pakai single index scan sederhana
-        }
-        
-        return results;
+    List<Segment> segments = new ArrayList<>();
+    for (int p = live.nextSetBit(0); p >= 0; p = live.nextSetBit(p + 1)) {
+      segments.add(segmentOf(schema, p));
     }
+    return segments;
+  }
 
   private IndexType findIndexType(String indexType) {
+    if ("BTREE".equalsIgnoreCase(indexType)) {
+      return IndexType.BPlusTree; // nama tipe di CREATE INDEX ... USING BTREE
+    }
     return Arrays.stream(IndexType.values())
         .filter(t -> t.name().equalsIgnoreCase(indexType))
         .findFirst()
@@ -985,6 +2751,31 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
     return new Row(projectedData);
   }
 
+  /**
+   * Fill factor halaman indeks untuk CREATE INDEX (0 < fillFactor <= 1).
+   */
+  public void setIndexFillFactor(double fillFactor) {
+    if (fillFactor <= 0 || fillFactor > 1) {
+      throw new IllegalArgumentException("Fill factor harus di (0, 1]: " + fillFactor);
+    }
+    this.indexFillFactor = fillFactor;
+  }
+
+  /**
+   * Jumlah entri yang diurutkan di memori sebelum ditumpahkan ke file run
+   * sementara saat CREATE INDEX.
+   */
+  public void setIndexSortRunEntries(int runEntries) {
+    if (runEntries < 1) {
+      throw new IllegalArgumentException("Ukuran run harus >= 1: " + runEntries);
+    }
+    this.indexSortRunEntries = runEntries;
+  }
+
+  public BufferPool getBufferPool() {
+    return this.bufferPool;
+  }
+
   public BlockManager getBlockManager() {
     return this.blockManager;
   }
@@ -1094,210 +2885,309 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
         throw new IOException("Table not found: " + dataUpdate.tableName());
       }
 
-      String fileName = schema.dataFile();
       Object filterRoot = dataUpdate.filterCondition(); // Ini AST (WhereConditionNode)
 
       // 1. Ekstrak kondisi indeks dari AST
       List<IndexLookupRequest> indexPredicates = extractIndexPredicates(filterRoot, schema);
+      if (schema.isInMemory()) {
+        return updateMemory(schema, dataUpdate, filterRoot, indexPredicates);
+      }
 
-      int updatedRows = 0;
-      List<Integer> ridsToUpdate = Collections.emptyList();
-      boolean useIndexScan = false;
-
-      // 2. Logika Pemilihan Indeks
-      if (!indexPredicates.isEmpty()) {
-        for (IndexSchema idxSchema : schema.indexes()) {
-          IIndex<?, ?> index = indexManager.get(
-              schema.tableName(),
-              idxSchema.columnName(),
-              idxSchema.indexType().toString());
-
-          if (index == null) continue;
-
-          // A. Equality Scan
-          Object eqValue = null;
-          for (IndexLookupRequest req : indexPredicates) {
-            if (req.columnName.equals(idxSchema.columnName()) && 
-               ("=".equals(req.operator) || "==".equals(req.operator))) {
-              eqValue = req.value;
-              break;
-            }
-          }
+      // 2. Update per segmen; baris yang pindah partisi atau tidak muat di
+      // tempat disisipkan setelah semua segmen diproses agar tidak ikut
+      // ter-update dua kali
+      // Semua indeks UNIQUE yang bisa tersentuh harus tersedia sebelum baris
+      // mana pun berubah; baris yang pindah partisi bisa masuk segmen mana saja
+      List<Segment> segments = pruneSegments(schema, indexPredicates);
+      boolean movesPartition = schema.isPartitioned()
+          && dataUpdate.updatedData().data().containsKey(schema.partition().columnName());
+      for (Segment segment : movesPartition ? segmentsOf(schema) : segments) {
+        requireUniqueIndexes(schema, segment);
+      }
 
-          if (eqValue != null) {
-            @SuppressWarnings({"unchecked", "rawtypes"})
-            List<Integer> rids = ((IIndex) index).getAddress(eqValue);
-            ridsToUpdate = rids;
-            useIndexScan = true;
+      int updatedRows = 0;
+      List<Relocation> deferredInserts = new ArrayList<>();
+      try {
+        for (Segment segment : segments) {
+          openIndexes(schema, segment);
+          List<IIndex<?, ?>> changing = beginIndexChange(schema, segment);
+          try {
+            updatedRows += updateSegment(schema, segment, dataUpdate, filterRoot, indexPredicates, deferredInserts);
+          } finally {
+            endIndexChange(changing);
           }
-          // B. Range Scan (BPlusTree Only)
-          else if (idxSchema.indexType() == IndexType.BPlusTree && index instanceof BPlusIndex) {
-            Comparable<?> minVal = null;
-            boolean minInclusive = true;
-            Comparable<?> maxVal = null;
-            boolean maxInclusive = true;
-            boolean rangeFound = false;
-
-            for (IndexLookupRequest req : indexPredicates) {
-              if (!req.columnName.equals(idxSchema.columnName())) continue;
-              if (!(req.value instanceof Comparable)) continue;
-              
-              Comparable<?> val = (Comparable<?>) req.value;
-
-              if (">=".equals(req.operator)) {
-                minVal = val; minInclusive = true; rangeFound = true;
-              } else if (">".equals(req.operator)) {
-                minVal = val; minInclusive = false; rangeFound = true;
-              } else if ("<=".equals(req.operator)) {
-                maxVal = val; maxInclusive = true; rangeFound = true;
-              } else if ("<".equals(req.operator)) {
-                maxVal = val; maxInclusive = false; rangeFound = true;
-              }
-            }
+        }
+      } finally {
+        updatedRows -= reinsertRelocated(dataUpdate.tableName(), deferredInserts);
+      }
+      return updatedRows;
 
-            if (rangeFound) {
-              @SuppressWarnings({"unchecked", "rawtypes"})
-              BPlusIndex btree = (BPlusIndex) index;
-              ridsToUpdate = btree.getAddresses(minVal, minInclusive, maxVal, maxInclusive);
-              useIndexScan = true;
-            }
-          }
+    } catch (IOException e) {
+      System.err.println("Error updating block: " + e.getMessage());
+      return 0;
+    }
+  }
 
-          if (useIndexScan) break;
+  /**
+   * Sisipkan ulang baris yang dipindah. Versi baru yang ditolak (kunci UNIQUE
+   * bentrok, atau duplikat baris) tidak boleh membuat barisnya hilang: baris
+   * lamanya dikembalikan, lalu exception pertama diteruskan setelah semua
+   * baris diproses.
+   *
+   * @return jumlah baris yang batal di-update
+   */
+  private int reinsertRelocated(String tableName, List<Relocation> relocations) {
+    int reverted = 0;
+    RuntimeException failure = null;
+    for (Relocation moved : relocations) {
+      int written;
+      try {
+        written = writeBlock(new DataWrite(tableName, moved.newRow(), null));
+      } catch (RuntimeException e) {
+        failure = failure != null ? failure : e;
+        written = 0;
+      }
+      if (written == 0) {
+        try {
+          written = writeBlock(new DataWrite(tableName, moved.oldRow(), null));
+        } catch (RuntimeException e) {
+          failure = failure != null ? failure : e;
+        }
+        if (written == 0) {
+          System.err.println("Gagal mengembalikan baris " + moved.oldRow().data() + " ke tabel " + tableName);
         }
+        reverted++;
       }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return reverted;
+  }
+
+  private int updateSegment(Schema schema, Segment segment, DataUpdate dataUpdate, Object filterRoot,
+      List<IndexLookupRequest> indexPredicates, List<Relocation> deferredInserts) throws IOException {
+    String fileName = segment.dataFile();
+    int updatedRows = 0;
+
+    // Update yang mengubah kolom partisi ke partisi lain, atau kunci tabel
+    // clustered, harus memindahkan barisnya
+    boolean relocates = false;
+    Map<String, Object> updated = dataUpdate.updatedData().data();
+    if (segment.partition() >= 0) {
+      String partitionColumn = schema.partition().columnName();
+      relocates = updated.containsKey(partitionColumn)
+          && PartitionRouter.route(schema, updated.get(partitionColumn)) != segment.partition();
+    }
+    if (schema.isClustered() && updated.containsKey(schema.clusterKey())) {
+      relocates = true;
+    }
 
-      // --- 3. EXECUTION ---
-      if (useIndexScan) {
-        // A. STRATEGI INDEX SCAN
-        for (int encodedRid : ridsToUpdate) {
-          long blockNo = (encodedRid >>> 16);
-          int slotNo = encodedRid & 0xFFFF;
+    List<Long> ridsToUpdate = candidateRids(schema, segment, filterRoot, indexPredicates);
 
-          byte[] blockData = blockManager.readBlock(fileName, blockNo);
+    if (ridsToUpdate != null) {
+      // A. STRATEGI INDEX SCAN
+      for (long encodedRid : ridsToUpdate) {
+        long blockNo = Rid.blockOf(encodedRid);
+        int slotNo = Rid.slotOf(encodedRid);
+
+        try (BufferPool.PageLatch latch = bufferPool.latchExclusive(fileName, blockNo)) {
+          byte[] blockData = bufferPool.readBlock(fileName, blockNo);
           Row row = serializer.readRowAtSlot(blockData, schema, slotNo);
 
           if (row != null) {
             // Evaluasi ulang kondisi menggunakan AST Evaluator
             if (evaluateCondition(row, filterRoot)) {
-              
-              // Proses Update (In-Place atau Delete+Insert)
+
+              if (relocates) {
+                if (relocateRow(schema, segment, blockNo, blockData, slotNo, row, dataUpdate.updatedData(),
+                    deferredInserts)) {
+                  updatedRows++;
+                }
+                continue;
+              }
+            
+              // Proses Update (In-Place atau Delete+Insert). Indeks diperbarui
+              // sebelum halaman ditulis: kunci UNIQUE yang bentrok membatalkan
+              // update tanpa mengubah slot.
               try {
                 byte[] updatedBlock = serializer.updateRowInPlace(blockData, schema, slotNo, dataUpdate.updatedData());
-                blockManager.writeBlock(fileName, blockNo, updatedBlock);
-                updateIndexesForRow(schema, blockNo, slotNo, row, dataUpdate.updatedData());
+                updateIndexesForRow(schema, segment, blockNo, slotNo, row, dataUpdate.updatedData());
+                bufferPool.writeBlock(fileName, blockNo, updatedBlock);
                 updatedRows++;
               } catch (IOException e) {
-                // Fallback: Out-of-place update
-                Map<String, Object> mergedData = new HashMap<>(row.data());
-                mergedData.putAll(dataUpdate.updatedData().data());
-                Row newRow = new Row(mergedData);
-
-                if (serializer.deleteSlot(blockData, slotNo)) {
-                  blockManager.writeBlock(fileName, blockNo, blockData); // Commit delete
-                  removeRowFromIndexes(schema, blockNo, slotNo, row);
-
-                  DataWrite insertOp = new DataWrite(dataUpdate.tableName(), newRow, null);
-                  writeBlock(insertOp);
+                // Fallback: Out-of-place update. Insert ulang ditunda sampai latch
+                // dilepas (tidak boleh memegang dua latch halaman sekaligus)
+                if (relocateRow(schema, segment, blockNo, blockData, slotNo, row, dataUpdate.updatedData(),
+                    deferredInserts)) {
                   updatedRows++;
                 }
               }
             }
           }
         }
-        blockManager.flush();
-      } else {
-        // B. STRATEGI FULL TABLE SCAN
-        long blockCount = blockManager.getBlockCount(fileName);
+      }
+    } else {
+      // B. STRATEGI FULL TABLE SCAN
+      long blockCount = bufferPool.getBlockCount(fileName);
 
-        for (long blockNumber = 0; blockNumber < blockCount; blockNumber++) {
-          byte[] blockData = blockManager.readBlock(fileName, blockNumber);
+      for (long blockNumber = 0; blockNumber < blockCount; blockNumber++) {
+        try (BufferPool.PageLatch latch = bufferPool.latchExclusive(fileName, blockNumber)) {
+          byte[] blockData = bufferPool.readBlock(fileName, blockNumber);
           int slotCount = serializer.getSlotCount(blockData);
           boolean blockDirty = false;
 
-          for (int slotId = 0; slotId < slotCount; slotId++) {
-            Row row = serializer.readRowAtSlot(blockData, schema, slotId);
-            if (row == null) continue;
+          // Slot yang sudah diubah (dan indeksnya) tetap ditulis walaupun slot
+          // berikutnya ditolak karena kunci UNIQUE-nya bentrok
+          try {
+            for (int slotId = 0; slotId < slotCount; slotId++) {
+              Row row = serializer.readRowAtSlot(blockData, schema, slotId);
+              if (row == null) continue;
 
-            // Evaluasi kondisi menggunakan AST Evaluator
-            if (!evaluateCondition(row, filterRoot)) continue;
+              // Evaluasi kondisi menggunakan AST Evaluator
+              if (!evaluateCondition(row, filterRoot)) continue;
 
-            try {
-              // Coba In-Place Update
-              byte[] updatedBlock = serializer.updateRowInPlace(blockData, schema, slotId, dataUpdate.updatedData());
-              blockData = updatedBlock; // Update referensi memori blok
-              blockDirty = true;
-              updatedRows++;
-              updateIndexesForRow(schema, blockNumber, slotId, row, dataUpdate.updatedData());
-            } catch (IOException e) {
-              // Fallback: Delete + Insert
-              Map<String, Object> mergedData = new HashMap<>(row.data());
-              mergedData.putAll(dataUpdate.updatedData().data());
-              Row newRow = new Row(mergedData);
-
-              if (serializer.deleteSlot(blockData, slotId)) {
-                removeRowFromIndexes(schema, blockNumber, slotId, row);
-                blockDirty = true;
+              if (relocates) {
+                if (relocateRow(schema, segment, blockNumber, blockData, slotId, row, dataUpdate.updatedData(),
+                    deferredInserts)) {
+                  updatedRows++;
+                }
+                continue;
               }
 
-              // Jika blok kotor karena delete, tulis dulu sebelum insert
-              if (blockDirty) {
-                blockManager.writeBlock(fileName, blockNumber, blockData);
-                blockDirty = false;
+              try {
+                // Coba In-Place Update; slot baru dipakai setelah indeksnya
+                // (termasuk klaim kunci UNIQUE) berhasil diperbarui
+                byte[] updatedBlock = serializer.updateRowInPlace(blockData, schema, slotId, dataUpdate.updatedData());
+                updateIndexesForRow(schema, segment, blockNumber, slotId, row, dataUpdate.updatedData());
+                blockData = updatedBlock; // Update referensi memori blok
+                blockDirty = true;
+                updatedRows++;
+              } catch (IOException e) {
+                // Fallback: Delete + Insert. Insert ulang ditunda sampai scan selesai
+                // dan latch dilepas, sehingga baris baru tidak ikut ter-update lagi
+                if (relocateRow(schema, segment, blockNumber, blockData, slotId, row, dataUpdate.updatedData(),
+                    deferredInserts)) {
+                  updatedRows++;
+                }
               }
-
-              DataWrite insertOp = new DataWrite(dataUpdate.tableName(), newRow, null);
-              writeBlock(insertOp);
-              updatedRows++;
             }
-          }
-
-          if (blockDirty) {
-            blockManager.writeBlock(fileName, blockNumber, blockData);
+          } finally {
+            if (blockDirty) {
+              bufferPool.writeBlock(fileName, blockNumber, blockData);
+            }
           }
         }
-        blockManager.flush();
       }
+    }
 
-      return updatedRows;
+    return updatedRows;
+  }
 
-    } catch (IOException e) {
-      System.err.println("Error updating block: " + e.getMessage());
-      return 0;
+  /**
+   * Baris yang dihapus dari tempat lamanya dan menunggu disisipkan ulang.
+   */
+  private record Relocation(Row oldRow, Row newRow) {
+  }
+
+  /**
+   * Hapus baris dari segmen asalnya dan antrekan versi barunya untuk disisipkan
+   * ulang (yang akan diarahkan ke partisi / halaman kunci yang sesuai).
+   */
+  private boolean relocateRow(Schema schema, Segment segment, long blockNumber, byte[] blockData, int slotId,
+      Row oldRow, Row updatedData, List<Relocation> deferredInserts) throws IOException {
+    if (!serializer.deleteSlot(blockData, slotId)) {
+      return false;
     }
+    bufferPool.writeBlock(segment.dataFile(), blockNumber, blockData);
+    removeRowFromIndexes(schema, segment, blockNumber, slotId, oldRow);
+    deferredInserts.add(new Relocation(oldRow, mergeRow(oldRow, updatedData)));
+    return true;
   }
 
   /**
-   * Helper: Update indeks jika kolom yang di-index berubah
+   * Helper: Update indeks jika kolom yang di-index berubah. Kunci UNIQUE baru
+   * diklaim dulu lewat insertIfAbsent; jika bentrok, klaim yang sudah dibuat
+   * dicabut dan belum ada indeks yang berubah, sehingga pemanggil cukup tidak
+   * menulis slot barunya.
+   *
+   * @throws IllegalStateException jika kunci UNIQUE baru sudah dipakai baris lain
    */
-  private void updateIndexesForRow(Schema schema, long blockNumber, int slotId, Row oldRow, Row updatedData) {
-    int ridValue = (int) ((blockNumber << 16) | (slotId & 0xffff));
+  private void updateIndexesForRow(Schema schema, Segment segment, long blockNumber, int slotId, Row oldRow,
+      Row updatedData) {
+    long ridValue = Rid.encode(blockNumber, slotId);
+    Row merged = mergeRow(oldRow, updatedData);
 
+    List<IndexSchema> changed = new ArrayList<>();
+    List<IIndex<Object, Long>> changedIndexes = new ArrayList<>();
     for (IndexSchema idxSchema : schema.indexes()) {
       @SuppressWarnings("unchecked")
-      IIndex<Object, Integer> index = (IIndex<Object, Integer>) indexManager.get(schema.tableName(),
+      IIndex<Object, Long> index = (IIndex<Object, Long>) indexManager.get(segment.indexKey(),
           idxSchema.columnName(), idxSchema.indexType().toString());
+      if (index != null && indexEntryChanged(idxSchema, oldRow, updatedData, merged)) {
+        changed.add(idxSchema);
+        changedIndexes.add(index);
+      }
+    }
 
-      if (index == null) {
+    // 1. Klaim kunci UNIQUE baru sebelum entri lama mana pun dihapus
+    List<Runnable> claims = new ArrayList<>();
+    boolean[] claimed = new boolean[changed.size()];
+    for (int i = 0; i < changed.size(); i++) {
+      IndexSchema idxSchema = changed.get(i);
+      Object newKey = indexKey(idxSchema, merged);
+      if (!idxSchema.unique() || newKey.equals(indexKey(idxSchema, oldRow)) || hasNullComponent(newKey)) {
         continue;
       }
+      IIndex<Object, Long> index = changedIndexes.get(i);
+      if (!insertIndexEntry(schema, idxSchema, index, merged, ridValue, true)) {
+        claims.forEach(Runnable::run);
+        throw uniqueViolation(idxSchema.columnName(), newKey);
+      }
+      claims.add(() -> index.deleteData(newKey, ridValue));
+      claimed[i] = true;
+    }
 
-      String colName = idxSchema.columnName();
-      Object oldKey = oldRow.data().get(colName);
-      Object newKey = updatedData.data().get(colName);
-
-      // kalo kolom di index berubah, update index
-      if (newKey != null && !newKey.equals(oldKey)) {
-        // hapus old entry
-        if (oldKey != null) {
-          index.deleteData(oldKey, ridValue);
-        }
+    // 2. Ganti entri lama dengan yang baru
+    for (int i = 0; i < changed.size(); i++) {
+      IndexSchema idxSchema = changed.get(i);
+      IIndex<Object, Long> index = changedIndexes.get(i);
+      Object oldKey = indexKey(idxSchema, oldRow);
+      if (oldKey != null) {
+        index.deleteData(oldKey, ridValue);
+      }
+      if (!claimed[i]) {
+        insertIndexEntry(schema, idxSchema, index, merged, ridValue);
+      }
+      index.writeToFile(this.catalogManager);
+    }
+  }
 
-        // insert new entry
-        index.insertData(newKey, ridValue);
-        index.writeToFile(this.catalogManager);
+  /**
+   * Kolom kunci indeks atau kolom INCLUDE-nya (indeks covering) diubah.
+   */
+  private boolean indexEntryChanged(IndexSchema idxSchema, Row oldRow, Row updatedData, Row merged) {
+    Object oldKey = indexKey(idxSchema, oldRow);
+    // Kunci komposit dihitung dari baris gabungan karena update bisa mengubah sebagian kolomnya saja
+    Object newKey = idxSchema.isComposite()
+        ? indexKey(idxSchema, merged)
+        : updatedData.data().get(idxSchema.columnName());
+    if (newKey != null && !newKey.equals(oldKey)) {
+      return true;
+    }
+    for (String include : idxSchema.includeColumns()) {
+      Object newValue = updatedData.data().get(include);
+      if (newValue != null && !newValue.equals(oldRow.data().get(include))) {
+        return true;
       }
     }
+    return false;
+  }
+
+  private static Row mergeRow(Row oldRow, Row updatedData) {
+    Map<String, Object> mergedData = new HashMap<>(oldRow.data());
+    mergedData.putAll(updatedData.data());
+    return new Row(mergedData);
   }
 
   // helper for test di storage manager test
@@ -1331,12 +3221,21 @@ public class StorageManager extends DBMSComponent implements IStorageManager {
         }
 
       }
-      for (IndexSchema idx : schema.indexes()) {
-        indexManager.drop(tableName, idx.columnName(), idx.indexType().toString());
+      memoryTables.remove(tableName);
+      clusteredTables.remove(tableName);
+      for (Segment segment : schema.isInMemory() ? List.<Segment>of() : segmentsOf(schema)) {
+        for (IndexSchema idx : schema.indexes()) {
+          indexManager.drop(segment.indexKey(), idx.columnName(), idx.indexType().toString());
+        }
+        bufferPool.deleteFile(segment.dataFile());
+        blockManager.unregisterLayout(segment.dataFile());
+        if (schema.isClustered()) {
+          String directoryFile = ClusteredIndex.directoryFileOf(segment.dataFile());
+          bufferPool.deleteFile(directoryFile);
+          blockManager.unregisterLayout(directoryFile);
+        }
       }
-      blockManager.deleteFile(schema.dataFile());
       catalogManager.removeSchema(tableName);
-      catalogManager.writeCatalog();
       return 0;
     } catch (IOException e) {
       System.err.println("Error during DROP TABLE: " + e.getMessage());
@@ -2,564 +2,390 @@ package com.apacy.storagemanager.index;
 
 import com.apacy.common.dto.Column;
 import com.apacy.common.dto.Row;
-import com.apacy.common.dto.Schema;
-import com.apacy.common.enums.DataType;
-import com.apacy.storagemanager.BlockManager;
+import com.apacy.storagemanager.BufferPool;
 import com.apacy.storagemanager.CatalogManager;
-import com.apacy.storagemanager.Serializer;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
-
-public class BPlusIndex<K extends Comparable<K>, V> implements IIndex<K, V> {
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indeks B+ tree yang node-nodenya tinggal di halaman file indeks (lihat
+ * {@link BPlusTree}). Perubahan ditulis per halaman ke BufferPool saat
+ * operasi terjadi, sehingga writeToFile tidak perlu menulis ulang seluruh tree.
+ *
+ * Lookup, insert, dan delete dari banyak sesi berjalan bersamaan; sinkronisasinya
+ * ada di tree (B-link). Lock lifecycle hanya dipegang eksklusif saat isi file
+ * diganti seluruhnya (load ulang, bulk build, drop).
+ */
+public class BPlusIndex<K extends Comparable<K>, V> implements IIndex<K, V>, BulkLoadable {
 
     private final String tableName;
     private final String columnName;
-    private final int order;
     private final String indexFile;
-    private final BlockManager blockManager;
-    private final Serializer serializer;
+    private final List<String> keyColumns;
+    private final List<String> includeColumns; // kolom non-kunci yang disimpan di leaf (covering index)
+    private final NodeLayout layout;
+    private final BPlusTree tree;
 
-    private BPlusTree<K, V> tree;
+    private static final int UNIQUE_STRIPES = 64;
 
-    public BPlusIndex(String tableName, String columnName) {
-        this(tableName, columnName, 100);
-    }
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+    // Entri satu kunci bisa tersebar di dua leaf (urutan (key, rid)), jadi cek + insert
+    // untuk indeks UNIQUE diserialkan per kunci lewat stripe ini, bukan latch leaf.
+    private final Object[] uniqueStripes = new Object[UNIQUE_STRIPES];
+    private volatile boolean opened;
+    private volatile boolean rebuildRequired;
 
-    public BPlusIndex(String tableName, String columnName, int order) {
-        this(tableName,
-                columnName,
-                order,
-                tableName + "_" + columnName + "_bplusindex", 
-                null,
-                null);
+    /**
+     * @param tableName      base table name
+     * @param columnName     indexed column
+     * @param indexFile      index data file name
+     * @param keyColumn      definisi kolom kunci (tipe & panjang)
+     * @param includeColumns kolom INCLUDE, nilainya ikut disimpan di entri leaf
+     * @param bufferPool     buffer pool tempat halaman node dibaca/ditulis
+     */
+    public BPlusIndex(String tableName,
+            String columnName,
+            String indexFile,
+            Column keyColumn,
+            List<Column> includeColumns,
+            BufferPool bufferPool) {
+        this(tableName, columnName, indexFile, List.of(keyColumn), includeColumns, bufferPool);
     }
 
     /**
-     * Full constructor mirroring HashIndex style.
-     *
-     * @param tableName    base table name
-     * @param columnName   indexed column
-     * @param order        B+Tree branching factor (nV)
-     * @param indexFile    index data file name
-     * @param blockManager storage block manager (may be null → in-memory only)
-     * @param serializer   serializer (may be null → in-memory only)
+     * Indeks komposit bila keyColumns lebih dari satu; kunci berupa
+     * {@link CompositeKey} dengan urutan sesuai keyColumns.
      */
     public BPlusIndex(String tableName,
             String columnName,
-            int order,
             String indexFile,
-            BlockManager blockManager,
-            Serializer serializer) {
+            List<Column> keyColumns,
+            List<Column> includeColumns,
+            BufferPool bufferPool) {
 
         this.tableName = tableName;
         this.columnName = columnName;
-        this.order = order;
         this.indexFile = indexFile;
-        this.blockManager = blockManager;
-        this.serializer = serializer;
-        this.tree = new BPlusTree<>(order);
-    }
-
-    /**
-     * Build the on-disk schema for this B+ index.
-     *
-     * Each row = one node.
-     *
-     * Columns:
-     * nodeId : INTEGER
-     * isLeaf : INTEGER (0/1)
-     * parentId : INTEGER (-1 = root)
-     * nextLeafId : INTEGER (for leaf-level linked list; -1 if none)
-     * keyCount : INTEGER (number of valid keys)
-     * childCount : INTEGER (for internal nodes: number of valid children)
-     *
-     * For i in [0, maxKeys-1] where maxKeys = order - 1:
-     * key_i : same DataType as base column
-     * val_i : INTEGER (address / pointer; only used for leaves)
-     *
-     * For j in [0, order-1]:
-     * child_j : INTEGER (child nodeId; only used for internal nodes)
-     */
-    private Schema buildSchema(CatalogManager catalogManager) {
-        Schema baseSchema = catalogManager.getSchema(tableName);
-        if (baseSchema == null) {
-            throw new IllegalStateException("Base table '" + tableName + "' not found in CatalogManager.");
-        }
-
-        Column baseColumn = baseSchema.getColumnByName(columnName);
-        if (baseColumn == null) {
-            throw new IllegalStateException("Column '" + columnName + "' not found in table '" + tableName + "'");
-        }
-
-        List<Column> cols = new ArrayList<>();
-
-        cols.add(new Column("nodeId", DataType.INTEGER));
-        cols.add(new Column("isLeaf", DataType.INTEGER));
-        cols.add(new Column("parentId", DataType.INTEGER));
-        cols.add(new Column("nextLeafId", DataType.INTEGER));
-        cols.add(new Column("keyCount", DataType.INTEGER));
-        cols.add(new Column("childCount", DataType.INTEGER));
-
-        int maxKeys = order - 1;
-
-        for (int i = 0; i < maxKeys; i++) {
-            cols.add(new Column("key_" + i, baseColumn.type(), baseColumn.length()));
+        List<Column> included = includeColumns == null ? List.of() : includeColumns;
+        List<String> names = new ArrayList<>();
+        for (Column column : included) {
+            names.add(column.name());
         }
-
-        for (int i = 0; i < maxKeys; i++) {
-            cols.add(new Column("val_" + i, DataType.INTEGER));
+        this.includeColumns = List.copyOf(names);
+        List<String> keyNames = new ArrayList<>();
+        for (Column column : keyColumns) {
+            keyNames.add(column.name());
         }
-
-        for (int i = 0; i < order; i++) {
-            cols.add(new Column("child_" + i, DataType.INTEGER));
+        this.keyColumns = List.copyOf(keyNames);
+        this.layout = new NodeLayout(keyColumns, included);
+        this.tree = new BPlusTree(bufferPool, indexFile, layout);
+        for (int i = 0; i < UNIQUE_STRIPES; i++) {
+            uniqueStripes[i] = new Object();
         }
+    }
 
-        String indexTableName = tableName + "_" + columnName + "_bplusindex";
+    public List<String> getIncludeColumns() {
+        return includeColumns;
+    }
 
-        return new Schema(
-                indexTableName,
-                indexFile,
-                cols,
-                List.of());
+    public BPlusTree getTree() {
+        return tree;
     }
 
-    private static Object defaultKeyValue(DataType type) {
-        return switch (type) {
-            case INTEGER -> 0;
-            case FLOAT -> 0.0f;
-            case CHAR,
-                    VARCHAR ->
-                "";
-        };
+    /**
+     * true jika file indeks berformat lama (satu baris per node) atau tidak
+     * ditutup bersih (crash sebelum checkpoint) dan sudah dikosongkan saat
+     * dibuka; caller perlu mengisi ulang dari tabel.
+     */
+    @Override
+    public synchronized boolean isRebuildRequired() {
+        return rebuildRequired;
     }
 
     @Override
-    public void remove() {
-        this.tree = new BPlusTree<>(order);
+    public synchronized void markRebuilt() {
+        rebuildRequired = false;
+    }
 
-        if (blockManager == null || serializer == null) {
+    private void ensureOpen() {
+        if (opened) {
             return;
         }
+        synchronized (this) {
+            if (!opened) {
+                openTree();
+            }
+        }
+    }
 
+    private void openTree() {
         try {
-            byte[] blk = serializer.initializeNewBlock();
-            blockManager.writeBlock(indexFile, 0, blk);
-            blockManager.flush();
-        } catch (IOException ex) {
-            System.err.println("BPlusIndex.remove error: " + ex.getMessage());
+            if (!tree.open()) {
+                tree.reset();
+                rebuildRequired = true;
+            }
+            opened = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal membuka indeks " + indexFile, e);
         }
     }
 
     @Override
-    public void loadFromFile(CatalogManager catalogManager) {
-        if (blockManager == null || serializer == null) {
-            return;
-        }
-
+    public synchronized void remove() {
+        lifecycle.writeLock().lock();
         try {
-            Schema schema = buildSchema(catalogManager);
-            long blockCount = blockManager.getBlockCount(indexFile);
-
-            if (blockCount == 0) {
-                this.tree = new BPlusTree<>(order);
-                return;
-            }
-
-            Map<Integer, NodeRecord<K, V>> recordMap = new HashMap<>();
-
-            for (long bn = 0; bn < blockCount; bn++) {
-                byte[] blk = blockManager.readBlock(indexFile, bn);
-                List<Row> rows = serializer.deserializeBlock(blk, schema);
-
-                for (Row r : rows) {
-                    Map<String, Object> data = r.data();
-
-                    int nodeId = (int) data.get("nodeId");
-                    int isLeafFlag = (int) data.get("isLeaf");
-                    int parentId = (int) data.get("parentId");
-                    int nextLeafId = (int) data.get("nextLeafId");
-                    int keyCount = (int) data.get("keyCount");
-                    int childCount = (int) data.get("childCount");
-
-                    boolean isLeaf = (isLeafFlag == 1);
-
-                    NodeRecord<K, V> rec = new NodeRecord<>();
-                    rec.nodeId = nodeId;
-                    rec.parentId = parentId;
-                    rec.nextLeafId = nextLeafId;
-                    rec.isLeaf = isLeaf;
-                    rec.childIds = new ArrayList<>();
-
-                    int maxKeys = order - 1;
-
-                    if (isLeaf) {
-                        LeafNode<K, V> leaf = new LeafNode<>(null);
-
-                        for (int i = 0; i < keyCount; i++) {
-                            Object attr = data.get("key_" + i);
-
-                            @SuppressWarnings("unchecked")
-                            V rid = (V) data.get("val_" + i);
-
-                            @SuppressWarnings({ "rawtypes", "unchecked" })
-                            CompositeKey ck = new CompositeKey((Comparable) attr, (Comparable) rid);
-
-                            leaf.keys.add((K) ck);
-                            leaf.values.add(rid);
-                        }
-
-                        rec.node = leaf;
-                    } else {
-                        InternalNode<K, V> internal = new InternalNode<>(null);
-
-                        for (int i = 0; i < keyCount; i++) {
-                            Object attr = data.get("key_" + i);
-
-                            @SuppressWarnings({ "rawtypes", "unchecked" })
-                            CompositeKey ck = new CompositeKey((Comparable) attr, (Comparable) Integer.valueOf(0));
-
-                            internal.keys.add((K) ck);
-                        }
-
-                        for (int c = 0; c < childCount; c++) {
-                            int cid = (int) data.get("child_" + c);
-                            rec.childIds.add(cid);
-                        }
-
-                        rec.node = internal;
-                    }
-
-                    recordMap.put(nodeId, rec);
-                }
-            }
-
-            if (recordMap.isEmpty()) {
-                this.tree = new BPlusTree<>(order);
-                return;
-            }
-
-            Node<K, V> root = null;
-
-            for (NodeRecord<K, V> rec : recordMap.values()) {
-                if (rec.parentId == -1) {
-                    root = rec.node;
-                    break;
-                }
-            }
-
-            if (root == null) {
-                this.tree = new BPlusTree<>(order);
-                return;
-            }
-
-            for (NodeRecord<K, V> rec : recordMap.values()) {
-                if (!rec.isLeaf) {
-                    InternalNode<K, V> internal = (InternalNode<K, V>) rec.node;
-                    for (Integer cid : rec.childIds) {
-                        NodeRecord<K, V> childRec = recordMap.get(cid);
-                        if (childRec == null)
-                            continue;
-
-                        internal.children.add(childRec.node);
-                        childRec.node.parent = internal;
-                    }
-                } else {
-                    LeafNode<K, V> leaf = (LeafNode<K, V>) rec.node;
-                    if (rec.nextLeafId >= 0) {
-                        NodeRecord<K, V> nextRec = recordMap.get(rec.nextLeafId);
-                        if (nextRec != null && nextRec.isLeaf) {
-                            leaf.next = (LeafNode<K, V>) nextRec.node;
-                        }
-                    }
-                }
-
-                if (rec.parentId >= 0) {
-                    NodeRecord<K, V> parentRec = recordMap.get(rec.parentId);
-                    if (parentRec != null && parentRec.node instanceof InternalNode<?, ?>) {
-                        @SuppressWarnings("unchecked")
-                        InternalNode<K, V> p = (InternalNode<K, V>) parentRec.node;
-                        rec.node.parent = p;
-                    }
-                }
-            }
-
-            this.tree = BPlusTree.fromRoot(order, root);
-
-        } catch (Exception e) {
-            System.err.println("BPlusIndex.loadFromFile error: " + e.getMessage());
-            this.tree = new BPlusTree<>(order);
+            tree.drop();
+        } catch (IOException ex) {
+            System.err.println("BPlusIndex.remove error: " + ex.getMessage());
+        } finally {
+            opened = false;
+            lifecycle.writeLock().unlock();
         }
     }
 
-    private Object unwrapCompositeKey(Object key) {
-        if (key instanceof CompositeKey<?, ?> ck) {
-            return ck.getAttr();
+    /**
+     * Hanya membaca halaman meta; node lain dibaca saat pertama kali dikunjungi.
+     */
+    @Override
+    public synchronized void loadFromFile(CatalogManager catalogManager) {
+        lifecycle.writeLock().lock();
+        try {
+            opened = false;
+            openTree();
+        } finally {
+            lifecycle.writeLock().unlock();
         }
-        return key;
     }
 
+    /**
+     * Halaman yang berubah sudah ada di buffer pool (dirty) dan ikut
+     * di-flush oleh page cleaner/checkpoint; di sini cukup memastikan file
+     * indeks sudah terbentuk.
+     */
     @Override
     public void writeToFile(CatalogManager catalogManager) {
-        if (blockManager == null || serializer == null) {
-            return;
+        try {
+            ensureOpen();
+        } catch (UncheckedIOException e) {
+            System.err.println("BPlusIndex.writeToFile error: " + e.getMessage());
         }
+    }
 
+    @Override
+    public void beginChange() {
+        ensureOpen();
+        lifecycle.readLock().lock();
         try {
-            Schema schema = buildSchema(catalogManager);
-            Schema baseSchema = catalogManager.getSchema(tableName);
-            if (baseSchema == null) {
-                throw new IllegalStateException("Base table '" + tableName + "' not found in CatalogManager.");
-            }
-            Column baseColumn = baseSchema.getColumnByName(columnName);
-            if (baseColumn == null) {
-                throw new IllegalStateException("Column '" + columnName + "' not found in table '" + tableName + "'");
-            }
-            DataType keyType = baseColumn.type();
-            Object defaultKey = defaultKeyValue(keyType);
-
-            if (tree == null || tree.getRoot() == null) {
-                tree = new BPlusTree<>(order);
-            }
-
-            Node<K, V> rootNode = tree.getRoot();
-            List<Node<K, V>> nodes = new ArrayList<>();
-            collectNodes(rootNode, nodes);
-
-            Map<Node<K, V>, Integer> idMap = new HashMap<>();
-            for (int i = 0; i < nodes.size(); i++) {
-                idMap.put(nodes.get(i), i);
-            }
+            tree.cleanMarker().begin();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal menandai indeks " + indexFile, e);
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
 
-            int maxKeys = order - 1;
-            List<Row> rows = new ArrayList<>();
-
-            for (Node<K, V> n : nodes) {
-                Map<String, Object> data = new HashMap<>();
-                int nodeId = idMap.get(n);
-
-                data.put("nodeId", nodeId);
-                data.put("isLeaf", n.isLeaf() ? 1 : 0);
-                data.put("parentId", (n.parent == null) ? -1 : idMap.get(n.parent));
-                data.put("nextLeafId", -1);
-                data.put("keyCount", n.keyCount());
-
-                if (n.isLeaf()) {
-                    LeafNode<K, V> leaf = (LeafNode<K, V>) n;
-
-                    if (leaf.next != null) {
-                        Integer nextId = idMap.get(leaf.next);
-                        data.put("nextLeafId", nextId != null ? nextId : -1);
-                    }
-
-                    for (int i = 0; i < maxKeys; i++) {
-                        if (i < leaf.keys.size()) {
-                            Object keyObj = leaf.keys.get(i);
-                            data.put("key_" + i, unwrapCompositeKey(keyObj));
-                            data.put("val_" + i, leaf.values.get(i));
-                        } else {
-                            data.put("key_" + i, defaultKey);
-                            data.put("val_" + i, 0);
-                        }
-                    }
-
-                    data.put("childCount", 0);
-                    for (int c = 0; c < order; c++) {
-                        data.put("child_" + c, -1);
-                    }
-
-                } else {
-                    InternalNode<K, V> internal = (InternalNode<K, V>) n;
-
-                    for (int i = 0; i < maxKeys; i++) {
-                        if (i < internal.keys.size()) {
-                            Object keyObj = internal.keys.get(i);
-                            data.put("key_" + i, unwrapCompositeKey(keyObj));
-                        } else {
-                            data.put("key_" + i, defaultKey);
-                        }
-                        data.put("val_" + i, 0);
-                    }
-
-                    data.put("childCount", internal.children.size());
-                    for (int c = 0; c < order; c++) {
-                        if (c < internal.children.size()) {
-                            data.put("child_" + c, idMap.get(internal.children.get(c)));
-                        } else {
-                            data.put("child_" + c, -1);
-                        }
-                    }
-                }
+    @Override
+    public void endChange() {
+        tree.cleanMarker().end();
+    }
 
-                rows.add(new Row(data));
-            }
+    @Override
+    public long changeCount() {
+        return tree.cleanMarker().changeCount();
+    }
 
-            byte[] block = serializer.initializeNewBlock();
-            long blockNo = 0;
-
-            for (Row r : rows) {
-                try {
-                    block = serializer.packRowToBlock(block, r, schema);
-                } catch (IOException full) {
-                    blockManager.writeBlock(indexFile, blockNo, block);
-                    block = serializer.initializeNewBlock();
-                    block = serializer.packRowToBlock(block, r, schema);
-                    blockNo = blockManager.appendBlock(indexFile, block);
-                }
+    /**
+     * Dipanggil checkpoint setelah halaman di-flush; indeks yang sudah
+     * di-drop tidak ditulis lagi.
+     */
+    @Override
+    public void markClean(long changeCount) {
+        lifecycle.readLock().lock();
+        try {
+            if (opened) {
+                tree.cleanMarker().markClean(changeCount);
             }
+        } catch (IOException e) {
+            System.err.println("BPlusIndex.markClean error: " + e.getMessage());
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
 
-            blockManager.writeBlock(indexFile, blockNo, block);
-            blockManager.flush();
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> getAddress(K key) {
+        return getAddresses(key, true, key, true);
+    }
 
-        } catch (Exception e) {
-            System.err.println("BPlusIndex.writeToFile error: " + e.getMessage());
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> getAddresses(K minKey, boolean minInclusive, K maxKey, boolean maxInclusive) {
+        ensureOpen();
+        lifecycle.readLock().lock();
+        try {
+            return (List<V>) tree.findRange(minKey, minInclusive, maxKey, maxInclusive);
+        } finally {
+            lifecycle.readLock().unlock();
         }
     }
 
-    private Comparable minValueFor(Comparable pk) {
-        if (pk instanceof Integer)
-            return Integer.MIN_VALUE;
-        if (pk instanceof Long)
-            return Long.MIN_VALUE;
-        if (pk instanceof Short)
-            return Short.MIN_VALUE;
-        if (pk instanceof Byte)
-            return Byte.MIN_VALUE;
-        if (pk instanceof Float)
-            return -Float.MAX_VALUE;
-        if (pk instanceof Double)
-            return -Double.MAX_VALUE;
-        if (pk instanceof String)
-            return "";
-        throw new IllegalArgumentException("Unsupported PK type: " + pk.getClass());
+    /**
+     * Iterator RID lazy untuk rentang kunci: leaf dibaca satu per satu saat
+     * iterator maju. Iterator tidak memegang lock lifecycle, jadi indeks tidak
+     * boleh di-drop/di-load ulang selama iterator masih dipakai.
+     */
+    public BPlusTree.RangeIterator ridIterator(K minKey, boolean minInclusive, K maxKey, boolean maxInclusive) {
+        return ridIterator(minKey, minInclusive, maxKey, maxInclusive, false);
     }
 
-    private Comparable maxValueFor(Comparable pk) {
-        if (pk instanceof Integer)
-            return Integer.MAX_VALUE;
-        if (pk instanceof Long)
-            return Long.MAX_VALUE;
-        if (pk instanceof Short)
-            return Short.MAX_VALUE;
-        if (pk instanceof Byte)
-            return Byte.MAX_VALUE;
-        if (pk instanceof Float)
-            return Float.MAX_VALUE;
-        if (pk instanceof Double)
-            return Double.MAX_VALUE;
-        if (pk instanceof String)
-            return Character.toString(Character.MAX_VALUE);
-        throw new IllegalArgumentException("Unsupported PK type: " + pk.getClass());
+    /**
+     * @param descending true = RID dikembalikan dari kunci terbesar ke terkecil
+     */
+    public BPlusTree.RangeIterator ridIterator(K minKey, boolean minInclusive, K maxKey, boolean maxInclusive,
+            boolean descending) {
+        ensureOpen();
+        return tree.rangeIterator(minKey, minInclusive, maxKey, maxInclusive, descending);
     }
 
-    @Override
-    public List<V> getAddress(K key) {
-        if (tree == null)
-            return Collections.emptyList();
-
-        if (key instanceof CompositeKey<?, ?> ck) {
-            return tree.findRange(key, true, key, true);
+    /**
+     * Range scan yang menjawab langsung dari entri leaf: tiap baris berisi kolom kunci
+     * dan kolom INCLUDE, tanpa membaca heap tabel. Batas null = terbuka.
+     */
+    public List<Row> getCoveringRows(K minKey, boolean minInclusive, K maxKey, boolean maxInclusive) {
+        List<Row> rows = new ArrayList<>();
+        lifecycle.readLock().lock();
+        try {
+            coveringIterator(minKey, minInclusive, maxKey, maxInclusive).forEachRemaining(rows::add);
+        } finally {
+            lifecycle.readLock().unlock();
         }
+        return rows;
+    }
 
-        Comparable attr = (Comparable) key;
-
-        Comparable minPk = minValueFor((Comparable)0);
-        Comparable maxPk = maxValueFor((Comparable)0);
-
-        @SuppressWarnings("unchecked")
-        K lb = (K) new CompositeKey(attr, minPk);
-        @SuppressWarnings("unchecked")
-        K ub = (K) new CompositeKey(attr, maxPk);
+    /**
+     * Versi lazy {@link #getCoveringRows}; baris dibentuk saat diminta.
+     */
+    public Iterator<Row> coveringIterator(K minKey, boolean minInclusive, K maxKey, boolean maxInclusive) {
+        BPlusTree.RangeIterator it = ridIterator(minKey, minInclusive, maxKey, maxInclusive);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
 
-        return tree.findRange(lb, true, ub, true);
+            @Override
+            public Row next() {
+                it.nextLong();
+                return coveringRow(it.key(), it.payload());
+            }
+        };
     }
 
-    @Override
-    public List<V> getAddresses(K minKey, boolean minInclusive, K maxKey, boolean maxInclusive) {
-        if (tree == null) {
-            return Collections.emptyList();
-        }
-
-        K start = minKey;
-        if (start != null && !(start instanceof CompositeKey<?, ?>)) {
-            Comparable val = (Comparable) start;
-            Comparable pkBound = minInclusive ? minValueFor((Comparable)0) : maxValueFor((Comparable)0);
-            @SuppressWarnings("unchecked")
-            K lower = (K) new CompositeKey(val, pkBound); 
-            start = lower;
+    private Row coveringRow(Object key, Object[] payload) {
+        Map<String, Object> data = new HashMap<>();
+        if (key instanceof CompositeKey ck) {
+            for (int i = 0; i < keyColumns.size(); i++) {
+                data.put(keyColumns.get(i), ck.get(i));
+            }
+        } else {
+            data.put(columnName, key);
         }
-
-        K end = maxKey;
-        if (end != null && !(end instanceof CompositeKey<?, ?>)) {
-            Comparable val = (Comparable) end;
-            Comparable pkBound = maxInclusive ? maxValueFor((Comparable)0) : minValueFor((Comparable)0);
-            @SuppressWarnings("unchecked")
-            K upper = (K) new CompositeKey(val, pkBound);
-            end = upper;
+        for (int j = 0; j < includeColumns.size(); j++) {
+            data.put(includeColumns.get(j), payload != null ? payload[j] : null);
         }
-
-        return tree.findRange(start, minInclusive, end, maxInclusive);
+        return new Row(data);
     }
 
     @Override
     public void insertData(K key, V address) {
-        if (tree == null) {
-            tree = new BPlusTree<>(order);
+        insertData(key, address, null);
+    }
+
+    /**
+     * @param payload nilai kolom INCLUDE sesuai urutan {@link #getIncludeColumns()}
+     */
+    public void insertData(K key, V address, Object[] payload) {
+        ensureOpen();
+        lifecycle.readLock().lock();
+        try {
+            tree.insert(key, ((Number) address).longValue(), payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal menulis indeks " + indexFile, e);
+        } finally {
+            lifecycle.readLock().unlock();
         }
+    }
 
-        CompositeKey ck = new CompositeKey(
-                (Comparable) key,
-                (Comparable) address);
+    @Override
+    public boolean insertIfAbsent(K key, V address) {
+        return insertIfAbsent(key, address, null);
+    }
 
-        tree.insert((K) ck, address);
+    /**
+     * Insert untuk indeks UNIQUE: satu probe rentang [key, key] lalu insert,
+     * keduanya di bawah stripe kunci sehingga dua sesi yang menyisipkan kunci
+     * sama tidak bisa sama-sama lolos. Lookup dan insert kunci lain tetap paralel.
+     *
+     * @return false jika kunci sudah ada (indeks tidak berubah)
+     */
+    public boolean insertIfAbsent(K key, V address, Object[] payload) {
+        ensureOpen();
+        Object stripe = uniqueStripes[Math.floorMod(Objects.hashCode(layout.toStoredKey(key)), UNIQUE_STRIPES)];
+        synchronized (stripe) {
+            lifecycle.readLock().lock();
+            try {
+                if (tree.rangeIterator(key, true, key, true, false).hasNext()) {
+                    return false;
+                }
+                tree.insert(key, ((Number) address).longValue(), payload);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Gagal menulis indeks " + indexFile, e);
+            } finally {
+                lifecycle.readLock().unlock();
+            }
+        }
     }
 
     @Override
     public void deleteData(K key, V address) {
-        if (tree == null)
-            return;
-
-        K deleteKey = key;
-        if (!(key instanceof CompositeKey<?, ?>)) {
-            @SuppressWarnings({ "rawtypes", "unchecked" })
-            CompositeKey ck = new CompositeKey((Comparable) key, (Comparable) address);
-            deleteKey = (K) ck;
+        ensureOpen();
+        lifecycle.readLock().lock();
+        try {
+            tree.delete(key, ((Number) address).longValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal menulis indeks " + indexFile, e);
+        } finally {
+            lifecycle.readLock().unlock();
         }
-
-        tree.delete(deleteKey, address);
     }
 
-    public Map<K, List<V>> rangeQuery(K start, K end) {
-        if (tree == null)
-            return Collections.emptyMap();
-
-        Map<K, List<V>> result = new LinkedHashMap<>();
-
-        tree.scanRange(start, end, (k, v) -> {
-            result.computeIfAbsent(k, kk -> new ArrayList<>()).add(v);
-        });
-
-        return result;
+    @Override
+    public ExternalSorter newSorter(Path tempDir, int runEntries) {
+        return new ExternalSorter(layout, BPlusTree.buildOrder(), tempDir, runEntries);
     }
 
-    private void collectNodes(Node<K, V> node, List<Node<K, V>> out) {
-        if (node == null)
-            return;
-        out.add(node);
-        if (!node.isLeaf()) {
-            InternalNode<K, V> internal = (InternalNode<K, V>) node;
-            for (Node<K, V> child : internal.children) {
-                collectNodes(child, out);
-            }
+    @Override
+    public synchronized void bulkLoad(ExternalSorter sorter, double fillFactor) throws IOException {
+        Iterator<IndexEntry> it = sorter.iterator();
+        lifecycle.writeLock().lock();
+        try {
+            tree.bulkLoad(it, fillFactor);
+            opened = true;
+            rebuildRequired = false;
+        } finally {
+            lifecycle.writeLock().unlock();
         }
     }
 
-    private static class NodeRecord<KK extends Comparable<KK>, VV> {
-        int nodeId;
-        int parentId;
-        int nextLeafId;
-        boolean isLeaf;
-        Node<KK, VV> node;
-        List<Integer> childIds;
+    @Override
+    public String toString() {
+        return "BPlusIndex[" + tableName + "." + columnName + " -> " + indexFile + "]";
     }
 }
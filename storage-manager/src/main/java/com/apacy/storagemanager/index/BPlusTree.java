@@ -1,672 +1,767 @@
 package com.apacy.storagemanager.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.apacy.storagemanager.BufferPool;
+
+/**
+ * B+ tree berbasis halaman: setiap node adalah satu blok file indeks yang
+ * dibaca/ditulis lewat BufferPool, bukan objek yang seluruhnya hidup di heap.
+ *
+ * Halaman 0 = meta (magic, bersih, root, tinggi), halaman lain = {@link Node}. Insert
+ * hanya menulis halaman di jalur root→leaf yang berubah (leaf, plus node hasil
+ * split dan parent-nya), sehingga biaya tulis O(log n) per operasi; flush ke
+ * disk mengikuti page cleaner/checkpoint buffer pool. Membuka indeks cukup
+ * membaca halaman meta, node lain dimuat saat dikunjungi.
+ *
+ * Konkurensi mengikuti B-link tree (Lehman-Yao): setiap node punya right-link
+ * dan high key. Pembaca tidak memegang latch sama sekali; setiap halaman
+ * dibaca sebagai salinan utuh dari buffer pool, dan jika target sudah >= high
+ * key (node baru saja di-split) pembaca cukup berpindah ke kanan. Penulis turun
+ * tanpa latch, lalu hanya me-latch node yang diubah, satu per satu: node kanan
+ * hasil split ditulis lebih dulu, baru node kiri yang menautkannya, kemudian
+ * separator disisipkan ke parent. Karena tidak pernah memegang dua latch node
+ * sekaligus, latch boleh berbagi stripe tanpa risiko deadlock.
+ *
+ * Delete bersifat lazy: entri dihapus dari leaf tanpa merge/redistribusi.
+ * Leaf kosong tetap berada di rantai next dan dilewati saat scan. Karena node
+ * tidak pernah dihapus, right-link selalu aman diikuti.
+ *
+ * Setelah crash, halaman yang sempat di-flush bisa saling tidak konsisten
+ * (right-link ke halaman yang belum tertulis, leaf tanpa entri baris yang
+ * sudah ada di heap). Karena itu meta punya byte bersih yang diatur
+ * {@link CleanMarker}: perubahan pertama menandainya tidak bersih di disk,
+ * checkpoint menandainya bersih lagi, dan file yang dibuka tidak bersih
+ * dianggap bukan tree yang valid.
+ *
+ * open/reset/drop/bulkLoad mengganti seluruh isi file dan harus dipanggil
+ * tanpa operasi lain yang berjalan bersamaan (lihat BPlusIndex).
+ */
+public class BPlusTree {
+
+    static final int MAGIC = 0x42505434; // "BPT4": B-link, kunci string leaf di-front-code, byte bersih di meta
+    private static final long META_PAGE = 0L;
+    private static final int LATCH_STRIPES = 64;
+
+    private final BufferPool bufferPool;
+    private final String fileName;
+    private final NodeLayout layout;
+    private final int pageSize;
+
+    /** Root dan tinggi selalu dibaca/diganti bersama. */
+    private record Top(long root, int height) {
+    }
 
-public class BPlusTree<K extends Comparable<K>, V> {
-
-    private final int branchingFactor;
-    private Node<K,V> root;
-
-    public class RangeIterator {
-
-        private LeafNode<K,V> leaf;
+    private volatile Top top = new Top(Node.NONE, 0);
+    private final ReentrantLock rootLock = new ReentrantLock();
+    private final ReentrantLock[] latches = new ReentrantLock[LATCH_STRIPES];
+
+    private final CleanMarker marker = new CleanMarker(this::writeMeta);
+
+    private final AtomicLong pageReads = new AtomicLong();
+    private final AtomicLong pageWrites = new AtomicLong();
+
+    /**
+     * Iterator RID pada rentang kunci; leaf berikutnya baru dibaca saat leaf
+     * saat ini habis, sehingga pemanggil yang berhenti lebih awal (LIMIT) tidak
+     * membaca leaf sisanya. {@link #key()} dan {@link #payload()} mengacu ke
+     * entri yang terakhir dikembalikan nextLong().
+     *
+     * Urutan menurun tidak bisa mengikuti rantai next karena leaf hanya punya
+     * right-link. Setelah satu leaf habis, iterator turun lagi dari root ke leaf
+     * yang memuat entri terbesar di bawah batas bawah (low fence) leaf tadi,
+     * jadi biayanya satu penelusuran root→leaf per leaf.
+     */
+    public class RangeIterator implements PrimitiveIterator.OfLong {
+
+        private Node leaf;
         private int index;
-        private final K upperBound;
-
-        private boolean finished = false;
-
-        RangeIterator(LeafNode<K,V> startLeaf, int startIndex, K ub) {
+        private final Object endBound;     // batas atas (naik) atau batas bawah (menurun); null = terbuka
+        private final boolean endInclusive;
+        private final boolean descending;
+        private boolean hasFence;          // menurun: semua entri leaf >= (fenceKey, fenceRid)
+        private Object fenceKey;
+        private long fenceRid;
+        private boolean finished;
+        private Node lastLeaf;
+        private int lastIndex;
+
+        RangeIterator(Node startLeaf, int startIndex, Object endBound, boolean endInclusive, boolean descending) {
             this.leaf = startLeaf;
             this.index = startIndex;
-            this.upperBound = ub;
+            this.endBound = endBound;
+            this.endInclusive = endInclusive;
+            this.descending = descending;
         }
 
+        @Override
         public boolean hasNext() {
-            if (finished || leaf == null) return false;
-
-            if (index >= leaf.keys.size()) {
-                leaf = leaf.next;
-                index = 0;
-
-                if (leaf == null) {
+            if (finished) {
+                return false;
+            }
+            if (descending) {
+                while (index < 0) {
+                    if (!hasFence) {
+                        finished = true;
+                        return false;
+                    }
+                    descendBelow(fenceKey, fenceRid);
+                }
+            } else {
+                while (index >= leaf.size()) {
+                    if (leaf.next == Node.NONE) {
+                        finished = true;
+                        return false;
+                    }
+                    leaf = readNode(leaf.next);
+                    index = 0;
+                }
+            }
+            if (endBound != null) {
+                int cmp = leaf.compareKey(index, endBound);
+                if (descending ? (cmp < 0 || (cmp == 0 && !endInclusive)) : (cmp > 0 || (cmp == 0 && !endInclusive))) {
                     finished = true;
                     return false;
                 }
             }
-
-            if (leaf.keys.get(index).compareTo(upperBound) > 0) {
-                finished = true;
-                return false;
-            }
-
             return true;
         }
 
-        public V next() {
-            if (!hasNext()) return null;
-
-            V value = leaf.values.get(index);
-            index++;
-            return value;
-        }
-    }
-
-    public BPlusTree(int branchingFactor) {
-        if (branchingFactor < 3)
-            throw new IllegalArgumentException("branchingFactor must be >= 3");
-        this.branchingFactor = branchingFactor;
-        this.root = new LeafNode<>(null);
-    }
-
-    public void insert(K key, V value) {
-        LeafNode<K,V> leaf = findLeaf(key);
-        leaf.insertInLeaf(key, value);
-
-        if (leaf.isOverflow(branchingFactor)) {
-            LeafNode<K,V> right = leaf.splitLeaf(branchingFactor);
-            K firstKeyRight = right.getFirstKey();
-            handleInsertParent(leaf, firstKeyRight, right);
-        }
-    }
-
-    public void scanRange(K lb, K ub,
-                          java.util.function.BiConsumer<K,V> consumer) {
-
-        Node<K,V> C = root;
-
-        while (!C.isLeaf()) {
-            InternalNode<K,V> internal = (InternalNode<K,V>) C;
-
-            int i = 0;
-            while (i < internal.keys.size() &&
-                   lb.compareTo(internal.keys.get(i)) > 0) {
-                i++;
-            }
-
-            if (i == internal.keys.size()) {
-                C = internal.children.get(i);
-            } else {
-                if (lb.compareTo(internal.keys.get(i)) == 0) {
-                    C = internal.children.get(i + 1);
-                } else {
-                    C = internal.children.get(i);
-                }
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
+            lastLeaf = leaf;
+            lastIndex = index;
+            return leaf.rids.get(descending ? index-- : index++);
         }
 
-        LeafNode<K,V> leaf = (LeafNode<K,V>) C;
-
-        int i = java.util.Collections.binarySearch(leaf.keys, lb);
-        if (i < 0) i = -i - 1;
-        if (i >= leaf.keys.size()) {
-            i = leaf.keys.size();
+        public Object key() {
+            return lastLeaf.key(lastIndex);
         }
 
-        boolean done = false;
-        while (!done) {
-            int n = leaf.keys.size();
+        public Object[] payload() {
+            return lastLeaf.payloads.get(lastIndex);
+        }
 
-            while (i < n) {
-                K key = leaf.keys.get(i);
-                if (key.compareTo(ub) <= 0) {
-                    consumer.accept(key, leaf.values.get(i));
-                    i++;
+        /**
+         * Turun dari root ke leaf yang memuat entri terbesar < (key, rid), key null
+         * = tak terbatas. Low fence leaf tersebut dicatat: separator di kiri child
+         * yang diambil, atau high key node kiri saat berpindah lewat right-link.
+         */
+        private void descendBelow(Object key, long rid) {
+            Node node = readNode(top.root());
+            hasFence = false;
+            while (true) {
+                if (node.highKey != null && (key == null || node.aboveHigh(key, rid))) {
+                    setFence(node.highKey, node.highRid);
+                    node = readNode(node.next);
+                } else if (!node.leaf) {
+                    int child = key == null ? node.size() : node.lowerBound(key, rid);
+                    if (child > 0) {
+                        setFence(node.key(child - 1), node.rids.get(child - 1));
+                    }
+                    node = readNode(node.children.get(child));
                 } else {
-                    done = true;
                     break;
                 }
             }
+            leaf = node;
+            index = (key == null ? node.size() : node.lowerBound(key, rid)) - 1;
+        }
 
-            if (done) break;
-
-            if (leaf.next != null) {
-                leaf = leaf.next;
-                i = 0;
-            } else {
-                done = true;
-            }
+        private void setFence(Object key, long rid) {
+            hasFence = true;
+            fenceKey = key;
+            fenceRid = rid;
         }
     }
 
-    public static <K extends Comparable<K>, V> BPlusTree<K,V> fromRoot(int branchingFactor,
-                                                                       Node<K,V> root) {
-        BPlusTree<K,V> t = new BPlusTree<>(branchingFactor);
-        t.root = root;
-        return t;
+    BPlusTree(BufferPool bufferPool, String fileName, NodeLayout layout) {
+        this.bufferPool = bufferPool;
+        this.fileName = fileName;
+        this.layout = layout;
+        this.pageSize = bufferPool.getBlockSize();
+        for (int i = 0; i < LATCH_STRIPES; i++) {
+            latches[i] = new ReentrantLock();
+        }
+        // Header + high key + child_0 + 4 entri harus muat satu halaman
+        int limit = (pageSize - Node.HEADER_SIZE - 8) / 5;
+        if (layout.maxLeafEntrySize() + 8 > limit) {
+            throw new IllegalArgumentException("Entri indeks terlalu besar untuk satu halaman (maks "
+                    + limit + " byte, butuh " + (layout.maxLeafEntrySize() + 8) + ").");
+        }
     }
 
-    private void handleInsertParent(Node<K,V> left,
-                                    K keyToParent,
-                                    Node<K,V> right) {
-        if (left.parent == null) {
-            InternalNode<K,V> newRoot = new InternalNode<>(null);
-            newRoot.keys.add(keyToParent);
-            newRoot.children.add(left);
-            newRoot.children.add(right);
-            left.parent = newRoot;
-            right.parent = newRoot;
-            this.root = newRoot;
-            return;
+    // ==================================================================================
+    // META
+    // ==================================================================================
+
+    /**
+     * Buka file indeks: hanya halaman meta yang dibaca. File kosong
+     * diinisialisasi sebagai tree kosong.
+     *
+     * @return false jika file berisi format lain (bukan B-link tree halaman)
+     *         atau tidak ditutup bersih
+     */
+    boolean open() throws IOException {
+        if (bufferPool.getBlockCount(fileName) == 0) {
+            create();
+            return true;
         }
-
-        InternalNode<K,V> parent = left.parent;
-        parent.insertAfter(left, keyToParent, right);
-
-        if (parent.isOverflow(branchingFactor)) {
-            SplitInternal<K,V> split = parent.splitInternal(branchingFactor);
-            handleInsertParent(parent, split.middleKey, split.rightNode);
+        ByteBuffer meta = ByteBuffer.wrap(readPage(META_PAGE));
+        if (meta.getInt() != MAGIC || meta.get() == 0) {
+            return false;
         }
+        long root = meta.getLong();
+        top = new Top(root, meta.getInt());
+        marker.reset(true);
+        return true;
     }
 
-    private LeafNode<K,V> findLeaf(K key) {
-        Node<K,V> n = root;
-        while (!n.isLeaf()) {
-            InternalNode<K,V> internal = (InternalNode<K,V>) n;
-
-            int pos = 0;
-            while (pos < internal.keys.size() && key.compareTo(internal.keys.get(pos)) > 0)
-                pos++;
+    /**
+     * Hapus file lalu mulai tree kosong baru.
+     */
+    void reset() throws IOException {
+        bufferPool.deleteFile(fileName);
+        create();
+    }
 
-            n = internal.children.get(pos);
-        }
-        return (LeafNode<K,V>) n;
+    /**
+     * Hapus file indeks tanpa membuat ulang.
+     */
+    void drop() throws IOException {
+        bufferPool.deleteFile(fileName);
+        top = new Top(Node.NONE, 0);
     }
 
+    /**
+     * Tree kosong baru; tidak bersih sampai checkpoint berikutnya.
+     */
+    private void create() throws IOException {
+        top = new Top(1, 1);
+        marker.reset(false);
+        writeMeta(false, false);
+        writeNode(new Node(layout, 1, true));
+    }
 
-    public void delete(K key, V value) {
-        LeafNode<K,V> leaf = findLeaf(key);
-        boolean removed = leaf.deleteFromLeaf(key, value);
-        if (!removed) return;
+    CleanMarker cleanMarker() {
+        return marker;
+    }
 
-        if (leaf.isUnderflow(root == leaf, branchingFactor)) {
-            handleUnderflow(leaf);
+    /**
+     * Tulis meta dengan root saat ini. Semua penulisan meta diserialkan di
+     * monitor marker dan root dibaca di dalamnya, jadi penanda tidak bersih
+     * yang ditulis bersamaan dengan root baru tidak bisa memulihkan root lama.
+     */
+    private void writeMeta(boolean clean, boolean durable) throws IOException {
+        synchronized (marker) {
+            Top current = top;
+            ByteBuffer meta = ByteBuffer.allocate(pageSize);
+            meta.putInt(MAGIC);
+            meta.put((byte) (clean ? 1 : 0));
+            meta.putLong(current.root());
+            meta.putInt(current.height());
+            if (durable) {
+                bufferPool.writeThrough(fileName, META_PAGE, meta.array());
+            } else {
+                bufferPool.writeBlock(fileName, META_PAGE, meta.array());
+            }
+            pageWrites.incrementAndGet();
         }
     }
 
-    private void handleUnderflow(Node<K,V> node) {
-
-        if (node == root && node.isLeaf()) {
-            if (node.keyCount() == 0) {
-                root = new LeafNode<>(null);
-            }
-            return;
+    // ==================================================================================
+    // INSERT / DELETE
+    // ==================================================================================
+
+    /**
+     * Sisipkan (key, rid) beserta payload INCLUDE. Jika pasangan (key, rid)
+     * sudah ada, payload-nya diganti.
+     */
+    public void insert(Object key, long rid, Object[] payload) throws IOException {
+        marker.begin();
+        try {
+            insertEntry(key, rid, payload);
+        } finally {
+            marker.end();
         }
+    }
 
-        if (node == root && !node.isLeaf()) {
-            InternalNode<K,V> r = (InternalNode<K,V>) root;
-            if (r.children.size() == 1) {
-                root = r.children.get(0);
-                root.parent = null;
+    private void insertEntry(Object key, long rid, Object[] payload) throws IOException {
+        Object k = layout.toStoredKey(key);
+        Object[] p = layout.toStoredPayload(payload);
+
+        // Turun tanpa latch; jalur dicatat untuk menyisipkan separator jika leaf di-split
+        Deque<Long> path = new ArrayDeque<>();
+        Node node = readNode(top.root());
+        while (!node.leaf) {
+            if (node.beyondHigh(k, rid)) {
+                node = readNode(node.next);
+                continue;
             }
-            return;
+            path.push(node.pageId);
+            node = readNode(node.children.get(node.childIndex(k, rid)));
         }
 
-
-        InternalNode<K,V> parent = node.parent;
-        int idx = parent.children.indexOf(node);
-
-        Node<K,V> leftSibling  = (idx > 0) ? parent.children.get(idx - 1) : null;
-        Node<K,V> rightSibling = (idx + 1 < parent.children.size())
-                                 ? parent.children.get(idx + 1)
-                                 : null;
-
-        Node<K,V> sibling;
-        int sepIndex;
-        K separatorKey;
-
-        if (leftSibling != null) {
-            sibling   = leftSibling;
-            sepIndex  = idx - 1;
-        } else if (rightSibling != null) {
-            sibling   = rightSibling;
-            sepIndex  = idx;
-        } else {
-            return;
+        Node leaf = latchCovering(node.pageId, k, rid);
+        Node right;
+        try {
+            int pos = leaf.lowerBound(k, rid);
+            if (pos < leaf.size() && leaf.compareEntry(pos, k, rid) == 0) {
+                leaf.payloads.set(pos, p);
+                writeNode(leaf);
+                return;
+            }
+            leaf.insert(pos, k, rid, p);
+            if (leaf.encodedSize() <= pageSize) {
+                writeNode(leaf);
+                return;
+            }
+            right = split(leaf);
+        } finally {
+            unlatch(leaf);
         }
 
-        separatorKey = parent.keys.get(sepIndex);
-
-        boolean merged = coalesceNodes(node, sibling, parent, sepIndex, separatorKey);
-
-        if (merged) {
-              if (parent == root) {
-                  InternalNode<K,V> r = (InternalNode<K,V>) root;
-                  if (!r.isLeaf() && r.children.size() == 1) {
-                      root = r.children.get(0);
-                      root.parent = null;
-                  }
-              } else if (parent.isUnderflow(false, branchingFactor)) {
-                  handleUnderflow(parent);
-              } 
-        } else {
-            redistributeNodes(node, sibling, parent, sepIndex);
+        // Naik level demi level; setiap kali hanya satu node yang di-latch
+        long left = leaf.pageId;
+        Object sepKey = leaf.highKey;
+        long sepRid = leaf.highRid;
+        int level = 1;
+        while (true) {
+            Long parentId = path.poll();
+            if (parentId == null) {
+                if (growRoot(left, sepKey, sepRid, right.pageId, level)) {
+                    return;
+                }
+                parentId = nodeAtLevel(level, sepKey, sepRid);
+            }
+            Node parent = latchCovering(parentId, sepKey, sepRid);
+            try {
+                int i = parent.lowerBound(sepKey, sepRid);
+                parent.insertSeparator(i, sepKey, sepRid, right.pageId);
+                if (parent.encodedSize() <= pageSize) {
+                    writeNode(parent);
+                    return;
+                }
+                right = split(parent);
+            } finally {
+                unlatch(parent);
+            }
+            left = parent.pageId;
+            sepKey = parent.highKey;
+            sepRid = parent.highRid;
+            level++;
         }
     }
 
-
-    public List<V> rangeSearch(K lowerBound, K upperBound) {
-        List<V> result = new ArrayList<>();
-
-        LeafNode<K,V> leaf = findLeaf(lowerBound);
-
-        int i = Collections.binarySearch(leaf.keys, lowerBound);
-        if (i < 0) i = -i - 1;
-
-        while (leaf != null) {
-            while (i < leaf.keys.size()) {
-                K k = leaf.keys.get(i);
-                if (k.compareTo(upperBound) > 0) {
-                    return result;
-                }
-                result.add(leaf.values.get(i));
-                i++;
+    /**
+     * Pecah node penuh (yang sedang di-latch) menjadi dua berdasarkan ukuran
+     * byte. Node kanan mendapat halaman baru, mewarisi right-link dan high key
+     * node kiri; high key node kiri menjadi separator. Untuk node internal,
+     * separator dipindah ke parent dan tidak lagi disimpan di node mana pun.
+     * Node kanan ditulis lebih dulu supaya right-link node kiri tidak pernah
+     * menunjuk halaman yang belum terisi.
+     */
+    private Node split(Node node) throws IOException {
+        int total = node.encodedSize();
+        int acc = Node.HEADER_SIZE;
+        int mid = 0;
+        while (mid < node.size() - 1 && acc < total / 2) {
+            acc += node.entrySize(mid);
+            mid++;
+        }
+        mid = Math.max(1, mid);
+
+        Node right = new Node(layout, allocatePage(), node.leaf);
+        right.next = node.next;
+        right.highKey = node.highKey;
+        right.highRid = node.highRid;
+        if (node.leaf) {
+            Object leftMax = node.key(mid - 1);
+            node.moveTail(mid, right);
+            separate(node, leftMax, right.key(0), right.rids.get(0));
+        } else {
+            if (mid >= node.size() - 1) {
+                mid = node.size() - 2;
             }
-            leaf = leaf.next;
-            i = 0;
+            right.children.add(node.children.get(mid + 1));
+            node.moveTail(mid + 1, right);
+            node.highKey = node.key(mid);
+            node.highRid = node.rids.get(mid);
+            node.truncate(mid);
         }
+        node.next = right.pageId;
 
-        return result;
+        writeNode(right);
+        writeNode(node);
+        return right;
     }
 
-
-    public V find(K key) {
-        Node<K,V> C = root;
-
-        while (!C.isLeaf()) {
-            InternalNode<K,V> internal = (InternalNode<K,V>) C;
-
+    /**
+     * Pasang high key leaf kiri: separator terpendek yang masih > kunci
+     * terakhir kiri dan <= entri pertama kanan. Untuk kunci string cukup prefix
+     * kunci kanan sampai karakter pertama yang berbeda (rid MIN_VALUE supaya
+     * semua entri kanan dengan prefix itu tetap di kanan), sehingga kunci
+     * panjang tidak ikut disalin utuh ke high key dan parent.
+     */
+    private static void separate(Node left, Object leftMax, Object rightMin, long rightRid) {
+        if (leftMax instanceof String a && rightMin instanceof String b) {
             int i = 0;
-            while (i < internal.keys.size() &&
-                   key.compareTo(internal.keys.get(i)) > 0) {
+            while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i)) {
                 i++;
             }
-
-            if (i == internal.keys.size()) {
-                C = internal.children.get(i);
-            }
-            else {
-                if (key.compareTo(internal.keys.get(i)) == 0) {
-                    C = internal.children.get(i + 1);
-                } else {
-                    C = internal.children.get(i);
-                }
+            int end = i < b.length() && Character.isHighSurrogate(b.charAt(i)) ? i + 2 : i + 1;
+            if (end < b.length()) {
+                left.highKey = b.substring(0, end);
+                left.highRid = Long.MIN_VALUE;
+                return;
             }
         }
+        left.highKey = rightMin;
+        left.highRid = rightRid;
+    }
 
-        LeafNode<K,V> leaf = (LeafNode<K,V>) C;
-
-        int pos = Collections.binarySearch(leaf.keys, key);
-        if (pos >= 0) {
-            return leaf.values.get(pos);
-        } else {
-            return null;
+    /**
+     * Jika node yang baru di-split adalah root, buat root baru di atasnya.
+     *
+     * @return false jika root sudah berganti (tree sudah tumbuh oleh split lain)
+     */
+    private boolean growRoot(long left, Object sepKey, long sepRid, long right, int level) throws IOException {
+        rootLock.lock();
+        try {
+            Top current = top;
+            if (current.root() != left) {
+                return false;
+            }
+            Node newRoot = new Node(layout, allocatePage(), false);
+            newRoot.children.add(left);
+            newRoot.append(sepKey, sepRid, null, right);
+            writeNode(newRoot);
+            top = new Top(newRoot.pageId, level + 1);
+            writeMeta(marker.isClean(), false);
+            return true;
+        } finally {
+            rootLock.unlock();
         }
     }
 
-    public List<V> findRange(K lb, boolean lbInclusive, K ub, boolean ubInclusive) {
-        List<V> result = new ArrayList<>();
-        Node<K,V> C = root;
-
-        if (lb == null) {
-            while (!C.isLeaf()) {
-                InternalNode<K,V> internal = (InternalNode<K,V>) C;
-                C = internal.children.get(0);
+    /**
+     * Node di level tertentu (leaf = 0) yang mencakup (key, rid), dicari dari
+     * root. Dipakai saat node yang di-split tidak punya parent di jalur turun
+     * karena tree bertambah tinggi di tengah jalan; jika root baru belum
+     * dipasang oleh thread yang men-split root lama, tunggu sebentar.
+     */
+    private long nodeAtLevel(int level, Object key, long rid) {
+        Top current = top;
+        while (current.height() <= level) {
+            Thread.onSpinWait();
+            current = top;
+        }
+        Node node = readNode(current.root());
+        int nodeLevel = current.height() - 1;
+        while (true) {
+            if (node.beyondHigh(key, rid)) {
+                node = readNode(node.next);
+                continue;
             }
-        } else {
-            while (!C.isLeaf()) {
-                InternalNode<K,V> internal = (InternalNode<K,V>) C;
-                int i = 0;
-                while (i < internal.keys.size() && lb.compareTo(internal.keys.get(i)) > 0) {
-                    i++;
-                }
-                if (i == internal.keys.size()) {
-                    C = internal.children.get(i);
-                } else {
-                    if (lb.compareTo(internal.keys.get(i)) == 0) {
-                        C = internal.children.get(i + 1);
-                    } else {
-                        C = internal.children.get(i);
-                    }
-                }
+            if (nodeLevel == level) {
+                return node.pageId;
             }
+            node = readNode(node.children.get(node.childIndex(key, rid)));
+            nodeLevel--;
         }
+    }
 
-        LeafNode<K,V> leaf = (LeafNode<K,V>) C;
-        int i = 0;
-
-        if (lb != null) {
-            i = Collections.binarySearch(leaf.keys, lb);
-            if (i < 0) {
-                i = -i - 1;
-            } else {
-                if (!lbInclusive) {
-                    while (i < leaf.keys.size() && leaf.keys.get(i).compareTo(lb) == 0) {
-                        i++;
-                    }
-                }
-            }
-        } else {
-            i = 0;
+    /**
+     * Hapus (key, rid) dari leaf; hanya halaman leaf yang ditulis ulang.
+     *
+     * @return true jika entri ditemukan
+     */
+    public boolean delete(Object key, long rid) throws IOException {
+        marker.begin();
+        try {
+            return deleteEntry(key, rid);
+        } finally {
+            marker.end();
         }
+    }
 
-        if (i >= leaf.keys.size()) {
-            leaf = leaf.next;
-            i = 0;
+    private boolean deleteEntry(Object key, long rid) throws IOException {
+        Object k = layout.toStoredKey(key);
+        Node node = readNode(top.root());
+        while (!node.leaf) {
+            node = node.beyondHigh(k, rid)
+                    ? readNode(node.next)
+                    : readNode(node.children.get(node.childIndex(k, rid)));
         }
-
-        boolean done = false;
-
-        while (!done && leaf != null) {
-            int n = leaf.keys.size();
-            while (i < n) {
-                K key = leaf.keys.get(i);
-
-                if (ub != null) {
-                    int cmp = key.compareTo(ub);
-                    if (cmp > 0) {
-                        done = true;
-                        break;
-                    }
-                    if (cmp == 0) {
-                        if (ubInclusive) {
-                            result.add(leaf.values.get(i));
-                        }
-                        
-                        if (!ubInclusive) {
-                            done = true; 
-                            break;
-                        }
-                    } else {
-                        result.add(leaf.values.get(i));
-                    }
-                } else {
-                    result.add(leaf.values.get(i));
-                }
-                i++;
+        Node leaf = latchCovering(node.pageId, k, rid);
+        try {
+            int pos = leaf.lowerBound(k, rid);
+            if (pos >= leaf.size() || leaf.compareEntry(pos, k, rid) != 0) {
+                return false;
             }
-
-            if (done) break;
-
-            leaf = leaf.next;
-            i = 0;
+            leaf.remove(pos);
+            writeNode(leaf);
+            return true;
+        } finally {
+            unlatch(leaf);
         }
-
-        return result;
     }
 
+    // ==================================================================================
+    // LATCH NODE
+    // ==================================================================================
 
-    public RangeIterator rangeIterator(K lb, K ub) {
-
-        LeafNode<K,V> leaf = findLeaf(lb);
-
-        int i = Collections.binarySearch(leaf.keys, lb);
-        if (i < 0) i = -i - 1;
-
-        if (i >= leaf.keys.size()) i = leaf.keys.size();
-
-        return new RangeIterator(leaf, i, ub);
+    private ReentrantLock latchOf(long pageId) {
+        return latches[(int) Math.floorMod(pageId, (long) LATCH_STRIPES)];
     }
 
-    private boolean coalesceNodes(
-            Node<K,V> N,
-            Node<K,V> sibling,
-            InternalNode<K,V> parent,
-            int sepIndex,
-            K separatorKey
-    ) {
-
-        boolean isLeaf = N.isLeaf();
-
-        if (isLeaf) {
-            LeafNode<K,V> L  = (LeafNode<K,V>) N;
-            LeafNode<K,V> Lp = (LeafNode<K,V>) sibling;
-
-            int total = L.keys.size() + Lp.keys.size();
-            int nK = L.maxKeys(branchingFactor);
-
-            if (total > nK) {
-                return false;
+    /**
+     * Latch node yang mencakup (key, rid) di level yang sama dengan pageId:
+     * halaman dibaca ulang setelah latch didapat, dan jika target sudah
+     * melewati high key latch dilepas lalu pindah ke kanan. Node yang
+     * dikembalikan masih di-latch; lepaskan dengan {@link #unlatch}.
+     */
+    private Node latchCovering(long pageId, Object key, long rid) {
+        while (true) {
+            ReentrantLock latch = latchOf(pageId);
+            latch.lock();
+            Node node;
+            try {
+                node = readNode(pageId);
+            } catch (RuntimeException e) {
+                latch.unlock();
+                throw e;
             }
-        } else {
-            InternalNode<K,V> I  = (InternalNode<K,V>) N;
-            InternalNode<K,V> Ip = (InternalNode<K,V>) sibling;
-
-            int totalChildren = I.children.size() + Ip.children.size();
-            if (totalChildren > branchingFactor) {
-                return false; 
+            if (!node.beyondHigh(key, rid)) {
+                return node;
             }
+            latch.unlock();
+            pageId = node.next;
         }
+    }
 
-        Node<K,V> Left  = sibling;
-        Node<K,V> Right = N;
-
-        int idxL = parent.children.indexOf(Left);
-        int idxR = parent.children.indexOf(Right);
-        if (idxL > idxR) {
-            Left = N;
-            Right = sibling;
-            sepIndex = Math.min(idxL, idxR);
-            separatorKey = parent.keys.get(sepIndex);
-        }
-
-        if (Left.isLeaf()) {
-
-            LeafNode<K,V> L  = (LeafNode<K,V>) Left;
-            LeafNode<K,V> R  = (LeafNode<K,V>) Right;
-
-            L.keys.addAll(R.keys);
-            L.values.addAll(R.values);
-
-            L.next = R.next;
-
-        } else {
-
-            InternalNode<K,V> L  = (InternalNode<K,V>) Left;
-            InternalNode<K,V> R  = (InternalNode<K,V>) Right;
+    /**
+     * Lepas latch node hasil {@link #latchCovering}.
+     */
+    private void unlatch(Node latched) {
+        latchOf(latched.pageId).unlock();
+    }
 
-            L.keys.add(separatorKey);
+    // ==================================================================================
+    // BULK BUILD
+    // ==================================================================================
+
+    /**
+     * Urutan entri untuk bulkLoad: (kunci, RID), sama dengan urutan di leaf.
+     */
+    static Comparator<IndexEntry> buildOrder() {
+        return (a, b) -> {
+            int c = NodeLayout.compareKeys(a.key(), b.key());
+            return c != 0 ? c : Long.compare(a.rid(), b.rid());
+        };
+    }
 
-            L.keys.addAll(R.keys);
-            for (Node<K,V> child : R.children) {
-                L.children.add(child);
-                child.parent = L;
+    /**
+     * Bangun ulang tree dari entri terurut secara bottom-up: leaf diisi
+     * berurutan sampai fillFactor halaman, lalu setiap level internal dibangun
+     * dari (separator, halaman) level di bawahnya sampai tersisa satu root.
+     * Separator antar leaf dipilih seperti saat split (lihat {@link #separate})
+     * dan menjadi high key leaf sebelumnya. Halaman ditulis sekali saat selesai
+     * diisi, tanpa split.
+     */
+    void bulkLoad(Iterator<IndexEntry> sorted, double fillFactor) throws IOException {
+        reset();
+        int limit = Math.max(Node.HEADER_SIZE + 2 * (layout.maxLeafEntrySize() + 16),
+                (int) (pageSize * Math.min(1.0, Math.max(0.1, fillFactor))));
+        limit = Math.min(limit, pageSize);
+
+        // Level leaf: halaman 1 (root kosong hasil reset) menjadi leaf pertama.
+        // Setiap level dicatat sebagai (halaman, separator di kirinya) untuk level di atasnya.
+        // Ruang untuk high key selalu disisakan (perkiraan dengan ukuran entri maksimum).
+        int highReserve = layout.maxLeafEntrySize();
+        List<Long> pages = new ArrayList<>();
+        List<Object> firstKeys = new ArrayList<>();
+        List<Long> firstRids = new ArrayList<>();
+        Node leaf = new Node(layout, top.root(), true);
+        int size = Node.HEADER_SIZE + highReserve;
+        Object lastKey = null;
+        while (sorted.hasNext()) {
+            IndexEntry entry = sorted.next();
+            int payloadSize = 8 + (entry.payload() == null ? 0 : layout.payloadSize(entry.payload()));
+            int entrySize = leafKeySize(entry.key(), lastKey) + payloadSize;
+            if (leaf.size() > 0 && size + entrySize > limit) {
+                Node nextLeaf = new Node(layout, allocatePage(), true);
+                leaf.next = nextLeaf.pageId;
+                separate(leaf, lastKey, entry.key(), entry.rid());
+                writeNode(leaf);
+                pages.add(nextLeaf.pageId);
+                firstKeys.add(leaf.highKey);
+                firstRids.add(leaf.highRid);
+                leaf = nextLeaf;
+                size = Node.HEADER_SIZE + highReserve;
+                entrySize = leafKeySize(entry.key(), null) + payloadSize;
             }
+            if (pages.isEmpty()) {
+                pages.add(leaf.pageId);
+                firstKeys.add(entry.key());
+                firstRids.add(entry.rid());
+            }
+            leaf.append(entry.key(), entry.rid(), entry.payload(), Node.NONE);
+            lastKey = entry.key();
+            size += entrySize;
         }
-
-        parent.keys.remove(sepIndex);
-        parent.children.remove(sepIndex + 1);
-
-        return true;
+        writeNode(leaf);
+
+        int height = 1;
+        while (pages.size() > 1) {
+            List<Long> parentPages = new ArrayList<>();
+            List<Object> parentKeys = new ArrayList<>();
+            List<Long> parentRids = new ArrayList<>();
+            Node parent = null;
+            for (int i = 0; i < pages.size(); i++) {
+                int entrySize = layout.keySize(firstKeys.get(i)) + 16;
+                if (parent == null || size + entrySize > limit) {
+                    Node nextParent = new Node(layout, allocatePage(), false);
+                    if (parent != null) {
+                        parent.next = nextParent.pageId;
+                        parent.highKey = firstKeys.get(i);
+                        parent.highRid = firstRids.get(i);
+                        writeNode(parent);
+                    }
+                    parent = nextParent;
+                    parent.children.add(pages.get(i));
+                    parentPages.add(parent.pageId);
+                    parentKeys.add(firstKeys.get(i));
+                    parentRids.add(firstRids.get(i));
+                    size = Node.HEADER_SIZE + highReserve + 8;
+                    continue;
+                }
+                parent.append(firstKeys.get(i), firstRids.get(i), null, pages.get(i));
+                size += entrySize;
+            }
+            writeNode(parent);
+            pages = parentPages;
+            firstKeys = parentKeys;
+            firstRids = parentRids;
+            height++;
+        }
+        top = new Top(pages.isEmpty() ? top.root() : pages.get(0), height);
+        writeMeta(false, false);
     }
 
-    private void redistributeNodes(
-            Node<K,V> N,
-            Node<K,V> sibling,
-            InternalNode<K,V> parent,
-            int sepIndex
-    ) {
-
-        boolean isLeaf = N.isLeaf();
-
-        int idxN = parent.children.indexOf(N);
-        int idxS = parent.children.indexOf(sibling);
-
-        boolean siblingIsPredecessor = (idxS < idxN);
-
-        if (isLeaf) {
-            LeafNode<K,V> leafN = (LeafNode<K,V>) N;
-            LeafNode<K,V> leafS = (LeafNode<K,V>) sibling;
-
-            if (siblingIsPredecessor) {
+    /**
+     * Ukuran kunci di leaf bila ditulis setelah prev (null = entri pertama leaf).
+     */
+    private int leafKeySize(Object key, Object prev) {
+        return layout.frontCodedKeys() ? Node.frontCodedSize(key, prev) : layout.keySize(key);
+    }
 
-                int lastIdx = leafS.keys.size() - 1;
-                K borrowedKey = leafS.keys.remove(lastIdx);
-                V borrowedVal = leafS.values.remove(lastIdx);
+    // ==================================================================================
+    // PENCARIAN
+    // ==================================================================================
 
-                leafN.keys.add(0, borrowedKey);
-                leafN.values.add(0, borrowedVal);
+    public List<Long> findRange(Object lb, boolean lbInclusive, Object ub, boolean ubInclusive) {
+        List<Long> result = new ArrayList<>();
+        RangeIterator it = rangeIterator(lb, lbInclusive, ub, ubInclusive);
+        while (it.hasNext()) {
+            result.add(it.nextLong());
+        }
+        return result;
+    }
 
-                K newSep = leafS.keys.get(leafS.keys.size() - 1);
-                parent.keys.set(sepIndex, newSep);
+    public RangeIterator rangeIterator(Object lb, boolean lbInclusive, Object ub, boolean ubInclusive) {
+        return rangeIterator(lb, lbInclusive, ub, ubInclusive, false);
+    }
 
+    /**
+     * Iterator RID untuk rentang [lb, ub] (batas null = terbuka). Urutan naik:
+     * turun ke leaf pertama dengan target (lb, -inf) untuk batas inklusif atau
+     * (lb, +inf) untuk eksklusif, lalu berjalan lewat rantai next. Urutan menurun
+     * dimulai dari entri terakhir < (ub, +inf) atau < (ub, -inf). Tanpa latch:
+     * node yang di-split bersamaan dilewati lewat right-link.
+     */
+    public RangeIterator rangeIterator(Object lb, boolean lbInclusive, Object ub, boolean ubInclusive,
+            boolean descending) {
+        Object lower = layout.toBound(lb);
+        Object upper = layout.toBound(ub);
+        if (descending) {
+            RangeIterator it = new RangeIterator(null, -1, lower, lbInclusive, true);
+            it.descendBelow(upper, ubInclusive ? Long.MAX_VALUE : Long.MIN_VALUE);
+            return it;
+        }
+        long targetRid = lbInclusive ? Long.MIN_VALUE : Long.MAX_VALUE;
+
+        Node node = readNode(top.root());
+        while (true) {
+            if (lower != null && node.beyondHigh(lower, targetRid)) {
+                node = readNode(node.next);
+            } else if (!node.leaf) {
+                int child = lower == null ? 0 : node.childIndex(lower, targetRid);
+                node = readNode(node.children.get(child));
             } else {
-                K borrowedKey = leafS.keys.remove(0);
-                V borrowedVal = leafS.values.remove(0);
-
-                leafN.keys.add(borrowedKey);
-                leafN.values.add(borrowedVal);
-
-                K newSep = leafS.keys.get(0);
-                parent.keys.set(sepIndex, newSep);
+                break;
             }
-
-            return;
         }
+        int pos = lower == null ? 0 : node.lowerBound(lower, targetRid);
+        return new RangeIterator(node, pos, upper, ubInclusive, false);
+    }
 
-        InternalNode<K,V> intN = (InternalNode<K,V>) N;
-        InternalNode<K,V> intS = (InternalNode<K,V>) sibling;
-
-        if (siblingIsPredecessor) {
+    // ==================================================================================
+    // HALAMAN
+    // ==================================================================================
 
-            int lastKeyIdx = intS.keys.size() - 1;
-            int lastChildIdx = intS.children.size() - 1;
+    /**
+     * Halaman baru di akhir file; appendBlock atomik sehingga dua split yang
+     * berjalan bersamaan tidak mendapat nomor halaman yang sama.
+     */
+    private long allocatePage() throws IOException {
+        return bufferPool.appendBlock(fileName, new byte[0]);
+    }
 
-            K keyFromSibling = intS.keys.remove(lastKeyIdx);
-            Node<K,V> childFromSibling = intS.children.remove(lastChildIdx);
+    private byte[] readPage(long pageId) throws IOException {
+        pageReads.incrementAndGet();
+        return bufferPool.readBlock(fileName, pageId);
+    }
 
-            intN.children.add(0, childFromSibling);
-            childFromSibling.parent = intN;
+    private Node readNode(long pageId) {
+        try {
+            return Node.decode(layout, pageId, readPage(pageId));
+        } catch (IOException e) {
+            throw new IllegalStateException("Gagal membaca halaman " + pageId + " dari " + fileName, e);
+        }
+    }
 
-            intN.keys.add(0, parent.keys.get(sepIndex)); // move K' down into N
+    private void writeNode(Node node) throws IOException {
+        bufferPool.writeBlock(fileName, node.pageId, node.encode(pageSize));
+        pageWrites.incrementAndGet();
+    }
 
-            parent.keys.set(sepIndex, keyFromSibling);
+    public int getHeight() {
+        return top.height();
+    }
 
-        } else {
-            Node<K,V> childFromSibling = intS.children.remove(0);
-            K keyFromSibling = intS.keys.remove(0);
-
-            intN.keys.add(parent.keys.get(sepIndex));
-            intN.children.add(childFromSibling);
-            childFromSibling.parent = intN;
-
-            K newSep = intS.keys.get(0);
-            parent.keys.set(sepIndex, newSep);
-        }
+    /**
+     * Jumlah halaman yang diminta ke buffer pool (termasuk yang hit di cache).
+     */
+    public long getPageReads() {
+        return pageReads.get();
+    }
 
-    }
-
-
-    public Node<K,V> getRoot() {
-        return root;
-    }
-
-
-    // public static void main(String[] args) {
-
-    //     System.out.println("========= B+TREE FULL RULE TEST START =========");
-
-    //     int nV = 7; // branching factor
-    //     BPlusTree<Integer, String> tree = new BPlusTree<>(nV);
-
-    //     java.util.function.Consumer<Node<?,?>> printTree = node -> {
-    //         System.out.println("\nCurrent Tree:");
-    //         printNode(node, 0);
-    //     };
-
-    //     // ---------------------------
-    //     // TEST INSERTION (I1–I26)
-    //     // ---------------------------
-    //     System.out.println("\n--- TEST INSERT ---");
-    //     int[] keys = {5, 2, 8, 1, 3, 7, 6, 4, 9, 10, 11, 12};
-    //     for (int k : keys) {
-    //         tree.insert(k, "V" + k);
-    //         System.out.println("Inserted " + k);
-    //     }
-    //     printTree.accept(tree.getRoot());
-
-    //     // ---------------------------
-    //     // TEST FIND (Q1–Q7)
-    //     // ---------------------------
-    //     System.out.println("\n--- TEST FIND ---");
-    //     for (int k : keys) {
-    //         String v = tree.find(k);
-    //         if (v == null)
-    //             System.out.println("FIND FAILED for key=" + k);
-    //         else
-    //             System.out.println("Find(" + k + ") = " + v);
-    //     }
-
-    //     // ---------------------------
-    //     // TEST RANGE QUERY (R1–R12)
-    //     // ---------------------------
-    //     System.out.println("\n--- TEST RANGE ---");
-    //     List<String> range = tree.findRange(3, 8);
-    //     System.out.println("Range 3..8 = " + range);
-
-    //     // ---------------------------
-    //     // TEST RANGE ITERATOR (T1–T3)
-    //     // ---------------------------
-    //     System.out.println("\n--- TEST RANGE ITERATOR ---");
-    //     BPlusTree<Integer,String>.RangeIterator it = tree.rangeIterator(3, 8);
-    //     List<String> iterOut = new ArrayList<>();
-    //     while (it.hasNext()) {
-    //         iterOut.add(it.next());
-    //     }
-    //     System.out.println("Iterator 3..8 = " + iterOut);
-
-    //     // ---------------------------
-    //     // TEST DELETION WITH MERGE/REDISTRIBUTE & ROOT SHRINK (D1–D23)
-    //     // ---------------------------
-    //     System.out.println("\n--- TEST DELETE ---");
-    //     int[] del = {1,2,3,4,5,6,7,8,9,10,11,12};
-    //     for (int k : del) {
-    //         System.out.println("Deleting " + k);
-    //         tree.delete(k, "V" + k);
-    //         printTree.accept(tree.getRoot());
-    //     }
-
-    //     // ---------------------------
-    //     // TEST C1–C3: Composite Key
-    //     // ---------------------------
-    //     System.out.println("\n--- TEST COMPOSITE KEY INDEX (C1–C3) ---");
-
-    //     BPlusTree<CompositeKey<Integer,Integer>, String> compTree =
-    //             new BPlusTree<>(4);
-
-    //     // Insert duplicates of attr “5” but unique pk
-    //     compTree.insert(new CompositeKey<>(5, 1), "T1");
-    //     compTree.insert(new CompositeKey<>(5, 2), "T2");
-    //     compTree.insert(new CompositeKey<>(5, 3), "T3");
-    //     compTree.insert(new CompositeKey<>(6, 1), "T4");
-    //     compTree.insert(new CompositeKey<>(4, 1), "T5");
-
-    //     printTree.accept(compTree.getRoot());
-
-    //     // C2: equals-lookup using composite range
-    //     CompositeKey<Integer,Integer> lb = new CompositeKey<>(5, Integer.MIN_VALUE);
-    //     CompositeKey<Integer,Integer> ub = new CompositeKey<>(5, Integer.MAX_VALUE);
-
-    //     List<String> dup5 = compTree.findRange(lb, ub);
-
-    //     System.out.println("All attr=5 => " + dup5);
-
-    //     System.out.println("\n========= B+TREE FULL RULE TEST END =========");
-    // }
-
-    @SuppressWarnings("unchecked")
-    private static void printNode(Node<?,?> node, int depth) {
-        String indent = "  ".repeat(depth);
-
-        if (node.isLeaf()) {
-            LeafNode<?,?> L = (LeafNode<?,?>) node;
-            System.out.println(indent + "[Leaf] keys=" + L.keys);
-        } else {
-            InternalNode<?,?> I = (InternalNode<?,?>) node;
-            System.out.println(indent + "[Internal] keys=" + I.keys);
-            for (Node<?,?> c : I.children) {
-                printNode(c, depth + 1);
-            }
-        }
+    public long getPageWrites() {
+        return pageWrites.get();
     }
 }
@@ -0,0 +1,427 @@
+package com.apacy.storagemanager.index;
+
+import com.apacy.common.dto.Column;
+import com.apacy.storagemanager.BufferPool;
+import com.apacy.storagemanager.CatalogManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indeks bitmap: satu {@link RidBitmap} per nilai kunci. Cocok untuk kolom
+ * berkardinalitas rendah (status, kode fakultas) karena tiap nilai hanya
+ * menyimpan container per blok, bukan satu entri per baris. Hasil lookup
+ * berupa bitmap sehingga AND/OR/NOT beberapa predikat cukup operasi container,
+ * dan jumlah baris yang cocok didapat dari kardinalitas tanpa membaca heap.
+ *
+ * Seluruh bitmap tinggal di memori. File indeks berisi snapshot:
+ * halaman 0 = meta [int magic][byte bersih][long panjangData][int jumlahKunci],
+ * halaman 1 dst = [kunci][bitmap] per kunci terurut. Perubahan pertama setelah
+ * snapshot hanya menandai meta "tidak bersih" (satu halaman, lewat
+ * {@link CleanMarker}); snapshot baru ditulis saat {@link #flush} dan meta
+ * ditandai bersih setelah checkpoint selesai mem-flush halamannya. File yang
+ * dibuka dalam keadaan tidak bersih (misal crash sebelum checkpoint)
+ * dikosongkan dan diisi ulang dari tabel.
+ */
+public class BitmapIndex<K, V> implements IIndex<K, V>, BulkLoadable {
+
+    static final int MAGIC = 0x424D5031; // "BMP1"
+    private static final long META_PAGE = 0L;
+
+    private final String tableName;
+    private final String columnName;
+    private final String indexFile;
+    private final NodeLayout layout;
+    private final BufferPool bufferPool;
+    private final TreeMap<Object, RidBitmap> bitmaps = new TreeMap<>(NodeLayout::compareKeys);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean opened;
+    private boolean rebuildRequired;
+    private boolean dirty;       // isi memori berbeda dari snapshot
+    private long snapshotLength; // panjang data snapshot terakhir, untuk meta bersih
+    private final CleanMarker marker = new CleanMarker(this::writeMeta);
+
+    public BitmapIndex(String tableName,
+                       String columnName,
+                       String indexFile,
+                       Column keyColumn,
+                       BufferPool bufferPool) {
+        this.tableName = tableName;
+        this.columnName = columnName;
+        this.indexFile = indexFile;
+        this.layout = new NodeLayout(keyColumn, List.of());
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public synchronized boolean isRebuildRequired() {
+        return rebuildRequired;
+    }
+
+    @Override
+    public synchronized void markRebuilt() {
+        rebuildRequired = false;
+    }
+
+    private void ensureOpen() {
+        if (opened) {
+            return;
+        }
+        synchronized (this) {
+            if (!opened) {
+                open();
+            }
+        }
+    }
+
+    private void open() {
+        lock.writeLock().lock();
+        try {
+            bitmaps.clear();
+            dirty = false;
+            if (bufferPool.getBlockCount(indexFile) == 0) {
+                marker.reset(false);
+                writeSnapshot();
+            } else if (readSnapshot()) {
+                marker.reset(true);
+            } else {
+                bitmaps.clear();
+                bufferPool.deleteFile(indexFile);
+                marker.reset(false);
+                writeSnapshot();
+                rebuildRequired = true;
+            }
+            opened = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal membuka indeks " + indexFile, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return false jika file bukan snapshot bitmap yang bersih
+     */
+    private boolean readSnapshot() throws IOException {
+        ByteBuffer meta = ByteBuffer.wrap(bufferPool.readBlock(indexFile, META_PAGE));
+        if (meta.getInt() != MAGIC || meta.get() == 0) {
+            return false;
+        }
+        long length = meta.getLong();
+        int keys = meta.getInt();
+        snapshotLength = length;
+        int pageSize = bufferPool.getBlockSize();
+        ByteBuffer data = ByteBuffer.allocate(Math.toIntExact(length));
+        for (long page = 1; data.hasRemaining(); page++) {
+            data.put(bufferPool.readBlock(indexFile, page), 0, Math.min(pageSize, data.remaining()));
+        }
+        data.flip();
+        for (int i = 0; i < keys; i++) {
+            Object key = layout.readKey(data);
+            bitmaps.put(key, RidBitmap.readFrom(data));
+        }
+        return true;
+    }
+
+    /**
+     * Tulis seluruh isi indeks ke halaman 1 dst beserta meta yang masih tidak
+     * bersih; meta bersih menyusul lewat {@link #markClean}.
+     */
+    private void writeSnapshot() throws IOException {
+        long length = 0;
+        for (Map.Entry<Object, RidBitmap> e : bitmaps.entrySet()) {
+            length += layout.keySize(e.getKey()) + e.getValue().serializedSize();
+        }
+        ByteBuffer data = ByteBuffer.allocate(Math.toIntExact(length));
+        for (Map.Entry<Object, RidBitmap> e : bitmaps.entrySet()) {
+            layout.writeKey(data, e.getKey());
+            e.getValue().writeTo(data);
+        }
+        int pageSize = bufferPool.getBlockSize();
+        byte[] bytes = data.array();
+        for (int offset = 0, page = 1; offset < bytes.length; offset += pageSize, page++) {
+            bufferPool.writeBlock(indexFile, page,
+                    Arrays.copyOfRange(bytes, offset, offset + pageSize));
+        }
+        snapshotLength = length;
+        writeMeta(false, false);
+        dirty = false;
+    }
+
+    /**
+     * Meta bersih hanya ditulis saat isi memori sama dengan snapshot
+     * (CleanMarker memastikan tidak ada perubahan sejak flush).
+     */
+    private void writeMeta(boolean clean, boolean durable) throws IOException {
+        synchronized (marker) {
+            ByteBuffer meta = ByteBuffer.allocate(bufferPool.getBlockSize());
+            meta.putInt(MAGIC);
+            meta.put((byte) (clean ? 1 : 0));
+            meta.putLong(clean ? snapshotLength : 0);
+            meta.putInt(clean ? bitmaps.size() : 0);
+            if (durable) {
+                bufferPool.writeThrough(indexFile, META_PAGE, meta.array());
+            } else {
+                bufferPool.writeBlock(indexFile, META_PAGE, meta.array());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void remove() {
+        lock.writeLock().lock();
+        try {
+            bufferPool.deleteFile(indexFile);
+        } catch (IOException ex) {
+            System.err.println("BitmapIndex.remove error: " + ex.getMessage());
+        } finally {
+            bitmaps.clear();
+            opened = false;
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void loadFromFile(CatalogManager catalogManager) {
+        opened = false;
+        open();
+    }
+
+    /**
+     * Snapshot di file sudah ditandai usang oleh perubahan pertama
+     * ({@link #beginChange}); di sini cukup memastikan file terbentuk.
+     */
+    @Override
+    public void writeToFile(CatalogManager catalogManager) {
+        try {
+            ensureOpen();
+        } catch (UncheckedIOException e) {
+            System.err.println("BitmapIndex.writeToFile error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void beginChange() {
+        ensureOpen();
+        try {
+            marker.begin();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal menandai indeks " + indexFile, e);
+        }
+    }
+
+    @Override
+    public void endChange() {
+        marker.end();
+    }
+
+    @Override
+    public long changeCount() {
+        return marker.changeCount();
+    }
+
+    /**
+     * Dipanggil checkpoint setelah snapshot dari {@link #flush} tertulis ke
+     * disk; indeks yang sudah di-drop tidak ditulis lagi.
+     */
+    @Override
+    public void markClean(long changeCount) {
+        lock.readLock().lock();
+        try {
+            if (opened) {
+                marker.markClean(changeCount);
+            }
+        } catch (IOException e) {
+            System.err.println("BitmapIndex.markClean error: " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checkpoint/shutdown: tulis snapshot jika ada perubahan sejak snapshot terakhir.
+     */
+    @Override
+    public void flush(CatalogManager catalogManager) {
+        try {
+            ensureOpen();
+            lock.writeLock().lock();
+            try {
+                if (dirty) {
+                    writeSnapshot();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("BitmapIndex.flush error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<V> getAddress(K key) {
+        if (key == null) {
+            return new ArrayList<>();
+        }
+        return getAddresses(key, true, key, true);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> getAddresses(K minKey, boolean minInclusive, K maxKey, boolean maxInclusive) {
+        List<Long> rids = new ArrayList<>();
+        bitmap(minKey, minInclusive, maxKey, maxInclusive).iterator().forEachRemaining((long rid) -> rids.add(rid));
+        return (List<V>) rids;
+    }
+
+    /**
+     * RID dengan kunci dalam rentang (batas null = terbuka), urut blok. Hasilnya
+     * salinan milik caller, bebas di-AND/OR/andNot.
+     */
+    public RidBitmap bitmap(Object minKey, boolean minInclusive, Object maxKey, boolean maxInclusive) {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            RidBitmap result = new RidBitmap();
+            for (RidBitmap rids : matching(minKey, minInclusive, maxKey, maxInclusive)) {
+                result = result.isEmpty() ? rids.copy() : result.or(rids);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Jumlah RID dengan kunci dalam rentang; bitmap antar kunci saling lepas,
+     * jadi cukup menjumlahkan kardinalitasnya.
+     */
+    public long count(Object minKey, boolean minInclusive, Object maxKey, boolean maxInclusive) {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (RidBitmap rids : matching(minKey, minInclusive, maxKey, maxInclusive)) {
+                total += rids.cardinality();
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Semua RID yang terindeks, yaitu semua baris segmen (NULL ikut tersimpan
+     * sebagai nilai default kolom). Dipakai sebagai semesta untuk NOT.
+     */
+    public RidBitmap all() {
+        return bitmap(null, true, null, true);
+    }
+
+    public int distinctKeys() {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            return bitmaps.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Collection<RidBitmap> matching(Object minKey, boolean minInclusive, Object maxKey,
+            boolean maxInclusive) {
+        if (minKey != null && minInclusive && maxInclusive && minKey.equals(maxKey)) {
+            Object key = layout.toExactKey(minKey);
+            RidBitmap rids = key == null ? null : bitmaps.get(key);
+            return rids == null ? List.of() : List.of(rids);
+        }
+        Object lo = layout.toBound(minKey);
+        Object hi = layout.toBound(maxKey);
+        if (lo != null && hi != null) {
+            int c = NodeLayout.compareKeys(lo, hi);
+            if (c > 0 || (c == 0 && !(minInclusive && maxInclusive))) {
+                return List.of();
+            }
+            return bitmaps.subMap(lo, minInclusive, hi, maxInclusive).values();
+        }
+        if (lo != null) {
+            return bitmaps.tailMap(lo, minInclusive).values();
+        }
+        if (hi != null) {
+            return bitmaps.headMap(hi, maxInclusive).values();
+        }
+        return bitmaps.values();
+    }
+
+    @Override
+    public void insertData(K key, V address) {
+        beginChange();
+        lock.writeLock().lock();
+        try {
+            bitmaps.computeIfAbsent(layout.toStoredKey(key), k -> new RidBitmap())
+                    .add(((Number) address).longValue());
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+            endChange();
+        }
+    }
+
+    @Override
+    public void deleteData(K key, V address) {
+        beginChange();
+        lock.writeLock().lock();
+        try {
+            Object k = layout.toStoredKey(key); // sama dengan insertData, termasuk NULL
+            RidBitmap rids = bitmaps.get(k);
+            if (rids != null && rids.remove(((Number) address).longValue())) {
+                if (rids.isEmpty()) {
+                    bitmaps.remove(k);
+                }
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+            endChange();
+        }
+    }
+
+    @Override
+    public ExternalSorter newSorter(Path tempDir, int runEntries) {
+        return new ExternalSorter(layout, BPlusTree.buildOrder(), tempDir, runEntries);
+    }
+
+    /**
+     * Entri terurut (kunci, RID) sehingga setiap bitmap diisi dengan RID naik.
+     */
+    @Override
+    public synchronized void bulkLoad(ExternalSorter sorter, double fillFactor) throws IOException {
+        Iterator<IndexEntry> it = sorter.iterator();
+        lock.writeLock().lock();
+        try {
+            bitmaps.clear();
+            while (it.hasNext()) {
+                IndexEntry entry = it.next();
+                bitmaps.computeIfAbsent(entry.key(), k -> new RidBitmap()).add(entry.rid());
+            }
+            bufferPool.deleteFile(indexFile);
+            marker.reset(false);
+            writeSnapshot();
+            opened = true;
+            rebuildRequired = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BitmapIndex[" + tableName + "." + columnName + " -> " + indexFile + "]";
+    }
+}
@@ -1,83 +1,84 @@
 package com.apacy.storagemanager.index;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Bucket<K, V> {
+/**
+ * Satu halaman bucket extendible hash.
+ *
+ * Layout halaman: [int localDepth][short jumlahEntri][long next] lalu
+ * jumlahEntri x [kunci][long RID]. next menunjuk halaman overflow (-1 jika
+ * tidak ada); overflow hanya dipakai saat split tidak bisa memisahkan entri
+ * (hash identik, misal kunci duplikat) atau direktori sudah di kedalaman maksimum.
+ */
+final class Bucket {
 
-    private final int capacity;
-    private final List<Entry<K, V>> entries;
-    private int nextBucket;
-    public boolean startBucket;
+    static final int HEADER_SIZE = 4 + 2 + 8;
+    static final long NONE = -1L;
 
-    public Bucket(int capacity, boolean startBucket) {
-        this.capacity = capacity;
-        this.entries = new ArrayList<>(capacity);
-        this.nextBucket = -1;
-        this.startBucket = startBucket;
-    }
-
-    public boolean isFull() {
-        return entries.size() >= capacity;
-    }
-
-    public boolean insert(K key, V value) {
-        if (isFull()) return false;
-        entries.add(new Entry<>(key, value));
-        return true;
-    }
-
-    public V get(K key) {
-        for (Entry<K, V> e : entries)
-            if (e.key.equals(key))
-                return e.value;
-        return null;
-    }
-
-    public boolean remove(K key) {
-        return entries.removeIf(e -> e.key.equals(key));
-    }
+    final long pageId;
+    int localDepth;
+    final List<Object> keys = new ArrayList<>();
+    final List<Long> rids = new ArrayList<>();
+    long next = NONE;
 
-    public List<Entry<K, V>> getEntries() {
-        return entries;
+    Bucket(long pageId, int localDepth) {
+        this.pageId = pageId;
+        this.localDepth = localDepth;
     }
 
-    public int getNextBucket() {
-        return nextBucket;
+    int size() {
+        return keys.size();
     }
 
-    public void setNextBucket(int nextBucket) {
-        this.nextBucket = nextBucket;
-    }
-
-    public int getCapacity() {
-        return capacity;
+    int indexOf(Object key, long rid) {
+        for (int i = 0; i < keys.size(); i++) {
+            if (rids.get(i) == rid && NodeLayout.compareKeys(keys.get(i), key) == 0) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    public boolean containsKey(K key) {
-        for (Entry<K, V> e : entries)
-            if (e.key.equals(key))
+    boolean containsKey(Object key) {
+        for (Object k : keys) {
+            if (NodeLayout.compareKeys(k, key) == 0) {
                 return true;
+            }
+        }
         return false;
     }
 
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder("[");
-        for (Entry<K, V> e : entries)
-            sb.append(e.key).append("=").append(e.value).append(", ");
-        if (!entries.isEmpty())
-            sb.setLength(sb.length() - 2);
-        sb.append("]");
-        return sb.toString() + " -> nextBucket=" + nextBucket;
+    int encodedSize(NodeLayout layout) {
+        int size = HEADER_SIZE;
+        for (Object key : keys) {
+            size += layout.keySize(key) + 8;
+        }
+        return size;
+    }
+
+    byte[] encode(NodeLayout layout, int pageSize) {
+        ByteBuffer buffer = ByteBuffer.allocate(pageSize);
+        buffer.putInt(localDepth);
+        buffer.putShort((short) size());
+        buffer.putLong(next);
+        for (int i = 0; i < size(); i++) {
+            layout.writeKey(buffer, keys.get(i));
+            buffer.putLong(rids.get(i));
+        }
+        return buffer.array();
     }
 
-    public static class Entry<K, V> {
-        public final K key;
-        public final V value;
-        public Entry(K key, V value) {
-            this.key = key;
-            this.value = value;
+    static Bucket decode(NodeLayout layout, long pageId, byte[] page) {
+        ByteBuffer buffer = ByteBuffer.wrap(page);
+        Bucket bucket = new Bucket(pageId, buffer.getInt());
+        int count = Short.toUnsignedInt(buffer.getShort());
+        bucket.next = buffer.getLong();
+        for (int i = 0; i < count; i++) {
+            bucket.keys.add(layout.readKey(buffer));
+            bucket.rids.add(buffer.getLong());
         }
+        return bucket;
     }
 }
@@ -0,0 +1,27 @@
+package com.apacy.storagemanager.index;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Indeks yang bisa dibangun sekaligus dari seluruh isi tabel (CREATE INDEX)
+ * alih-alih insert satu per satu.
+ */
+public interface BulkLoadable {
+
+    /**
+     * Sorter yang mengurutkan entri sesuai urutan build indeks ini.
+     *
+     * @param tempDir    direktori file run sementara
+     * @param runEntries jumlah entri per run sebelum ditumpahkan ke disk
+     */
+    ExternalSorter newSorter(Path tempDir, int runEntries);
+
+    /**
+     * Ganti isi indeks dengan entri dari sorter.
+     *
+     * @param fillFactor porsi halaman yang diisi (0 < fillFactor <= 1); sisanya
+     *                   disisakan untuk insert berikutnya
+     */
+    void bulkLoad(ExternalSorter sorter, double fillFactor) throws IOException;
+}
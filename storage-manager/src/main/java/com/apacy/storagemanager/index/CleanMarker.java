@@ -0,0 +1,106 @@
+package com.apacy.storagemanager.index;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Status bersih/tidak bersih halaman meta file indeks. Meta "bersih" berarti
+ * semua halaman indeks di disk konsisten dengan heap tabel, jadi file boleh
+ * dipercaya saat dibuka; file yang dibuka tidak bersih diisi ulang dari tabel.
+ *
+ * Perubahan pertama setelah meta bersih menulis meta "tidak bersih" langsung
+ * ke disk ({@link com.apacy.storagemanager.BufferPool#writeThrough}) sebelum
+ * halaman lain berubah. Meta bersih hanya ditulis checkpoint/shutdown setelah
+ * semua halaman dirty di-flush, dan hanya jika sejak sebelum flush tidak ada
+ * perubahan baru maupun perubahan yang masih berjalan.
+ */
+final class CleanMarker {
+
+    /** Tulis halaman meta; durable = langsung ke disk (writeThrough). */
+    interface MetaWriter {
+        void write(boolean clean, boolean durable) throws IOException;
+    }
+
+    private final MetaWriter writer;
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean clean;
+
+    CleanMarker(MetaWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Status meta di file; dibaca writer meta lain (misal root baru) supaya
+     * byte bersih tidak berubah.
+     */
+    boolean isClean() {
+        return clean;
+    }
+
+    /**
+     * Status setelah file dibuka atau dibuat ulang; perubahan yang tercatat
+     * sebelumnya tidak berlaku lagi.
+     */
+    synchronized void reset(boolean cleanOnDisk) {
+        clean = cleanOnDisk;
+    }
+
+    /**
+     * Awal perubahan indeks (atau heap yang diindeks); pasangkan dengan
+     * {@link #end()}. Counter dinaikkan sebelum status dibaca, urutan
+     * kebalikan {@link #markClean}, sehingga keduanya tidak bisa saling
+     * melewatkan.
+     */
+    void begin() throws IOException {
+        active.incrementAndGet();
+        changes.incrementAndGet();
+        if (!clean) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                if (clean) {
+                    clean = false;
+                    writer.write(false, true);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            active.decrementAndGet();
+            throw e;
+        }
+    }
+
+    void end() {
+        active.decrementAndGet();
+    }
+
+    /**
+     * Penanda perubahan, diambil sebelum checkpoint mem-flush halaman.
+     */
+    long changeCount() {
+        return changes.get();
+    }
+
+    /**
+     * Tulis meta bersih (lewat buffer pool) jika tidak ada perubahan sejak
+     * changeCount diambil. Pemanggil sudah mem-flush semua halaman dirty.
+     */
+    synchronized void markClean(long changeCount) throws IOException {
+        if (clean) {
+            return;
+        }
+        clean = true;
+        if (active.get() > 0 || changes.get() != changeCount) {
+            clean = false;
+            return;
+        }
+        try {
+            writer.write(true, false);
+        } catch (IOException | RuntimeException e) {
+            clean = false;
+            throw e;
+        }
+    }
+}
@@ -1,50 +1,66 @@
 package com.apacy.storagemanager.index;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
-public class CompositeKey<A extends Comparable<A>, P extends Comparable<P>>
-        implements Comparable<CompositeKey<A, P>> {
+import java.util.Arrays;
 
-    private final A attr;
-    private final P pk;
+/**
+ * Kunci indeks komposit: nilai beberapa kolom sesuai urutan definisi indeks.
+ *
+ * Perbandingan bersifat leksikografis sampai panjang yang lebih pendek, jadi
+ * kunci parsial (prefix) dianggap sama dengan setiap kunci penuh yang diawalinya.
+ * Dengan begitu batas [1]..[1] pada B+ tree mencakup semua entri (1, *), dan
+ * [1, 10]..[1, 20] adalah range pada kolom terakhir. Kunci yang tersimpan di
+ * indeks selalu penuh sehingga compareTo tetap konsisten dengan equals di sana.
+ */
+public final class CompositeKey implements Comparable<CompositeKey> {
 
-    public CompositeKey(A attr, P pk) {
-        this.attr = attr;
-        this.pk = pk;
+    private final Object[] values;
+
+    public CompositeKey(Object... values) {
+        this.values = values.clone();
     }
 
-    public A getAttr() {
-        return attr;
+    public int size() {
+        return values.length;
     }
 
-    public P getPk() {
-        return pk;
+    public Object get(int i) {
+        return values[i];
     }
 
-    @Override
-    public int compareTo(CompositeKey<A, P> o) {
-        int c = this.attr.compareTo(o.attr);
-        if (c != 0) return c;
-        return this.pk.compareTo(o.pk);
+    Object[] values() {
+        return values.clone();
     }
 
     @Override
-    public String toString() {
-        return "(" + attr + ", " + pk + ")";
+    public int compareTo(CompositeKey o) {
+        int n = Math.min(values.length, o.values.length);
+        for (int i = 0; i < n; i++) {
+            int c = NodeLayout.compareKeys(values[i], o.values[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
-        if (!(obj instanceof CompositeKey<?,?> ck)) return false;
-        return attr.equals(ck.attr) && pk.equals(ck.pk);
+        if (!(obj instanceof CompositeKey ck)) return false;
+        return Arrays.equals(values, ck.values);
     }
 
+    /**
+     * Deterministik lintas JVM selama komponennya Integer/Long/Float/String,
+     * karena dipakai untuk memilih bucket HashTable.
+     */
     @Override
     public int hashCode() {
-        int r = attr.hashCode();
-        r = 31 * r + pk.hashCode();
-        return r;
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
     }
 }
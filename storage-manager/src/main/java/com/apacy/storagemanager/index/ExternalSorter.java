@@ -0,0 +1,232 @@
+package com.apacy.storagemanager.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * External merge sort untuk entri indeks saat bulk build.
+ *
+ * Setiap thread scan memakai {@link Writer} sendiri: entri dikumpulkan
+ * sampai runEntries, diurutkan di thread itu, lalu ditumpahkan ke file run
+ * sementara. Sisa terakhir tiap writer disimpan sebagai run di memori.
+ * {@link #iterator()} menggabungkan semua run (k-way merge) secara streaming.
+ * Urutan ditentukan oleh indeks tujuan (lihat BulkLoadable#buildOrder).
+ */
+public class ExternalSorter implements Closeable {
+
+    private final NodeLayout layout;
+    private final Comparator<IndexEntry> order;
+    private final Path tempDir;
+    private final int runEntries;
+
+    private final List<Path> fileRuns = Collections.synchronizedList(new ArrayList<>());
+    private final List<List<IndexEntry>> memoryRuns = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong encodedBytes = new AtomicLong();
+    private final List<DataInputStream> openReaders = new ArrayList<>();
+
+    ExternalSorter(NodeLayout layout, Comparator<IndexEntry> order, Path tempDir, int runEntries) {
+        this.layout = layout;
+        this.order = order;
+        this.tempDir = tempDir;
+        this.runEntries = Math.max(1, runEntries);
+    }
+
+    /**
+     * Writer baru untuk satu thread scan; tidak thread-safe.
+     */
+    public Writer writer() {
+        return new Writer();
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Total ukuran entri (kunci + RID + payload) dalam byte, dipakai untuk
+     * memperkirakan jumlah halaman.
+     */
+    long encodedBytes() {
+        return encodedBytes.get();
+    }
+
+    public int getSpilledRuns() {
+        return fileRuns.size();
+    }
+
+    public final class Writer implements Closeable {
+        private List<IndexEntry> buffer = new ArrayList<>();
+
+        public void add(Object key, long rid, Object[] payload) throws IOException {
+            Object storedKey = layout.toStoredKey(key);
+            Object[] storedPayload = layout.toStoredPayload(payload);
+            buffer.add(new IndexEntry(storedKey, rid, storedPayload));
+            size.incrementAndGet();
+            encodedBytes.addAndGet(layout.keySize(storedKey) + 8
+                    + (storedPayload == null ? 0 : layout.payloadSize(storedPayload)));
+            if (buffer.size() >= runEntries) {
+                spill();
+            }
+        }
+
+        private void spill() throws IOException {
+            buffer.sort(order);
+            Path run = Files.createTempFile(tempDir, "run", ".tmp");
+            ByteBuffer bytes = ByteBuffer.allocate(layout.maxLeafEntrySize());
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(run)))) {
+                for (IndexEntry entry : buffer) {
+                    bytes.clear();
+                    layout.writeKey(bytes, entry.key());
+                    bytes.putLong(entry.rid());
+                    if (entry.payload() != null) {
+                        layout.writePayload(bytes, entry.payload());
+                    }
+                    out.writeShort(bytes.position());
+                    out.write(bytes.array(), 0, bytes.position());
+                }
+            }
+            fileRuns.add(run);
+            buffer = new ArrayList<>();
+        }
+
+        @Override
+        public void close() {
+            if (!buffer.isEmpty()) {
+                buffer.sort(order);
+                memoryRuns.add(buffer);
+                buffer = new ArrayList<>();
+            }
+        }
+    }
+
+    // ==================================================================================
+    // MERGE
+    // ==================================================================================
+
+    /**
+     * Semua entri terurut; hanya satu entri per run yang ditahan di memori
+     * (selain run memori).
+     */
+    public Iterator<IndexEntry> iterator() throws IOException {
+        List<Iterator<IndexEntry>> sources = new ArrayList<>();
+        for (List<IndexEntry> run : memoryRuns) {
+            sources.add(run.iterator());
+        }
+        for (Path run : fileRuns) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+            openReaders.add(in);
+            sources.add(new RunReader(in));
+        }
+        if (sources.size() == 1) {
+            return sources.get(0);
+        }
+        return new MergeIterator(sources);
+    }
+
+    private final class RunReader implements Iterator<IndexEntry> {
+        private final DataInputStream in;
+        private final byte[] bytes = new byte[layout.maxLeafEntrySize()];
+        private IndexEntry next;
+
+        RunReader(DataInputStream in) {
+            this.in = in;
+            advance();
+        }
+
+        private void advance() {
+            try {
+                int length = in.readUnsignedShort();
+                in.readFully(bytes, 0, length);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+                Object key = layout.readKey(buffer);
+                long rid = buffer.getLong();
+                next = new IndexEntry(key, rid, layout.readPayload(buffer));
+            } catch (EOFException e) {
+                next = null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public IndexEntry next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            IndexEntry current = next;
+            advance();
+            return current;
+        }
+    }
+
+    private final class MergeIterator implements Iterator<IndexEntry> {
+        private record Head(IndexEntry entry, Iterator<IndexEntry> source) {
+        }
+
+        private final PriorityQueue<Head> heap = new PriorityQueue<>((a, b) -> order.compare(a.entry(), b.entry()));
+
+        MergeIterator(List<Iterator<IndexEntry>> sources) {
+            for (Iterator<IndexEntry> source : sources) {
+                if (source.hasNext()) {
+                    heap.add(new Head(source.next(), source));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public IndexEntry next() {
+            Head head = heap.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.source().hasNext()) {
+                heap.add(new Head(head.source().next(), head.source()));
+            }
+            return head.entry();
+        }
+    }
+
+    /**
+     * Tutup reader dan hapus file run sementara.
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataInputStream in : openReaders) {
+            in.close();
+        }
+        for (Path run : fileRuns) {
+            Files.deleteIfExists(run);
+        }
+        fileRuns.clear();
+        memoryRuns.clear();
+    }
+}
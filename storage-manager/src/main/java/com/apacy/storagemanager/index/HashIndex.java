@@ -1,160 +1,186 @@
 package com.apacy.storagemanager.index;
 
 import com.apacy.common.dto.Column;
-import com.apacy.common.dto.Row;
-import com.apacy.common.dto.Schema;
-import com.apacy.common.enums.DataType;
-import com.apacy.storagemanager.BlockManager;
+import com.apacy.storagemanager.BufferPool;
 import com.apacy.storagemanager.CatalogManager;
-import com.apacy.storagemanager.Serializer;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
 
-public class HashIndex<K, V> implements IIndex<K, V> {
+/**
+ * Indeks hash di atas {@link HashTable} (extendible hash berbasis halaman).
+ * Setiap insert/delete hanya menulis halaman bucket (dan direktori saat
+ * split) ke BufferPool, sehingga writeToFile tidak perlu menulis ulang isi indeks.
+ */
+public class HashIndex<K, V> implements IIndex<K, V>, BulkLoadable {
 
     private final String tableName;
     private final String columnName;
     private final String indexFile;
-    private final DataType keyType;
-    private final DataType valueType;
-    private final BlockManager blockManager;
-    private final Serializer serializer;
+    private final NodeLayout layout;
+    private final HashTable table;
 
-    private HashTable<K,V> table;
+    private boolean opened;
+    private boolean rebuildRequired;
 
     public HashIndex(String tableName,
                      String columnName,
                      String indexFile,
-                     DataType keyType,
-                     DataType valueType,
-                     BlockManager blockManager,
-                     Serializer serializer) {
+                     Column keyColumn,
+                     BufferPool bufferPool) {
+        this(tableName, columnName, indexFile, List.of(keyColumn), bufferPool);
+    }
+
+    /**
+     * Indeks hash komposit; lookup hanya bisa dengan kunci lengkap
+     * ({@link CompositeKey} berisi semua kolom).
+     */
+    public HashIndex(String tableName,
+                     String columnName,
+                     String indexFile,
+                     List<Column> keyColumns,
+                     BufferPool bufferPool) {
 
         this.tableName = tableName;
         this.columnName = columnName;
         this.indexFile = indexFile;
-        this.keyType = keyType;
-        this.valueType = valueType;
-        this.blockManager = blockManager;
-        this.serializer = serializer;
-
-        this.table = new HashTable<>(8, 4);
+        this.layout = new NodeLayout(keyColumns, List.of());
+        this.table = new HashTable(bufferPool, indexFile, layout);
     }
 
-    public Schema buildSchema(CatalogManager catalogManager) {
-        Schema baseSchema = catalogManager.getSchema(tableName);
-        if (baseSchema == null)
-            throw new IllegalStateException("Base table '" + tableName + "' tidak ditemukan di CatalogManager.");
+    public HashTable getTable() {
+        return table;
+    }
 
-        Column baseColumn = baseSchema.getColumnByName(columnName);
-        if (baseColumn == null)
-            throw new IllegalStateException("Kolom '" + columnName + "' tidak ditemukan di tabel " + tableName);
+    private void ensureOpen() {
+        if (opened) {
+            return;
+        }
+        try {
+            if (!table.open()) {
+                table.reset();
+                rebuildRequired = true;
+            }
+            opened = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal membuka indeks " + indexFile, e);
+        }
+    }
 
-        List<Column> indexColumns = List.of(
-            new Column("key", baseColumn.type(), baseColumn.length()),
-            new Column("value", DataType.INTEGER),
-            new Column("nextBucket", DataType.INTEGER),
-            new Column("startBucket", DataType.INTEGER),
-            new Column("bucketCapacity", DataType.INTEGER)
-        );
+    /**
+     * true jika file indeks berformat lama atau tidak ditutup bersih dan sudah
+     * dikosongkan saat dibuka; caller perlu mengisi ulang dari tabel.
+     */
+    @Override
+    public synchronized boolean isRebuildRequired() {
+        return rebuildRequired;
+    }
 
-        return new Schema(
-            tableName + "_" + columnName + "_hashindex",
-            indexFile,
-            indexColumns,
-            List.of()
-        );
+    @Override
+    public synchronized void markRebuilt() {
+        rebuildRequired = false;
     }
 
+    /**
+     * Halaman bucket/direktori yang berubah sudah dirty di buffer pool; cukup
+     * pastikan file indeks sudah terbentuk.
+     */
     @Override
-    public void writeToFile(CatalogManager catalogManager) {
+    public synchronized void writeToFile(CatalogManager catalogManager) {
         try {
-            Schema schema = buildSchema(catalogManager);
-            List<Row> rows = new ArrayList<>();
-
-            for (Bucket<K,V> bucket : table.getBuckets()) {
-                for (Bucket.Entry<K,V> entry : bucket.getEntries()) {
-                    Map<String,Object> data = new HashMap<>();
-
-                    data.put("key", entry.key);
-                    data.put("value", entry.value);
-                    data.put("nextBucket", bucket.getNextBucket());
-                    data.put("startBucket", bucket.startBucket ? 1 : 0);
-                    data.put("bucketCapacity", bucket.getCapacity());
-
-                    rows.add(new Row(data));
-                }
-            }
+            ensureOpen();
+        } catch (UncheckedIOException e) {
+            System.err.println("HashIndex.writeToFile error: " + e.getMessage());
+        }
+    }
 
-            byte[] block = serializer.initializeNewBlock();
-            long blockNo = 0;
-
-            for (Row r : rows) {
-                try {
-                    block = serializer.packRowToBlock(block, r, schema);
-                } catch (IOException full) {
-                    blockManager.writeBlock(indexFile, blockNo, block);
-                    block = serializer.initializeNewBlock();
-                    block = serializer.packRowToBlock(block, r, schema);
-                    blockNo = blockManager.appendBlock(indexFile, block);
-                }
-            }
+    @Override
+    public synchronized void beginChange() {
+        ensureOpen();
+        try {
+            table.cleanMarker().begin();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal menandai indeks " + indexFile, e);
+        }
+    }
 
-            blockManager.writeBlock(indexFile, blockNo, block);
-            blockManager.flush();
+    @Override
+    public void endChange() {
+        table.cleanMarker().end();
+    }
 
-        } catch (Exception e) {
-            System.err.println("HashIndex.writeToFile error: " + e.getMessage());
-        }
+    @Override
+    public long changeCount() {
+        return table.cleanMarker().changeCount();
     }
 
+    /**
+     * Dipanggil checkpoint setelah halaman di-flush; indeks yang sudah
+     * di-drop tidak ditulis lagi.
+     */
     @Override
-    public void loadFromFile(CatalogManager catalogManager) {
+    public synchronized void markClean(long changeCount) {
+        if (!opened) {
+            return;
+        }
         try {
-            Schema schema = buildSchema(catalogManager);
-            long blockCount = blockManager.getBlockCount(indexFile);
-            HashTable<K,V> newTable = new HashTable<>(8, 4); // fresh table
-
-            for (long bn = 0; bn < blockCount; bn++) {
-                byte[] blk = blockManager.readBlock(indexFile, bn);
-                List<Row> rows = serializer.deserializeBlock(blk, schema);
-
-                for (Row r : rows) {
-                    K key = (K) r.data().get("key");
-                    V value = (V) r.data().get("value");
-                    int next = (int) r.data().get("nextBucket");
-                    int start = (int) r.data().get("startBucket");
-                    int cap = (int) r.data().get("bucketCapacity");
-
-                    newTable.insert(key, value);
-                }
-            }
+            table.cleanMarker().markClean(changeCount);
+        } catch (IOException e) {
+            System.err.println("HashIndex.markClean error: " + e.getMessage());
+        }
+    }
 
-            this.table = newTable;
+    @Override
+    public synchronized void loadFromFile(CatalogManager catalogManager) {
+        opened = false;
+        ensureOpen();
+    }
 
-        } catch (Exception e) {
-            System.err.println("HashIndex.loadFromFile error: " + e.getMessage());
+    @Override
+    public synchronized void insertData(K key, V address) {
+        ensureOpen();
+        try {
+            table.insert(key, ((Number) address).longValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal menulis indeks " + indexFile, e);
         }
     }
 
+    /**
+     * Cek dan insert terjadi dalam satu pembacaan chain bucket kunci, di
+     * bawah monitor indeks yang sama dengan insert/delete lain.
+     */
     @Override
-    public void insertData(K key, V address) {
-        table.insert(key, address);
+    public synchronized boolean insertIfAbsent(K key, V address) {
+        ensureOpen();
+        try {
+            return table.insertIfAbsent(key, ((Number) address).longValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal menulis indeks " + indexFile, e);
+        }
     }
 
     @Override
-    public void deleteData(K key, V address) {
-        table.remove(key);
+    public synchronized void deleteData(K key, V address) {
+        ensureOpen();
+        try {
+            table.delete(key, ((Number) address).longValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Gagal menulis indeks " + indexFile, e);
+        }
     }
 
     @Override
-    public List<V> getAddress(K key) {
-        return table.get(key);
+    @SuppressWarnings("unchecked")
+    public synchronized List<V> getAddress(K key) {
+        ensureOpen();
+        return (List<V>) table.get(key);
     }
 
     @Override
-    public List<V> getAddresses(K minKey, boolean minInclusive, K maxKey, boolean maxInclusive) {
+    public synchronized List<V> getAddresses(K minKey, boolean minInclusive, K maxKey, boolean maxInclusive) {
         if (minKey != null && maxKey != null && minKey.equals(maxKey) && minInclusive && maxInclusive) {
             return getAddress(minKey);
         }
@@ -162,14 +188,30 @@ public class HashIndex<K, V> implements IIndex<K, V> {
     }
 
     @Override
-    public void remove() {
-        // wipe index file
+    public synchronized void remove() {
         try {
-            byte[] b = serializer.initializeNewBlock();
-            blockManager.writeBlock(indexFile, 0, b);
-            blockManager.flush();
+            table.drop();
         } catch (IOException ex) {
-            System.err.println("Cannot reset index file: " + ex.getMessage());
+            System.err.println("Cannot remove index file: " + ex.getMessage());
         }
+        opened = false;
+    }
+
+    @Override
+    public ExternalSorter newSorter(Path tempDir, int runEntries) {
+        return new ExternalSorter(layout, HashTable.buildOrder(), tempDir, runEntries);
+    }
+
+    @Override
+    public synchronized void bulkLoad(ExternalSorter sorter, double fillFactor) throws IOException {
+        Iterator<IndexEntry> it = sorter.iterator();
+        table.bulkLoad(it, sorter.encodedBytes(), fillFactor);
+        opened = true;
+        rebuildRequired = false;
+    }
+
+    @Override
+    public String toString() {
+        return "HashIndex[" + tableName + "." + columnName + " -> " + indexFile + "]";
     }
 }
@@ -1,167 +1,564 @@
 package com.apacy.storagemanager.index;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
 
-public class HashTable<K, V> {
+import com.apacy.storagemanager.BufferPool;
+
+/**
+ * Extendible hash berbasis halaman.
+ *
+ * Halaman 0 = meta (magic, bersih, globalDepth, daftar halaman direktori). Direktori
+ * berisi 2^globalDepth pointer halaman bucket, disimpan sebagai array long di
+ * halaman-halaman direktori dan di-cache di memori. Indeks direktori diambil
+ * dari bit-bit rendah hash kunci, sehingga lookup = satu akses direktori +
+ * satu halaman bucket, berapapun jumlah kuncinya.
+ *
+ * Bucket penuh di-split (localDepth+1); jika localDepth sudah sama dengan
+ * globalDepth, direktori digandakan dulu. Hanya halaman bucket/direktori yang
+ * berubah yang ditulis ke BufferPool. Delete bersifat lazy (tanpa merge).
+ *
+ * Split dan penggandaan direktori menulis beberapa halaman; setelah crash
+ * sebagian bisa tertulis tanpa yang lain. Byte bersih di meta diatur
+ * {@link CleanMarker} seperti pada {@link BPlusTree}: file yang dibuka tidak
+ * bersih dianggap bukan hash table yang valid.
+ */
+public class HashTable {
+
+    static final int MAGIC = 0x45584832; // "EXH2": byte bersih di meta
+    private static final long META_PAGE = 0L;
+    private static final int META_HEADER = 4 + 1 + 4 + 4;
+
+    private final BufferPool bufferPool;
+    private final String fileName;
+    private final NodeLayout layout;
+    private final int pageSize;
+    private final int pointersPerPage;
+    private final int maxDepth;
+
+    private int globalDepth;
+    private long[] directory = new long[0];
+    private final List<Long> directoryPages = new ArrayList<>();
+
+    private final CleanMarker marker = new CleanMarker(this::writeMeta);
+
+    private long pageReads;
+    private long pageWrites;
+
+    HashTable(BufferPool bufferPool, String fileName, NodeLayout layout) {
+        this.bufferPool = bufferPool;
+        this.fileName = fileName;
+        this.layout = layout;
+        this.pageSize = bufferPool.getBlockSize();
+        this.pointersPerPage = pageSize / 8;
+        int limit = (pageSize - Bucket.HEADER_SIZE) / 4;
+        if (layout.maxLeafEntrySize() > limit) {
+            throw new IllegalArgumentException("Entri indeks terlalu besar untuk satu halaman (maks "
+                    + limit + " byte, butuh " + layout.maxLeafEntrySize() + ").");
+        }
+        long maxPointers = (long) ((pageSize - META_HEADER) / 8) * pointersPerPage;
+        this.maxDepth = Math.min(30, 63 - Long.numberOfLeadingZeros(maxPointers));
+    }
 
-    private List<Bucket<K, V>> buckets;
-    private int bucketCapacity;
+    // ==================================================================================
+    // META & DIREKTORI
+    // ==================================================================================
+
+    /**
+     * Buka file indeks: baca halaman meta dan direktori. File kosong
+     * diinisialisasi dengan satu bucket.
+     *
+     * @return false jika file berisi format lain atau tidak ditutup bersih
+     */
+    boolean open() throws IOException {
+        if (bufferPool.getBlockCount(fileName) == 0) {
+            create();
+            return true;
+        }
+        ByteBuffer meta = ByteBuffer.wrap(readPage(META_PAGE));
+        if (meta.getInt() != MAGIC || meta.get() == 0) {
+            return false;
+        }
+        globalDepth = meta.getInt();
+        int dirPageCount = meta.getInt();
+        directoryPages.clear();
+        for (int p = 0; p < dirPageCount; p++) {
+            directoryPages.add(meta.getLong());
+        }
+        directory = new long[1 << globalDepth];
+        for (int p = 0; p < dirPageCount; p++) {
+            ByteBuffer page = ByteBuffer.wrap(readPage(directoryPages.get(p)));
+            int from = p * pointersPerPage;
+            for (int i = from; i < Math.min(directory.length, from + pointersPerPage); i++) {
+                directory[i] = page.getLong();
+            }
+        }
+        marker.reset(true);
+        return true;
+    }
 
-    public HashTable(int initialBucketCount, int bucketCapacity) {
-        this.bucketCapacity = bucketCapacity;
-        this.buckets = new ArrayList<>(initialBucketCount);
-        for (int i = 0; i < initialBucketCount; i++)
-            buckets.add(new Bucket<>(bucketCapacity,true));
+    void reset() throws IOException {
+        bufferPool.deleteFile(fileName);
+        create();
     }
 
-    public List<Bucket<K, V>> getBuckets(){
-        return buckets;
+    void drop() throws IOException {
+        bufferPool.deleteFile(fileName);
+        globalDepth = 0;
+        directory = new long[0];
+        directoryPages.clear();
     }
 
-    public HashTable() {
-        this(8, 4);
+    private void create() throws IOException {
+        globalDepth = 0;
+        directoryPages.clear();
+        directoryPages.add(1L);
+        directory = new long[] { 2L };
+        marker.reset(false);
+        writeMeta(false, false);
+        writeDirectoryPage(0);
+        writeBucket(new Bucket(2L, 0));
     }
 
-    private int hash(K key) {
-        if (key instanceof Integer i)
-            return Math.abs(i.hashCode()) % bucketCount();
-        else if (key instanceof Float f)
-            return Math.abs(Float.floatToIntBits(f)) % bucketCount();
-        else if (key instanceof String s)
-            return Math.abs(s.hashCode()) % bucketCount();
-        else if (key instanceof Character c)
-            return Math.abs(Character.hashCode(c)) % bucketCount();
-        else
-            return Math.abs(key.hashCode()) % bucketCount();
+    CleanMarker cleanMarker() {
+        return marker;
     }
 
-    public void insert(K key, V value) {
-        int index = hash(key);
-        Bucket<K, V> bucket = buckets.get(index);
-        while (bucket.isFull()) {
-            int nextIdx = bucket.getNextBucket();
-            if (nextIdx == -1) {
-                Bucket<K, V> newBucket = new Bucket<>(bucketCapacity,false);
-                buckets.add(newBucket);
-                int newIndex = buckets.size() - 1;
-                bucket.setNextBucket(newIndex);
-                bucket = newBucket;
-                break;
+    /**
+     * Semua penulisan meta diserialkan di monitor marker (lihat BPlusTree).
+     */
+    private void writeMeta(boolean clean, boolean durable) throws IOException {
+        synchronized (marker) {
+            ByteBuffer meta = ByteBuffer.allocate(pageSize);
+            meta.putInt(MAGIC);
+            meta.put((byte) (clean ? 1 : 0));
+            meta.putInt(globalDepth);
+            meta.putInt(directoryPages.size());
+            for (long page : directoryPages) {
+                meta.putLong(page);
+            }
+            if (durable) {
+                bufferPool.writeThrough(fileName, META_PAGE, meta.array());
             } else {
-                bucket = buckets.get(nextIdx);
+                bufferPool.writeBlock(fileName, META_PAGE, meta.array());
             }
+            pageWrites++;
         }
-        bucket.insert(key, value);
     }
 
-    public List<V> get(K key) {
-        List<V> result = new ArrayList<>();
+    private void writeDirectoryPage(int p) throws IOException {
+        ByteBuffer page = ByteBuffer.allocate(pageSize);
+        int from = p * pointersPerPage;
+        for (int i = from; i < Math.min(directory.length, from + pointersPerPage); i++) {
+            page.putLong(directory[i]);
+        }
+        bufferPool.writeBlock(fileName, directoryPages.get(p), page.array());
+        pageWrites++;
+    }
 
-        int index = hash(key);
-        Bucket<K, V> bucket = buckets.get(index);
+    /**
+     * Gandakan direktori: entri i dan i + 2^globalDepth menunjuk bucket yang sama.
+     */
+    private void doubleDirectory() throws IOException {
+        long[] doubled = new long[directory.length * 2];
+        System.arraycopy(directory, 0, doubled, 0, directory.length);
+        System.arraycopy(directory, 0, doubled, directory.length, directory.length);
+        directory = doubled;
+        globalDepth++;
+        int needed = (directory.length + pointersPerPage - 1) / pointersPerPage;
+        while (directoryPages.size() < needed) {
+            long page = allocatePage();
+            directoryPages.add(page);
+            writeDirectoryPage(directoryPages.size() - 1); // reservasi halaman sebelum alokasi berikutnya
+        }
+        for (int p = 0; p < directoryPages.size(); p++) {
+            writeDirectoryPage(p);
+        }
+        writeMeta(marker.isClean(), false);
+    }
+
+    // ==================================================================================
+    // INSERT / DELETE / LOOKUP
+    // ==================================================================================
+
+    public void insert(Object key, long rid) throws IOException {
+        marker.begin();
+        try {
+            insert(key, rid, false);
+        } finally {
+            marker.end();
+        }
+    }
+
+    /**
+     * Insert untuk indeks UNIQUE: chain bucket kunci dibaca sekali, dan entri
+     * hanya ditambahkan jika belum ada entri lain dengan kunci yang sama.
+     *
+     * @return false jika kunci sudah ada (indeks tidak berubah)
+     */
+    public boolean insertIfAbsent(Object key, long rid) throws IOException {
+        marker.begin();
+        try {
+            return insert(key, rid, true);
+        } finally {
+            marker.end();
+        }
+    }
 
-        while (bucket != null) {
+    private boolean insert(Object key, long rid, boolean unique) throws IOException {
+        Object k = layout.toStoredKey(key);
+        int h = hash(k);
+        int entrySize = layout.keySize(k) + 8;
 
-            // FIX: scan ALL entries in this bucket
-            for (Bucket.Entry<K,V> e : bucket.getEntries()) {
-                if (e.key.equals(key)) {
-                    result.add(e.value);
+        while (true) {
+            List<Bucket> chain = readChain(directory[h & mask(globalDepth)]);
+            for (Bucket bucket : chain) {
+                if (unique ? bucket.containsKey(k) : bucket.indexOf(k, rid) >= 0) {
+                    return !unique;
                 }
             }
+            for (Bucket bucket : chain) {
+                if (bucket.encodedSize(layout) + entrySize <= pageSize) {
+                    bucket.keys.add(k);
+                    bucket.rids.add(rid);
+                    writeBucket(bucket);
+                    return true;
+                }
+            }
+            Bucket head = chain.get(0);
+            if (canSplit(chain, h)) {
+                split(chain, h);
+                continue;
+            }
+            // Hash identik atau direktori maksimum: sambung halaman overflow
+            Bucket overflow = new Bucket(allocatePage(), head.localDepth);
+            overflow.keys.add(k);
+            overflow.rids.add(rid);
+            writeBucket(overflow);
+            Bucket tail = chain.get(chain.size() - 1);
+            tail.next = overflow.pageId;
+            writeBucket(tail);
+            return true;
+        }
+    }
 
-            int nextIdx = bucket.getNextBucket();
-            if (nextIdx == -1)
-                break;
+    public boolean delete(Object key, long rid) throws IOException {
+        marker.begin();
+        try {
+            return deleteEntry(key, rid);
+        } finally {
+            marker.end();
+        }
+    }
 
-            bucket = buckets.get(nextIdx);
+    private boolean deleteEntry(Object key, long rid) throws IOException {
+        Object k = layout.toExactKey(key);
+        if (k == null) {
+            return false;
+        }
+        long page = directory[hash(k) & mask(globalDepth)];
+        while (page != Bucket.NONE) {
+            Bucket bucket = readBucket(page);
+            int i = bucket.indexOf(k, rid);
+            if (i >= 0) {
+                bucket.keys.remove(i);
+                bucket.rids.remove(i);
+                writeBucket(bucket);
+                return true;
+            }
+            page = bucket.next;
         }
+        return false;
+    }
 
+    public List<Long> get(Object key) {
+        List<Long> result = new ArrayList<>();
+        Object k = layout.toExactKey(key);
+        if (k == null) {
+            return result;
+        }
+        long page = directory[hash(k) & mask(globalDepth)];
+        while (page != Bucket.NONE) {
+            Bucket bucket = readBucket(page);
+            for (int i = 0; i < bucket.size(); i++) {
+                if (NodeLayout.compareKeys(bucket.keys.get(i), k) == 0) {
+                    result.add(bucket.rids.get(i));
+                }
+            }
+            page = bucket.next;
+        }
         return result;
     }
 
+    // ==================================================================================
+    // BULK BUILD
+    // ==================================================================================
+
+    /**
+     * Urutan entri untuk bulkLoad: hash dengan bit dibalik, sehingga entri
+     * dengan bit rendah hash yang sama (= satu partisi direktori, untuk
+     * globalDepth berapapun) selalu bersebelahan.
+     */
+    static Comparator<IndexEntry> buildOrder() {
+        return (a, b) -> Integer.compareUnsigned(Integer.reverse(hash(a.key())), Integer.reverse(hash(b.key())));
+    }
 
-    public boolean remove(K key) {
-        int index = hash(key);
-        Bucket<K, V> bucket = buckets.get(index);
-        while (bucket != null) {
-            if (bucket.remove(key))
-                return true;
-            int nextIdx = bucket.getNextBucket();
-            if (nextIdx == -1)
-                break;
-            bucket = buckets.get(nextIdx);
+    /**
+     * Build terpartisi: globalDepth dipilih dari total ukuran entri dan
+     * fillFactor, lalu setiap partisi (bit rendah hash) ditulis langsung ke
+     * halaman bucket-nya tanpa split. Partisi kosong tetap mendapat bucket.
+     *
+     * @param totalBytes total ukuran entri (kunci + RID)
+     */
+    void bulkLoad(Iterator<IndexEntry> sorted, long totalBytes, double fillFactor) throws IOException {
+        bufferPool.deleteFile(fileName);
+        int usable = pageSize - Bucket.HEADER_SIZE;
+        int limit = Math.min(pageSize, Bucket.HEADER_SIZE
+                + Math.max(layout.maxLeafEntrySize(), (int) (usable * Math.min(1.0, Math.max(0.1, fillFactor)))));
+        long buckets = Math.max(1, (totalBytes + (limit - Bucket.HEADER_SIZE) - 1) / (limit - Bucket.HEADER_SIZE));
+        globalDepth = Math.min(maxDepth, 64 - Long.numberOfLeadingZeros(buckets - 1));
+        directory = new long[1 << globalDepth];
+        Arrays.fill(directory, Bucket.NONE);
+
+        // Halaman 0 = meta, lalu halaman direktori, lalu bucket berurutan
+        directoryPages.clear();
+        marker.reset(false);
+        writeMeta(false, false);
+        int dirPageCount = (directory.length + pointersPerPage - 1) / pointersPerPage;
+        for (int p = 0; p < dirPageCount; p++) {
+            directoryPages.add(allocatePage());
+            writeDirectoryPage(p);
         }
-        return false;
+
+        int partitionMask = mask(globalDepth);
+        Bucket current = null;
+        int currentPartition = -1;
+        int size = 0;
+        while (sorted.hasNext()) {
+            IndexEntry entry = sorted.next();
+            int partition = hash(entry.key()) & partitionMask;
+            int entrySize = layout.keySize(entry.key()) + 8;
+            if (partition != currentPartition) {
+                if (current != null) {
+                    writeBucket(current);
+                }
+                current = new Bucket(allocatePage(), globalDepth);
+                writeBucket(current); // reservasi halaman
+                directory[partition] = current.pageId;
+                currentPartition = partition;
+                size = Bucket.HEADER_SIZE;
+            } else if (size + entrySize > limit) {
+                // Partisi melebihi satu halaman (misal kunci duplikat): sambung overflow
+                Bucket overflow = new Bucket(allocatePage(), globalDepth);
+                current.next = overflow.pageId;
+                writeBucket(current);
+                current = overflow;
+                writeBucket(current); // reservasi halaman
+                size = Bucket.HEADER_SIZE;
+            }
+            current.keys.add(entry.key());
+            current.rids.add(entry.rid());
+            size += entrySize;
+        }
+        if (current != null) {
+            writeBucket(current);
+        }
+        for (int i = 0; i < directory.length; i++) {
+            if (directory[i] == Bucket.NONE) {
+                Bucket empty = new Bucket(allocatePage(), globalDepth);
+                writeBucket(empty);
+                directory[i] = empty.pageId;
+            }
+        }
+        for (int p = 0; p < dirPageCount; p++) {
+            writeDirectoryPage(p);
+        }
+        writeMeta(false, false);
     }
 
-    public int size() {
-        int total = 0;
-        for (Bucket<K, V> b : buckets)
-            total += b.getEntries().size();
-        return total;
+    // ==================================================================================
+    // SPLIT
+    // ==================================================================================
+
+    /**
+     * Split hanya berguna jika ada entri yang hash-nya berbeda dengan kunci
+     * baru di bit di atas localDepth (dibatasi maxDepth).
+     */
+    private boolean canSplit(List<Bucket> chain, int h) {
+        int localDepth = chain.get(0).localDepth;
+        if (localDepth >= maxDepth) {
+            return false;
+        }
+        int full = mask(maxDepth);
+        for (Bucket bucket : chain) {
+            for (Object key : bucket.keys) {
+                if ((hash(key) & full) != (h & full)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
-    public int bucketCount() {
-        int count = 0;
-        for (Bucket<K, V> bucket : buckets)
-           count += bucket.startBucket ? 1 : 0;
-        return count;
+    private void split(List<Bucket> chain, int h) throws IOException {
+        Bucket head = chain.get(0);
+        int depth = head.localDepth + 1;
+        if (depth > globalDepth) {
+            doubleDirectory();
+        }
+
+        List<Object> stayKeys = new ArrayList<>();
+        List<Long> stayRids = new ArrayList<>();
+        List<Object> moveKeys = new ArrayList<>();
+        List<Long> moveRids = new ArrayList<>();
+        int bit = 1 << (depth - 1);
+        for (Bucket bucket : chain) {
+            for (int i = 0; i < bucket.size(); i++) {
+                boolean move = (hash(bucket.keys.get(i)) & bit) != 0;
+                (move ? moveKeys : stayKeys).add(bucket.keys.get(i));
+                (move ? moveRids : stayRids).add(bucket.rids.get(i));
+            }
+        }
+
+        // Halaman rantai lama dipakai ulang untuk entri yang tetap
+        for (Bucket bucket : chain) {
+            bucket.localDepth = depth;
+        }
+        fill(chain, stayKeys, stayRids, depth);
+
+        List<Bucket> sibling = new ArrayList<>();
+        sibling.add(new Bucket(allocatePage(), depth));
+        writeBucket(sibling.get(0)); // reservasi halaman
+        fill(sibling, moveKeys, moveRids, depth);
+
+        // Bucket lama mencakup indeks direktori dengan (depth - 1) bit rendah = milik h
+        int lowBits = h & mask(depth - 1);
+        boolean[] dirty = new boolean[directoryPages.size()];
+        for (int i = lowBits | bit; i < directory.length; i += 1 << depth) {
+            directory[i] = sibling.get(0).pageId;
+            dirty[i / pointersPerPage] = true;
+        }
+        for (int p = 0; p < dirty.length; p++) {
+            if (dirty[p]) {
+                writeDirectoryPage(p);
+            }
+        }
     }
 
-    private void rehash(int newBucketCount) {
-        if (newBucketCount < 1) return;
+    /**
+     * Tulis entri ke rantai halaman (menambah overflow jika perlu); halaman
+     * sisa dikosongkan tetapi tetap tersambung.
+     */
+    private void fill(List<Bucket> chain, List<Object> keys, List<Long> rids, int depth) throws IOException {
+        int pageIndex = 0;
+        Bucket current = chain.get(0);
+        current.keys.clear();
+        current.rids.clear();
+        int size = Bucket.HEADER_SIZE;
+        for (int i = 0; i < keys.size(); i++) {
+            int entrySize = layout.keySize(keys.get(i)) + 8;
+            if (size + entrySize > pageSize) {
+                if (pageIndex + 1 == chain.size()) {
+                    Bucket overflow = new Bucket(allocatePage(), depth);
+                    writeBucket(overflow); // reservasi halaman
+                    current.next = overflow.pageId;
+                    chain.add(overflow);
+                }
+                writeBucket(current);
+                pageIndex++;
+                current = chain.get(pageIndex);
+                current.keys.clear();
+                current.rids.clear();
+                size = Bucket.HEADER_SIZE;
+            }
+            current.keys.add(keys.get(i));
+            current.rids.add(rids.get(i));
+            size += entrySize;
+        }
+        for (int p = pageIndex; p < chain.size(); p++) {
+            if (p > pageIndex) {
+                chain.get(p).keys.clear();
+                chain.get(p).rids.clear();
+            }
+            writeBucket(chain.get(p));
+        }
+    }
 
-        List<Bucket.Entry<K, V>> allEntries = new ArrayList<>();
-        for (Bucket<K, V> bucket : buckets)
-            allEntries.addAll(bucket.getEntries());
+    // ==================================================================================
+    // HALAMAN & HASH
+    // ==================================================================================
 
-        buckets = new ArrayList<>(newBucketCount);
-        for (int i = 0; i < newBucketCount; i++)
-            buckets.add(new Bucket<>(bucketCapacity,true));
+    private List<Bucket> readChain(long page) {
+        List<Bucket> chain = new ArrayList<>();
+        while (page != Bucket.NONE) {
+            Bucket bucket = readBucket(page);
+            chain.add(bucket);
+            page = bucket.next;
+        }
+        return chain;
+    }
 
-        for (Bucket.Entry<K, V> e : allEntries)
-            insert(e.key, e.value);
+    /**
+     * Hash deterministik lintas JVM (hashCode Integer/Long/Float/String
+     * dispesifikasikan), diaduk (finalizer murmur3) supaya bit rendahnya merata.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
 
-        System.out.println("Rehashed to " + newBucketCount + " buckets.");
+    private static int mask(int depth) {
+        return depth == 0 ? 0 : (int) ((1L << depth) - 1);
     }
 
-    public void expand(int count) {
-        rehash(bucketCount()+count);
+    private long allocatePage() throws IOException {
+        return bufferPool.getBlockCount(fileName);
     }
 
-    public void shrink(int count) {
-        rehash(bucketCount()-count); 
+    private byte[] readPage(long pageId) throws IOException {
+        pageReads++;
+        return bufferPool.readBlock(fileName, pageId);
     }
 
-    public void printTable() {
-        for (int i = 0; i < bucketCount(); i++)
-            System.out.println("Bucket " + i + ": " + buckets.get(i));
+    private Bucket readBucket(long pageId) {
+        try {
+            return Bucket.decode(layout, pageId, readPage(pageId));
+        } catch (IOException e) {
+            throw new IllegalStateException("Gagal membaca halaman " + pageId + " dari " + fileName, e);
+        }
     }
 
-    public void printBuckets() {
-        for (int i = 0; i < buckets.size(); i++) {
-            Bucket<K, V> b = buckets.get(i);
-            System.out.println("Bucket " + i);
+    private void writeBucket(Bucket bucket) throws IOException {
+        bufferPool.writeBlock(fileName, bucket.pageId, bucket.encode(layout, pageSize));
+        pageWrites++;
+    }
 
-            if (b == null) {
-                System.out.println("  null");
-                continue;
-            }
+    public int getGlobalDepth() {
+        return globalDepth;
+    }
 
-            Bucket<K, V> curr = b;
-            while (curr != null) {
-                for (Bucket.Entry<K, V> e : curr.getEntries()) {
-                    System.out.println("  key=" + e.key + " value=" + e.value);
-                }
+    public int getDirectorySize() {
+        return directory.length;
+    }
 
-                int next = curr.getNextBucket();
-                if (next == -1) break;
-                curr = buckets.get(next);
-            }
-        }
+    /**
+     * Jumlah halaman yang diminta ke buffer pool (termasuk yang hit di cache).
+     */
+    public long getPageReads() {
+        return pageReads;
     }
 
+    public long getPageWrites() {
+        return pageWrites;
+    }
 }
-
@@ -10,11 +10,17 @@ public interface IIndex<K, V> {
     void remove();
     
     // load indexing dr .dat ke memory (path ditentukan dri kolom+tablename+indextype+.dat)
+    // file yang tidak bisa dibaca -> UncheckedIOException (indeks jangan dipakai)
     void loadFromFile(CatalogManager catalogManager);
 
     // ubah data yang ada di .dat berdasarkan yang ada di memory
     void writeToFile(CatalogManager catalogManager);
     
+    // checkpoint/shutdown: indeks yang isinya di memori menulis snapshot lengkap di sini
+    default void flush(CatalogManager catalogManager) {
+        writeToFile(catalogManager);
+    }
+
     // dapet addresses berdasarkan key
     List<V> getAddress(K key);
 
@@ -22,7 +28,46 @@ public interface IIndex<K, V> {
     
     // insert data baru ke memory dulu
     void insertData(K key, V address);
+
+    // insert untuk indeks UNIQUE: entri hanya ditambahkan jika key belum ada, false jika sudah ada.
+    // Implementasi default cek-lalu-insert di bawah monitor indeks; hanya atomik terhadap
+    // pemanggil insertIfAbsent lain pada indeks yang sama.
+    default boolean insertIfAbsent(K key, V address) {
+        synchronized (this) {
+            if (!getAddress(key).isEmpty()) {
+                return false;
+            }
+            insertData(key, address);
+            return true;
+        }
+    }
     
     // delete data yang ada di memory
     void deleteData(K key, V address);
+
+    // true jika file index berformat lama atau tidak bersih (crash sebelum checkpoint) dan sudah
+    // dikosongkan saat load; perlu diisi ulang dari tabel
+    default boolean isRebuildRequired() {
+        return false;
+    }
+
+    default void markRebuilt() {
+    }
+
+    // dipanggil sebelum heap/indeks berubah (pasangkan dengan endChange): meta file indeks
+    // ditandai tidak bersih di disk lebih dulu dari halaman mana pun
+    default void beginChange() {
+    }
+
+    default void endChange() {
+    }
+
+    // checkpoint: ambil changeCount sebelum halaman di-flush, lalu markClean setelah flush
+    // selesai; meta hanya ditandai bersih jika tidak ada perubahan di antaranya
+    default long changeCount() {
+        return 0;
+    }
+
+    default void markClean(long changeCount) {
+    }
 }
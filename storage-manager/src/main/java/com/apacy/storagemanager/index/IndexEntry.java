@@ -0,0 +1,8 @@
+package com.apacy.storagemanager.index;
+
+/**
+ * Satu entri indeks (kunci, RID, payload INCLUDE) untuk bulk build.
+ * Kunci dan payload sudah dinormalisasi ke tipe kolomnya.
+ */
+public record IndexEntry(Object key, long rid, Object[] payload) {
+}
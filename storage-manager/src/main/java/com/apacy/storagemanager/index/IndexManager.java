@@ -1,20 +1,105 @@
 package com.apacy.storagemanager.index;
 
 import com.apacy.storagemanager.CatalogManager;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Registry indeks per (tabel, kolom, tipe). Indeks yang sudah ada di disk saat
+ * startup didaftarkan lazy lewat {@link #registerLazy}: file-nya baru dibuka
+ * saat indeks pertama kali diminta lewat {@link #get}, atau lebih awal oleh
+ * {@link #warmUp} di background.
+ */
 public class IndexManager {
-    private final Map<String, Map<String, Map<String, IIndex<?, ?>>>> indexes = new HashMap<>();
+
+    /**
+     * Progres warm-up indeks lazy: total yang didaftarkan, yang sudah dibuka
+     * (lewat warm-up maupun pemakaian pertama), dan yang gagal dibuka.
+     */
+    public record WarmUpProgress(int total, int opened, int failed) {
+        public boolean done() {
+            return opened + failed >= total;
+        }
+
+        @Override
+        public String toString() {
+            return (opened + failed) + "/" + total + " indeks dibuka" + (failed > 0 ? " (" + failed + " gagal)" : "");
+        }
+    }
+
+    /**
+     * Satu indeks terdaftar; opener != null berarti file belum dibuka.
+     * broken = opener gagal, indeks tidak pernah diberikan ke pemanggil.
+     */
+    private final class Slot {
+        final IIndex<?, ?> index;
+        private Runnable opener;
+        private volatile boolean ready;
+        private volatile boolean broken;
+
+        Slot(IIndex<?, ?> index, Runnable opener) {
+            this.index = index;
+            this.opener = opener;
+            this.ready = opener == null;
+        }
+
+        void open() {
+            if (ready) {
+                return;
+            }
+            synchronized (this) {
+                if (ready) {
+                    return;
+                }
+                try {
+                    opener.run();
+                    opened.incrementAndGet();
+                } catch (RuntimeException e) {
+                    broken = true;
+                    failed.incrementAndGet();
+                    System.err.println("Gagal membuka indeks " + index + ": " + e.getMessage());
+                } finally {
+                    opener = null;
+                    ready = true;
+                }
+            }
+        }
+    }
+
+    private final Map<String, Map<String, Map<String, Slot>>> indexes = new ConcurrentHashMap<>();
+    private final AtomicInteger lazyTotal = new AtomicInteger();
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
 
     public void register(String table, String column, String type, IIndex<?, ?> index) {
+        put(table, column, type, new Slot(index, null));
+    }
+
+    /**
+     * Daftarkan indeks yang file-nya belum dibuka. opener dijalankan tepat
+     * sekali sebelum indeks dipakai (biasanya loadFromFile, lalu rebuild dari
+     * tabel jika file perlu diisi ulang).
+     */
+    public void registerLazy(String table, String column, String type, IIndex<?, ?> index, Runnable opener) {
+        lazyTotal.incrementAndGet();
+        put(table, column, type, new Slot(index, opener));
+    }
+
+    private void put(String table, String column, String type, Slot slot) {
         indexes
-            .computeIfAbsent(table, t -> new HashMap<>())
-            .computeIfAbsent(column, c -> new HashMap<>())
-            .put(type, index);
+            .computeIfAbsent(table, t -> new ConcurrentHashMap<>())
+            .computeIfAbsent(column, c -> new ConcurrentHashMap<>())
+            .put(type, slot);
     }
 
-    public IIndex<?, ?> get(String table, String column, String type) {
+    private Slot slot(String table, String column, String type) {
         var colMap = indexes.get(table);
         if (colMap == null) return null;
         var typeMap = colMap.get(column);
@@ -22,26 +107,92 @@ public class IndexManager {
         return typeMap.get(type);
     }
 
-    public void loadAll(CatalogManager catalogManager) {
+    /**
+     * Indeks terdaftar, dibuka dulu jika belum (pemanggil lain untuk indeks
+     * yang sama menunggu sampai selesai). Indeks yang gagal dibuka dianggap
+     * tidak ada (null), jadi pemanggil kembali ke scan heap.
+     */
+    public IIndex<?, ?> get(String table, String column, String type) {
+        Slot slot = slot(table, column, type);
+        if (slot == null) return null;
+        slot.open();
+        return slot.broken ? null : slot.index;
+    }
+
+    public boolean isOpened(String table, String column, String type) {
+        Slot slot = slot(table, column, type);
+        return slot != null && slot.ready;
+    }
+
+    /**
+     * Buka semua indeks lazy yang belum dibuka di executor, satu task per
+     * indeks. listener (boleh null) dipanggil setelah setiap indeks selesai.
+     */
+    public CompletableFuture<Void> warmUp(Executor executor, Consumer<WarmUpProgress> listener) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
         for (var tableEntry : indexes.values())
             for (var colEntry : tableEntry.values())
-                for (var idx : colEntry.values())
-                    idx.loadFromFile(catalogManager);
+                for (Slot slot : colEntry.values()) {
+                    if (slot.ready) continue;
+                    tasks.add(CompletableFuture.runAsync(() -> {
+                        slot.open();
+                        if (listener != null) {
+                            listener.accept(progress());
+                        }
+                    }, executor));
+                }
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]));
+    }
+
+    public WarmUpProgress progress() {
+        return new WarmUpProgress(lazyTotal.get(), opened.get(), failed.get());
     }
 
-    public void flushAll(CatalogManager catalogManager) {
+    /**
+     * Flush halaman dirty (heap dan indeks) milik pemanggil, mis. BufferPool#flushAll.
+     */
+    public interface PageFlush {
+        void run() throws IOException;
+    }
+
+    /**
+     * Checkpoint indeks: tulis isi indeks yang sudah dibuka, jalankan flush
+     * halaman, lalu tandai meta setiap indeks bersih jika tidak berubah sejak
+     * sebelum flush. Indeks yang belum pernah dibuka tidak berubah sejak di
+     * disk, jadi dilewati, begitu juga yang gagal dibuka.
+     */
+    public void flushAll(CatalogManager catalogManager, PageFlush pages) throws IOException {
+        List<IIndex<?, ?>> flushed = new ArrayList<>();
+        List<Long> changeCounts = new ArrayList<>();
         for (var tableEntry : indexes.values())
             for (var colEntry : tableEntry.values())
-                for (var idx : colEntry.values())
-                    idx.writeToFile(catalogManager);
+                for (Slot slot : colEntry.values())
+                    if (slot.ready && !slot.broken) {
+                        changeCounts.add(slot.index.changeCount());
+                        slot.index.flush(catalogManager);
+                        flushed.add(slot.index);
+                    }
+        pages.run();
+        for (int i = 0; i < flushed.size(); i++) {
+            flushed.get(i).markClean(changeCounts.get(i));
+        }
     }
 
+    /**
+     * Hapus file indeks tanpa membukanya lebih dulu.
+     */
     public void drop(String table, String column, String type) {
-        var index = get(table, column, type);
-        if (index != null) {
-            index.remove();
+        Slot slot = slot(table, column, type);
+        if (slot != null) {
+            synchronized (slot) {
+                if (!slot.ready) {
+                    slot.opener = null;
+                    slot.ready = true;
+                    lazyTotal.decrementAndGet();
+                }
+            }
+            slot.index.remove();
             indexes.get(table).get(column).remove(type);
         }
     }
 }
-
@@ -0,0 +1,92 @@
+package com.apacy.storagemanager.index;
+
+import java.util.Arrays;
+
+/**
+ * Daftar long yang bisa bertambah, tanpa boxing per elemen. Dipakai node
+ * B+ tree untuk RID, pointer child, dan kode kunci numerik.
+ */
+final class LongList {
+
+    private long[] values;
+    private int size;
+
+    LongList() {
+        this(8);
+    }
+
+    LongList(int capacity) {
+        this.values = new long[Math.max(capacity, 1)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+        return values[i];
+    }
+
+    void set(int i, long value) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+        values[i] = value;
+    }
+
+    void add(long value) {
+        grow(size + 1);
+        values[size++] = value;
+    }
+
+    void add(int i, long value) {
+        if (i > size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+        grow(size + 1);
+        System.arraycopy(values, i, values, i + 1, size - i);
+        values[i] = value;
+        size++;
+    }
+
+    void remove(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        size--;
+    }
+
+    /**
+     * Tambahkan elemen [from, to) milik src di akhir daftar ini.
+     */
+    void addRange(LongList src, int from, int to) {
+        int n = to - from;
+        grow(size + n);
+        System.arraycopy(src.values, from, values, size, n);
+        size += n;
+    }
+
+    /**
+     * Potong daftar menjadi n elemen pertama.
+     */
+    void truncate(int n) {
+        if (n < size) {
+            size = n;
+        }
+    }
+
+    private void grow(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(values, size));
+    }
+}
@@ -1,173 +1,390 @@
 package com.apacy.storagemanager.index;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
-abstract class Node<K extends Comparable<K>, V> {
-
-    protected final List<K> keys = new ArrayList<>();
+/**
+ * Satu node B-link tree = satu halaman di file indeks.
+ *
+ * Layout halaman: [byte jenis][short jumlahKunci][long next][byte adaHighKey]
+ * lalu [kunci][long RID] high key (jika ada), lalu entri.
+ * Leaf      : jumlahKunci x [kunci][long RID][payload INCLUDE]
+ *             kunci string ditulis [short prefixSama][short panjangSisa][sisa UTF-8],
+ *             prefixSama = jumlah byte awal yang sama dengan kunci sebelumnya
+ * Internal  : [long child_0] lalu jumlahKunci x [kunci][long RID][long child_i+1]
+ *
+ * Setiap kunci dipasangkan dengan RID sehingga kunci duplikat tetap unik dan
+ * separator internal bisa memisahkan entri berkunci sama yang tersebar di
+ * beberapa leaf. Node di semua level menyimpan right-link next (-1 jika paling
+ * kanan) dan high key: semua entri node < (highKey, highRid); highKey null
+ * berarti tak terbatas. Pencarian yang menemukan target >= high key sedang
+ * melihat node yang baru di-split dan cukup berpindah ke kanan.
+ *
+ * RID dan pointer child disimpan di {@link LongList}. Untuk kunci numerik satu
+ * kolom (lihat {@link NodeLayout#primitiveKeys()}) kunci juga disimpan sebagai
+ * kode long, sehingga decode dan binary search tidak membuat objek per entri;
+ * kunci baru di-box saat diminta lewat {@link #key(int)}.
+ */
+final class Node {
+
+    static final byte LEAF = 1;
+    static final byte INTERNAL = 2;
+    static final int HEADER_SIZE = 1 + 2 + 8 + 1;
+    static final long NONE = -1L;
+
+    final long pageId;
+    final boolean leaf;
+    private final NodeLayout layout;
+    private final boolean primitive;
+    private final boolean frontCoded;
+    private final List<Object> keys;  // kunci umum; null jika primitive
+    private final LongList codes;     // kode kunci numerik; null jika tidak primitive
+    final LongList rids = new LongList();
+    final List<Object[]> payloads = new ArrayList<>(); // leaf saja, sejajar dengan rids
+    final LongList children = new LongList();          // internal saja, size() + 1
+    long next = NONE;
+    Object highKey;    // null = tak terbatas (node paling kanan di levelnya)
+    long highRid;
+
+    Node(NodeLayout layout, long pageId, boolean leaf) {
+        this.layout = layout;
+        this.pageId = pageId;
+        this.leaf = leaf;
+        this.primitive = layout.primitiveKeys();
+        this.frontCoded = leaf && layout.frontCodedKeys();
+        this.keys = primitive ? null : new ArrayList<>();
+        this.codes = primitive ? new LongList() : null;
+    }
 
-    protected InternalNode<K,V> parent;
+    int size() {
+        return rids.size();
+    }
 
-    Node(InternalNode<K,V> parent) {
-        this.parent = parent;
+    Object key(int i) {
+        return primitive ? layout.fromCode(codes.get(i)) : keys.get(i);
     }
 
-    abstract boolean isLeaf();
+    /**
+     * Bandingkan kunci entri ke-i dengan key (tanpa RID).
+     */
+    int compareKey(int i, Object key) {
+        if (primitive && layout.hasCode(key)) {
+            return Long.compare(codes.get(i), layout.code(key));
+        }
+        return NodeLayout.compareKeys(key(i), key);
+    }
 
-    int keyCount() {
-        return keys.size();
+    /**
+     * Bandingkan entri ke-i dengan (key, rid).
+     */
+    int compareEntry(int i, Object key, long rid) {
+        int c = compareKey(i, key);
+        return c != 0 ? c : Long.compare(rids.get(i), rid);
     }
 
-    K getFirstKey() {
-        return keys.get(0);
+    /**
+     * true jika (key, rid) >= high key, yaitu sudah di luar node ini dan harus
+     * dicari di node kanan (lewat next).
+     */
+    boolean beyondHigh(Object key, long rid) {
+        if (highKey == null) {
+            return false;
+        }
+        int c = NodeLayout.compareKeys(key, highKey);
+        return c > 0 || (c == 0 && rid >= highRid);
     }
 
-    abstract int minKeys(int branchingFactor);
+    /**
+     * true jika (key, rid) > high key: ada entri < (key, rid) di node kanan.
+     */
+    boolean aboveHigh(Object key, long rid) {
+        if (highKey == null) {
+            return false;
+        }
+        int c = NodeLayout.compareKeys(key, highKey);
+        return c > 0 || (c == 0 && rid > highRid);
+    }
 
-    int maxKeys(int branchingFactor) {
-        return branchingFactor - 1;
+    /**
+     * Posisi entri pertama yang >= (key, rid).
+     */
+    int lowerBound(Object key, long rid) {
+        return search(key, rid, false);
     }
 
-    boolean isOverflow(int branchingFactor) {
-        return keyCount() > maxKeys(branchingFactor);
+    /**
+     * Node internal: indeks child yang mencakup (key, rid), yaitu jumlah
+     * separator yang <= (key, rid).
+     */
+    int childIndex(Object key, long rid) {
+        return search(key, rid, true);
     }
 
-    boolean isUnderflow(boolean isRoot, int branchingFactor) {
-        if (isRoot) return false;
-        return keyCount() < minKeys(branchingFactor);
+    /**
+     * Binary search posisi entri pertama yang > (key, rid) jika inclusive,
+     * atau >= (key, rid) jika tidak. Kunci numerik dibandingkan lewat kodenya.
+     */
+    private int search(Object key, long rid, boolean inclusive) {
+        int lo = 0;
+        int hi = size();
+        if (primitive && layout.hasCode(key)) {
+            long code = layout.code(key);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = Long.compare(codes.get(mid), code);
+                if (c == 0) {
+                    c = Long.compare(rids.get(mid), rid);
+                }
+                if (c < 0 || (inclusive && c == 0)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareEntry(mid, key, rid);
+            if (c < 0 || (inclusive && c == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
     }
-}
 
-final class LeafNode<K extends Comparable<K>, V> extends Node<K,V> {
+    // ==================================================================================
+    // PERUBAHAN ENTRI
+    // ==================================================================================
+
+    /**
+     * Leaf: sisipkan entri di posisi pos.
+     */
+    void insert(int pos, Object key, long rid, Object[] payload) {
+        insertKey(pos, key);
+        rids.add(pos, rid);
+        payloads.add(pos, payload);
+    }
 
-    final List<V> values = new ArrayList<>();
+    /**
+     * Internal: sisipkan separator di posisi pos dengan child kanannya.
+     */
+    void insertSeparator(int pos, Object key, long rid, long rightChild) {
+        insertKey(pos, key);
+        rids.add(pos, rid);
+        children.add(pos + 1, rightChild);
+    }
 
-    LeafNode<K,V> next;
+    /**
+     * Tambahkan entri (leaf) atau separator beserta child kanannya (internal) di akhir.
+     */
+    void append(Object key, long rid, Object[] payload, long rightChild) {
+        insertKey(size(), key);
+        rids.add(rid);
+        if (leaf) {
+            payloads.add(payload);
+        } else {
+            children.add(rightChild);
+        }
+    }
 
-    LeafNode(InternalNode<K,V> parent) {
-        super(parent);
+    /**
+     * Leaf: hapus entri di posisi pos.
+     */
+    void remove(int pos) {
+        if (primitive) {
+            codes.remove(pos);
+        } else {
+            keys.remove(pos);
+        }
+        rids.remove(pos);
+        payloads.remove(pos);
     }
 
-    @Override
-    boolean isLeaf() {
-        return true;
+    /**
+     * Pindahkan entri [from, size) ke akhir dst (beserta payload atau child
+     * kanannya), lalu potong node ini menjadi from entri.
+     */
+    void moveTail(int from, Node dst) {
+        int n = size();
+        if (primitive) {
+            dst.codes.addRange(codes, from, n);
+        } else {
+            dst.keys.addAll(keys.subList(from, n));
+        }
+        dst.rids.addRange(rids, from, n);
+        if (leaf) {
+            dst.payloads.addAll(payloads.subList(from, n));
+        } else {
+            dst.children.addRange(children, from + 1, n + 1);
+        }
+        truncate(from);
     }
 
-    @Override
-    int minKeys(int branchingFactor) {
-        int nK = maxKeys(branchingFactor);
-        return (int) Math.ceil(nK / 2.0);
+    /**
+     * Sisakan n entri pertama (dan n + 1 child untuk node internal).
+     */
+    void truncate(int n) {
+        if (n >= size()) {
+            return;
+        }
+        if (primitive) {
+            codes.truncate(n);
+        } else {
+            keys.subList(n, keys.size()).clear();
+        }
+        rids.truncate(n);
+        if (leaf) {
+            payloads.subList(n, payloads.size()).clear();
+        } else {
+            children.truncate(n + 1);
+        }
     }
 
-    void insertInLeaf(K key, V value) {
-        int pos = Collections.binarySearch(keys, key);
-        if (pos >= 0) {
-            // composite key: exact match -> replace value
-            values.set(pos, value);
+    private void insertKey(int pos, Object key) {
+        if (primitive) {
+            codes.add(pos, layout.code(key));
         } else {
-            pos = -pos - 1;
             keys.add(pos, key);
-            values.add(pos, value);
         }
     }
 
-    boolean deleteFromLeaf(K key, V value) {
-        int pos = Collections.binarySearch(keys, key);
-        if (pos < 0) return false;
+    // ==================================================================================
+    // UKURAN & ENCODING
+    // ==================================================================================
 
-        int i = pos;
-        while (i < keys.size() && keys.get(i).compareTo(key) == 0) {
-            if ((values.get(i) == null && value == null) ||
-                (values.get(i) != null && values.get(i).equals(value))) {
-                keys.remove(i);
-                values.remove(i);
-                return true;
+    int entrySize(int i) {
+        int size;
+        if (primitive) {
+            size = layout.codeSize() + 8;
+        } else if (frontCoded) {
+            size = frontCodedSize(keys.get(i), i == 0 ? null : keys.get(i - 1)) + 8;
+        } else {
+            size = layout.keySize(keys.get(i)) + 8;
+        }
+        if (leaf) {
+            Object[] payload = payloads.get(i);
+            if (payload != null) {
+                size += layout.payloadSize(payload);
             }
-            i++;
+        } else {
+            size += 8;
         }
-        return false;
+        return size;
     }
 
-    LeafNode<K,V> splitLeaf(int branchingFactor) {
-        int totalKeys = keyCount();
-        int splitIndex = (totalKeys + 1) / 2;
-
-        LeafNode<K,V> right = new LeafNode<>(parent);
-
-        right.keys.addAll(keys.subList(splitIndex, totalKeys));
-        right.values.addAll(values.subList(splitIndex, totalKeys));
-
-        keys.subList(splitIndex, totalKeys).clear();
-        values.subList(splitIndex, totalKeys).clear();
-
-        right.next = this.next;
-        this.next = right;
-
-        return right;
+    int encodedSize() {
+        int size = HEADER_SIZE + (leaf ? 0 : 8);
+        if (highKey != null) {
+            size += layout.keySize(highKey) + 8;
+        }
+        for (int i = 0; i < size(); i++) {
+            size += entrySize(i);
+        }
+        return size;
     }
-}
-
-final class InternalNode<K extends Comparable<K>, V> extends Node<K,V> {
 
-    /** Children P1..Pm; must satisfy children.size() == keys.size() + 1. */
-    final List<Node<K,V>> children = new ArrayList<>();
-
-    InternalNode(InternalNode<K,V> parent) {
-        super(parent);
+    byte[] encode(int pageSize) {
+        ByteBuffer buffer = ByteBuffer.allocate(pageSize);
+        buffer.put(leaf ? LEAF : INTERNAL);
+        buffer.putShort((short) size());
+        buffer.putLong(next);
+        buffer.put((byte) (highKey != null ? 1 : 0));
+        if (highKey != null) {
+            layout.writeKey(buffer, highKey);
+            buffer.putLong(highRid);
+        }
+        if (!leaf) {
+            buffer.putLong(children.get(0));
+        }
+        byte[] prev = new byte[0];
+        for (int i = 0; i < size(); i++) {
+            if (primitive) {
+                layout.writeCode(buffer, codes.get(i));
+            } else if (frontCoded) {
+                byte[] key = utf8(keys.get(i));
+                int shared = sharedPrefix(prev, key);
+                buffer.putShort((short) shared);
+                buffer.putShort((short) (key.length - shared));
+                buffer.put(key, shared, key.length - shared);
+                prev = key;
+            } else {
+                layout.writeKey(buffer, keys.get(i));
+            }
+            buffer.putLong(rids.get(i));
+            if (leaf) {
+                if (payloads.get(i) != null) {
+                    layout.writePayload(buffer, payloads.get(i));
+                }
+            } else {
+                buffer.putLong(children.get(i + 1));
+            }
+        }
+        return buffer.array();
     }
 
-    @Override
-    boolean isLeaf() {
-        return false;
+    static Node decode(NodeLayout layout, long pageId, byte[] page) {
+        ByteBuffer buffer = ByteBuffer.wrap(page);
+        byte kind = buffer.get();
+        if (kind != LEAF && kind != INTERNAL) {
+            throw new IllegalStateException("Halaman " + pageId + " bukan node B+ tree (jenis " + kind + ")");
+        }
+        Node node = new Node(layout, pageId, kind == LEAF);
+        int count = Short.toUnsignedInt(buffer.getShort());
+        node.next = buffer.getLong();
+        if (buffer.get() != 0) {
+            node.highKey = layout.readKey(buffer);
+            node.highRid = buffer.getLong();
+        }
+        if (!node.leaf) {
+            node.children.add(buffer.getLong());
+        }
+        byte[] prev = new byte[0];
+        for (int i = 0; i < count; i++) {
+            if (node.primitive) {
+                node.codes.add(layout.readCode(buffer));
+            } else if (node.frontCoded) {
+                int shared = Short.toUnsignedInt(buffer.getShort());
+                byte[] key = Arrays.copyOf(prev, shared + Short.toUnsignedInt(buffer.getShort()));
+                buffer.get(key, shared, key.length - shared);
+                node.keys.add(new String(key, StandardCharsets.UTF_8));
+                prev = key;
+            } else {
+                node.keys.add(layout.readKey(buffer));
+            }
+            node.rids.add(buffer.getLong());
+            if (node.leaf) {
+                node.payloads.add(layout.readPayload(buffer));
+            } else {
+                node.children.add(buffer.getLong());
+            }
+        }
+        return node;
     }
 
-    @Override
-    int minKeys(int branchingFactor) {
-        int nV = branchingFactor;
-        int minChildren = (int) Math.ceil(nV / 2.0);
-        return minChildren - 1;
+    private static byte[] utf8(Object key) {
+        return ((String) key).getBytes(StandardCharsets.UTF_8);
     }
 
-    void insertAfter(Node<K,V> leftChild, K key, Node<K,V> newChild) {
-        int index = children.indexOf(leftChild);
-        if (index < 0) throw new IllegalArgumentException("Left child not found");
-        keys.add(index, key);
-        children.add(index + 1, newChild);
-        newChild.parent = this;
+    /**
+     * Ukuran kunci string di leaf jika ditulis setelah prev (null = entri pertama).
+     */
+    static int frontCodedSize(Object key, Object prev) {
+        byte[] bytes = utf8(key);
+        return 4 + bytes.length - (prev == null ? 0 : sharedPrefix(utf8(prev), bytes));
     }
 
-    SplitInternal<K,V> splitInternal(int branchingFactor) {
-        int totalChildren = children.size();
-        int midChildIndex = totalChildren / 2;
-        int midKeyIndex = midChildIndex - 1;
-
-        K middleKey = keys.get(midKeyIndex);
-
-        InternalNode<K,V> right = new InternalNode<>(parent);
-
-        right.keys.addAll(keys.subList(midKeyIndex + 1, keys.size()));
-        right.children.addAll(children.subList(midChildIndex, children.size()));
-
-        for (Node<K,V> child : right.children) {
-            child.parent = right;
+    private static int sharedPrefix(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < n && a[i] == b[i]) {
+            i++;
         }
-
-        keys.subList(midKeyIndex, keys.size()).clear();
-        children.subList(midChildIndex, children.size()).clear();
-
-        return new SplitInternal<>(middleKey, right);
-    }
-}
-
-final class SplitInternal<K extends Comparable<K>, V> {
-    final K middleKey;
-    final InternalNode<K,V> rightNode;
-
-    SplitInternal(K middleKey, InternalNode<K,V> rightNode) {
-        this.middleKey = middleKey;
-        this.rightNode = rightNode;
+        return i;
     }
 }
-
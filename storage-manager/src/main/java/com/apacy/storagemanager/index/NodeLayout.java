@@ -0,0 +1,401 @@
+package com.apacy.storagemanager.index;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.apacy.common.dto.Column;
+import com.apacy.common.enums.DataType;
+
+/**
+ * Encoding kunci dan payload INCLUDE di halaman node B+ tree.
+ *
+ * Kunci disimpan sesuai tipe kolomnya (INTEGER 4 byte, BIGINT 8, FLOAT 4,
+ * CHAR/VARCHAR: panjang 2 byte + UTF-8). Batas pencarian boleh bertipe numerik
+ * lain (misal literal Long untuk kolom INTEGER); perbandingannya dilakukan
+ * lintas tipe supaya tidak ada pembulatan. Kunci indeks komposit adalah
+ * {@link CompositeKey} yang komponennya ditulis berurutan dengan encoding yang sama.
+ */
+final class NodeLayout {
+
+    private final List<Column> keyColumns;
+    private final List<Column> includeColumns;
+
+    NodeLayout(Column keyColumn, List<Column> includeColumns) {
+        this(List.of(keyColumn), includeColumns);
+    }
+
+    /**
+     * Layout untuk indeks komposit bila keyColumns lebih dari satu; kunci
+     * berupa {@link CompositeKey} dan komponennya disimpan berurutan.
+     */
+    NodeLayout(List<Column> keyColumns, List<Column> includeColumns) {
+        if (keyColumns.isEmpty()) {
+            throw new IllegalArgumentException("Indeks membutuhkan minimal satu kolom kunci.");
+        }
+        this.keyColumns = List.copyOf(keyColumns);
+        this.includeColumns = List.copyOf(includeColumns);
+    }
+
+    List<Column> keyColumns() {
+        return keyColumns;
+    }
+
+    List<Column> includeColumns() {
+        return includeColumns;
+    }
+
+    boolean isComposite() {
+        return keyColumns.size() > 1;
+    }
+
+    /**
+     * Ukuran maksimum satu entri leaf (kunci + RID + payload) dengan asumsi
+     * terburuk 3 byte UTF-8 per karakter dan tanpa prefix bersama.
+     */
+    int maxLeafEntrySize() {
+        int size = frontCodedKeys() ? 10 : 8;
+        for (Column column : keyColumns) {
+            size += maxValueSize(column);
+        }
+        for (Column column : includeColumns) {
+            size += maxValueSize(column);
+        }
+        return size;
+    }
+
+    private static int maxValueSize(Column column) {
+        return switch (column.type()) {
+            case INTEGER, FLOAT -> 4;
+            case BIGINT -> 8;
+            case CHAR, VARCHAR -> 2 + 3 * Math.max(column.length(), 1);
+        };
+    }
+
+    // ==================================================================================
+    // KUNCI
+    // ==================================================================================
+
+    /**
+     * Konversi kunci yang akan disimpan ke tipe kolom. Kunci komposit harus
+     * lengkap; komponen yang hilang diperlakukan sebagai null.
+     */
+    Object toStoredKey(Object key) {
+        if (!isComposite()) {
+            return toStored(keyColumns.get(0).type(), key);
+        }
+        Object[] stored = new Object[keyColumns.size()];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = toStored(keyColumns.get(i).type(), component(key, i));
+        }
+        return new CompositeKey(stored);
+    }
+
+    /**
+     * Batas pencarian untuk kolom string selalu dibandingkan sebagai string.
+     * Batas komposit boleh berupa prefix (lebih sedikit komponen dari kunci).
+     */
+    Object toBound(Object bound) {
+        if (bound == null) {
+            return null;
+        }
+        if (!isComposite()) {
+            return toBound(keyColumns.get(0).type(), bound);
+        }
+        if (!(bound instanceof CompositeKey ck)) {
+            return new CompositeKey(toBound(keyColumns.get(0).type(), bound));
+        }
+        if (ck.size() > keyColumns.size()) {
+            throw new IllegalArgumentException("Batas " + ck + " lebih panjang dari kunci indeks.");
+        }
+        Object[] values = new Object[ck.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = toBound(keyColumns.get(i).type(), ck.get(i));
+        }
+        return new CompositeKey(values);
+    }
+
+    private static Object toBound(DataType type, Object bound) {
+        if ((type == DataType.CHAR || type == DataType.VARCHAR) && !(bound instanceof String)) {
+            return bound.toString();
+        }
+        return bound;
+    }
+
+    /**
+     * Konversi literal pencarian ke tipe kolom kunci; null jika tidak tepat
+     * (misal 2.5 untuk kolom INTEGER) sehingga tidak ada kunci yang cocok.
+     * Untuk indeks komposit hanya kunci lengkap yang dianggap tepat.
+     */
+    Object toExactKey(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (!isComposite()) {
+            return toExact(keyColumns.get(0).type(), value);
+        }
+        if (!(value instanceof CompositeKey ck) || ck.size() != keyColumns.size()) {
+            return null;
+        }
+        Object[] values = new Object[ck.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ck.get(i) == null ? null : toExact(keyColumns.get(i).type(), ck.get(i));
+            if (values[i] == null) {
+                return null;
+            }
+        }
+        return new CompositeKey(values);
+    }
+
+    private static Object toExact(DataType type, Object value) {
+        if (type == DataType.CHAR || type == DataType.VARCHAR) {
+            return value.toString();
+        }
+        if (!(value instanceof Number n)) {
+            try {
+                return toStored(type, value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        Object stored = toStored(type, n);
+        return compareKeys(stored, n) == 0 ? stored : null;
+    }
+
+    private static Object component(Object key, int i) {
+        if (key instanceof CompositeKey ck) {
+            return i < ck.size() ? ck.get(i) : null;
+        }
+        return i == 0 ? key : null;
+    }
+
+    int keySize(Object key) {
+        if (!isComposite()) {
+            return valueSize(keyColumns.get(0).type(), key);
+        }
+        CompositeKey ck = (CompositeKey) key;
+        int size = 0;
+        for (int i = 0; i < keyColumns.size(); i++) {
+            size += valueSize(keyColumns.get(i).type(), ck.get(i));
+        }
+        return size;
+    }
+
+    void writeKey(ByteBuffer buffer, Object key) {
+        if (!isComposite()) {
+            writeValue(buffer, keyColumns.get(0).type(), key);
+            return;
+        }
+        CompositeKey ck = (CompositeKey) key;
+        for (int i = 0; i < keyColumns.size(); i++) {
+            writeValue(buffer, keyColumns.get(i).type(), ck.get(i));
+        }
+    }
+
+    Object readKey(ByteBuffer buffer) {
+        if (!isComposite()) {
+            return readValue(buffer, keyColumns.get(0).type());
+        }
+        Object[] values = new Object[keyColumns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(buffer, keyColumns.get(i).type());
+        }
+        return new CompositeKey(values);
+    }
+
+    /**
+     * true jika kunci satu kolom CHAR/VARCHAR: di leaf, setiap kunci hanya
+     * menyimpan sisa setelah prefix yang sama dengan kunci sebelumnya.
+     */
+    boolean frontCodedKeys() {
+        if (isComposite()) {
+            return false;
+        }
+        DataType type = keyColumns.get(0).type();
+        return type == DataType.CHAR || type == DataType.VARCHAR;
+    }
+
+    // ==================================================================================
+    // KUNCI NUMERIK (PRIMITIF)
+    // ==================================================================================
+
+    /**
+     * true jika kunci satu kolom INTEGER/BIGINT/FLOAT: node menyimpannya
+     * sebagai kode long (lihat {@link #code}) tanpa objek per entri.
+     */
+    boolean primitiveKeys() {
+        if (isComposite()) {
+            return false;
+        }
+        DataType type = keyColumns.get(0).type();
+        return type == DataType.INTEGER || type == DataType.BIGINT || type == DataType.FLOAT;
+    }
+
+    /**
+     * true jika key bisa dibandingkan lewat kodenya dengan hasil yang sama
+     * seperti {@link #compareKeys}: bilangan bulat untuk kolom INTEGER/BIGINT,
+     * bilangan apa pun untuk kolom FLOAT (dibandingkan sebagai double).
+     */
+    boolean hasCode(Object key) {
+        if (keyColumns.get(0).type() == DataType.FLOAT) {
+            return key instanceof Number;
+        }
+        return key instanceof Number n && isIntegral(n);
+    }
+
+    /**
+     * Kode long yang urutan signed-nya sama dengan urutan kunci. Bilangan bulat
+     * dipakai apa adanya; FLOAT diperlebar ke double lalu bit-nya dibalik untuk
+     * nilai negatif sehingga urutannya mengikuti Double.compare (termasuk -0.0 dan NaN).
+     */
+    long code(Object key) {
+        Number n = (Number) key;
+        if (keyColumns.get(0).type() != DataType.FLOAT) {
+            return n.longValue();
+        }
+        long bits = Double.doubleToLongBits(n.doubleValue());
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    Object fromCode(long code) {
+        return switch (keyColumns.get(0).type()) {
+            case INTEGER -> (int) code;
+            case BIGINT -> code;
+            default -> (float) Double.longBitsToDouble(code ^ ((code >> 63) & Long.MAX_VALUE));
+        };
+    }
+
+    int codeSize() {
+        return keyColumns.get(0).type() == DataType.BIGINT ? 8 : 4;
+    }
+
+    void writeCode(ByteBuffer buffer, long code) {
+        switch (keyColumns.get(0).type()) {
+            case INTEGER -> buffer.putInt((int) code);
+            case BIGINT -> buffer.putLong(code);
+            default -> buffer.putFloat((float) Double.longBitsToDouble(code ^ ((code >> 63) & Long.MAX_VALUE)));
+        }
+    }
+
+    long readCode(ByteBuffer buffer) {
+        return switch (keyColumns.get(0).type()) {
+            case INTEGER -> buffer.getInt();
+            case BIGINT -> buffer.getLong();
+            default -> {
+                long bits = Double.doubleToLongBits(buffer.getFloat());
+                yield bits ^ ((bits >> 63) & Long.MAX_VALUE);
+            }
+        };
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static int compareKeys(Object a, Object b) {
+        if (a instanceof Number x && b instanceof Number y && a.getClass() != b.getClass()) {
+            if (isIntegral(x) && isIntegral(y)) {
+                return Long.compare(x.longValue(), y.longValue());
+            }
+            return Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static boolean isIntegral(Number n) {
+        return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+    }
+
+    // ==================================================================================
+    // PAYLOAD INCLUDE
+    // ==================================================================================
+
+    Object[] toStoredPayload(Object[] payload) {
+        if (includeColumns.isEmpty()) {
+            return null;
+        }
+        Object[] stored = new Object[includeColumns.size()];
+        for (int j = 0; j < stored.length; j++) {
+            Object value = payload != null && j < payload.length ? payload[j] : null;
+            stored[j] = toStored(includeColumns.get(j).type(), value);
+        }
+        return stored;
+    }
+
+    int payloadSize(Object[] payload) {
+        int size = 0;
+        for (int j = 0; j < includeColumns.size(); j++) {
+            size += valueSize(includeColumns.get(j).type(), payload[j]);
+        }
+        return size;
+    }
+
+    void writePayload(ByteBuffer buffer, Object[] payload) {
+        for (int j = 0; j < includeColumns.size(); j++) {
+            writeValue(buffer, includeColumns.get(j).type(), payload[j]);
+        }
+    }
+
+    Object[] readPayload(ByteBuffer buffer) {
+        if (includeColumns.isEmpty()) {
+            return null;
+        }
+        Object[] payload = new Object[includeColumns.size()];
+        for (int j = 0; j < payload.length; j++) {
+            payload[j] = readValue(buffer, includeColumns.get(j).type());
+        }
+        return payload;
+    }
+
+    // ==================================================================================
+    // NILAI BERTIPE
+    // ==================================================================================
+
+    private static Object toStored(DataType type, Object value) {
+        if (value == null) {
+            return switch (type) {
+                case INTEGER -> 0;
+                case BIGINT -> 0L;
+                case FLOAT -> 0.0f;
+                case CHAR, VARCHAR -> "";
+            };
+        }
+        return switch (type) {
+            case INTEGER -> value instanceof Number n ? n.intValue() : Integer.parseInt(value.toString().trim());
+            case BIGINT -> value instanceof Number n ? n.longValue() : Long.parseLong(value.toString().trim());
+            case FLOAT -> value instanceof Number n ? n.floatValue() : Float.parseFloat(value.toString().trim());
+            case CHAR, VARCHAR -> value.toString();
+        };
+    }
+
+    private static int valueSize(DataType type, Object value) {
+        return switch (type) {
+            case INTEGER, FLOAT -> 4;
+            case BIGINT -> 8;
+            case CHAR, VARCHAR -> 2 + ((String) value).getBytes(StandardCharsets.UTF_8).length;
+        };
+    }
+
+    private static void writeValue(ByteBuffer buffer, DataType type, Object value) {
+        switch (type) {
+            case INTEGER -> buffer.putInt((Integer) value);
+            case BIGINT -> buffer.putLong((Long) value);
+            case FLOAT -> buffer.putFloat((Float) value);
+            case CHAR, VARCHAR -> {
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+            }
+        }
+    }
+
+    private static Object readValue(ByteBuffer buffer, DataType type) {
+        return switch (type) {
+            case INTEGER -> buffer.getInt();
+            case BIGINT -> buffer.getLong();
+            case FLOAT -> buffer.getFloat();
+            case CHAR, VARCHAR -> {
+                byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(bytes);
+                yield new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
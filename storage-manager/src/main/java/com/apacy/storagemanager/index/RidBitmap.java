@@ -0,0 +1,483 @@
+package com.apacy.storagemanager.index;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Himpunan RID terkompresi ala Roaring bitmap. RID dipecah seperti
+ * {@link com.apacy.storagemanager.Rid}: nomor blok (bit tinggi) menjadi kunci
+ * container, slot 16 bit menjadi isi container. Container jarang disimpan
+ * sebagai array slot terurut, container padat (lebih dari {@link #ARRAY_LIMIT}
+ * slot) sebagai bitmap 65536 bit; keduanya dipilih ulang setelah setiap operasi.
+ *
+ * Iterasi selalu naik menurut RID, yaitu urutan fisik blok heap, sehingga
+ * pembaca hasil AND/OR cukup membaca setiap blok sekali.
+ */
+public final class RidBitmap {
+
+    static final int ARRAY_LIMIT = 4096;
+    private static final int SLOT_BITS = 16;
+    private static final int WORDS = (1 << SLOT_BITS) / 64;
+
+    private long[] keys;
+    private Container[] containers;
+    private int size;
+
+    public RidBitmap() {
+        this(4);
+    }
+
+    private RidBitmap(int capacity) {
+        this.keys = new long[Math.max(capacity, 1)];
+        this.containers = new Container[Math.max(capacity, 1)];
+    }
+
+    public static RidBitmap of(PrimitiveIterator.OfLong rids) {
+        RidBitmap bitmap = new RidBitmap();
+        while (rids.hasNext()) {
+            bitmap.add(rids.nextLong());
+        }
+        return bitmap;
+    }
+
+    public void add(long rid) {
+        long key = rid >>> SLOT_BITS;
+        int pos = findKey(key);
+        if (pos < 0) {
+            pos = -pos - 1;
+            insertContainer(pos, key, new Container());
+        }
+        containers[pos].add((char) rid);
+    }
+
+    /**
+     * @return true jika rid sebelumnya ada
+     */
+    public boolean remove(long rid) {
+        int pos = findKey(rid >>> SLOT_BITS);
+        if (pos < 0 || !containers[pos].remove((char) rid)) {
+            return false;
+        }
+        if (containers[pos].card == 0) {
+            System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+            System.arraycopy(containers, pos + 1, containers, pos, size - pos - 1);
+            containers[--size] = null;
+        }
+        return true;
+    }
+
+    public boolean contains(long rid) {
+        int pos = findKey(rid >>> SLOT_BITS);
+        return pos >= 0 && containers[pos].contains((char) rid);
+    }
+
+    public long cardinality() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += containers[i].card;
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * RID yang ada di kedua bitmap.
+     */
+    public RidBitmap and(RidBitmap other) {
+        RidBitmap result = new RidBitmap(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            int c = Long.compare(keys[i], other.keys[j]);
+            if (c == 0) {
+                result.appendIfNotEmpty(keys[i], Container.and(containers[i], other.containers[j]));
+                i++;
+                j++;
+            } else if (c < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * RID yang ada di salah satu bitmap.
+     */
+    public RidBitmap or(RidBitmap other) {
+        RidBitmap result = new RidBitmap(size + other.size);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            int c = i == size ? 1 : j == other.size ? -1 : Long.compare(keys[i], other.keys[j]);
+            if (c == 0) {
+                result.appendIfNotEmpty(keys[i], Container.or(containers[i], other.containers[j]));
+                i++;
+                j++;
+            } else if (c < 0) {
+                result.appendIfNotEmpty(keys[i], containers[i].copy());
+                i++;
+            } else {
+                result.appendIfNotEmpty(other.keys[j], other.containers[j].copy());
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * RID bitmap ini yang tidak ada di other.
+     */
+    public RidBitmap andNot(RidBitmap other) {
+        RidBitmap result = new RidBitmap(size);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendIfNotEmpty(keys[i], Container.andNot(containers[i], other.containers[j]));
+            } else {
+                result.appendIfNotEmpty(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    public RidBitmap copy() {
+        RidBitmap result = new RidBitmap(size);
+        for (int i = 0; i < size; i++) {
+            result.insertContainer(i, keys[i], containers[i].copy());
+        }
+        return result;
+    }
+
+    // ==================================================================================
+    // SERIALISASI
+    // ==================================================================================
+
+    /**
+     * Ukuran hasil {@link #writeTo}: [int jumlahContainer] lalu per container
+     * [long blok][int kardinalitas] diikuti slot char (array) atau 1024 long (bitmap).
+     */
+    public int serializedSize() {
+        int bytes = 4;
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            bytes += 8 + 4 + (c.bits != null ? WORDS * 8 : c.card * 2);
+        }
+        return bytes;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            buffer.putLong(keys[i]);
+            buffer.putInt(c.card);
+            if (c.bits != null) {
+                for (long word : c.bits) {
+                    buffer.putLong(word);
+                }
+            } else {
+                for (int j = 0; j < c.card; j++) {
+                    buffer.putChar(c.array[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Kebalikan {@link #writeTo}; jenis container ditentukan dari kardinalitasnya.
+     */
+    public static RidBitmap readFrom(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        RidBitmap bitmap = new RidBitmap(count);
+        for (int i = 0; i < count; i++) {
+            long key = buffer.getLong();
+            Container c = new Container();
+            c.card = buffer.getInt();
+            if (c.card > ARRAY_LIMIT) {
+                c.array = null;
+                c.bits = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    c.bits[w] = buffer.getLong();
+                }
+            } else {
+                c.array = new char[Math.max(c.card, 1)];
+                for (int j = 0; j < c.card; j++) {
+                    c.array[j] = buffer.getChar();
+                }
+            }
+            bitmap.insertContainer(i, key, c);
+        }
+        return bitmap;
+    }
+
+    /**
+     * RID secara naik (urutan blok, lalu slot).
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int container;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return container < size;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long key = keys[container];
+                Container current = containers[container];
+                int slot;
+                if (current.array != null) {
+                    slot = current.array[index++];
+                    if (index == current.card) {
+                        container++;
+                        index = 0;
+                    }
+                } else {
+                    // index = posisi bit berikutnya yang menyala
+                    slot = current.nextSetBit(index);
+                    int next = slot + 1 < 1 << SLOT_BITS ? current.nextSetBit(slot + 1) : -1;
+                    if (next < 0) {
+                        container++;
+                        index = 0;
+                    } else {
+                        index = next;
+                    }
+                }
+                return (key << SLOT_BITS) | slot;
+            }
+        };
+    }
+
+    private int findKey(long key) {
+        if (size > 0 && keys[size - 1] < key) {
+            return -size - 1; // RID biasanya ditambahkan naik
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int pos, long key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+        System.arraycopy(containers, pos, containers, pos + 1, size - pos);
+        keys[pos] = key;
+        containers[pos] = container;
+        size++;
+    }
+
+    private void appendIfNotEmpty(long key, Container container) {
+        if (container.card > 0) {
+            insertContainer(size, key, container);
+        }
+    }
+
+    /**
+     * Slot-slot satu blok: array terurut (array != null) atau bitmap 65536 bit.
+     */
+    private static final class Container {
+        private char[] array = new char[4];
+        private long[] bits;
+        private int card;
+
+        void add(char slot) {
+            if (bits != null) {
+                long mask = 1L << slot;
+                if ((bits[slot >>> 6] & mask) == 0) {
+                    bits[slot >>> 6] |= mask;
+                    card++;
+                }
+                return;
+            }
+            int pos = card > 0 && array[card - 1] < slot ? -card - 1 : Arrays.binarySearch(array, 0, card, slot);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (card == ARRAY_LIMIT) {
+                bits = words(this);
+                array = null;
+                add(slot);
+                return;
+            }
+            if (card == array.length) {
+                array = Arrays.copyOf(array, Math.min(Math.max(card * 2, 4), ARRAY_LIMIT));
+            }
+            System.arraycopy(array, pos, array, pos + 1, card - pos);
+            array[pos] = slot;
+            card++;
+        }
+
+        boolean remove(char slot) {
+            if (bits != null) {
+                long mask = 1L << slot;
+                if ((bits[slot >>> 6] & mask) == 0) {
+                    return false;
+                }
+                bits[slot >>> 6] &= ~mask;
+                if (--card <= ARRAY_LIMIT) {
+                    Container c = fromWords(bits);
+                    array = c.array;
+                    bits = c.bits;
+                }
+                return true;
+            }
+            int pos = Arrays.binarySearch(array, 0, card, slot);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(array, pos + 1, array, pos, card - pos - 1);
+            card--;
+            return true;
+        }
+
+        boolean contains(char slot) {
+            if (bits != null) {
+                return (bits[slot >>> 6] & (1L << slot)) != 0;
+            }
+            return Arrays.binarySearch(array, 0, card, slot) >= 0;
+        }
+
+        int nextSetBit(int from) {
+            for (int w = from >>> 6; w < WORDS; w++) {
+                long word = w == from >>> 6 ? bits[w] & (-1L << from) : bits[w];
+                if (word != 0) {
+                    return (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+            }
+            return -1;
+        }
+
+        Container copy() {
+            Container c = new Container();
+            c.array = array == null ? null : Arrays.copyOf(array, card);
+            c.bits = bits == null ? null : bits.clone();
+            c.card = card;
+            return c;
+        }
+
+        static Container and(Container a, Container b) {
+            if (a.bits == null || b.bits == null) {
+                Container small = a.bits == null ? a : b;
+                Container other = small == a ? b : a;
+                return filter(small, other, true);
+            }
+            long[] words = new long[WORDS];
+            for (int w = 0; w < WORDS; w++) {
+                words[w] = a.bits[w] & b.bits[w];
+            }
+            return fromWords(words);
+        }
+
+        static Container or(Container a, Container b) {
+            if (a.bits == null && b.bits == null && a.card + b.card <= ARRAY_LIMIT) {
+                Container c = new Container();
+                c.array = new char[Math.max(a.card + b.card, 1)];
+                int i = 0;
+                int j = 0;
+                while (i < a.card || j < b.card) {
+                    if (j == b.card || (i < a.card && a.array[i] < b.array[j])) {
+                        c.array[c.card++] = a.array[i++];
+                    } else if (i == a.card || b.array[j] < a.array[i]) {
+                        c.array[c.card++] = b.array[j++];
+                    } else {
+                        c.array[c.card++] = a.array[i++];
+                        j++;
+                    }
+                }
+                return c;
+            }
+            long[] words = words(a);
+            if (b.bits != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] |= b.bits[w];
+                }
+            } else {
+                for (int i = 0; i < b.card; i++) {
+                    words[b.array[i] >>> 6] |= 1L << b.array[i];
+                }
+            }
+            return fromWords(words);
+        }
+
+        static Container andNot(Container a, Container b) {
+            if (a.bits == null) {
+                return filter(a, b, false);
+            }
+            long[] words = a.bits.clone();
+            if (b.bits != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] &= ~b.bits[w];
+                }
+            } else {
+                for (int i = 0; i < b.card; i++) {
+                    words[b.array[i] >>> 6] &= ~(1L << b.array[i]);
+                }
+            }
+            return fromWords(words);
+        }
+
+        /**
+         * Slot array source yang ada (keep = true) atau tidak ada (false) di other.
+         */
+        private static Container filter(Container source, Container other, boolean keep) {
+            Container c = new Container();
+            c.array = new char[Math.max(source.card, 1)];
+            for (int i = 0; i < source.card; i++) {
+                if (other.contains(source.array[i]) == keep) {
+                    c.array[c.card++] = source.array[i];
+                }
+            }
+            return c;
+        }
+
+        private static long[] words(Container c) {
+            if (c.bits != null) {
+                return c.bits.clone();
+            }
+            long[] words = new long[WORDS];
+            for (int i = 0; i < c.card; i++) {
+                words[c.array[i] >>> 6] |= 1L << c.array[i];
+            }
+            return words;
+        }
+
+        private static Container fromWords(long[] words) {
+            Container c = new Container();
+            for (long word : words) {
+                c.card += Long.bitCount(word);
+            }
+            if (c.card > ARRAY_LIMIT) {
+                c.array = null;
+                c.bits = words;
+                return c;
+            }
+            c.array = new char[Math.max(c.card, 1)];
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    c.array[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return c;
+        }
+    }
+}
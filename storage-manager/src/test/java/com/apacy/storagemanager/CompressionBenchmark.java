@@ -0,0 +1,148 @@
+package com.apacy.storagemanager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.apacy.common.dto.Column;
+import com.apacy.common.dto.DataRetrieval;
+import com.apacy.common.dto.DataWrite;
+import com.apacy.common.dto.Row;
+import com.apacy.common.dto.Schema;
+import com.apacy.common.enums.CompressionType;
+import com.apacy.common.enums.DataType;
+
+/**
+ * Benchmark JMH trade-off CPU vs I/O untuk kompresi halaman.
+ *
+ * Tabel berisi teks repetitif (tipikal tabel arsip) diisi sekali per trial,
+ * lalu setiap invocation melakukan full scan pada StorageManager baru (buffer
+ * pool dan handle file dingin). Counter tambahan melaporkan total KB fisik
+ * yang dibaca selama iterasi dan ukuran file di disk.
+ *
+ * Jalankan:
+ * mvn -pl storage-manager test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="CompressionBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+  private static final String DATA_DIR = "compression_bench_data";
+  private static final String TABLE = "archive";
+
+  @Param({"NONE", "DEFLATE"})
+  public CompressionType compression;
+
+  @Param({"5000"})
+  public int rows;
+
+  private StorageManager sm;
+
+  /**
+   * Counter I/O, ikut dilaporkan JMH di samping waktu.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class IoCounters {
+    public long physicalKbRead;
+    public long diskKb;
+  }
+
+  @Setup(Level.Trial)
+  public void fill() throws IOException {
+    deleteDirectory(new File(DATA_DIR));
+    StorageManager loader = new StorageManager(DATA_DIR);
+    loader.initialize();
+    try {
+      loader.createTable(new Schema(
+          TABLE,
+          TABLE + ".dat",
+          List.of(
+              new Column("id", DataType.INTEGER),
+              new Column("category", DataType.VARCHAR, 20),
+              new Column("note", DataType.VARCHAR, 120)),
+          List.of(),
+          List.of(),
+          null,
+          null,
+          compression));
+      for (int i = 0; i < rows; i++) {
+        loader.writeBlock(new DataWrite(TABLE, archiveRow(i), null));
+      }
+    } finally {
+      loader.shutdown();
+      loader.getBlockManager().close();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void cleanUp() {
+    deleteDirectory(new File(DATA_DIR));
+  }
+
+  @Setup(Level.Invocation)
+  public void openCold() throws IOException {
+    sm = new StorageManager(DATA_DIR);
+    sm.initialize();
+  }
+
+  @TearDown(Level.Invocation)
+  public void closeCold() throws IOException {
+    sm.shutdown();
+    sm.getBlockManager().close();
+  }
+
+  @Benchmark
+  public List<Row> fullScan(IoCounters counters) throws IOException {
+    BlockManager bm = sm.getBlockManager();
+    long readBefore = bm.getPhysicalBytesRead();
+    List<Row> result = sm.readBlock(new DataRetrieval(TABLE, List.of("*"), null, false));
+    counters.physicalKbRead += (bm.getPhysicalBytesRead() - readBefore) / 1024;
+    counters.diskKb = bm.getPhysicalSize(sm.getSchema(TABLE).dataFile()) / 1024;
+    return result;
+  }
+
+  private static Row archiveRow(int i) {
+    String category = switch (i % 3) {
+      case 0 -> "shipment";
+      case 1 -> "invoice";
+      default -> "refund";
+    };
+    return new Row(Map.of(
+        "id", i,
+        "category", category,
+        "note", "status=ARCHIVED; region=APAC; channel=web; note=processed by nightly batch #" + (i % 10)));
+  }
+
+  private static void deleteDirectory(File directory) {
+    File[] contents = directory.listFiles();
+    if (contents != null) {
+      for (File file : contents) {
+        deleteDirectory(file);
+      }
+    }
+    directory.delete();
+  }
+}
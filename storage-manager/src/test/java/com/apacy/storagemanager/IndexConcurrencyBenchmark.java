@@ -0,0 +1,120 @@
+package com.apacy.storagemanager;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.apacy.common.dto.Column;
+import com.apacy.common.dto.IndexSchema;
+import com.apacy.common.dto.Schema;
+import com.apacy.common.enums.DataType;
+import com.apacy.common.enums.IndexType;
+import com.apacy.storagemanager.index.BPlusIndex;
+
+/**
+ * Benchmark JMH throughput indeks B+ tree (B-link) dengan banyak thread.
+ *
+ * Setiap trial memakai indeks baru yang diisi awal. Grup "mixed" menjalankan
+ * pembaca dan penulis bersamaan (4:1), sehingga terlihat apakah lookup
+ * terhambat oleh insert; "lookup" mengukur pembaca saja.
+ *
+ * Jalankan (jumlah thread diatur lewat -t / -tg):
+ * mvn -pl storage-manager test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="IndexConcurrencyBenchmark -t 8"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexConcurrencyBenchmark {
+
+  private static final String DATA_DIR = "index_concurrency_bench_data";
+  private static final String TABLE = "bench";
+
+  @Param({"50000"})
+  public int preload;
+
+  private StorageManager sm;
+  private BPlusIndex<Integer, Long> index;
+  private final AtomicInteger nextKey = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    deleteDirectory(new File(DATA_DIR));
+    sm = new StorageManager(DATA_DIR);
+    sm.initialize();
+    sm.createTable(new Schema(
+        TABLE,
+        TABLE + ".dat",
+        List.of(new Column("id", DataType.INTEGER)),
+        List.of(new IndexSchema("idx_" + TABLE + "_id", "id", IndexType.BPlusTree, TABLE + "_id.idx"))));
+    index = (BPlusIndex<Integer, Long>) sm.getIndexManager().get(TABLE, "id", IndexType.BPlusTree.toString());
+    for (int i = 0; i < preload; i++) {
+      index.insertData(i * 2, (long) i);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    sm.shutdown();
+    sm.getBlockManager().close();
+    deleteDirectory(new File(DATA_DIR));
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public List<Long> lookup() {
+    return index.getAddress(ThreadLocalRandom.current().nextInt(preload) * 2);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(4)
+  public List<Long> mixedLookup() {
+    return index.getAddress(ThreadLocalRandom.current().nextInt(preload) * 2);
+  }
+
+  /**
+   * Kunci insert ganjil supaya tersebar di seluruh leaf, bukan hanya ujung kanan.
+   */
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public void mixedInsert() {
+    int n = nextKey.getAndIncrement();
+    int key = (int) ((n * 2_654_435_761L) % (preload * 2L)) | 1;
+    index.insertData(key, (long) n);
+  }
+
+  private static void deleteDirectory(File directory) {
+    File[] contents = directory.listFiles();
+    if (contents != null) {
+      for (File file : contents) {
+        deleteDirectory(file);
+      }
+    }
+    directory.delete();
+  }
+}
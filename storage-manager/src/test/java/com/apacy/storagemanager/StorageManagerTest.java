@@ -12,8 +12,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import com.apacy.storagemanager.index.BPlusIndex;
+import com.apacy.storagemanager.index.BPlusTree;
 import com.apacy.storagemanager.index.IIndex;
+import com.apacy.storagemanager.index.IndexManager;
 import com.apacy.storagemanager.index.HashIndex;
+import com.apacy.storagemanager.index.HashTable;
+import com.apacy.storagemanager.index.RidBitmap;
 import com.apacy.common.dto.ast.where.*;
 import com.apacy.common.dto.ast.expression.*;
 
@@ -174,7 +179,7 @@ class StorageManagerTest {
 
   @Test
   @DisplayName("Test: Hash Index Lookup (Equality Search on Indexed Column)")
-  void testHashIndexLookup() {
+  void testHashIndexLookup() throws IOException {
     System.out.println("--- testHashIndexLookup ---");
 
     storageManager.writeBlock(new DataWrite("students",
@@ -210,6 +215,7 @@ class StorageManagerTest {
     assertTrue(found1, "Index lookup must return original row with id=20");
     assertTrue(found2, "Index lookup must return duplicate row with id=20");
 
+    storageManager.flushDirtyPages(); // checkpoint: halaman dirty di buffer pool ke disk
     StorageManager sm2 = new StorageManager(TEST_DIR);
     sm2.initialize();
 
@@ -231,7 +237,7 @@ class StorageManagerTest {
 
   @Test
   @DisplayName("Test: B+Tree Index Lookup (Range Search on GPA Column)")
-  void testBPlusIndexLookup() {
+  void testBPlusIndexLookup() throws IOException {
     System.out.println("--- testBPlusIndexLookup ---");
 
     storageManager.writeBlock(new DataWrite("students",
@@ -267,6 +273,7 @@ class StorageManagerTest {
     assertTrue(found1, "Index lookup must return row with gpa=3.5 (Budi)");
     assertTrue(found2, "Index lookup must return row with gpa=3.5 (Charlie)");
 
+    storageManager.flushDirtyPages(); // checkpoint: halaman dirty di buffer pool ke disk
     StorageManager sm2 = new StorageManager(TEST_DIR);
     sm2.initialize();
 
@@ -626,14 +633,14 @@ class StorageManagerTest {
 
     // Cek dulu: harus ada 1 blok
     String dataFile = studentsSchema.dataFile();
-    assertEquals(1, storageManager.getBlockManager().getBlockCount(dataFile),
+    assertEquals(1, storageManager.getBufferPool().getBlockCount(dataFile),
         "Harus ada 1 blok data setelah row pertama");
 
     // Tulis blok kedua (ini akan memicu append)
     storageManager.writeBlock(new DataWrite("students", row2, null));
 
     // Cek lagi: harus ada 2 blok
-    assertEquals(2, storageManager.getBlockManager().getBlockCount(dataFile),
+    assertEquals(2, storageManager.getBufferPool().getBlockCount(dataFile),
         "Harus ada 2 blok data setelah row kedua");
 
     // Cek apakah kedua data bisa dibaca kembali (Full Table Scan)
@@ -779,7 +786,7 @@ class StorageManagerTest {
     storageManager.writeBlock(new DataWrite("students",
         new Row(Map.of("id", 2, "name", "B", "gpa", 3.2f)), null));
 
-    assertEquals(1, storageManager.getBlockManager().getBlockCount(studentsSchema.dataFile()));
+    assertEquals(1, storageManager.getBufferPool().getBlockCount(studentsSchema.dataFile()));
 
     int deleted = storageManager.deleteBlock(new DataDeletion("students", buildComparison("id", "=", 1)));
     assertEquals(1, deleted);
@@ -787,7 +794,7 @@ class StorageManagerTest {
     storageManager.writeBlock(new DataWrite("students",
         new Row(Map.of("id", 3, "name", "C", "gpa", 3.4f)), null));
 
-    assertEquals(1, storageManager.getBlockManager().getBlockCount(studentsSchema.dataFile()),
+    assertEquals(1, storageManager.getBufferPool().getBlockCount(studentsSchema.dataFile()),
         "Row baru harus reuse slot terhapus tanpa menambah blok");
 
     List<Row> rows = storageManager.readBlock(new DataRetrieval("students", List.of("*"), null, false));
@@ -831,6 +838,7 @@ class StorageManagerTest {
 
     storageManager.setIndex("courses", "credits", "Hash");
 
+    storageManager.flushDirtyPages(); // checkpoint: halaman dirty di buffer pool ke disk
     StorageManager sm2 = new StorageManager(TEST_DIR);
     sm2.initialize();
     try {
@@ -848,6 +856,2069 @@ class StorageManagerTest {
     }
   }
 
+  @Test
+  @DisplayName("Test: DDL hanya menulis delta log dan di-replay saat restart")
+  void testCatalogDeltaLogReplayedOnRestart() throws Exception {
+    File log = new File(TEST_DIR, "system_catalog.log");
+    assertTrue(log.exists(), "createTable harus menulis delta ke log katalog");
+
+    storageManager.dropTable("courses", "RESTRICT");
+
+    storageManager.flushDirtyPages(); // checkpoint: halaman dirty di buffer pool ke disk
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertNotNull(sm2.getSchema("students"));
+      assertNotNull(sm2.getSchema("enrollments"));
+      assertNull(sm2.getSchema("courses"), "Delta DROP harus ikut di-replay");
+      assertEquals(1, sm2.getSchema("enrollments").foreignKeys().size(),
+          "Foreign key harus tetap utuh setelah replay");
+      assertFalse(log.exists(), "Log harus dipadatkan saat startup");
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Record delta yang terpotong di ekor log tidak diterapkan sebagian")
+  void testTornCatalogDeltaIsDiscarded() throws Exception {
+    File log = new File(TEST_DIR, "system_catalog.log");
+    storageManager.createTable(new Schema(
+        "grades",
+        "grades.dat",
+        List.of(
+            new Column("student_id", DataType.INTEGER),
+            new Column("score", DataType.INTEGER)),
+        List.of(),
+        List.of(new ForeignKeySchema("fk_grades_student", "student_id", "students", "id", false))));
+
+    // Potong ekor log di tengah section foreign key record terakhir
+    // (yang tersisa di belakangnya: flag cascading + jumlah ekstensi)
+    try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(log, "rw")) {
+      raf.setLength(raf.length() - 6);
+    }
+
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertNull(sm2.getSchema("grades"), "Record terpotong tidak boleh diterapkan tanpa foreign key");
+      assertEquals(1, sm2.getSchema("enrollments").foreignKeys().size(),
+          "Delta sebelum record terpotong tetap di-replay");
+      assertFalse(log.exists(), "Ekor log yang rusak dibuang saat compaction startup");
+    } finally {
+      sm2.shutdown();
+    }
+
+    // Isi record yang rusak (byte berubah) ditolak lewat checksum, bukan diterapkan apa adanya
+    storageManager.createTable(new Schema("audits", "audits.dat",
+        List.of(new Column("id", DataType.INTEGER)), List.of()));
+    byte[] bytes = java.nio.file.Files.readAllBytes(log.toPath());
+    String content = new String(bytes, java.nio.charset.StandardCharsets.ISO_8859_1);
+    int at = content.lastIndexOf("audits.dat");
+    assertTrue(at > 0);
+    bytes[at] = 'x';
+    java.nio.file.Files.write(log.toPath(), bytes);
+
+    StorageManager sm3 = new StorageManager(TEST_DIR);
+    sm3.initialize();
+    try {
+      assertNull(sm3.getSchema("audits"));
+      assertNotNull(sm3.getSchema("students"));
+    } finally {
+      sm3.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Log katalog dipadatkan setelah melewati ambang delta")
+  void testCatalogCompactsAfterThreshold() throws Exception {
+    File log = new File(TEST_DIR, "system_catalog.log");
+    boolean compacted = false;
+    for (int i = 0; i < CatalogManager.COMPACTION_THRESHOLD; i++) {
+      storageManager.createTable(new Schema("tmp_" + i, "tmp_" + i + ".dat",
+          List.of(new Column("x", DataType.INTEGER)), List.of()));
+      compacted |= !log.exists();
+    }
+    assertTrue(compacted, "Log harus dikosongkan setelah melewati ambang compaction");
+
+    storageManager.flushDirtyPages(); // checkpoint: halaman dirty di buffer pool ke disk
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertEquals(3 + CatalogManager.COMPACTION_THRESHOLD, sm2.getCatalogManager().getAllSchemas().size());
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: getSchema tetap konsisten saat DDL berjalan paralel")
+  void testConcurrentSchemaReadsDuringDdl() throws Exception {
+    Thread writer = new Thread(() -> {
+      try {
+        for (int i = 0; i < 20; i++) {
+          storageManager.createTable(new Schema("ddl_" + i, "ddl_" + i + ".dat",
+              List.of(new Column("x", DataType.INTEGER)), List.of()));
+        }
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    writer.start();
+    while (writer.isAlive()) {
+      assertNotNull(storageManager.getSchema("students"));
+      assertEquals(3, storageManager.getSchema("students").columns().size());
+    }
+    writer.join();
+    assertNotNull(storageManager.getSchema("ddl_19"));
+  }
+
+  @Test
+  @DisplayName("Test: RID 64-bit mendukung nomor blok di atas 65.535")
+  void testRidEncodesLargeBlockNumbers() {
+    long block = (1L << 32) + 7;
+    long rid = Rid.encode(block, 65535);
+    assertEquals(block, Rid.blockOf(rid));
+    assertEquals(65535, Rid.slotOf(rid));
+
+    assertThrows(IllegalArgumentException.class, () -> Rid.encode(0, 65536));
+    assertThrows(IllegalArgumentException.class, () -> Rid.encode(Rid.MAX_BLOCK + 1, 0));
+  }
+
+  @Test
+  @DisplayName("Test: Index menyimpan dan memuat ulang RID 64-bit")
+  @SuppressWarnings("unchecked")
+  void testIndexesPersistLargeRids() throws IOException {
+    long farRid = Rid.encode(70_000L, 3);
+
+    IIndex<Object, Long> hash = (IIndex<Object, Long>) storageManager.getIndexManager()
+        .get("students", "id", IndexType.Hash.toString());
+    IIndex<Object, Long> btree = (IIndex<Object, Long>) storageManager.getIndexManager()
+        .get("students", "gpa", IndexType.BPlusTree.toString());
+
+    hash.insertData(42, farRid);
+    hash.writeToFile(storageManager.getCatalogManager());
+    btree.insertData(3.9f, farRid);
+    btree.writeToFile(storageManager.getCatalogManager());
+    storageManager.flushDirtyPages(); // checkpoint: file indeks bersih, boleh dipercaya saat dibuka
+
+    hash.loadFromFile(storageManager.getCatalogManager());
+    btree.loadFromFile(storageManager.getCatalogManager());
+
+    assertEquals(List.of(farRid), hash.getAddress(42));
+    assertEquals(List.of(farRid), btree.getAddress(3.9f));
+  }
+
+  // ========================================================================
+  // --- Tes Partisi Horizontal ---
+  // ========================================================================
+
+  private Schema createOrdersTable(PartitionSchema partition) throws IOException {
+    Schema orders = new Schema(
+        "orders",
+        "orders.dat",
+        List.of(
+            new Column("order_id", DataType.INTEGER),
+            new Column("region", DataType.VARCHAR, 10),
+            new Column("amount", DataType.FLOAT)),
+        List.of(new IndexSchema("idx_orders_id", "order_id", IndexType.Hash, "orders_id.idx")),
+        List.of(),
+        partition);
+    storageManager.createTable(orders);
+    for (int i = 0; i < 40; i++) {
+      storageManager.writeBlock(new DataWrite("orders",
+          new Row(Map.of("order_id", i, "region", i % 2 == 0 ? "west" : "east", "amount", i * 1.5f)), null));
+    }
+    return orders;
+  }
+
+  @Test
+  @DisplayName("Test: Tabel partisi HASH menyebar baris ke beberapa file")
+  void testHashPartitionedTableSpreadsRows() throws Exception {
+    createOrdersTable(PartitionSchema.hash("order_id", 4));
+    storageManager.flushDirtyPages();
+
+    for (int p = 0; p < 4; p++) {
+      assertTrue(new File(TEST_DIR, PartitionSchema.segmentFile("orders.dat", p)).exists(),
+          "File partisi " + p + " harus ada");
+    }
+    assertEquals(40, storageManager.readBlock(new DataRetrieval("orders", List.of("*"), null, false)).size());
+    assertFalse(new File(TEST_DIR, "orders.dat").exists(), "Tabel terpartisi tidak memakai file tunggal");
+
+    // Equality pada kolom partisi (dengan dan tanpa indeks lokal)
+    for (boolean useIndex : new boolean[] { true, false }) {
+      List<Row> hit = storageManager.readBlock(
+          new DataRetrieval("orders", List.of("*"), buildComparison("order_id", "=", 17), useIndex));
+      assertEquals(1, hit.size());
+      assertEquals("east", hit.get(0).data().get("region"));
+    }
+
+    assertEquals(40, storageManager.getAllStats().get("orders").nr());
+  }
+
+  @Test
+  @DisplayName("Test: Tabel partisi RANGE memangkas partisi dan bertahan setelah restart")
+  void testRangePartitionPruningAndRestart() throws Exception {
+    createOrdersTable(PartitionSchema.range("order_id", List.of(10, 20, 30)));
+
+    List<Row> low = storageManager.readBlock(
+        new DataRetrieval("orders", List.of("*"), buildComparison("order_id", "<", 10), false));
+    assertEquals(10, low.size());
+
+    List<Row> high = storageManager.readBlock(
+        new DataRetrieval("orders", List.of("*"), buildComparison("order_id", ">=", 25), false));
+    assertEquals(15, high.size());
+
+    Schema orders = storageManager.getSchema("orders");
+    assertEquals(List.of(0), partitionsOf(PartitionRouter.candidates(orders, "<", 10)));
+    assertEquals(List.of(2, 3), partitionsOf(PartitionRouter.candidates(orders, ">=", 25)));
+    assertEquals(List.of(1), partitionsOf(PartitionRouter.candidates(orders, "=", 15)));
+
+    storageManager.flushDirtyPages(); // checkpoint: halaman dirty di buffer pool ke disk
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      Schema reloaded = sm2.getSchema("orders");
+      assertNotNull(reloaded.partition());
+      assertEquals(PartitionType.RANGE, reloaded.partition().type());
+      assertEquals(List.of(10, 20, 30), reloaded.partition().rangeBounds());
+
+      List<Row> viaIndex = sm2.readBlock(
+          new DataRetrieval("orders", List.of("*"), buildComparison("order_id", "=", 33), true));
+      assertEquals(1, viaIndex.size());
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Update kolom partisi memindahkan baris ke partisi lain")
+  void testUpdateMovesRowAcrossPartitions() throws Exception {
+    createOrdersTable(PartitionSchema.range("order_id", List.of(10, 20, 30)));
+
+    int updated = storageManager.updateBlock(new DataUpdate("orders",
+        new Row(Map.of("order_id", 135)), buildComparison("order_id", "=", 5)));
+    assertEquals(1, updated);
+
+    assertEquals(0, storageManager.readBlock(
+        new DataRetrieval("orders", List.of("*"), buildComparison("order_id", "=", 5), true)).size());
+    List<Row> moved = storageManager.readBlock(
+        new DataRetrieval("orders", List.of("*"), buildComparison("order_id", "=", 135), true));
+    assertEquals(1, moved.size());
+    assertEquals("east", moved.get(0).data().get("region"));
+
+    int deleted = storageManager.deleteBlock(new DataDeletion("orders", buildComparison("order_id", ">=", 30)));
+    assertEquals(11, deleted);
+    assertEquals(29, storageManager.readBlock(new DataRetrieval("orders", List.of("*"), null, false)).size());
+  }
+
+  private List<Integer> partitionsOf(java.util.BitSet bits) {
+    return bits.stream().boxed().toList();
+  }
+
+  // ========================================================================
+  // --- Tes Tablespace ---
+  // ========================================================================
+
+  private Schema createEventsTable(String tablespace) throws IOException {
+    Schema events = new Schema(
+        "events",
+        "events.dat",
+        List.of(
+            new Column("event_id", DataType.INTEGER),
+            new Column("payload", DataType.VARCHAR, 50)),
+        List.of(new IndexSchema("idx_events_id", "event_id", IndexType.Hash, "events_id.idx")),
+        List.of(),
+        null,
+        tablespace);
+    storageManager.createTable(events);
+    for (int i = 0; i < 300; i++) {
+      storageManager.writeBlock(new DataWrite("events",
+          new Row(Map.of("event_id", i, "payload", "payload-event-nomor-" + i)), null));
+    }
+    return events;
+  }
+
+  @Test
+  @DisplayName("Test: Tablespace STRIPED menyebar blok tabel ke beberapa direktori")
+  void testStripedTablespaceSpreadsBlocks() throws Exception {
+    storageManager.createTablespace(new TablespaceSchema("fast", List.of("nvme0", "nvme1"), true));
+    createEventsTable("fast");
+    storageManager.flushDirtyPages(); // halaman baru baru ada di disk setelah checkpoint / page cleaner
+
+    File stripe0 = new File(TEST_DIR, "nvme0/events.dat");
+    File stripe1 = new File(TEST_DIR, "nvme1/events.dat");
+    assertTrue(stripe0.exists() && stripe1.exists(), "Blok harus tersebar ke kedua lokasi");
+    assertFalse(new File(TEST_DIR, "events.dat").exists(), "Tabel tidak boleh berada di direktori default");
+
+    BlockManager bm = storageManager.getBlockManager();
+    long blocks = bm.getBlockCount("events.dat");
+    assertTrue(blocks > 2, "Data tes harus memakai beberapa blok");
+    assertEquals(blocks, (stripe0.length() + stripe1.length()) / BlockManager.DEFAULT_BLOCK_SIZE);
+    assertTrue(Math.abs(stripe0.length() - stripe1.length()) <= BlockManager.DEFAULT_BLOCK_SIZE,
+        "Round-robin harus membagi blok secara merata");
+
+    assertEquals(300, storageManager.readBlock(new DataRetrieval("events", List.of("*"), null, false)).size());
+    List<Row> hit = storageManager.readBlock(
+        new DataRetrieval("events", List.of("*"), buildComparison("event_id", "=", 250), true));
+    assertEquals(1, hit.size());
+    assertEquals("payload-event-nomor-250", hit.get(0).data().get("payload"));
+
+    assertThrows(IOException.class, () -> storageManager.dropTablespace("fast"),
+        "Tablespace yang masih dipakai tidak boleh dihapus");
+
+    storageManager.flushDirtyPages(); // checkpoint: halaman dirty di buffer pool ke disk
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertEquals("fast", sm2.getSchema("events").tablespace());
+      TablespaceSchema fast = sm2.getCatalogManager().getTablespace("fast");
+      assertNotNull(fast);
+      assertTrue(fast.striped());
+      assertEquals(List.of("nvme0", "nvme1"), fast.locations());
+      assertEquals(300, sm2.readBlock(new DataRetrieval("events", List.of("*"), null, false)).size());
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Indeks bisa ditempatkan di tablespace berbeda dari tabelnya")
+  void testIndexPlacedInOwnTablespace() throws Exception {
+    storageManager.createTablespace(new TablespaceSchema("idxspace", List.of("idx"), false));
+    createEventsTable(null);
+
+    storageManager.setIndex("events", "payload", "BPlusTree", "idxspace");
+    storageManager.flushDirtyPages();
+    assertTrue(new File(TEST_DIR, "idx/events_payload_bplustree.idx").exists());
+    assertFalse(new File(TEST_DIR, "events_payload_bplustree.idx").exists());
+    assertTrue(new File(TEST_DIR, "events.dat").exists(), "Tabel tetap di tablespace default");
+
+    assertThrows(IOException.class,
+        () -> storageManager.createTablespace(new TablespaceSchema("dup", List.of("a", "./a"), true)),
+        "Lokasi duplikat harus ditolak");
+    assertThrows(IOException.class, () -> createEventsTableIn("missing"),
+        "Tablespace yang belum terdaftar harus ditolak");
+
+    storageManager.flushDirtyPages(); // checkpoint: halaman dirty di buffer pool ke disk
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      IndexSchema placed = sm2.getSchema("events").indexes().stream()
+          .filter(idx -> idx.columnName().equals("payload"))
+          .findFirst()
+          .orElseThrow();
+      assertEquals("idxspace", placed.tablespace());
+      List<Row> hit = sm2.readBlock(new DataRetrieval("events", List.of("*"),
+          buildComparison("payload", "=", "payload-event-nomor-42"), true));
+      assertEquals(1, hit.size());
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  private void createEventsTableIn(String tablespace) throws IOException {
+    storageManager.createTable(new Schema("events_other", "events_other.dat",
+        List.of(new Column("event_id", DataType.INTEGER)), List.of(), List.of(), null, tablespace));
+  }
+
+  // ========================================================================
+  // --- Tes Buffer Pool & Page Cleaner ---
+  // ========================================================================
+
+  private byte[] filledPage(int value) {
+    byte[] page = new byte[BlockManager.DEFAULT_BLOCK_SIZE];
+    java.util.Arrays.fill(page, (byte) value);
+    return page;
+  }
+
+  @Test
+  @DisplayName("Test: Page cleaner menulis halaman dirty berurutan sebagai satu write")
+  void testBufferPoolCoalescesDirtyPages() throws Exception {
+    BlockManager bm = new BlockManager(TEST_DIR + "/pool");
+    BufferPool pool = new BufferPool(bm, 8, 10_000);
+    try {
+      for (int i = 0; i < 6; i++) {
+        pool.appendBlock("pool.dat", filledPage(i + 1));
+      }
+      pool.writeBlock("pool.dat", 10, filledPage(11)); // bolong: run terpisah
+
+      assertEquals(11, pool.getBlockCount("pool.dat"));
+      assertEquals(0, bm.getBlockCount("pool.dat"), "Write hanya menandai halaman dirty");
+      assertEquals(7, pool.getDirtyPageCount());
+
+      assertEquals(7, pool.cleanDirtyPages());
+      assertEquals(2, pool.getCleanerWrites(), "Blok 0-5 digabung jadi satu write, blok 10 sendiri");
+      assertEquals(0, pool.getDirtyPageCount());
+      assertEquals(11, bm.getBlockCount("pool.dat"));
+      assertEquals(4, bm.readBlock("pool.dat", 3)[0]);
+
+      // Kapasitas 8: halaman dirty yang di-evict harus ditulis dulu
+      for (int i = 0; i < 20; i++) {
+        pool.writeBlock("other.dat", i, filledPage(100 + i));
+      }
+      assertTrue(pool.getCachedPageCount() <= 8);
+      for (int i = 0; i < 20; i++) {
+        assertEquals((byte) (100 + i), pool.readBlock("other.dat", i)[0]);
+      }
+    } finally {
+      pool.shutdown();
+      bm.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Page cleaner di background membersihkan halaman dirty")
+  void testBackgroundPageCleaner() throws Exception {
+    BlockManager bm = new BlockManager(TEST_DIR + "/pool");
+    BufferPool pool = new BufferPool(bm, 64, 20);
+    pool.start();
+    try {
+      for (int i = 0; i < 10; i++) {
+        pool.appendBlock("bg.dat", filledPage(i));
+      }
+      long deadline = System.currentTimeMillis() + 5_000;
+      while (pool.getDirtyPageCount() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+      }
+      assertEquals(0, pool.getDirtyPageCount());
+      assertEquals(10, bm.getBlockCount("bg.dat"));
+
+      byte[] page = pool.readBlock("bg.dat", 2);
+      page[0] = 42; // salinan: tidak boleh mengubah cache
+      assertEquals(2, pool.readBlock("bg.dat", 2)[0]);
+      assertTrue(pool.getHits() > 0);
+    } finally {
+      pool.shutdown();
+      bm.close();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Miss & eviction paralel pada pool kecil tetap konsisten")
+  void testBufferPoolConcurrentMissAndEviction() throws Exception {
+    BlockManager bm = new BlockManager(TEST_DIR + "/pool");
+    BufferPool pool = new BufferPool(bm, 4, 10_000);
+    int pages = 32;
+    try {
+      for (int i = 0; i < pages; i++) {
+        pool.appendBlock("mix.dat", filledPage(i));
+      }
+      java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(8);
+      try {
+        List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+          int writer = t;
+          futures.add(executor.submit(() -> {
+            for (int round = 0; round < 50; round++) {
+              for (int i = 0; i < pages; i++) {
+                if (i % 8 == writer) {
+                  try (BufferPool.PageLatch latch = pool.latchExclusive("mix.dat", i)) {
+                    pool.writeBlock("mix.dat", i, filledPage(i));
+                  }
+                }
+                assertEquals((byte) i, pool.readBlock("mix.dat", i)[0]);
+              }
+            }
+            return null;
+          }));
+        }
+        for (java.util.concurrent.Future<?> future : futures) {
+          future.get(30, java.util.concurrent.TimeUnit.SECONDS);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+      assertTrue(pool.getCachedPageCount() <= 4 + 8, "Kelebihan kapasitas hanya dari korban yang sedang ditulis");
+      pool.flushAll();
+      assertEquals(0, pool.getDirtyPageCount());
+      for (int i = 0; i < pages; i++) {
+        assertEquals((byte) i, bm.readBlock("mix.dat", i)[0]);
+      }
+
+      // Latch ganda hanya boleh diminta dengan nomor blok menaik
+      try (BufferPool.PageLatch low = pool.latchExclusive("mix.dat", 3);
+          BufferPool.PageLatch high = pool.latchExclusive("mix.dat", 5)) {
+        assertThrows(IllegalStateException.class, () -> pool.latchShared("mix.dat", 4));
+      }
+      try (BufferPool.PageLatch latch = pool.latchExclusive("mix.dat", 4)) {
+        assertNotNull(latch, "Latch yang ditolak tidak boleh tertinggal");
+      }
+    } finally {
+      pool.shutdown();
+      bm.close();
+    }
+  }
+
+  // ========================================================================
+  // --- Tes Kompresi Halaman ---
+  // ========================================================================
+
+  @Test
+  @DisplayName("Test: Tabel terkompresi menyimpan halaman lebih kecil dan tetap bisa dibaca/diubah")
+  void testCompressedTableRoundTrip() throws Exception {
+    storageManager.createTable(new Schema(
+        "archive",
+        "archive.dat",
+        List.of(
+            new Column("id", DataType.INTEGER),
+            new Column("note", DataType.VARCHAR, 80)),
+        List.of(new IndexSchema("idx_archive_id", "id", IndexType.Hash, "archive_id.idx")),
+        List.of(),
+        null,
+        null,
+        CompressionType.DEFLATE));
+    for (int i = 0; i < 300; i++) {
+      storageManager.writeBlock(new DataWrite("archive",
+          new Row(Map.of("id", i, "note", "status=ARCHIVED; region=APAC; batch=" + (i % 5))), null));
+    }
+
+    storageManager.flushDirtyPages();
+    BlockManager bm = storageManager.getBlockManager();
+    assertTrue(bm.isCompressed("archive.dat"));
+    assertFalse(bm.isCompressed("archive_id.idx"), "Indeks tidak ikut dikompresi");
+    assertTrue(new File(TEST_DIR, "archive.dat" + PageTranslationMap.MAP_SUFFIX).exists());
+    long blocks = bm.getBlockCount("archive.dat");
+    assertTrue(blocks > 2);
+    assertTrue(bm.getPhysicalSize("archive.dat") * 2 < blocks * BlockManager.DEFAULT_BLOCK_SIZE,
+        "Teks repetitif harus terkompresi minimal 2x");
+
+    int updated = storageManager.updateBlock(new DataUpdate("archive",
+        new Row(Map.of("note", "restored")), buildComparison("id", "<", 50)));
+    assertEquals(50, updated);
+    assertEquals(100, storageManager.deleteBlock(new DataDeletion("archive", buildComparison("id", ">=", 200))));
+
+    storageManager.flushDirtyPages(); // checkpoint: halaman dirty di buffer pool ke disk
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertEquals(CompressionType.DEFLATE, sm2.getSchema("archive").compression());
+      assertEquals(200, sm2.readBlock(new DataRetrieval("archive", List.of("*"), null, false)).size());
+      List<Row> hit = sm2.readBlock(
+          new DataRetrieval("archive", List.of("*"), buildComparison("id", "=", 10), true));
+      assertEquals(1, hit.size());
+      assertEquals("restored", hit.get(0).data().get("note"));
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Insert paralel ke tabel yang sama tidak kehilangan baris")
+  void testConcurrentInsertsDoNotLoseRows() throws Exception {
+    storageManager.createTable(new Schema(
+        "clicks",
+        "clicks.dat",
+        List.of(
+            new Column("id", DataType.INTEGER),
+            new Column("session", DataType.VARCHAR, 20)),
+        List.of(new IndexSchema("idx_clicks_id", "id", IndexType.Hash, "clicks_id.idx"))));
+
+    int threads = 8;
+    int perThread = 150;
+    java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+    java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+    List<java.util.concurrent.Future<Integer>> results = new java.util.ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int base = t * perThread;
+      results.add(pool.submit(() -> {
+        start.await();
+        int written = 0;
+        for (int i = 0; i < perThread; i++) {
+          written += storageManager.writeBlock(new DataWrite("clicks",
+              new Row(Map.of("id", base + i, "session", "s" + (base + i))), null));
+        }
+        return written;
+      }));
+    }
+    start.countDown();
+    int written = 0;
+    for (java.util.concurrent.Future<Integer> r : results) {
+      written += r.get();
+    }
+    pool.shutdown();
+
+    assertEquals(threads * perThread, written);
+    List<Row> all = storageManager.readBlock(new DataRetrieval("clicks", List.of("*"), null, false));
+    assertEquals(threads * perThread, all.size(), "Tidak boleh ada baris yang hilang");
+    for (int id = 0; id < threads * perThread; id += 37) {
+      List<Row> hit = storageManager.readBlock(
+          new DataRetrieval("clicks", List.of("session"), buildComparison("id", "=", id), true));
+      assertEquals(1, hit.size(), "Indeks harus menunjuk ke baris id=" + id);
+      assertEquals("s" + id, hit.get(0).data().get("session"));
+    }
+
+    BufferPool bp = storageManager.getBufferPool();
+    assertTrue(bp.getExclusiveLatchCount() >= threads * perThread);
+    assertTrue(bp.getSharedLatchCount() > 0);
+  }
+
+  @Test
+  @DisplayName("Test: Indeks UNIQUE menolak kunci duplikat lewat probe indeks, tanpa full scan")
+  void testUniqueIndexRejectsDuplicateWithoutScan() throws Exception {
+    storageManager.createTable(new Schema(
+        "accounts",
+        "accounts.dat",
+        List.of(
+            new Column("id", DataType.INTEGER),
+            new Column("email", DataType.VARCHAR, 40),
+            new Column("balance", DataType.INTEGER)),
+        List.of(
+            new IndexSchema("pk_accounts_id", "id", IndexType.Hash, "accounts_id.idx", null, List.of(), true),
+            new IndexSchema("idx_accounts_email", "email", IndexType.BPlusTree, "accounts_email.idx", null,
+                List.of(), true),
+            new IndexSchema("idx_accounts_balance", "balance", IndexType.BPlusTree, "accounts_balance.idx"))));
+    for (int i = 0; i < 400; i++) {
+      assertEquals(1, storageManager.writeBlock(new DataWrite("accounts",
+          new Row(Map.of("id", i, "email", "user" + i + "@mail.com", "balance", i % 10)), null)));
+    }
+    assertTrue(storageManager.getBufferPool().getBlockCount("accounts.dat") > 1);
+
+    BufferPool bp = storageManager.getBufferPool();
+    long sharedBefore = bp.getSharedLatchCount();
+    IllegalStateException dupId = assertThrows(IllegalStateException.class, () -> storageManager.writeBlock(
+        new DataWrite("accounts", new Row(Map.of("id", 7, "email", "new@mail.com", "balance", 500)), null)));
+    assertTrue(dupId.getMessage().contains("Duplicate entry '7'"));
+    assertEquals(1, storageManager.writeBlock(new DataWrite("accounts",
+        new Row(Map.of("id", 400, "email", "user400@mail.com", "balance", 0)), null)));
+    assertEquals(sharedBefore, bp.getSharedLatchCount(), "Insert tidak boleh memindai halaman tabel");
+
+    // Email bentrok setelah id diklaim: klaim id dicabut lagi dan halaman tidak ditulis
+    assertThrows(IllegalStateException.class, () -> storageManager.writeBlock(new DataWrite("accounts",
+        new Row(Map.of("id", 1000, "email", "user3@mail.com", "balance", 777)), null)));
+    assertEquals(0, storageManager.readBlock(
+        new DataRetrieval("accounts", List.of("*"), buildComparison("balance", "=", 777), true)).size());
+    assertEquals(1, storageManager.writeBlock(new DataWrite("accounts",
+        new Row(Map.of("id", 1000, "email", "fresh@mail.com", "balance", 777)), null)));
+    assertEquals(402, storageManager.readBlock(new DataRetrieval("accounts", List.of("*"), null, false)).size());
+
+    // Flag UNIQUE ikut tersimpan di katalog
+    storageManager.flushDirtyPages();
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      Map<String, Boolean> unique = new java.util.HashMap<>();
+      for (IndexSchema idx : sm2.getSchema("accounts").indexes()) {
+        unique.put(idx.indexName(), idx.unique());
+      }
+      assertEquals(Map.of("pk_accounts_id", true, "idx_accounts_email", true, "idx_accounts_balance", false),
+          unique);
+      assertThrows(IllegalStateException.class, () -> sm2.writeBlock(new DataWrite("accounts",
+          new Row(Map.of("id", 1000, "email", "again@mail.com", "balance", 1)), null)));
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Insert paralel dengan kunci UNIQUE yang sama hanya diterima sekali")
+  void testUniqueIndexConcurrentInsertsSameKey() throws Exception {
+    storageManager.createTable(new Schema(
+        "tickets",
+        "tickets.dat",
+        List.of(
+            new Column("seat", DataType.INTEGER),
+            new Column("holder", DataType.VARCHAR, 20)),
+        List.of(new IndexSchema("pk_tickets_seat", "seat", IndexType.BPlusTree, "tickets_seat.idx", null,
+            List.of(), true))));
+
+    int threads = 8;
+    int seats = 50;
+    java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+    java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+    java.util.concurrent.atomic.AtomicInteger rejected = new java.util.concurrent.atomic.AtomicInteger();
+    List<java.util.concurrent.Future<Integer>> results = new java.util.ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      String holder = "holder" + t;
+      results.add(pool.submit(() -> {
+        start.await();
+        int written = 0;
+        for (int seat = 0; seat < seats; seat++) {
+          try {
+            written += storageManager.writeBlock(new DataWrite("tickets",
+                new Row(Map.of("seat", seat, "holder", holder)), null));
+          } catch (IllegalStateException e) {
+            rejected.incrementAndGet();
+          }
+        }
+        return written;
+      }));
+    }
+    start.countDown();
+    int written = 0;
+    for (java.util.concurrent.Future<Integer> r : results) {
+      written += r.get();
+    }
+    pool.shutdown();
+
+    assertEquals(seats, written, "Setiap kursi hanya boleh terjual sekali");
+    assertEquals(threads * seats - seats, rejected.get());
+    assertEquals(seats, storageManager.readBlock(new DataRetrieval("tickets", List.of("*"), null, false)).size());
+    for (int seat = 0; seat < seats; seat++) {
+      assertEquals(1, storageManager.readBlock(
+          new DataRetrieval("tickets", List.of("*"), buildComparison("seat", "=", seat), true)).size());
+    }
+
+    // Tanpa latch halaman heap: insertIfAbsent pada indeksnya sendiri tetap atomik per kunci
+    @SuppressWarnings("unchecked")
+    IIndex<Object, Long> index = (IIndex<Object, Long>) storageManager.getIndexManager()
+        .get("tickets", "seat", "BPlusTree");
+    java.util.concurrent.ExecutorService hammer = java.util.concurrent.Executors.newFixedThreadPool(threads);
+    java.util.concurrent.CountDownLatch go = new java.util.concurrent.CountDownLatch(1);
+    List<java.util.concurrent.Future<Integer>> claims = new java.util.ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      long ridBase = (t + 1) * 100_000L;
+      claims.add(hammer.submit(() -> {
+        go.await();
+        int won = 0;
+        for (int key = 1000; key < 3000; key++) {
+          if (index.insertIfAbsent(key, ridBase + key)) {
+            won++;
+          }
+        }
+        return won;
+      }));
+    }
+    go.countDown();
+    int won = 0;
+    for (java.util.concurrent.Future<Integer> c : claims) {
+      won += c.get();
+    }
+    hammer.shutdown();
+    assertEquals(2000, won);
+    for (int key = 1000; key < 3000; key += 7) {
+      assertEquals(1, index.getAddress(key).size());
+    }
+  }
+
+  // ========================================================================
+  // --- Tes Engine MEMORY ---
+  // ========================================================================
+
+  @Test
+  @DisplayName("Test: Tabel ENGINE=MEMORY mendukung CRUD & indeks tanpa I/O blok")
+  void testMemoryTableCrudWithoutDiskIo() throws Exception {
+    storageManager.createTable(new Schema(
+        "sessions",
+        "sessions.dat",
+        List.of(
+            new Column("id", DataType.INTEGER),
+            new Column("user_name", DataType.VARCHAR, 20),
+            new Column("hits", DataType.INTEGER)),
+        List.of(
+            new IndexSchema("idx_sessions_id", "id", IndexType.Hash, "sessions_id.idx"),
+            new IndexSchema("idx_sessions_hits", "hits", IndexType.BPlusTree, "sessions_hits.idx")),
+        List.of(),
+        null,
+        null,
+        CompressionType.NONE,
+        StorageEngine.MEMORY));
+    storageManager.flushDirtyPages(); // halaman tabel lain dari setUp
+    long writesBefore = storageManager.getBlockManager().getPhysicalBytesWritten();
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(1, storageManager.writeBlock(new DataWrite("sessions",
+          new Row(Map.of("id", i, "user_name", "u" + i, "hits", i % 10)), null)));
+    }
+    assertEquals(0, storageManager.writeBlock(new DataWrite("sessions",
+        new Row(Map.of("id", 5, "user_name", "u5", "hits", 5)), null)), "Baris identik ditolak");
+
+    List<Row> byId = storageManager.readBlock(
+        new DataRetrieval("sessions", List.of("user_name"), buildComparison("id", "=", 42), true));
+    assertEquals(1, byId.size());
+    assertEquals("u42", byId.get(0).data().get("user_name"));
+
+    List<Row> byRange = storageManager.readBlock(new DataRetrieval("sessions", List.of("*"),
+        buildBinary(buildComparison("hits", ">=", 3), "AND", buildComparison("hits", "<", 5)), true));
+    assertEquals(20, byRange.size());
+
+    assertEquals(10, storageManager.updateBlock(new DataUpdate("sessions",
+        new Row(Map.of("hits", 99)), buildComparison("hits", "=", 0))));
+    assertEquals(10, storageManager.readBlock(
+        new DataRetrieval("sessions", List.of("*"), buildComparison("hits", "=", 99), true)).size());
+    assertEquals(0, storageManager.readBlock(
+        new DataRetrieval("sessions", List.of("*"), buildComparison("hits", "=", 0), true)).size());
+
+    assertEquals(50, storageManager.deleteBlock(new DataDeletion("sessions", buildComparison("id", ">=", 50))));
+    assertEquals(50, storageManager.readBlock(new DataRetrieval("sessions", List.of("*"), null, false)).size());
+
+    // Baris hasil baca adalah salinan
+    Row copy = storageManager.readBlock(
+        new DataRetrieval("sessions", List.of("*"), buildComparison("id", "=", 1), true)).get(0);
+    copy.data().put("hits", 1234);
+    assertEquals(0, storageManager.readBlock(
+        new DataRetrieval("sessions", List.of("*"), buildComparison("hits", "=", 1234), false)).size());
+
+    assertEquals(50, storageManager.getAllStats().get("sessions").nr());
+    storageManager.flushDirtyPages();
+    assertEquals(writesBefore, storageManager.getBlockManager().getPhysicalBytesWritten(),
+        "Tabel MEMORY tidak boleh menulis blok");
+    assertFalse(new File(TEST_DIR, "sessions.dat").exists());
+    assertFalse(new File(TEST_DIR, "sessions_id.idx").exists());
+
+    // Definisi bertahan di katalog, isinya tidak
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      Schema reloaded = sm2.getSchema("sessions");
+      assertTrue(reloaded.isInMemory());
+      assertTrue(sm2.readBlock(new DataRetrieval("sessions", List.of("*"), null, false)).isEmpty());
+      assertEquals(1, sm2.writeBlock(new DataWrite("sessions",
+          new Row(Map.of("id", 1, "user_name", "again", "hits", 1)), null)));
+      assertEquals(1, sm2.readBlock(
+          new DataRetrieval("sessions", List.of("*"), buildComparison("id", "=", 1), true)).size());
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Tabel ENGINE=MEMORY menegakkan kolom UNIQUE pada insert dan update")
+  void testMemoryTableUniqueKey() throws Exception {
+    storageManager.createTable(new Schema(
+        "carts",
+        "carts.dat",
+        List.of(
+            new Column("id", DataType.INTEGER),
+            new Column("owner", DataType.VARCHAR, 20)),
+        List.of(new IndexSchema("pk_carts_id", "id", IndexType.Hash, "carts_id.idx", null, List.of(), true)),
+        List.of(),
+        null,
+        null,
+        CompressionType.NONE,
+        StorageEngine.MEMORY));
+    assertEquals(1, storageManager.writeBlock(new DataWrite("carts", new Row(Map.of("id", 1, "owner", "a")), null)));
+    assertEquals(1, storageManager.writeBlock(new DataWrite("carts", new Row(Map.of("id", 2, "owner", "b")), null)));
+    assertThrows(IllegalStateException.class, () -> storageManager.writeBlock(
+        new DataWrite("carts", new Row(Map.of("id", 1, "owner", "c")), null)));
+    assertThrows(IllegalStateException.class, () -> storageManager.updateBlock(
+        new DataUpdate("carts", new Row(Map.of("id", 1)), buildComparison("id", "=", 2))));
+
+    // Kunci yang dilepas oleh delete boleh dipakai lagi
+    assertEquals(1, storageManager.deleteBlock(new DataDeletion("carts", buildComparison("id", "=", 1))));
+    assertEquals(1, storageManager.writeBlock(new DataWrite("carts", new Row(Map.of("id", 1, "owner", "c")), null)));
+    assertEquals(2, storageManager.readBlock(new DataRetrieval("carts", List.of("*"), null, false)).size());
+  }
+
+  @Test
+  @DisplayName("Test: UPDATE ke kunci UNIQUE yang sudah dipakai ditolak tanpa kehilangan baris")
+  void testUniqueUpdateToDuplicateKeepsRow() throws Exception {
+    // Update di tempat, lewat indeks (id) maupun full scan (owner)
+    storageManager.createTable(new Schema(
+        "members",
+        "members.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("owner", DataType.VARCHAR, 20)),
+        List.of(new IndexSchema("pk_members_id", "id", IndexType.BPlusTree, "members_id.idx", null, List.of(),
+            true))));
+    for (int i = 0; i < 10; i++) {
+      storageManager.writeBlock(new DataWrite("members", new Row(Map.of("id", i, "owner", "o" + i)), null));
+    }
+    assertThrows(IllegalStateException.class, () -> storageManager.updateBlock(
+        new DataUpdate("members", new Row(Map.of("id", 3)), buildComparison("id", "=", 5))));
+    assertThrows(IllegalStateException.class, () -> storageManager.updateBlock(
+        new DataUpdate("members", new Row(Map.of("id", 3)), buildComparison("owner", "=", "o5"))));
+    List<Row> kept = storageManager.readBlock(
+        new DataRetrieval("members", List.of("*"), buildComparison("id", "=", 5), true));
+    assertEquals(1, kept.size());
+    assertEquals("o5", kept.get(0).get("owner"));
+    assertEquals(1, storageManager.readBlock(
+        new DataRetrieval("members", List.of("*"), buildComparison("id", "=", 3), true)).size());
+    assertEquals(1, storageManager.updateBlock(
+        new DataUpdate("members", new Row(Map.of("id", 50)), buildComparison("id", "=", 5))));
+    assertEquals(1, storageManager.readBlock(
+        new DataRetrieval("members", List.of("*"), buildComparison("id", "=", 50), true)).size());
+
+    // Pindah partisi: baris sudah dihapus dari partisi asal saat partisi tujuan menolaknya
+    Schema partitioned = new Schema(
+        "porders",
+        "porders.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("note", DataType.VARCHAR, 20)),
+        List.of(new IndexSchema("pk_porders_id", "id", IndexType.Hash, "porders_id.idx", null, List.of(), true)),
+        List.of(),
+        new PartitionSchema(PartitionType.HASH, "id", 4, List.of()),
+        null,
+        CompressionType.NONE,
+        StorageEngine.DISK);
+    storageManager.createTable(partitioned);
+    for (int i = 0; i < 20; i++) {
+      storageManager.writeBlock(new DataWrite("porders", new Row(Map.of("id", i, "note", "n" + i)), null));
+    }
+    int target = 1;
+    while (PartitionRouter.route(partitioned, target) == PartitionRouter.route(partitioned, 0)) {
+      target++;
+    }
+    int duplicate = target;
+    assertThrows(IllegalStateException.class, () -> storageManager.updateBlock(
+        new DataUpdate("porders", new Row(Map.of("id", duplicate)), buildComparison("id", "=", 0))));
+    assertEquals(20, storageManager.readBlock(new DataRetrieval("porders", List.of("*"), null, false)).size());
+    List<Row> restored = storageManager.readBlock(
+        new DataRetrieval("porders", List.of("*"), buildComparison("id", "=", 0), true));
+    assertEquals(1, restored.size());
+    assertEquals("n0", restored.get(0).get("note"));
+
+    // Tabel clustered: mengubah kunci cluster selalu memindah baris
+    storageManager.createTable(clusteredOrdersSchema());
+    for (int i = 0; i < 10; i++) {
+      storageManager.writeBlock(new DataWrite("corders",
+          new Row(Map.of("id", i, "customer", "c" + i, "total", i * 10)), null));
+    }
+    assertEquals(0, storageManager.updateBlock(
+        new DataUpdate("corders", new Row(Map.of("id", 4)), buildComparison("id", "=", 7))));
+    assertEquals(10, storageManager.readBlock(new DataRetrieval("corders", List.of("*"), null, false)).size());
+    assertEquals(1, storageManager.readBlock(
+        new DataRetrieval("corders", List.of("*"), buildComparison("total", "=", 70), true)).size());
+  }
+
+  @Test
+  @DisplayName("Test: Indeks UNIQUE tabel berpartisi harus memuat kolom partisi")
+  void testUniqueIndexMustContainPartitionColumn() {
+    assertThrows(IOException.class, () -> storageManager.createTable(new Schema(
+        "shipments",
+        "shipments.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("region", DataType.VARCHAR, 10)),
+        List.of(new IndexSchema("pk_shipments_id", "id", IndexType.Hash, "shipments_id.idx", null, List.of(),
+            true)),
+        List.of(),
+        new PartitionSchema(PartitionType.HASH, "region", 2, List.of()),
+        null,
+        CompressionType.NONE,
+        StorageEngine.DISK)));
+    assertNull(storageManager.getSchema("shipments"));
+  }
+
+  @Test
+  @DisplayName("Test: Tabel ENGINE=MEMORY menolak opsi penyimpanan fisik")
+  void testMemoryTableRejectsPhysicalOptions() {
+    assertThrows(IOException.class, () -> storageManager.createTable(new Schema(
+        "scratch",
+        "scratch.dat",
+        List.of(new Column("id", DataType.INTEGER)),
+        List.of(),
+        List.of(),
+        null,
+        null,
+        CompressionType.DEFLATE,
+        StorageEngine.MEMORY)));
+    assertNull(storageManager.getSchema("scratch"));
+  }
+
+  // ========================================================================
+  // --- Tes Tabel CLUSTERED ---
+  // ========================================================================
+
+  private Schema clusteredOrdersSchema() {
+    return new Schema(
+        "corders",
+        "corders.dat",
+        List.of(
+            new Column("id", DataType.INTEGER),
+            new Column("customer", DataType.VARCHAR, 40),
+            new Column("total", DataType.INTEGER)),
+        List.of(
+            new IndexSchema("pk_corders_id", "id", IndexType.BPlusTree, "corders_id.idx"),
+            new IndexSchema("idx_corders_total", "total", IndexType.Hash, "corders_total.idx")),
+        List.of(),
+        null,
+        null,
+        CompressionType.NONE,
+        StorageEngine.DISK,
+        "id");
+  }
+
+  @Test
+  @DisplayName("Test: Tabel CLUSTERED menyimpan baris terurut PK dan indeks sekunder tetap valid setelah split")
+  void testClusteredTableKeepsKeyOrder() throws Exception {
+    storageManager.createTable(clusteredOrdersSchema());
+
+    // Separuh menaik, separuh acak: memicu split "append" dan split 50/50
+    List<Integer> ids = new java.util.ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      ids.add(i * 2);
+    }
+    List<Integer> shuffled = new java.util.ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      shuffled.add(i * 2 + 1);
+    }
+    java.util.Collections.shuffle(shuffled, new java.util.Random(7));
+    ids.addAll(shuffled);
+    for (int id : ids) {
+      assertEquals(1, storageManager.writeBlock(new DataWrite("corders",
+          new Row(Map.of("id", id, "customer", "customer-" + id + "-xxxxxxxx", "total", id % 25)), null)));
+    }
+    assertEquals(0, storageManager.writeBlock(new DataWrite("corders",
+        new Row(Map.of("id", 10, "customer", "other", "total", 1)), null)), "PK duplikat ditolak");
+    assertTrue(storageManager.getBufferPool().getBlockCount("corders.dat") > 5, "Harus ada beberapa halaman");
+    assertNull(storageManager.getIndexManager().get("corders", "id", "BPlusTree"),
+        "Kunci cluster tidak punya indeks terpisah");
+
+    List<Row> all = storageManager.readBlock(new DataRetrieval("corders", List.of("id"), null, false));
+    assertEquals(600, all.size());
+    for (int i = 0; i < all.size(); i++) {
+      assertEquals(i, all.get(i).data().get("id"), "Full scan mengikuti urutan PK");
+    }
+
+    List<Row> range = storageManager.readBlock(new DataRetrieval("corders", List.of("id"),
+        buildBinary(buildComparison("id", ">", 100), "AND", buildComparison("id", "<=", 200)), true));
+    assertEquals(100, range.size());
+    assertEquals(101, range.get(0).data().get("id"));
+    assertEquals(200, range.get(99).data().get("id"));
+
+    List<Row> byPk = storageManager.readBlock(
+        new DataRetrieval("corders", List.of("customer"), buildComparison("id", "=", 377), true));
+    assertEquals(1, byPk.size());
+    assertEquals("customer-377-xxxxxxxx", byPk.get(0).data().get("customer"));
+
+    // RID di indeks sekunder sudah dipindah mengikuti split
+    List<Row> byTotal = storageManager.readBlock(
+        new DataRetrieval("corders", List.of("*"), buildComparison("total", "=", 3), true));
+    assertEquals(24, byTotal.size());
+    for (Row row : byTotal) {
+      assertEquals(3, (Integer) row.data().get("id") % 25);
+    }
+
+    assertEquals(10, storageManager.deleteBlock(new DataDeletion("corders",
+        buildBinary(buildComparison("id", ">=", 0), "AND", buildComparison("id", "<", 10)))));
+    // Ubah PK: baris dipindah ke halaman kunci barunya
+    assertEquals(1, storageManager.updateBlock(new DataUpdate("corders",
+        new Row(Map.of("id", 5000)), buildComparison("id", "=", 10))));
+    List<Row> last = storageManager.readBlock(new DataRetrieval("corders", List.of("id"), null, false));
+    assertEquals(590, last.size());
+    assertEquals(11, last.get(0).data().get("id"));
+    assertEquals(5000, last.get(last.size() - 1).data().get("id"));
+
+    storageManager.shutdown();
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertEquals("id", sm2.getSchema("corders").clusterKey());
+      List<Row> reloaded = sm2.readBlock(new DataRetrieval("corders", List.of("total"),
+          buildComparison("id", "=", 433), true));
+      assertEquals(1, reloaded.size());
+      assertEquals(433 % 25, reloaded.get(0).data().get("total"));
+      assertEquals(590, sm2.readBlock(new DataRetrieval("corders", List.of("*"), null, false)).size());
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Tabel CLUSTERED menolak partisi dan ENGINE=MEMORY")
+  void testClusteredTableRejectsIncompatibleOptions() {
+    Schema base = clusteredOrdersSchema();
+    assertThrows(IOException.class, () -> storageManager.createTable(new Schema(
+        base.tableName(), base.dataFile(), base.columns(), base.indexes(), base.foreignKeys(),
+        new PartitionSchema(PartitionType.HASH, "id", 2, List.of()), null, CompressionType.NONE,
+        StorageEngine.DISK, "id")));
+    assertThrows(IOException.class, () -> storageManager.createTable(new Schema(
+        base.tableName(), base.dataFile(), base.columns(), base.indexes(), base.foreignKeys(),
+        null, null, CompressionType.NONE, StorageEngine.MEMORY, "id")));
+    assertNull(storageManager.getSchema("corders"));
+  }
+
+  // ========================================================================
+  // --- Tes Covering Index (INCLUDE) ---
+  // ========================================================================
+
+  @Test
+  @DisplayName("Test: Indeks BPlusTree dengan INCLUDE menjawab query tanpa membaca heap")
+  void testCoveringIndexAnswersWithoutHeap() throws Exception {
+    storageManager.createTable(new Schema(
+        "cov_orders",
+        "cov_orders.dat",
+        List.of(
+            new Column("id", DataType.INTEGER),
+            new Column("customer", DataType.VARCHAR, 20),
+            new Column("total", DataType.INTEGER),
+            new Column("note", DataType.VARCHAR, 60)),
+        List.of(),
+        List.of()));
+    for (int i = 0; i < 200; i++) {
+      storageManager.writeBlock(new DataWrite("cov_orders",
+          new Row(Map.of("id", i, "customer", "cust-" + i, "total", i % 50, "note", "note-" + i)), null));
+    }
+    storageManager.setIndex("cov_orders", "total", "BPlusTree", null, List.of("customer"));
+    assertEquals(List.of("customer"), storageManager.getSchema("cov_orders").indexes().get(0).includeColumns());
+
+    WhereConditionNode range = buildBinary(buildComparison("total", ">=", 10), "AND",
+        buildComparison("total", "<", 20));
+    BufferPool pool = storageManager.getBufferPool();
+
+    long latchesBefore = pool.getSharedLatchCount();
+    List<Row> covered = storageManager.readBlock(
+        new DataRetrieval("cov_orders", List.of("total", "customer"), range, true, true));
+    assertEquals(40, covered.size());
+    assertEquals(latchesBefore, pool.getSharedLatchCount(), "Index-only scan tidak boleh membaca halaman heap");
+    for (Row row : covered) {
+      assertEquals(2, row.data().size());
+      int id = Integer.parseInt(((String) row.data().get("customer")).substring("cust-".length()));
+      assertEquals(id % 50, row.data().get("total"));
+    }
+
+    // Kolom di luar kunci + INCLUDE: kembali ke heap
+    latchesBefore = pool.getSharedLatchCount();
+    List<Row> withNote = storageManager.readBlock(
+        new DataRetrieval("cov_orders", List.of("total", "note"), range, true, true));
+    assertEquals(40, withNote.size());
+    assertTrue(pool.getSharedLatchCount() > latchesBefore);
+
+    // Perubahan kolom INCLUDE ikut memperbarui payload di leaf
+    assertEquals(1, storageManager.updateBlock(new DataUpdate("cov_orders",
+        new Row(Map.of("customer", "renamed")), buildComparison("id", "=", 15))));
+    List<Row> afterUpdate = storageManager.readBlock(new DataRetrieval("cov_orders",
+        List.of("customer"), buildComparison("total", "=", 15), true, true));
+    assertEquals(4, afterUpdate.size());
+    assertTrue(afterUpdate.stream().anyMatch(r -> "renamed".equals(r.data().get("customer"))));
+
+    storageManager.shutdown();
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertEquals(List.of("customer"), sm2.getSchema("cov_orders").indexes().get(0).includeColumns());
+      long before = sm2.getBufferPool().getSharedLatchCount();
+      List<Row> reloaded = sm2.readBlock(new DataRetrieval("cov_orders", List.of("customer"),
+          buildComparison("total", "=", 15), true, true));
+      assertEquals(4, reloaded.size());
+      assertTrue(reloaded.stream().anyMatch(r -> "renamed".equals(r.data().get("customer"))));
+      assertEquals(before, sm2.getBufferPool().getSharedLatchCount());
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Indeks Hash extendible tetap O(1) per lookup saat tabel membesar")
+  void testExtendibleHashLookupStaysConstant() throws Exception {
+    storageManager.createTable(new Schema(
+        "hashed",
+        "hashed.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("tag", DataType.VARCHAR, 20)),
+        List.of(new IndexSchema("idx_hashed_id", "id", IndexType.Hash, "hashed_id.idx"))));
+    for (int i = 0; i < 4000; i++) {
+      storageManager.writeBlock(new DataWrite("hashed", new Row(Map.of("id", i, "tag", "t" + i)), null));
+    }
+    // 300 duplikat satu kunci tidak boleh menggandakan direktori tanpa batas
+    for (int i = 0; i < 300; i++) {
+      storageManager.writeBlock(new DataWrite("hashed", new Row(Map.of("id", 7, "tag", "dup" + i)), null));
+    }
+
+    HashTable table = ((HashIndex<?, ?>) storageManager.getIndexManager()
+        .get("hashed", "id", IndexType.Hash.toString())).getTable();
+    assertTrue(table.getGlobalDepth() > 0, "Direktori harus tumbuh lewat split bucket");
+    assertTrue(table.getGlobalDepth() < 12, "Duplikat dilayani halaman overflow, bukan split berulang");
+
+    long readsBefore = table.getPageReads();
+    List<Row> found = storageManager.readBlock(new DataRetrieval("hashed", List.of("*"),
+        buildComparison("id", "=", 3999), true));
+    assertEquals(1, found.size());
+    assertEquals("t3999", found.get(0).data().get("tag"));
+    assertEquals(1, table.getPageReads() - readsBefore, "Lookup cukup membaca satu halaman bucket");
+
+    assertEquals(301, storageManager.readBlock(new DataRetrieval("hashed", List.of("*"),
+        buildComparison("id", "=", 7), true)).size());
+
+    storageManager.shutdown();
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      List<Row> reloaded = sm2.readBlock(new DataRetrieval("hashed", List.of("*"),
+          buildComparison("id", "=", 2500), true));
+      assertEquals(1, reloaded.size());
+      assertEquals("t2500", reloaded.get(0).data().get("tag"));
+      assertEquals(1, sm2.deleteBlock(new DataDeletion("hashed", buildComparison("id", "=", 2500))));
+      assertTrue(sm2.readBlock(new DataRetrieval("hashed", List.of("*"),
+          buildComparison("id", "=", 2500), true)).isEmpty());
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: CREATE INDEX membangun B+ tree dan Hash lewat bulk build terurut")
+  void testCreateIndexBulkBuild() throws Exception {
+    storageManager.createTable(new Schema(
+        "bulk",
+        "bulk.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("code", DataType.VARCHAR, 16)),
+        List.of()));
+    for (int i = 0; i < 5000; i++) {
+      // id tidak berurutan supaya sort benar-benar diuji
+      int id = (i * 7919) % 5000;
+      storageManager.writeBlock(new DataWrite("bulk", new Row(Map.of("id", id, "code", "c" + (id % 250))), null));
+    }
+    storageManager.setIndexSortRunEntries(300); // paksa beberapa run tumpah ke disk
+    storageManager.setIndexFillFactor(0.7);
+    storageManager.setIndex("bulk", "id", "BPlusTree");
+    storageManager.setIndex("bulk", "code", "Hash");
+
+    BPlusTree tree = ((BPlusIndex<?, ?>) storageManager.getIndexManager()
+        .get("bulk", "id", IndexType.BPlusTree.toString())).getTree();
+    assertTrue(tree.getHeight() >= 2);
+
+    List<Row> range = storageManager.readBlock(new DataRetrieval("bulk", List.of("*"),
+        buildBinary(buildComparison("id", ">=", 1000), "AND", buildComparison("id", "<", 1100)), true));
+    assertEquals(100, range.size());
+    assertEquals(5000, tree.findRange(null, true, null, true).size(), "Semua leaf harus terhubung lewat next");
+    assertEquals(20, storageManager.readBlock(new DataRetrieval("bulk", List.of("*"),
+        buildComparison("code", "=", "c42"), true)).size());
+
+    // Halaman menyisakan ruang sehingga insert setelah build tidak langsung split
+    long writesBefore = tree.getPageWrites();
+    storageManager.writeBlock(new DataWrite("bulk", new Row(Map.of("id", 2500, "code", "extra")), null));
+    assertEquals(1, tree.getPageWrites() - writesBefore);
+    assertEquals(2, storageManager.readBlock(new DataRetrieval("bulk", List.of("*"),
+        buildComparison("id", "=", 2500), true)).size());
+
+    File[] leftovers = new File(TEST_DIR).listFiles((dir, name) -> name.startsWith("index_build"));
+    assertEquals(0, leftovers == null ? 0 : leftovers.length, "File run sementara harus dihapus");
+  }
+
+  @Test
+  @DisplayName("Test: Indeks komposit melayani equality prefix dan range pada kolom berikutnya")
+  void testCompositeIndexPrefixAndRange() throws Exception {
+    storageManager.createTable(new Schema(
+        "mhs",
+        "mhs.dat",
+        List.of(new Column("nim", DataType.INTEGER), new Column("prodi_id", DataType.INTEGER),
+            new Column("angkatan", DataType.INTEGER), new Column("nama", DataType.VARCHAR, 20)),
+        List.of()));
+    for (int i = 0; i < 600; i++) {
+      storageManager.writeBlock(new DataWrite("mhs",
+          new Row(Map.of("nim", i, "prodi_id", i % 6, "angkatan", 2018 + i % 5, "nama", "m" + i)), null));
+    }
+    // Hash didaftarkan lebih dulu: predikat prefix harus melewatinya dan jatuh ke B+ tree
+    storageManager.setIndex("mhs", List.of("angkatan", "prodi_id"), "Hash", null, List.of());
+    storageManager.setIndex("mhs", List.of("prodi_id", "angkatan"), "BPlusTree", null, List.of());
+
+    Schema schema = storageManager.getSchema("mhs");
+    assertEquals(2, schema.indexes().size());
+    assertEquals(List.of("prodi_id", "angkatan"), schema.indexes().get(1).keyColumns());
+
+    BPlusTree tree = ((BPlusIndex<?, ?>) storageManager.getIndexManager()
+        .get("mhs", "prodi_id,angkatan", IndexType.BPlusTree.toString())).getTree();
+    HashTable hash = ((HashIndex<?, ?>) storageManager.getIndexManager()
+        .get("mhs", "angkatan,prodi_id", IndexType.Hash.toString())).getTable();
+
+    // Equality pada prefix saja (prodi_id) -> semua angkatan
+    long treeReads = tree.getPageReads();
+    assertEquals(100, storageManager.readBlock(new DataRetrieval("mhs", List.of("*"),
+        buildComparison("prodi_id", "=", 3), true)).size());
+    assertTrue(tree.getPageReads() > treeReads, "Prefix kolom pertama harus memakai indeks komposit");
+
+    // Prefix + range pada kolom terakhir
+    List<Row> ranged = storageManager.readBlock(new DataRetrieval("mhs", List.of("*"),
+        buildBinary(buildComparison("prodi_id", "=", 3), "AND", buildComparison("angkatan", ">=", 2020)), true));
+    assertEquals(60, ranged.size());
+    for (Row row : ranged) {
+      assertEquals(3, row.data().get("prodi_id"));
+      assertTrue((Integer) row.data().get("angkatan") >= 2020);
+    }
+    assertEquals(20, storageManager.readBlock(new DataRetrieval("mhs", List.of("*"),
+        buildBinary(buildComparison("prodi_id", "=", 3), "AND", buildComparison("angkatan", "<", 2019)), true))
+        .size());
+
+    // Semua kolom equality -> hash komposit bisa menjawab (urutan predikat bebas)
+    long hashReads = hash.getPageReads();
+    assertEquals(20, storageManager.readBlock(new DataRetrieval("mhs", List.of("*"),
+        buildBinary(buildComparison("angkatan", "=", 2020), "AND", buildComparison("prodi_id", "=", 3)), true))
+        .size());
+    assertTrue(hash.getPageReads() > hashReads, "Equality di semua kolom harus memakai hash komposit");
+
+    // Update sebagian kolom kunci memindahkan entri di kedua indeks
+    assertEquals(1, storageManager.updateBlock(new DataUpdate("mhs",
+        new Row(Map.of("angkatan", 2030)), buildComparison("nim", "=", 3))));
+    assertEquals(1, storageManager.readBlock(new DataRetrieval("mhs", List.of("*"),
+        buildBinary(buildComparison("prodi_id", "=", 3), "AND", buildComparison("angkatan", "=", 2030)), true))
+        .size());
+    assertEquals(1, storageManager.deleteBlock(new DataDeletion("mhs",
+        buildBinary(buildComparison("angkatan", "=", 2030), "AND", buildComparison("prodi_id", "=", 3)))));
+
+    // Setelah restart indeks komposit dibuka ulang dari katalog
+    storageManager.shutdown();
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertEquals(99, sm2.readBlock(new DataRetrieval("mhs", List.of("*"),
+          buildComparison("prodi_id", "=", 3), true)).size());
+      assertEquals(0, sm2.readBlock(new DataRetrieval("mhs", List.of("*"),
+          buildBinary(buildComparison("prodi_id", "=", 3), "AND", buildComparison("angkatan", "=", 2030)), true))
+          .size());
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  // ========================================================================
+  // --- Tes B+ Tree Berbasis Halaman ---
+  // ========================================================================
+
+  @Test
+  @DisplayName("Test: Insert B+ tree hanya menulis halaman di jalurnya, restart hanya membaca meta")
+  void testPagedBPlusTreeWritesOnlyTouchedPages() throws Exception {
+    storageManager.createTable(new Schema(
+        "paged",
+        "paged.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("label", DataType.VARCHAR, 40)),
+        List.of(new IndexSchema("idx_paged_label", "label", IndexType.BPlusTree, "paged_label.idx"))));
+    for (int i = 0; i < 3000; i++) {
+      storageManager.writeBlock(new DataWrite("paged",
+          new Row(Map.of("id", i, "label", String.format("label-%06d-padding-padding", i))), null));
+    }
+
+    BPlusIndex<?, ?> index = (BPlusIndex<?, ?>) storageManager.getIndexManager()
+        .get("paged", "label", IndexType.BPlusTree.toString());
+    BPlusTree tree = index.getTree();
+    assertTrue(tree.getHeight() >= 2, "3000 entri harus memecah root");
+
+    long writesBefore = tree.getPageWrites();
+    storageManager.writeBlock(new DataWrite("paged",
+        new Row(Map.of("id", 5000, "label", "label-001500-extra")), null));
+    long writes = tree.getPageWrites() - writesBefore;
+    assertTrue(writes >= 1 && writes <= tree.getHeight() + 2,
+        "Satu insert menulis " + writes + " halaman, tinggi tree " + tree.getHeight());
+
+    List<Row> found = storageManager.readBlock(new DataRetrieval("paged", List.of("*"),
+        buildComparison("label", "=", "label-001234-padding-padding"), true));
+    assertEquals(1, found.size());
+    assertEquals(1234, found.get(0).data().get("id"));
+
+    storageManager.shutdown();
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      BPlusTree reopened = ((BPlusIndex<?, ?>) sm2.getIndexManager()
+          .get("paged", "label", IndexType.BPlusTree.toString())).getTree();
+      assertEquals(1, reopened.getPageReads(), "Membuka indeks cukup membaca halaman meta");
+
+      List<Row> range = sm2.readBlock(new DataRetrieval("paged", List.of("*"),
+          buildBinary(buildComparison("label", ">=", "label-002990"), "AND",
+              buildComparison("label", "<", "label-003000")),
+          true));
+      assertEquals(10, range.size());
+      assertTrue(reopened.getPageReads() <= 1 + reopened.getHeight() + 1,
+          "Range kecil hanya menyentuh jalur root-leaf");
+    } finally {
+      sm2.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: indeks dibuka lazy saat startup dan bisa di-warm-up paralel di background")
+  void testIndexesOpenLazilyAndWarmUp() throws Exception {
+    storageManager.createTable(new Schema(
+        "lazy",
+        "lazy.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("kind", DataType.INTEGER)),
+        List.of(new IndexSchema("idx_lazy_id", "id", IndexType.BPlusTree, "lazy_id.idx"),
+            new IndexSchema("idx_lazy_kind", "kind", IndexType.Hash, "lazy_kind.idx"))));
+    for (int i = 0; i < 500; i++) {
+      storageManager.writeBlock(new DataWrite("lazy", new Row(Map.of("id", i, "kind", i % 4)), null));
+    }
+    storageManager.flushDirtyPages();
+
+    // Query pertama membuka indeks yang dipakainya saja
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertFalse(sm2.getIndexManager().isOpened("lazy", "id", IndexType.BPlusTree.toString()));
+      assertFalse(sm2.getIndexManager().isOpened("lazy", "kind", IndexType.Hash.toString()));
+      List<Row> hit = sm2.readBlock(new DataRetrieval("lazy", List.of("*"), buildComparison("id", "=", 42), true));
+      assertEquals(1, hit.size());
+      assertTrue(sm2.getIndexManager().isOpened("lazy", "id", IndexType.BPlusTree.toString()));
+      assertFalse(sm2.getIndexManager().isOpened("lazy", "kind", IndexType.Hash.toString()));
+    } finally {
+      sm2.shutdown();
+    }
+
+    // Warm-up membuka sisanya di background dan melaporkan progres
+    StorageManager sm3 = new StorageManager(TEST_DIR);
+    sm3.initialize();
+    try {
+      IndexManager.WarmUpProgress before = sm3.getIndexWarmUpProgress();
+      assertEquals(0, before.opened());
+      assertFalse(before.done());
+      sm3.warmUpIndexes(2).get(30, java.util.concurrent.TimeUnit.SECONDS);
+      IndexManager.WarmUpProgress after = sm3.getIndexWarmUpProgress();
+      assertTrue(after.done());
+      assertEquals(before.total(), after.opened() + after.failed());
+      assertTrue(sm3.getIndexManager().isOpened("lazy", "kind", IndexType.Hash.toString()));
+      assertEquals(125, sm3.readBlock(
+          new DataRetrieval("lazy", List.of("*"), buildComparison("kind", "=", 3), true)).size());
+    } finally {
+      sm3.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: indeks yang gagal dibuka tidak dipakai dan dibangun ulang saat startup berikutnya")
+  void testFailedIndexOpenFallsBackToHeapScan() throws Exception {
+    storageManager.createTable(new Schema(
+        "fragile",
+        "fragile.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("kind", DataType.INTEGER)),
+        List.of(new IndexSchema("idx_fragile_id", "id", IndexType.BPlusTree, "fragile_id.idx"))));
+    for (int i = 0; i < 300; i++) {
+      storageManager.writeBlock(new DataWrite("fragile", new Row(Map.of("id", i, "kind", i % 3)), null));
+    }
+    storageManager.shutdown();
+
+    // File indeks diganti direktori: tidak bisa dibaca sebagai halaman
+    File indexFile = new File(TEST_DIR, "fragile_id.idx");
+    assertTrue(indexFile.delete());
+    assertTrue(indexFile.mkdir());
+
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertNull(sm2.getIndexManager().get("fragile", "id", IndexType.BPlusTree.toString()),
+          "Indeks rusak tidak boleh diberikan ke pemanggil");
+      assertEquals(1, sm2.getIndexWarmUpProgress().failed());
+      List<Row> hit = sm2.readBlock(new DataRetrieval("fragile", List.of("*"), buildComparison("id", "=", 42), true));
+      assertEquals(1, hit.size(), "Query kembali ke scan heap");
+      sm2.writeBlock(new DataWrite("fragile", new Row(Map.of("id", 300, "kind", 0)), null));
+    } finally {
+      sm2.shutdown();
+    }
+    assertFalse(indexFile.exists(), "File indeks rusak dihapus supaya tidak dipercaya lagi");
+
+    // File yang hilang dibangun ulang dari tabel, termasuk baris yang ditulis selama rusak
+    StorageManager sm3 = new StorageManager(TEST_DIR);
+    sm3.initialize();
+    try {
+      IIndex<?, ?> index = sm3.getIndexManager().get("fragile", "id", IndexType.BPlusTree.toString());
+      assertNotNull(index);
+      assertEquals(0, sm3.getIndexWarmUpProgress().failed());
+      @SuppressWarnings("unchecked")
+      IIndex<Integer, Long> typed = (IIndex<Integer, Long>) index;
+      assertEquals(1, typed.getAddress(300).size());
+      assertEquals(1, typed.getAddress(42).size());
+    } finally {
+      sm3.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: indeks PK yang gagal dibuka menolak insert/update, bukan menerima duplikat")
+  void testBrokenUniqueIndexRejectsWrites() throws Exception {
+    storageManager.createTable(new Schema(
+        "guarded",
+        "guarded.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("kind", DataType.INTEGER)),
+        List.of(new IndexSchema("pk_guarded_id", "id", IndexType.BPlusTree, "guarded_id.idx", null, List.of(),
+            true))));
+    for (int i = 0; i < 50; i++) {
+      storageManager.writeBlock(new DataWrite("guarded", new Row(Map.of("id", i, "kind", i % 3)), null));
+    }
+    storageManager.shutdown();
+
+    File indexFile = new File(TEST_DIR, "guarded_id.idx");
+    assertTrue(indexFile.delete());
+    assertTrue(indexFile.mkdir());
+
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertThrows(IllegalStateException.class,
+          () -> sm2.writeBlock(new DataWrite("guarded", new Row(Map.of("id", 7, "kind", 0)), null)));
+      assertThrows(IllegalStateException.class, () -> sm2.updateBlock(
+          new DataUpdate("guarded", new Row(Map.of("id", 8)), buildComparison("id", "=", 9))));
+      assertEquals(1, sm2.readBlock(
+          new DataRetrieval("guarded", List.of("*"), buildComparison("id", "=", 7), true)).size());
+      assertEquals(1, sm2.readBlock(
+          new DataRetrieval("guarded", List.of("*"), buildComparison("id", "=", 9), true)).size());
+      // Baca dan hapus tetap jalan lewat scan heap
+      assertEquals(1, sm2.deleteBlock(new DataDeletion("guarded", buildComparison("id", "=", 49))));
+    } finally {
+      sm2.shutdown();
+    }
+
+    // Setelah dibangun ulang, duplikat ditolak oleh indeks seperti biasa
+    StorageManager sm3 = new StorageManager(TEST_DIR);
+    sm3.initialize();
+    try {
+      assertThrows(IllegalStateException.class,
+          () -> sm3.writeBlock(new DataWrite("guarded", new Row(Map.of("id", 7, "kind", 0)), null)));
+      assertEquals(1, sm3.writeBlock(new DataWrite("guarded", new Row(Map.of("id", 49, "kind", 0)), null)));
+      assertEquals(50, sm3.readBlock(new DataRetrieval("guarded", List.of("*"), null, false)).size());
+    } finally {
+      sm3.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: B+ tree yang tidak ditutup bersih dibangun ulang dari tabel")
+  void testUncleanBPlusTreeRebuiltFromTable() throws Exception {
+    assertUncleanIndexRebuilt("crashy_tree", IndexType.BPlusTree);
+  }
+
+  @Test
+  @DisplayName("Test: hash index yang tidak ditutup bersih dibangun ulang dari tabel")
+  void testUncleanHashIndexRebuiltFromTable() throws Exception {
+    assertUncleanIndexRebuilt("crashy_hash", IndexType.Hash);
+  }
+
+  /**
+   * Checkpoint menandai meta indeks bersih; perubahan berikutnya menandainya
+   * tidak bersih di disk. Crash dengan halaman selain meta robek (terisi nol)
+   * tidak boleh dipercaya: indeks dibangun ulang dari heap saat dibuka.
+   */
+  private void assertUncleanIndexRebuilt(String table, IndexType type) throws Exception {
+    String idxFile = table + "_label.idx";
+    storageManager.createTable(new Schema(
+        table,
+        table + ".dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("label", DataType.VARCHAR, 20)),
+        List.of(new IndexSchema("idx_" + table + "_label", "label", type, idxFile))));
+    for (int i = 0; i < 40; i++) {
+      storageManager.writeBlock(new DataWrite(table, new Row(Map.of("id", i, "label", "L" + (i % 4))), null));
+    }
+    storageManager.flushDirtyPages();
+    File indexFile = new File(TEST_DIR, idxFile);
+    assertEquals(1, metaCleanByte(indexFile), "checkpoint menandai meta bersih");
+
+    for (int i = 40; i < 400; i++) {
+      storageManager.writeBlock(new DataWrite(table, new Row(Map.of("id", i, "label", "L" + (i % 4))), null));
+    }
+    assertEquals(0, metaCleanByte(indexFile));
+
+    // Crash: heap sudah di disk, halaman indeks selain meta robek, tanpa checkpoint
+    storageManager.getBufferPool().flushAll();
+    try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(indexFile, "rw")) {
+      int pageSize = storageManager.getBufferPool().getBlockSize();
+      raf.seek(pageSize);
+      raf.write(new byte[(int) raf.length() - pageSize]);
+    }
+
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      List<Row> rows = sm2.readBlock(
+          new DataRetrieval(table, List.of("*"), buildComparison("label", "=", "L1"), true));
+      assertEquals(100, rows.size());
+      assertTrue(sm2.getIndexManager().get(table, "label", type.toString()) != null);
+      assertEquals(1, sm2.writeBlock(new DataWrite(table, new Row(Map.of("id", 400, "label", "L1")), null)));
+    } finally {
+      sm2.shutdown();
+    }
+    assertEquals(1, metaCleanByte(indexFile), "shutdown menandai meta bersih");
+  }
+
+  /**
+   * Byte bersih di halaman meta file indeks, tepat setelah magic.
+   */
+  private static int metaCleanByte(File indexFile) throws IOException {
+    try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(indexFile, "r")) {
+      raf.seek(4);
+      return raf.read();
+    }
+  }
+
+  @Test
+  @DisplayName("Test: B-link tree tetap konsisten saat insert dan lookup berjalan paralel")
+  @SuppressWarnings("unchecked")
+  void testBLinkTreeConcurrentInsertAndLookup() throws Exception {
+    storageManager.createTable(new Schema(
+        "blink",
+        "blink.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("label", DataType.VARCHAR, 40)),
+        List.of(new IndexSchema("idx_blink_label", "label", IndexType.BPlusTree, "blink_label.idx"))));
+    BPlusIndex<String, Long> index = (BPlusIndex<String, Long>) storageManager.getIndexManager()
+        .get("blink", "label", IndexType.BPlusTree.toString());
+
+    // Kunci awal yang harus selalu terlihat oleh pembaca selama split berlangsung
+    int preloaded = 500;
+    for (int i = 0; i < preloaded; i++) {
+      index.insertData(String.format("pre-%05d", i), (long) i);
+    }
+
+    int writers = 6;
+    int perWriter = 1500;
+    int readers = 3;
+    java.util.concurrent.ExecutorService pool =
+        java.util.concurrent.Executors.newFixedThreadPool(writers + readers);
+    java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+    java.util.concurrent.atomic.AtomicBoolean writing = new java.util.concurrent.atomic.AtomicBoolean(true);
+    List<java.util.concurrent.Future<?>> writes = new java.util.ArrayList<>();
+    List<java.util.concurrent.Future<Integer>> reads = new java.util.ArrayList<>();
+    for (int t = 0; t < writers; t++) {
+      int writer = t;
+      writes.add(pool.submit(() -> {
+        start.await();
+        // Kunci antar-penulis berselang-seling supaya split terjadi di leaf yang sama
+        for (int i = 0; i < perWriter; i++) {
+          index.insertData(String.format("key-%05d-%d", i, writer), 10_000L + writer * perWriter + i);
+        }
+        return null;
+      }));
+    }
+    for (int t = 0; t < readers; t++) {
+      int reader = t;
+      reads.add(pool.submit(() -> {
+        start.await();
+        int rounds = 0;
+        do {
+          for (int i = reader; i < preloaded; i += 7) {
+            List<Long> hit = index.getAddress(String.format("pre-%05d", i));
+            if (hit.size() != 1 || hit.get(0) != i) {
+              throw new AssertionError("Lookup pre-" + i + " mengembalikan " + hit);
+            }
+          }
+          List<Long> range = index.getAddresses("pre-", true, "pre-99999", true);
+          if (range.size() != preloaded) {
+            throw new AssertionError("Range scan mengembalikan " + range.size() + " entri");
+          }
+          rounds++;
+        } while (writing.get());
+        return rounds;
+      }));
+    }
+    start.countDown();
+    for (java.util.concurrent.Future<?> w : writes) {
+      w.get();
+    }
+    writing.set(false);
+    for (java.util.concurrent.Future<Integer> r : reads) {
+      assertTrue(r.get() > 0);
+    }
+    pool.shutdown();
+
+    BPlusTree tree = index.getTree();
+    assertTrue(tree.getHeight() >= 2, "Insert paralel harus memecah root");
+    List<Long> all = index.getAddresses(null, true, null, true);
+    assertEquals(preloaded + writers * perWriter, all.size(), "Tidak boleh ada entri yang hilang");
+    for (int t = 0; t < writers; t++) {
+      for (int i = 0; i < perWriter; i += 97) {
+        assertEquals(List.of(10_000L + t * perWriter + i),
+            index.getAddress(String.format("key-%05d-%d", i, t)));
+      }
+    }
+    List<Row> ordered = index.getCoveringRows(null, true, null, true);
+    for (int i = 1; i < ordered.size(); i++) {
+      String prev = (String) ordered.get(i - 1).data().get("label");
+      String cur = (String) ordered.get(i).data().get("label");
+      assertTrue(prev.compareTo(cur) <= 0, "Leaf chain harus tetap terurut: " + prev + " > " + cur);
+    }
+  }
+
+  @Test
+  @DisplayName("Test: Kunci INTEGER/FLOAT di B+ tree terurut benar untuk nilai negatif dan batas lintas tipe")
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  void testPrimitiveKeyOrderingAndMixedBounds() throws Exception {
+    storageManager.createTable(new Schema(
+        "readings",
+        "readings.dat",
+        List.of(new Column("seq", DataType.INTEGER), new Column("temp", DataType.FLOAT)),
+        List.of(
+            new IndexSchema("idx_readings_seq", "seq", IndexType.BPlusTree, "readings_seq.idx"),
+            new IndexSchema("idx_readings_temp", "temp", IndexType.BPlusTree, "readings_temp.idx"))));
+    BPlusIndex seq = (BPlusIndex) storageManager.getIndexManager()
+        .get("readings", "seq", IndexType.BPlusTree.toString());
+    BPlusIndex temp = (BPlusIndex) storageManager.getIndexManager()
+        .get("readings", "temp", IndexType.BPlusTree.toString());
+
+    // Cukup banyak supaya tree punya node internal
+    for (int i = -2000; i < 2000; i++) {
+      seq.insertData(i, (long) i);
+      temp.insertData(i / 4.0f, (long) i);
+    }
+    seq.insertData(Integer.MIN_VALUE, 10_000L);
+    seq.insertData(Integer.MAX_VALUE, 10_001L);
+    temp.insertData(-0.0f, 10_002L);
+
+    assertEquals(List.of(-1500L), seq.getAddress(-1500));
+    assertEquals(List.of(10_000L), seq.getAddress(Integer.MIN_VALUE));
+    // Batas Long di luar rentang int dan batas pecahan dibandingkan tanpa pembulatan
+    assertEquals(4002, seq.getAddresses(Long.MIN_VALUE, true, Long.MAX_VALUE, true).size());
+    assertEquals(List.of(10_001L), seq.getAddresses(2000L, true, (long) Integer.MAX_VALUE + 1, false));
+    assertEquals(List.of(-3L, -2L, -1L), seq.getAddresses(-3.5, true, -0.5, true));
+
+    List<Object> all = seq.getAddresses(null, true, null, true);
+    assertEquals(10_000L, all.get(0));
+    assertEquals(10_001L, all.get(all.size() - 1));
+    assertEquals(List.of(-2000L, -1999L), all.subList(1, 3));
+
+    List<Row> temps = temp.getCoveringRows(null, true, null, true);
+    assertEquals(4001, temps.size());
+    for (int i = 1; i < temps.size(); i++) {
+      float prev = (Float) temps.get(i - 1).data().get("temp");
+      float cur = (Float) temps.get(i).data().get("temp");
+      assertTrue(Float.compare(prev, cur) <= 0, "Urutan FLOAT salah: " + prev + " > " + cur);
+    }
+    assertEquals(-500.0f, temps.get(0).data().get("temp"));
+    // -0.0 < 0.0 seperti Float.compare; batas Integer/Double untuk kolom FLOAT
+    assertEquals(List.of(10_002L, 0L, 1L, 2L, 3L), temp.getAddresses(-0.0f, true, 1, false));
+    assertEquals(List.of(-2L, -1L), temp.getAddresses(-0.5, true, -0.1, true));
+    assertEquals(List.of(1L), temp.getAddress(0.25f));
+  }
+
+  @Test
+  @DisplayName("Test: Kunci VARCHAR di leaf dikompresi prefix sehingga indeks lebih kecil dari kunci mentahnya")
+  void testStringKeyPrefixCompression() throws Exception {
+    storageManager.createTable(new Schema(
+        "mail",
+        "mail.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("email", DataType.VARCHAR, 40)),
+        List.of()));
+    int rows = 3000;
+    for (int i = 0; i < rows; i++) {
+      storageManager.writeBlock(new DataWrite("mail",
+          new Row(Map.of("id", i, "email", String.format("mahasiswa.%05d@std.apacy.ac.id", i))), null));
+    }
+    storageManager.setIndexFillFactor(1.0);
+    storageManager.setIndex("mail", "email", "BPlusTree");
+
+    // Tanpa kompresi setiap entri butuh [short panjang][30 byte][long RID] = 40 byte
+    String indexFile = storageManager.getSchema("mail").indexes().get(0).indexFile();
+    BufferPool bp = storageManager.getBufferPool();
+    long indexBytes = bp.getBlockCount(indexFile) * (long) bp.getBlockSize();
+    assertTrue(indexBytes < rows * 40L,
+        "Indeks " + indexBytes + " byte tidak lebih kecil dari " + (rows * 40) + " byte kunci mentah");
+
+    List<Row> hit = storageManager.readBlock(new DataRetrieval("mail", List.of("id"),
+        buildComparison("email", "=", "mahasiswa.01234@std.apacy.ac.id"), true));
+    assertEquals(1, hit.size());
+    assertEquals(1234, hit.get(0).data().get("id"));
+
+    // Insert setelah build memakai separator terpendek saat split; urutan & isi tetap benar
+    for (int i = rows; i < rows + 1500; i++) {
+      storageManager.writeBlock(new DataWrite("mail",
+          new Row(Map.of("id", i, "email", String.format("mahasiswa.%05d@std.apacy.ac.id", i))), null));
+    }
+    List<Row> range = storageManager.readBlock(new DataRetrieval("mail", List.of("id"),
+        buildBinary(buildComparison("email", ">=", "mahasiswa.02990"), "AND",
+            buildComparison("email", "<", "mahasiswa.03010")),
+        true));
+    assertEquals(20, range.size());
+    BPlusIndex<?, ?> index = (BPlusIndex<?, ?>) storageManager.getIndexManager()
+        .get("mail", "email", IndexType.BPlusTree.toString());
+    assertEquals(rows + 1500, index.getTree().findRange(null, true, null, true).size());
+  }
+
+  @Test
+  @DisplayName("Test: scanBlock membaca leaf indeks dan halaman heap secara lazy")
+  void testScanBlockStreamsLazily() throws Exception {
+    storageManager.createTable(new Schema(
+        "logs",
+        "logs.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("message", DataType.VARCHAR, 60)),
+        List.of(new IndexSchema("idx_logs_id", "id", IndexType.BPlusTree, "logs_id.idx"))));
+    for (int i = 0; i < 4000; i++) {
+      storageManager.writeBlock(new DataWrite("logs",
+          new Row(Map.of("id", i, "message", "request handled in " + i + " ms by worker node")), null));
+    }
+    BufferPool bp = storageManager.getBufferPool();
+    BPlusTree tree = ((BPlusIndex<?, ?>) storageManager.getIndexManager()
+        .get("logs", "id", IndexType.BPlusTree.toString())).getTree();
+    assertTrue(bp.getBlockCount("logs.dat") > 20);
+
+    DataRetrieval range = new DataRetrieval("logs", List.of("*"),
+        buildBinary(buildComparison("id", ">=", 100), "AND", buildComparison("id", "<", 3900)), true);
+    long treeReads = tree.getPageReads();
+    long heapReads = bp.getSharedLatchCount();
+    java.util.Iterator<Row> it = storageManager.scanBlock(range);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(100 + i, it.next().data().get("id"));
+    }
+    assertTrue(tree.getPageReads() - treeReads <= tree.getHeight() + 1,
+        "Lima baris pertama cukup membaca jalur root-leaf, bukan semua leaf");
+    assertTrue(bp.getSharedLatchCount() - heapReads <= 5, "Hanya halaman heap untuk lima baris yang dibaca");
+
+    int remaining = 0;
+    while (it.hasNext()) {
+      it.next();
+      remaining++;
+    }
+    assertEquals(3800 - 5, remaining);
+    assertEquals(3800, storageManager.readBlock(range).size());
+
+    // Full scan tanpa indeks juga berhenti di blok pertama
+    heapReads = bp.getSharedLatchCount();
+    java.util.Iterator<Row> all = storageManager.scanBlock(new DataRetrieval("logs", List.of("*"), null, false));
+    assertNotNull(all.next());
+    assertNotNull(all.next());
+    assertEquals(1, bp.getSharedLatchCount() - heapReads);
+  }
+
+  @Test
+  @DisplayName("Test: orderBy dijawab dari urutan leaf B+ tree, naik maupun turun")
+  void testOrderedIndexScan() throws Exception {
+    storageManager.createTable(new Schema(
+        "scores",
+        "scores.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("score", DataType.INTEGER)),
+        List.of(new IndexSchema("idx_scores_score", "score", IndexType.BPlusTree, "scores_score.idx"))));
+    int rows = 3000;
+    for (int i = 0; i < rows; i++) {
+      storageManager.writeBlock(new DataWrite("scores", new Row(Map.of("id", i, "score", (i * 37) % 1000)), null));
+    }
+    BPlusTree tree = ((BPlusIndex<?, ?>) storageManager.getIndexManager()
+        .get("scores", "score", IndexType.BPlusTree.toString())).getTree();
+    assertTrue(tree.getHeight() > 1);
+
+    List<Row> asc = storageManager.readBlock(
+        new DataRetrieval("scores", List.of("*"), null, false, false, "scores.score", false));
+    List<Row> desc = storageManager.readBlock(
+        new DataRetrieval("scores", List.of("*"), null, false, false, "score", true));
+    assertEquals(rows, asc.size());
+    assertEquals(rows, desc.size());
+    for (int i = 1; i < rows; i++) {
+      assertTrue((int) asc.get(i - 1).data().get("score") <= (int) asc.get(i).data().get("score"));
+      assertTrue((int) desc.get(i - 1).data().get("score") >= (int) desc.get(i).data().get("score"));
+    }
+    assertEquals(999, desc.get(0).data().get("score"));
+
+    // Predikat pada kolom urutan mempersempit rentang indeks
+    List<Row> range = storageManager.readBlock(new DataRetrieval("scores", List.of("score"),
+        buildBinary(buildComparison("score", ">=", 100), "AND", buildComparison("score", "<", 200)),
+        true, false, "score", true));
+    assertEquals(300, range.size());
+    assertEquals(199, range.get(0).data().get("score"));
+    assertEquals(100, range.get(range.size() - 1).data().get("score"));
+
+    // Top-N: ORDER BY score DESC LIMIT 10 tidak menelusuri seluruh indeks
+    BufferPool bp = storageManager.getBufferPool();
+    long treeReads = tree.getPageReads();
+    long heapReads = bp.getSharedLatchCount();
+    java.util.Iterator<Row> top = storageManager.scanBlock(
+        new DataRetrieval("scores", List.of("*"), null, false, false, "score", true));
+    for (int i = 0; i < 10; i++) {
+      assertEquals(999 - i / 3, top.next().data().get("score"));
+    }
+    assertTrue(tree.getPageReads() - treeReads <= 2L * tree.getHeight(),
+        "Sepuluh baris teratas cukup membaca jalur root-leaf paling kanan");
+    assertTrue(bp.getSharedLatchCount() - heapReads <= 10);
+
+    // Kolom tanpa indeks tetap terurut lewat fallback sort
+    List<Row> byId = storageManager.readBlock(
+        new DataRetrieval("scores", List.of("id"), buildComparison("score", "=", 5), true, false, "id", true));
+    assertEquals(List.of(2865, 1865, 865), byId.stream().map(r -> r.data().get("id")).toList());
+  }
+
+  @Test
+  @DisplayName("Test: RID dari indeks dikelompokkan per blok sebelum heap dibaca")
+  void testIndexScanFetchesRidsInBlockOrder() throws Exception {
+    storageManager.createTable(new Schema(
+        "readings",
+        "readings.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("sensor", DataType.INTEGER)),
+        List.of(new IndexSchema("idx_readings_sensor", "sensor", IndexType.BPlusTree, "readings_sensor.idx"))));
+    int rows = 3000;
+    for (int i = 0; i < rows; i++) {
+      storageManager.writeBlock(new DataWrite("readings", new Row(Map.of("id", i, "sensor", (i * 37) % 1000)), null));
+    }
+    BufferPool bp = storageManager.getBufferPool();
+    long blocks = bp.getBlockCount("readings.dat");
+    assertTrue(blocks > 1);
+
+    // Urutan kunci melompat-lompat antar blok; tanpa pengelompokan hampir tiap RID membaca blok lagi
+    long heapReads = bp.getSharedLatchCount();
+    List<Row> range = storageManager.readBlock(new DataRetrieval("readings", List.of("*"),
+        buildComparison("sensor", ">=", 0), true));
+    assertEquals(rows, range.size());
+    assertEquals(rows, range.stream().map(r -> r.data().get("id")).distinct().count());
+    assertTrue(bp.getSharedLatchCount() - heapReads <= 12 * blocks,
+        "Setiap blok dibaca sekali per jendela RID, bukan sekali per RID");
+
+    // Urutan indeks tetap dipertahankan bila diminta (ORDER BY)
+    heapReads = bp.getSharedLatchCount();
+    List<Row> ordered = storageManager.readBlock(new DataRetrieval("readings", List.of("*"),
+        buildComparison("sensor", ">=", 0), true, false, "sensor", false));
+    assertEquals(rows, ordered.size());
+    for (int i = 1; i < rows; i++) {
+      assertTrue((int) ordered.get(i - 1).data().get("sensor") <= (int) ordered.get(i).data().get("sensor"));
+    }
+    assertTrue(bp.getSharedLatchCount() - heapReads <= 12 * blocks);
+  }
+
+  @Test
+  @DisplayName("Test: RidBitmap AND/OR/ANDNOT pada container array dan bitmap")
+  void testRidBitmapOperations() {
+    RidBitmap even = new RidBitmap();
+    RidBitmap dense = new RidBitmap();
+    java.util.TreeSet<Long> evenSet = new java.util.TreeSet<>();
+    java.util.TreeSet<Long> denseSet = new java.util.TreeSet<>();
+    for (long block = 0; block < 3; block++) {
+      for (int slot = 0; slot < 10_000; slot += 2) {
+        even.add(Rid.encode(block * 5, slot));
+        evenSet.add(Rid.encode(block * 5, slot));
+      }
+    }
+    for (int slot = 9_999; slot >= 0; slot -= 3) {
+      dense.add(Rid.encode(5, slot));
+      denseSet.add(Rid.encode(5, slot));
+    }
+    dense.add(Rid.encode(7, 1));
+    denseSet.add(Rid.encode(7, 1));
+    assertEquals(evenSet.size(), even.cardinality());
+
+    java.util.TreeSet<Long> and = new java.util.TreeSet<>(evenSet);
+    and.retainAll(denseSet);
+    java.util.TreeSet<Long> or = new java.util.TreeSet<>(evenSet);
+    or.addAll(denseSet);
+    java.util.TreeSet<Long> andNot = new java.util.TreeSet<>(evenSet);
+    andNot.removeAll(denseSet);
+
+    assertEquals(List.copyOf(and), toList(even.and(dense)));
+    assertEquals(List.copyOf(or), toList(even.or(dense)));
+    assertEquals(List.copyOf(andNot), toList(even.andNot(dense)));
+    assertTrue(even.and(dense).contains(Rid.encode(5, 9_996)));
+    assertFalse(even.and(dense).contains(Rid.encode(5, 9_997)));
+  }
+
+  private static List<Long> toList(RidBitmap bitmap) {
+    List<Long> out = new java.util.ArrayList<>();
+    bitmap.iterator().forEachRemaining((long rid) -> out.add(rid));
+    return out;
+  }
+
+  @Test
+  @DisplayName("Test: predikat AND/OR di beberapa indeks digabung lewat bitmap RID")
+  void testBitmapHeapScanCombinesIndexes() throws Exception {
+    storageManager.createTable(new Schema(
+        "tickets",
+        "tickets.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("status", DataType.INTEGER),
+            new Column("priority", DataType.INTEGER), new Column("title", DataType.VARCHAR, 40)),
+        List.of(new IndexSchema("idx_tickets_status", "status", IndexType.Hash, "tickets_status.idx"),
+            new IndexSchema("idx_tickets_priority", "priority", IndexType.BPlusTree, "tickets_priority.idx"))));
+    int rows = 3000;
+    for (int i = 0; i < rows; i++) {
+      storageManager.writeBlock(new DataWrite("tickets",
+          new Row(Map.of("id", i, "status", i % 7, "priority", i % 50, "title", "tiket nomor " + i)), null));
+    }
+    BufferPool bp = storageManager.getBufferPool();
+    long blocks = bp.getBlockCount("tickets.dat");
+
+    // status = 3 AND priority BETWEEN 10 AND 20
+    WhereConditionNode and = buildBinary(buildComparison("status", "=", 3), "AND",
+        buildBinary(buildComparison("priority", ">=", 10), "AND", buildComparison("priority", "<=", 20)));
+    long heapReads = bp.getSharedLatchCount();
+    List<Row> hits = storageManager.readBlock(new DataRetrieval("tickets", List.of("id"), and, true));
+    long expected = java.util.stream.IntStream.range(0, rows)
+        .filter(i -> i % 7 == 3 && i % 50 >= 10 && i % 50 <= 20).count();
+    assertEquals(expected, hits.size());
+    assertTrue(bp.getSharedLatchCount() - heapReads <= blocks, "Setiap blok heap dibaca paling banyak sekali");
+    List<Integer> ids = hits.stream().map(r -> (Integer) r.data().get("id")).toList();
+    assertEquals(ids.stream().sorted().toList(), ids, "Baris dibaca urut blok");
+
+    // status = 1 OR priority < 2
+    WhereConditionNode or = buildBinary(buildComparison("status", "=", 1), "OR",
+        buildComparison("priority", "<", 2));
+    hits = storageManager.readBlock(new DataRetrieval("tickets", List.of("id"), or, true));
+    assertEquals(java.util.stream.IntStream.range(0, rows).filter(i -> i % 7 == 1 || i % 50 < 2).count(),
+        hits.size());
+  }
+
+  @Test
+  @DisplayName("Test: UPDATE dan DELETE memakai jalur akses yang sama dengan SELECT (bitmap RID, range bitmap)")
+  void testUpdateDeleteShareAccessPath() throws Exception {
+    storageManager.createTable(new Schema(
+        "jobs",
+        "jobs.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("priority", DataType.INTEGER),
+            new Column("bucket", DataType.INTEGER), new Column("title", DataType.VARCHAR, 40)),
+        List.of(new IndexSchema("idx_jobs_priority", "priority", IndexType.BPlusTree, "jobs_priority.idx"),
+            new IndexSchema("idx_jobs_bucket", "bucket", IndexType.Bitmap, "jobs_bucket.idx"))));
+    int rows = 3000;
+    for (int i = 0; i < rows; i++) {
+      storageManager.writeBlock(new DataWrite("jobs",
+          new Row(Map.of("id", i, "priority", i % 500, "bucket", i % 1000, "title", "pekerjaan nomor " + i)), null));
+    }
+    BufferPool bp = storageManager.getBufferPool();
+    long blocks = bp.getBlockCount("jobs.dat");
+
+    // priority = 3 OR priority = 40: RID dua lookup digabung, hanya 12 baris di-latch
+    WhereConditionNode or = buildBinary(buildComparison("priority", "=", 3), "OR",
+        buildComparison("priority", "=", 40));
+    long latches = bp.getExclusiveLatchCount();
+    assertEquals(12, storageManager.updateBlock(new DataUpdate("jobs", new Row(Map.of("title", "ubah")), or)));
+    long used = bp.getExclusiveLatchCount() - latches;
+    assertTrue(used <= 12 && used < blocks, "UPDATE tidak boleh jatuh ke full scan: " + used);
+    assertEquals(12, storageManager.readBlock(new DataRetrieval("jobs", List.of("id"),
+        buildComparison("title", "=", "ubah"), false)).size());
+
+    // bucket < 2: range pada indeks bitmap
+    latches = bp.getExclusiveLatchCount();
+    assertEquals(6, storageManager.deleteBlock(new DataDeletion("jobs", buildComparison("bucket", "<", 2))));
+    used = bp.getExclusiveLatchCount() - latches;
+    assertTrue(used <= 6, "DELETE tidak boleh jatuh ke full scan: " + used);
+    assertEquals(rows - 6, storageManager.readBlock(new DataRetrieval("jobs", List.of("id"), null, false)).size());
+    assertEquals(0, storageManager.readBlock(new DataRetrieval("jobs", List.of("id"),
+        buildComparison("bucket", "<", 2), true)).size());
+  }
+
+  @Test
+  @DisplayName("Test: indeks BITMAP menjawab AND/OR/NOT dan COUNT tanpa membaca heap")
+  void testBitmapIndexCombinesAndCounts() throws Exception {
+    storageManager.createTable(new Schema(
+        "accounts",
+        "accounts.dat",
+        List.of(new Column("id", DataType.INTEGER), new Column("faculty", DataType.VARCHAR, 5),
+            new Column("active", DataType.INTEGER)),
+        List.of()));
+    int rows = 2000;
+    for (int i = 0; i < rows; i++) {
+      storageManager.writeBlock(new DataWrite("accounts",
+          new Row(Map.of("id", i, "faculty", "F" + (i % 5), "active", i % 3 == 0 ? 0 : 1)), null));
+    }
+    storageManager.setIndex("accounts", "faculty", "BITMAP");
+    storageManager.setIndex("accounts", "active", "Bitmap");
+    assertTrue(storageManager.getSchema("accounts").indexes().stream()
+        .allMatch(idx -> idx.indexType() == IndexType.Bitmap));
+
+    // faculty = 'F2' AND NOT (active = 0) OR faculty != 'F1' AND active < 1
+    WhereConditionNode mixed = buildBinary(
+        buildBinary(buildComparison("faculty", "=", "F2"), "AND",
+            new UnaryConditionNode("NOT", buildComparison("active", "=", 0))),
+        "OR",
+        buildBinary(buildComparison("faculty", "!=", "F1"), "AND", buildComparison("active", "<", 1)));
+    long expected = java.util.stream.IntStream.range(0, rows)
+        .filter(i -> (i % 5 == 2 && i % 3 != 0) || (i % 5 != 1 && i % 3 == 0)).count();
+    BufferPool bp = storageManager.getBufferPool();
+    long reads = bp.getMisses() + bp.getHits();
+    assertEquals(expected, storageManager.countRows(new DataRetrieval("accounts", List.of("*"), mixed, true)));
+    assertEquals(reads, bp.getMisses() + bp.getHits(), "COUNT dijawab dari bitmap tanpa membaca halaman");
+    assertEquals(expected,
+        storageManager.readBlock(new DataRetrieval("accounts", List.of("*"), mixed, false)).size());
+    assertEquals(expected,
+        storageManager.readBlock(new DataRetrieval("accounts", List.of("*"), mixed, true)).size());
+
+    // Predikat tanpa indeks bitmap jatuh ke scan biasa
+    assertEquals(100, storageManager.countRows(
+        new DataRetrieval("accounts", List.of("*"), buildComparison("id", "<", 100), true)));
+    assertEquals(rows, storageManager.countRows(new DataRetrieval("accounts", List.of("*"), null, true)));
+
+    // Delete dan insert setelah indeks dibuat ikut terlihat di bitmap
+    storageManager.deleteBlock(new DataDeletion("accounts", buildComparison("faculty", "=", "F0")));
+    storageManager.writeBlock(new DataWrite("accounts",
+        new Row(Map.of("id", rows, "faculty", "F9", "active", 1)), null));
+    WhereConditionNode activeF = buildBinary(buildComparison("faculty", ">=", "F0"), "AND",
+        buildComparison("active", "=", 1));
+    long activeCount = java.util.stream.IntStream.range(0, rows)
+        .filter(i -> i % 5 != 0 && i % 3 != 0).count() + 1;
+    assertEquals(activeCount, storageManager.countRows(new DataRetrieval("accounts", List.of("*"), activeF, true)));
+
+    // Checkpoint menulis snapshot bitmap; perubahan setelahnya hanya menandai file usang
+    storageManager.flushDirtyPages();
+    StorageManager sm2 = new StorageManager(TEST_DIR);
+    sm2.initialize();
+    try {
+      assertEquals(activeCount, sm2.countRows(new DataRetrieval("accounts", List.of("*"), activeF, true)));
+    } finally {
+      sm2.shutdown();
+    }
+    storageManager.writeBlock(new DataWrite("accounts",
+        new Row(Map.of("id", rows + 1, "faculty", "F8", "active", 1)), null));
+    bp.flushAll();
+    StorageManager sm3 = new StorageManager(TEST_DIR);
+    sm3.initialize();
+    try {
+      // Snapshot yang tidak bersih dibangun ulang dari tabel
+      assertEquals(activeCount + 1, sm3.countRows(new DataRetrieval("accounts", List.of("*"), activeF, true)));
+    } finally {
+      sm3.shutdown();
+    }
+  }
+
   // ========================================================================
   // --- Tes Komparasi & Filter (Equality dan Inequality) ---
   // ========================================================================
@@ -1006,7 +3077,7 @@ class StorageManagerTest {
     }
 
     // Verifikasi jumlah blok (300 rows dengan nama panjang harus > 1 blok)
-    long blockCount = storageManager.getBlockManager().getBlockCount("students.dat");
+    long blockCount = storageManager.getBufferPool().getBlockCount("students.dat");
     assertTrue(blockCount > 1, "300 baris harus lebih dari 1 blok");
 
     // Full scan